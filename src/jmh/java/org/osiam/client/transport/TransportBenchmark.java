@@ -0,0 +1,134 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osiam.client.OsiamConnector;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.scim.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the {@link JerseyTransport} and the {@link ApacheHttpTransport} when retrieving a user
+ * from a local stand-in for OSIAM, which always answers with the same user. The server answers instantly, so the
+ * results show the overhead of the client side per request. The server sends its responses without Nagle's algorithm,
+ * as it would otherwise add the delayed ACK timeout of the client to every request.
+ * <p>
+ * Run it with {@code mvn -Pbenchmark clean test-compile exec:exec -Dbenchmark=TransportBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@Threads(4)
+public class TransportBenchmark {
+
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final byte[] USER = ("{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+            + "\"id\":\"" + USER_ID + "\","
+            + "\"meta\":{\"created\":\"2011-08-01T20:29:49.000+0000\","
+            + "\"lastModified\":\"2011-08-01T20:29:49.000+0000\",\"resourceType\":\"User\"},"
+            + "\"userName\":\"bjensen\","
+            + "\"name\":{\"formatted\":\"Ms. Barbara J Jensen III\",\"familyName\":\"Jensen\",\"givenName\":\"Barbara\"},"
+            + "\"displayName\":\"Babs Jensen\",\"active\":true,"
+            + "\"emails\":[{\"value\":\"bjensen@example.com\",\"type\":\"work\",\"primary\":true}]"
+            + "}").getBytes(StandardCharsets.UTF_8);
+    private static final AccessToken ACCESS_TOKEN = new AccessToken.Builder("token").build();
+
+    @Param({"jersey", "apache"})
+    public String transportName;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private OsiamTransport transport;
+    private OsiamConnector connector;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/osiam/Users/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try (InputStream requestBody = exchange.getRequestBody()) {
+                    while (requestBody.read() != -1) {
+                        // drain the request
+                    }
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/scim+json");
+                exchange.sendResponseHeaders(200, USER.length);
+                try (OutputStream responseBody = exchange.getResponseBody()) {
+                    responseBody.write(USER);
+                }
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        transport = "jersey".equals(transportName) ? new JerseyTransport(8, 8) : new ApacheHttpTransport(8, 8);
+        connector = new OsiamConnector.Builder()
+                .withEndpoint(String.format("http://localhost:%d/osiam", server.getAddress().getPort()))
+                .withTransport(transport)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        transport.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public User getUser() {
+        return connector.getUser(USER_ID, ACCESS_TOKEN);
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.helper;
+
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link DateTimeCodec} with the Joda formatter that {@link JsonDateSerializer} and
+ * {@code ExtensionFieldType.DATE_TIME} used before.
+ * <p>
+ * Run it with {@code mvn -Pbenchmark clean test-compile exec:exec -Dbenchmark=DateTimeCodecBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeCodecBenchmark {
+
+    private static final DateTimeFormatter JODA = ISODateTimeFormat.dateTime().withZoneUTC();
+    private static final String DATE_TIME = "2011-08-01T18:29:49.793Z";
+    private static final char[] DATE_TIME_CHARS = DATE_TIME.toCharArray();
+    private static final long MILLIS = 1312223389793L;
+
+    private final char[] buffer = new char[DateTimeCodec.MAX_FORMATTED_LENGTH];
+
+    @Benchmark
+    public long parseCodec() {
+        return DateTimeCodec.parse(DATE_TIME_CHARS, 0, DATE_TIME_CHARS.length);
+    }
+
+    @Benchmark
+    public long parseCodecString() {
+        return DateTimeCodec.parse(DATE_TIME);
+    }
+
+    @Benchmark
+    public long parseJoda() {
+        return JODA.parseDateTime(DATE_TIME).getMillis();
+    }
+
+    @Benchmark
+    public int formatCodec() {
+        return DateTimeCodec.format(MILLIS, buffer, 0);
+    }
+
+    @Benchmark
+    public String formatCodecString() {
+        return DateTimeCodec.format(MILLIS);
+    }
+
+    @Benchmark
+    public String formatJoda() {
+        return JODA.print(MILLIS);
+    }
+}
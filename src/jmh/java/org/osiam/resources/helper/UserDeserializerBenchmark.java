@@ -0,0 +1,152 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.helper;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osiam.resources.scim.User;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single pass {@link UserDeserializer} with the previous implementation, which read the user into a tree,
+ * parsed the tree into a {@link User} with a second mapper and rebuilt the user with its extensions, and with the
+ * single pass that defers multi-valued attributes and extensions, when only a few attributes are read.
+ * <p>
+ * Run it with {@code mvn -Pbenchmark clean test-compile exec:exec -Dbenchmark=UserDeserializerBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDeserializerBenchmark {
+
+    private static final String ENTERPRISE_URN = "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User";
+    private static final byte[] USER = ("{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\",\"" + ENTERPRISE_URN + "\"],"
+            + "\"id\":\"94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4\","
+            + "\"meta\":{\"created\":\"2011-08-01T20:29:49.000+0000\","
+            + "\"lastModified\":\"2011-08-01T20:29:49.000+0000\",\"resourceType\":\"User\"},"
+            + "\"userName\":\"bjensen\","
+            + "\"name\":{\"formatted\":\"Ms. Barbara J Jensen III\",\"familyName\":\"Jensen\",\"givenName\":\"Barbara\"},"
+            + "\"displayName\":\"Babs Jensen\",\"active\":true,"
+            + "\"emails\":[{\"value\":\"bjensen@example.com\",\"type\":\"work\",\"primary\":true},"
+            + "{\"value\":\"babs@jensen.org\",\"type\":\"home\"}],"
+            + "\"phoneNumbers\":[{\"value\":\"555-555-8377\",\"type\":\"work\"}],"
+            + "\"" + ENTERPRISE_URN + "\":{\"employeeNumber\":\"701984\",\"costCenter\":\"4130\","
+            + "\"organization\":\"Universal Studios\",\"division\":\"Theme Park\",\"department\":\"Tour Operations\","
+            + "\"salary\":85000.5,\"level\":7,\"manager\":false}"
+            + "}").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"streaming", "tree", "deferred"})
+    public String deserializer;
+
+    private ObjectReader reader;
+
+    @Setup
+    public void setUp() {
+        JsonDeserializer<User> userDeserializer;
+        if ("streaming".equals(deserializer)) {
+            userDeserializer = new UserDeserializer();
+        } else if ("deferred".equals(deserializer)) {
+            userDeserializer = new UserDeserializer(User.SCHEMA, null, true);
+        } else {
+            userDeserializer = new TreeUserDeserializer();
+        }
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new SimpleModule().addDeserializer(User.class, userDeserializer));
+        reader = mapper.readerFor(User.class);
+    }
+
+    @Benchmark
+    public User deserializeUser() throws IOException {
+        return reader.readValue(USER);
+    }
+
+    @Benchmark
+    public String deserializeUserAndReadEmail() throws IOException {
+        User user = reader.readValue(USER);
+        return user.getUserName() + user.getEmails().get(0).getValue();
+    }
+
+    /**
+     * The previous implementation of {@link UserDeserializer#deserialize(JsonParser, DeserializationContext)}.
+     */
+    private static final class TreeUserDeserializer extends JsonDeserializer<User> {
+
+        private static final ObjectMapper MAPPER = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        private final UserDeserializer extensionDeserializer = new UserDeserializer();
+
+        @Override
+        public User deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            JsonNode rootNode = jp.readValueAsTree();
+
+            User user = MAPPER.readValue(rootNode.traverse(), User.class);
+            if (user.getSchemas() == null) {
+                throw new JsonMappingException("Required field 'schemas' is missing");
+            }
+            if (user.getSchemas().size() == 1) {
+                return user;
+            }
+
+            User.Builder builder = new User.Builder(user);
+            for (String urn : user.getSchemas()) {
+                if (urn.equals(User.SCHEMA)) {
+                    continue;
+                }
+                JsonNode extensionNode = rootNode.get(urn);
+                if (extensionNode == null) {
+                    continue;
+                }
+                builder.addExtension(extensionDeserializer.deserializeExtension(extensionNode, urn));
+            }
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.scim;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osiam.resources.helper.UserDeserializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a page of 100 whole users with reading the same page bound to a {@link Projection} of three
+ * attributes, once as returned by OSIAM for the projection and once with all attributes, which are skipped.
+ * <p>
+ * Run it with {@code mvn -Pbenchmark clean test-compile exec:exec -Dbenchmark=ProjectionBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final Projection PROJECTION = Projection.of(User.USER_NAME, User.EMAILS_VALUE,
+            User.META_LAST_MODIFIED);
+    private static final String WHOLE_USER = "{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+            + "\"id\":\"94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4\","
+            + "\"meta\":{\"created\":\"2011-08-01T20:29:49.000Z\","
+            + "\"lastModified\":\"2011-08-01T20:29:49.000Z\",\"resourceType\":\"User\"},"
+            + "\"userName\":\"bjensen\","
+            + "\"name\":{\"formatted\":\"Ms. Barbara J Jensen III\",\"familyName\":\"Jensen\",\"givenName\":\"Barbara\"},"
+            + "\"displayName\":\"Babs Jensen\",\"active\":true,"
+            + "\"emails\":[{\"value\":\"bjensen@example.com\",\"type\":\"work\",\"primary\":true},"
+            + "{\"value\":\"babs@jensen.org\",\"type\":\"home\"}],"
+            + "\"phoneNumbers\":[{\"value\":\"555-555-8377\",\"type\":\"work\"}],"
+            + "\"groups\":[{\"value\":\"e9e30dba-f08f-4109-8486-d5c6a331660a\",\"display\":\"Tour Guides\"}]"
+            + "}";
+    private static final String PROJECTED_USER = "{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+            + "\"id\":\"94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4\","
+            + "\"meta\":{\"lastModified\":\"2011-08-01T20:29:49.000Z\"},"
+            + "\"userName\":\"bjensen\","
+            + "\"emails\":[{\"value\":\"bjensen@example.com\"},{\"value\":\"babs@jensen.org\"}]"
+            + "}";
+    private static final byte[] WHOLE_PAGE = page(WHOLE_USER);
+    private static final byte[] PROJECTED_PAGE = page(PROJECTED_USER);
+
+    private ObjectReader userPageReader;
+    private ObjectReader projectedPageReader;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new SimpleModule().addDeserializer(User.class, new UserDeserializer()));
+        userPageReader = mapper.readerFor(new TypeReference<SCIMSearchResult<User>>() {
+        });
+        projectedPageReader = mapper.readerFor(new TypeReference<SCIMSearchResult<ProjectedResource>>() {
+        }).withAttribute(Projection.class, PROJECTION);
+    }
+
+    @Benchmark
+    public SCIMSearchResult<User> readWholeUsers() throws IOException {
+        return userPageReader.readValue(WHOLE_PAGE);
+    }
+
+    @Benchmark
+    public SCIMSearchResult<ProjectedResource> readProjectedUsers() throws IOException {
+        return projectedPageReader.readValue(PROJECTED_PAGE);
+    }
+
+    @Benchmark
+    public SCIMSearchResult<ProjectedResource> readProjectionOfWholeUsers() throws IOException {
+        return projectedPageReader.readValue(WHOLE_PAGE);
+    }
+
+    private static byte[] page(String user) {
+        StringBuilder page = new StringBuilder("{\"schemas\":[\"urn:ietf:params:scim:api:messages:2.0:ListResponse\"],")
+                .append("\"totalResults\":").append(PAGE_SIZE).append(",\"itemsPerPage\":").append(PAGE_SIZE)
+                .append(",\"startIndex\":1,\"Resources\":[");
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.append(i > 0 ? "," : "").append(user);
+        }
+        return page.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
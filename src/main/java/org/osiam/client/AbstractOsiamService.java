@@ -23,38 +23,51 @@
  */
 package org.osiam.client;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JavaType;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
-import org.glassfish.jersey.client.ClientProperties;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.osiam.client.exception.*;
 import org.osiam.client.oauth.AccessToken;
 import org.osiam.client.query.Query;
 import org.osiam.client.query.QueryBuilder;
-import org.osiam.resources.helper.UserDeserializer;
+import org.osiam.client.transport.JsonTransportResponse;
+import org.osiam.client.transport.OsiamTransport;
+import org.osiam.client.transport.RequestBody;
+import org.osiam.client.transport.TransportRequest;
+import org.osiam.client.transport.TransportResponse;
 import org.osiam.resources.scim.*;
 
-import javax.ws.rs.ProcessingException;
-import javax.ws.rs.client.Entity;
-import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.Response.Status.Family;
-import javax.ws.rs.core.Response.StatusType;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.osiam.client.OsiamConnector.objectMapper;
 
 /**
  * AbstractOsiamService provides all basic methods necessary to manipulate the Entities registered in the given OSIAM
@@ -64,28 +77,84 @@ abstract class AbstractOsiamService<T extends Resource> {
 
     static final String CONNECTION_SETUP_ERROR_STRING = "Cannot connect to OSIAM";
     private static final String AUTHORIZATION = "Authorization";
+    private static final String ACCEPT = "Accept";
     static final String BEARER = "Bearer ";
 
-    final WebTarget targetEndpoint;
+    private final OsiamTransport transport;
+    private final String endpoint;
     private final Class<T> type;
     private final String typeName;
     private final int connectTimeout;
     private final int readTimeout;
     private final Version version;
-
-    AbstractOsiamService(String endpoint, Class<T> type, int connectTimeout, int readTimeout, Version version) {
+    private JsonMapping jsonMapping;
+    private ObjectReader resourceReader;
+    private ObjectReader searchResultReader;
+    private ObjectWriter resourceWriter;
+    private boolean streamRequestBodies;
+    private ResourceCache resourceCache;
+    private boolean conditionalRequests;
+    private Executor refreshExecutor;
+    private RequestCoalescer requestCoalescer;
+
+    AbstractOsiamService(OsiamTransport transport, String endpoint, Class<T> type, int connectTimeout,
+                         int readTimeout, Version version) {
         this.type = type;
         this.typeName = type.getSimpleName();
         this.connectTimeout = connectTimeout;
         this.readTimeout = readTimeout;
         this.version = version;
-        UserDeserializer userDeserializer =
-                this.version == Version.OSIAM_2_LEGACY_SCHEMAS ? new UserDeserializer(OsiamUserService.LEGACY_SCHEMA) : new UserDeserializer();
-        SimpleModule userDeserializerModule = new SimpleModule("userDeserializerModule", com.fasterxml.jackson.core.Version.unknownVersion())
-                .addDeserializer(User.class, userDeserializer);
-        objectMapper.registerModule(userDeserializerModule);
+        setJsonMapping(JsonMapping.forVersion(version));
+
+        this.transport = transport;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @param jsonMapping the mapping of resources and responses from and to JSON
+     */
+    void setJsonMapping(JsonMapping jsonMapping) {
+        this.jsonMapping = jsonMapping;
+        this.resourceReader = jsonMapping.resourceReader(type);
+        this.searchResultReader = jsonMapping.searchResultReader(type);
+        this.resourceWriter = jsonMapping.resourceWriter(type);
+    }
 
-        targetEndpoint = OsiamConnector.getClient().target(endpoint);
+    /**
+     * @param streamRequestBodies if resources should be serialized directly into chunked request bodies
+     */
+    void setStreamRequestBodies(boolean streamRequestBodies) {
+        this.streamRequestBodies = streamRequestBodies;
+    }
+
+    /**
+     * @param resourceCache the cache for resources retrieved by id, or {@code null} to disable caching
+     */
+    void setResourceCache(ResourceCache resourceCache) {
+        this.resourceCache = resourceCache;
+    }
+
+    /**
+     * @param conditionalRequests if expired resources in the resource cache should be revalidated with their entity tag
+     */
+    void setConditionalRequests(boolean conditionalRequests) {
+        this.conditionalRequests = conditionalRequests;
+    }
+
+    /**
+     * @param refreshExecutor the executor to refresh expired resources on while they are served from the resource
+     *                        cache, or {@code null} to retrieve expired resources synchronously
+     */
+    void setRefreshExecutor(Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * @param requestCoalescer the coalescer that identical reads in flight share their result through, or
+     *                         {@code null} to send every read
+     */
+    void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
     }
 
     static void checkAccessTokenIsNotNull(AccessToken accessToken) {
@@ -93,53 +162,283 @@ abstract class AbstractOsiamService<T extends Resource> {
     }
 
     T getResource(String id, AccessToken accessToken, String... attributes) {
+        return execute(getResourceExchange(id, accessToken, attributes));
+    }
+
+    Exchange<T> getResourceExchange(String id, AccessToken accessToken, String... attributes) {
         checkArgument(!Strings.isNullOrEmpty(id), "The given id must not be null nor empty.");
         checkAccessTokenIsNotNull(accessToken);
 
-        StatusType status;
-        String content;
+        String joinedAttributes = attributes != null ? Joiner.on(",").join(attributes) : "";
+        TransportRequest.Builder request = newRequest("GET", accessToken).path(typeName + "s").path(id);
+        if (!joinedAttributes.isEmpty()) {
+            request.queryParam("attributes", joinedAttributes);
+        }
+        return singleResourceExchange(request, id, joinedAttributes, accessToken);
+    }
 
-        WebTarget target;
-        if (attributes == null || attributes.length == 0) {
-            target = targetEndpoint;
-        } else {
-            target = targetEndpoint.queryParam("attributes", Joiner.on(",").join(attributes));
+    /**
+     * Creates the exchange for the given request of a single resource, which uses the resource cache if there is one.
+     *
+     * @param id               the id the resource is cached under
+     * @param joinedAttributes the requested attributes, separated by commas
+     */
+    Exchange<T> singleResourceExchange(TransportRequest.Builder request, String id, String joinedAttributes,
+                                       AccessToken accessToken) {
+        if (resourceCache == null) {
+            return coalesce(resourceExchange(request.build(), accessToken));
+        }
+        ResourceCache.Key key = new ResourceCache.Key(typeName, id, joinedAttributes, accessToken.getToken());
+        ResourceCache.CachedResource cachedResource = resourceCache.lookup(key);
+        if (cachedResource == null || resourceCache.isFresh(cachedResource)) {
+            return coalesce(cachingResourceExchange(request, accessToken, key, cachedResource));
+        }
+        if (refreshExecutor != null && resourceCache.isServable(cachedResource)) {
+            refreshInBackground(new TransportRequest.Builder(request.build()), accessToken, key, cachedResource);
+            return cachingResourceExchange(request, accessToken, key, cachedResource, true);
+        }
+        return coalesce(cachingResourceExchange(request, accessToken, key, cachedResource));
+    }
+
+    /**
+     * @return an exchange that shares its result with identical exchanges in flight, if requests are coalesced
+     */
+    private <R> Exchange<R> coalesce(Exchange<R> exchange) {
+        return requestCoalescer != null ? requestCoalescer.coalesce(exchange) : exchange;
+    }
+
+    /**
+     * Refreshes the given expired resource on the refresh executor, unless it is already being refreshed. Failures are
+     * ignored, as the resource is refreshed again by the next read.
+     */
+    private void refreshInBackground(TransportRequest.Builder request, AccessToken accessToken,
+                                     final ResourceCache.Key key, ResourceCache.CachedResource cachedResource) {
+        if (!resourceCache.startRefresh(key)) {
+            return;
         }
+        final Exchange<T> exchange = cachingResourceExchange(request, accessToken, key, cachedResource);
         try {
-            Response response = target.path(typeName + "s").path(id).request(MediaType.APPLICATION_JSON)
-                    .header(AUTHORIZATION, BEARER + accessToken.getToken())
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .get();
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        exchange.execute(transport);
+                    } catch (RuntimeException e) {
+                        // the stale resource is served until the next read refreshes it
+                    } finally {
+                        resourceCache.finishRefresh(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            resourceCache.finishRefresh(key);
+        }
+    }
+
+    private Exchange<T> cachingResourceExchange(TransportRequest.Builder request, AccessToken accessToken,
+                                                ResourceCache.Key key, ResourceCache.CachedResource cachedResource) {
+        return cachingResourceExchange(request, accessToken, key, cachedResource,
+                cachedResource != null && resourceCache.isFresh(cachedResource));
+    }
+
+    /**
+     * Creates an exchange that answers with the cached resource, if it may be served, and otherwise stores the retrieved
+     * resource in the cache. If conditional requests are enabled, an expired resource is revalidated with its entity
+     * tag, and reused if the server answers with {@code 304 Not Modified}.
+     */
+    private Exchange<T> cachingResourceExchange(TransportRequest.Builder request, final AccessToken accessToken,
+                                                final ResourceCache.Key key,
+                                                final ResourceCache.CachedResource cachedResource,
+                                                final boolean serveCachedResource) {
+        // taken before the request is sent, so a resource that is changed meanwhile is not stored
+        final long invalidationStamp = resourceCache.invalidationStamp();
+        final boolean revalidate = !serveCachedResource && conditionalRequests && cachedResource != null
+                && cachedResource.entityTag != null;
+        if (revalidate) {
+            request.header("If-None-Match", cachedResource.entityTag);
         }
+        return new Exchange<T>(request.build(), CONNECTION_SETUP_ERROR_STRING) {
+            @Override
+            T cachedResult() {
+                return serveCachedResource ? type.cast(cachedResource.resource) : null;
+            }
 
-        checkAndHandleResponse(content, status, accessToken);
+            @Override
+            T handleResponse(TransportResponse response) {
+                if (revalidate && response.getStatus() == Status.NOT_MODIFIED.getStatusCode()) {
+                    response.close();
+                    resourceCache.put(key, cachedResource.resource, cachedResource.entityTag, invalidationStamp);
+                    return type.cast(cachedResource.resource);
+                }
+                checkAndHandleResponse(response, accessToken);
+                T resource = mapToResource(response);
+                resourceCache.put(key, resource, entityTag(response, resource), invalidationStamp);
+                return resource;
+            }
+        };
+    }
 
-        return mapToResource(content);
+    /**
+     * @return the entity tag of the given response, or the quoted version of the resource if the server did not send
+     * one
+     */
+    private static String entityTag(TransportResponse response, Resource resource) {
+        String entityTag = response.getHeader("ETag");
+        if (Strings.isNullOrEmpty(entityTag)) {
+            Meta meta = resource.getMeta();
+            entityTag = meta != null ? meta.getVersion() : null;
+        }
+        if (Strings.isNullOrEmpty(entityTag)) {
+            return null;
+        }
+        if (entityTag.startsWith("\"") || entityTag.startsWith("W/\"")) {
+            return entityTag;
+        }
+        return '"' + entityTag + '"';
     }
 
     List<T> getAllResources(AccessToken accessToken, String... attributes) {
-        QueryBuilder qBuilder = new QueryBuilder().count(Integer.MAX_VALUE);
+        return getAllResources(accessToken, Integer.MAX_VALUE, 1, MoreExecutors.directExecutor(), attributes);
+    }
+
+    /**
+     * Retrieves all resources in pages of the given size. The first page is retrieved to learn the total number of
+     * results, the remaining pages are then retrieved by up to {@code parallelism} threads at the same time. The calling
+     * thread takes part in retrieving the pages, so the method completes even if the executor has no free threads.
+     * <p>
+     * The pages are sorted by id, so they do not depend on the order the server happens to return. As the pages are
+     * selected by their offset, resources that are created or deleted while the pages are retrieved can still be
+     * skipped or returned twice. A page size of {@link Integer#MAX_VALUE} sends the unsorted request of the versions
+     * up to 1.9, whose result is in the order of the server.
+     * </p>
+     */
+    List<T> getAllResources(AccessToken accessToken, int pageSize, int parallelism, Executor executor,
+                            String... attributes) {
+        QueryBuilder qBuilder = new QueryBuilder().count(pageSize);
+        if (pageSize < Integer.MAX_VALUE) {
+            qBuilder.ascending("id");
+        }
         if (attributes != null && attributes.length > 0) {
             qBuilder.attributes(Joiner.on(',').join(attributes));
         }
         Query query = qBuilder.build();
-        return searchResources(query, accessToken).getResources();
+        SCIMSearchResult<T> firstPage = searchResources(query, accessToken);
+        List<T> resources = firstPage.getResources();
+        if (resources.isEmpty() || resources.size() >= firstPage.getTotalResults()) {
+            return resources;
+        }
+
+        // the server may return less resources than requested, so its page size is used for the remaining pages
+        int serverPageSize = resources.size();
+        List<Query> remainingPages = new ArrayList<>();
+        for (long startIndex = 1 + serverPageSize; startIndex <= firstPage.getTotalResults();
+             startIndex += serverPageSize) {
+            remainingPages.add(new QueryBuilder(query).startIndex(startIndex).count(serverPageSize).build());
+        }
+
+        List<T> allResources = new ArrayList<>((int) Math.min(firstPage.getTotalResults(), Integer.MAX_VALUE));
+        allResources.addAll(resources);
+        for (SCIMSearchResult<T> page : searchPages(remainingPages, accessToken, parallelism, executor)) {
+            allResources.addAll(page.getResources());
+        }
+        return allResources;
+    }
+
+    private List<SCIMSearchResult<T>> searchPages(final List<Query> queries, final AccessToken accessToken,
+                                                  int parallelism, Executor executor) {
+        final AtomicReferenceArray<SCIMSearchResult<T>> pages = new AtomicReferenceArray<>(queries.size());
+        final AtomicInteger nextPage = new AtomicInteger();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final CountDownLatch pagesDone = new CountDownLatch(queries.size());
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int i;
+                while ((i = nextPage.getAndIncrement()) < queries.size()) {
+                    try {
+                        if (failure.get() == null) {
+                            pages.set(i, searchResources(queries.get(i), accessToken));
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        pagesDone.countDown();
+                    }
+                }
+            }
+        };
+
+        try {
+            for (int i = 1; i < Math.min(parallelism, queries.size()); i++) {
+                executor.execute(worker);
+            }
+        } catch (RejectedExecutionException e) {
+            OsiamClientException rejected = new OsiamClientException("Unable to retrieve all resources in parallel",
+                    e);
+            // stops the workers that have already been started after their current page
+            failure.compareAndSet(null, rejected);
+            throw rejected;
+        }
+        worker.run();
+        try {
+            pagesDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            OsiamClientException interrupted = new OsiamClientException("Interrupted while retrieving all resources",
+                    e);
+            failure.compareAndSet(null, interrupted);
+            throw interrupted;
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        List<SCIMSearchResult<T>> result = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            result.add(pages.get(i));
+        }
+        return result;
+    }
+
+    Iterable<T> iterateResources(final Query query, final AccessToken accessToken,
+                                 final ListeningExecutorService executor) {
+        checkNotNull(query, "The given query must not be null.");
+        checkAccessTokenIsNotNull(accessToken);
+
+        final Function<Query, SCIMSearchResult<T>> search = new Function<Query, SCIMSearchResult<T>>() {
+            @Override
+            public SCIMSearchResult<T> apply(Query pageQuery) {
+                return searchResources(pageQuery, accessToken);
+            }
+        };
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new PagingIterator<>(query, search, executor);
+            }
+        };
     }
 
     SCIMSearchResult<T> searchResources(Query query, AccessToken accessToken) {
+        return execute(searchResourcesExchange(query, accessToken));
+    }
+
+    Exchange<SCIMSearchResult<T>> searchResourcesExchange(Query query, final AccessToken accessToken) {
+        return coalesce(new Exchange<SCIMSearchResult<T>>(searchRequest(query, accessToken),
+                CONNECTION_SETUP_ERROR_STRING) {
+            @Override
+            SCIMSearchResult<T> handleResponse(TransportResponse response) {
+                checkAndHandleResponse(response, accessToken);
+                return mapToType(response, searchResultReader, "SCIMSearchResult");
+            }
+        });
+    }
+
+    private TransportRequest searchRequest(Query query, AccessToken accessToken) {
         checkNotNull(query, "The given query must not be null.");
         checkAccessTokenIsNotNull(accessToken);
 
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(typeName + "s")
+        return newRequest("GET", accessToken).path(typeName + "s")
                     .queryParam("attributes", query.getAttributes())
                     .queryParam("filter", query.getFilter())
                     .queryParam("sortBy", query.getSortBy())
@@ -148,80 +447,95 @@ abstract class AbstractOsiamService<T extends Resource> {
                             query.getStartIndex() != QueryBuilder.DEFAULT_START_INDEX ? query.getStartIndex() : null)
                     .queryParam("count",
                             query.getCount() != QueryBuilder.DEFAULT_COUNT ? query.getCount() : null)
-                    .request(MediaType.APPLICATION_JSON)
-                    .header(AUTHORIZATION, BEARER + accessToken.getToken())
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .get();
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
-        }
-
-        checkAndHandleResponse(content, status, accessToken);
+                    .build();
+    }
 
-        try {
-            JavaType queryResultType = TypeFactory.defaultInstance().constructParametrizedType(SCIMSearchResult.class,
-                    SCIMSearchResult.class, type);
-            return objectMapper.readValue(content, queryResultType);
-        } catch (IOException e) {
-            throw new OsiamClientException(String.format("Unable to deserialize search result: %s", content), e);
-        }
+    ProjectedResource getProjectedResource(String id, AccessToken accessToken, Projection projection) {
+        return execute(getProjectedResourceExchange(id, accessToken, projection));
     }
 
-    void deleteResource(String id, AccessToken accessToken) {
+    /**
+     * Creates the exchange for a single resource that is bound to the given projection. Projected reads bypass the
+     * resource cache and are not coalesced, as a read of the whole resource with the same attributes sends the same
+     * request, but expects a {@link Resource}.
+     */
+    Exchange<ProjectedResource> getProjectedResourceExchange(String id, final AccessToken accessToken,
+                                                             Projection projection) {
         checkArgument(!Strings.isNullOrEmpty(id), "The given id must not be null nor empty.");
         checkAccessTokenIsNotNull(accessToken);
+        checkNotNull(projection, "The given projection must not be null.");
+
+        TransportRequest request = newRequest("GET", accessToken).path(typeName + "s").path(id)
+                .queryParam("attributes", projection.getAttributesParameter())
+                .build();
+        final ObjectReader reader = jsonMapping.projectedResourceReader(projection);
+        return new Exchange<ProjectedResource>(request, CONNECTION_SETUP_ERROR_STRING) {
+            @Override
+            ProjectedResource handleResponse(TransportResponse response) {
+                checkAndHandleResponse(response, accessToken);
+                return mapToType(response, reader, typeName);
+            }
+        };
+    }
 
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(typeName + "s").path(id).request(MediaType.APPLICATION_JSON)
-                    .header(AUTHORIZATION, BEARER + accessToken.getToken())
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .delete();
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
-        }
+    SCIMSearchResult<ProjectedResource> searchProjectedResources(Query query, AccessToken accessToken,
+                                                                 Projection projection) {
+        return execute(searchProjectedResourcesExchange(query, accessToken, projection));
+    }
 
-        checkAndHandleResponse(content, status, accessToken);
+    /**
+     * Creates the exchange for a search whose results are bound to the given projection. The attributes of the query
+     * are replaced by the attributes of the projection.
+     */
+    Exchange<SCIMSearchResult<ProjectedResource>> searchProjectedResourcesExchange(Query query,
+                                                                                   final AccessToken accessToken,
+                                                                                   Projection projection) {
+        checkNotNull(query, "The given query must not be null.");
+        checkNotNull(projection, "The given projection must not be null.");
+
+        TransportRequest request = searchRequest(new QueryBuilder(query).attributes(projection).build(), accessToken);
+        final ObjectReader reader = jsonMapping.projectedSearchResultReader(projection);
+        return new Exchange<SCIMSearchResult<ProjectedResource>>(request, CONNECTION_SETUP_ERROR_STRING) {
+            @Override
+            SCIMSearchResult<ProjectedResource> handleResponse(TransportResponse response) {
+                checkAndHandleResponse(response, accessToken);
+                return mapToType(response, reader, "SCIMSearchResult");
+            }
+        };
     }
 
-    T createResource(T resource, AccessToken accessToken) {
-        checkNotNull(resource, "The given %s must not be null nor empty.", typeName);
+    void deleteResource(String id, AccessToken accessToken) {
+        execute(deleteResourceExchange(id, accessToken));
+    }
+
+    Exchange<Void> deleteResourceExchange(final String id, final AccessToken accessToken) {
+        checkArgument(!Strings.isNullOrEmpty(id), "The given id must not be null nor empty.");
         checkAccessTokenIsNotNull(accessToken);
 
-        String resourceAsString;
-        try {
-            resourceAsString = mapToString(resource);
-        } catch (JsonProcessingException | ClassCastException e) {
-            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
-        }
+        TransportRequest request = newRequest("DELETE", accessToken).path(typeName + "s").path(id).build();
+        return new Exchange<Void>(request, CONNECTION_SETUP_ERROR_STRING) {
+            @Override
+            Void handleResponse(TransportResponse response) {
+                invalidateCachedResource(id);
+                checkAndHandleResponse(response, accessToken);
+                response.close();
+                return null;
+            }
+        };
+    }
 
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(typeName + "s").request(MediaType.APPLICATION_JSON)
-                    .header(AUTHORIZATION, BEARER + accessToken.getToken())
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .post(Entity.json(resourceAsString));
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
-        }
+    T createResource(T resource, AccessToken accessToken) {
+        return execute(createResourceExchange(resource, accessToken));
+    }
 
-        checkAndHandleResponse(content, status, accessToken);
+    Exchange<T> createResourceExchange(T resource, AccessToken accessToken) {
+        checkNotNull(resource, "The given %s must not be null nor empty.", typeName);
+        checkAccessTokenIsNotNull(accessToken);
 
-        return mapToResource(content);
+        TransportRequest request = newRequest("POST", accessToken).path(typeName + "s")
+                .body(resourceBody(resource), MediaType.APPLICATION_JSON)
+                .build();
+        return resourceExchange(request, accessToken);
     }
 
     /**
@@ -229,110 +543,191 @@ abstract class AbstractOsiamService<T extends Resource> {
      */
     @Deprecated
     T updateResource(String id, T resource, AccessToken accessToken) {
-        return modifyResource(id, resource, "PATCH", accessToken);
+        return execute(modifyResourceExchange(id, resource, "PATCH", accessToken));
     }
 
     T replaceResource(String id, T resource, AccessToken accessToken) {
-        return modifyResource(id, resource, "PUT", accessToken);
+        return execute(replaceResourceExchange(id, resource, accessToken));
+    }
+
+    Exchange<T> replaceResourceExchange(String id, T resource, AccessToken accessToken) {
+        return modifyResourceExchange(id, resource, "PUT", accessToken);
     }
 
-    private T modifyResource(String id, T resource, String method, AccessToken accessToken) {
+    private Exchange<T> modifyResourceExchange(final String id, T resource, String method,
+                                               final AccessToken accessToken) {
         checkArgument(!Strings.isNullOrEmpty(id), "The given id must not be null nor empty.");
         checkNotNull(resource, "The given %s must not be null nor empty.", typeName);
         checkAccessTokenIsNotNull(accessToken);
 
-        String resourceAsString;
-        try {
-            resourceAsString = mapToString(resource);
-        } catch (JsonProcessingException e) {
-            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
-        }
+        TransportRequest request = newRequest(method, accessToken).path(typeName + "s").path(id)
+                .body(resourceBody(resource), MediaType.APPLICATION_JSON)
+                .build();
+        return new Exchange<T>(request, CONNECTION_SETUP_ERROR_STRING) {
+            @Override
+            T handleResponse(TransportResponse response) {
+                invalidateCachedResource(id);
+                checkAndHandleResponse(response, accessToken);
+                return mapToResource(response);
+            }
+        };
+    }
 
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(typeName + "s").path(id).request(MediaType.APPLICATION_JSON)
-                    .header(AUTHORIZATION, BEARER + accessToken.getToken())
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .method(method, Entity.json(resourceAsString));
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
+    /**
+     * Removes a resource that is changed by this connector from the resource cache. It is removed even if the change
+     * fails, as the response does not tell reliably whether the resource has been changed.
+     */
+    private void invalidateCachedResource(String id) {
+        if (resourceCache != null) {
+            resourceCache.invalidate(id);
         }
+    }
 
-        checkAndHandleResponse(content, status, accessToken);
+    /**
+     * Creates an exchange whose response is a single resource of this service's type.
+     */
+    private Exchange<T> resourceExchange(TransportRequest request, final AccessToken accessToken) {
+        return new Exchange<T>(request, CONNECTION_SETUP_ERROR_STRING) {
+            @Override
+            T handleResponse(TransportResponse response) {
+                checkAndHandleResponse(response, accessToken);
+                return mapToResource(response);
+            }
+        };
+    }
 
-        return mapToResource(content);
+    /**
+     * Creates a request to the resource server that accepts JSON and is authorized with the given access token.
+     */
+    TransportRequest.Builder newRequest(String method, AccessToken accessToken) {
+        return new TransportRequest.Builder(method, endpoint)
+                .header(ACCEPT, MediaType.APPLICATION_JSON)
+                .header(AUTHORIZATION, BEARER + accessToken.getToken())
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout);
     }
 
-    private T mapToResource(String content) {
-        return mapToType(content, type);
+    <R> R execute(Exchange<R> exchange) {
+        return exchange.execute(transport);
     }
 
-    <U> U mapToType(String content, Class<U> type) {
-        try {
-            if (version == Version.OSIAM_2_LEGACY_SCHEMAS && (type == User.class || type == Group.class)) {
-                ObjectNode resourceNode = (ObjectNode) objectMapper.readTree(content);
-                switchToLegacySchema(resourceNode);
-                return objectMapper.readValue(objectMapper.treeAsTokens(resourceNode), type);
+    private T mapToResource(TransportResponse response) {
+        return mapToType(response, resourceReader, typeName);
+    }
+
+    /**
+     * Parses the entity of the given successful response directly from its stream, or from its tokens if the transport
+     * has already tokenized it, and closes the response.
+     */
+    <U> U mapToType(TransportResponse response, ObjectReader reader, String typeName) {
+        try (JsonParser content = openJsonBody(response, reader)) {
+            if (version == Version.OSIAM_2_LEGACY_SCHEMAS && reader == resourceReader) {
+                return reader.readValue(new LegacySchemaParser(content, getSchema(), getLegacySchema()));
             } else {
-                return objectMapper.readValue(content, type);
+                return reader.readValue(content);
             }
-        } catch (IOException | ClassCastException e) {
-            throw new OsiamClientException(String.format("Unable to parse %s: %s", typeName, content), e);
+        } catch (JsonProcessingException | ClassCastException e) {
+            throw new OsiamClientException(String.format("Unable to parse %s", typeName), e);
+        } catch (IOException e) {
+            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
+        } finally {
+            response.close();
         }
     }
 
-    private String mapToString(T resource) throws JsonProcessingException {
-        if (version == Version.OSIAM_2_LEGACY_SCHEMAS) {
-            ObjectNode resourceNode = objectMapper.valueToTree(resource);
-            switchToLegacySchema(resourceNode);
-            return resourceNode.toString();
-        } else {
-            return objectMapper.writeValueAsString(resource);
+    private JsonParser openJsonBody(TransportResponse response, ObjectReader reader) throws IOException {
+        if (response instanceof JsonTransportResponse) {
+            // the deserializers of the resources need a codec
+            JsonParser parser = ((JsonTransportResponse) response).getJsonBody();
+            parser.setCodec(reader);
+            return parser;
         }
+        return jsonMapping.getFactory().createParser(response.getBody());
     }
 
-    private void switchToLegacySchema(ObjectNode resourceNode) {
-        ArrayNode schemas = (ArrayNode) resourceNode.get("schemas");
-        for (int i = 0; i < schemas.size(); i++) {
-            if (getSchema().equals(schemas.get(i).textValue())) {
-                schemas.remove(i);
-            }
+    /**
+     * Creates the body of a request that sends the given resource. A streamed body serializes the resource directly
+     * into the connection while the request is sent, otherwise the resource is serialized right away.
+     */
+    private RequestBody resourceBody(final T resource) {
+        if (streamRequestBodies) {
+            return new RequestBody() {
+                @Override
+                public long getContentLength() {
+                    return -1;
+                }
+
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    writeResource(resource, out);
+                }
+            };
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try {
+            writeResource(resource, body);
+        } catch (IOException e) {
+            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
+        }
+        return RequestBody.of(body.toByteArray());
+    }
+
+    private void writeResource(T resource, OutputStream out) throws IOException {
+        JsonGenerator generator = jsonMapping.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        // the stream belongs to the transport
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (version == Version.OSIAM_2_LEGACY_SCHEMAS) {
+            generator = new LegacySchemaGenerator(generator, getSchema(), getLegacySchema());
+        }
+        try (JsonGenerator resourceGenerator = generator) {
+            resourceWriter.writeValue(resourceGenerator, resource);
         }
-        schemas.add(getLegacySchema());
     }
 
     protected abstract String getSchema();
 
     protected abstract String getLegacySchema();
 
-    void checkAndHandleResponse(String content, StatusType status, AccessToken accessToken) {
-        if (status.getFamily() == Family.SUCCESSFUL) {
+    /**
+     * Checks the status of the given response. The entity is only read, if the response is an error and its message
+     * is needed.
+     */
+    void checkAndHandleResponse(TransportResponse response, AccessToken accessToken) {
+        if (Family.familyOf(response.getStatus()) == Family.SUCCESSFUL) {
             return;
         }
 
-        if (status.getStatusCode() == Status.UNAUTHORIZED.getStatusCode()) {
-            String errorMessage = extractErrorMessageUnauthorized(content, status);
+        String content;
+        try (InputStream body = response.getBody()) {
+            content = CharStreams.toString(new InputStreamReader(body, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
+        } finally {
+            response.close();
+        }
+        checkAndHandleResponse(content, response.getStatus(), response.getReasonPhrase(), accessToken);
+    }
+
+    private void checkAndHandleResponse(String content, int status, String reasonPhrase, AccessToken accessToken) {
+        if (status == Status.UNAUTHORIZED.getStatusCode()) {
+            String errorMessage = extractErrorMessageUnauthorized(content, reasonPhrase);
             throw new UnauthorizedException(errorMessage);
-        } else if (status.getStatusCode() == Status.BAD_REQUEST.getStatusCode()) {
-            String errorMessage = extractErrorMessage(content, status);
+        } else if (status == Status.BAD_REQUEST.getStatusCode()) {
+            String errorMessage = extractErrorMessage(content, reasonPhrase);
             throw new BadRequestException(errorMessage);
-        } else if (status.getStatusCode() == Status.NOT_FOUND.getStatusCode()) {
-            String errorMessage = extractErrorMessage(content, status);
+        } else if (status == Status.NOT_FOUND.getStatusCode()) {
+            String errorMessage = extractErrorMessage(content, reasonPhrase);
             throw new NoResultException(errorMessage);
-        } else if (status.getStatusCode() == Status.FORBIDDEN.getStatusCode()) {
+        } else if (status == Status.FORBIDDEN.getStatusCode()) {
             String errorMessage = extractErrorMessageForbidden(accessToken);
             throw new ForbiddenException(errorMessage);
-        } else if (status.getStatusCode() == Status.CONFLICT.getStatusCode()) {
-            String errorMessage = extractErrorMessage(content, status);
+        } else if (status == Status.CONFLICT.getStatusCode()) {
+            String errorMessage = extractErrorMessage(content, reasonPhrase);
             throw new ConflictException(errorMessage);
         } else {
-            String errorMessage = extractErrorMessageDefault(content, status);
-            throw new OsiamRequestException(status.getStatusCode(), errorMessage);
+            String errorMessage = extractErrorMessageDefault(content, reasonPhrase);
+            throw new OsiamRequestException(status, errorMessage);
         }
 
     }
@@ -341,15 +736,15 @@ abstract class AbstractOsiamService<T extends Resource> {
         return "Insufficient scopes: " + accessToken.getScopes();
     }
 
-    private String extractErrorMessageUnauthorized(String content, StatusType status) {
-        return extractErrorMessage(content, status);
+    private String extractErrorMessageUnauthorized(String content, String reasonPhrase) {
+        return extractErrorMessage(content, reasonPhrase);
     }
 
-    private String extractErrorMessageDefault(String content, StatusType status) {
-        return extractErrorMessage(content, status);
+    private String extractErrorMessageDefault(String content, String reasonPhrase) {
+        return extractErrorMessage(content, reasonPhrase);
     }
 
-    private String extractErrorMessage(String content, StatusType status) {
+    private String extractErrorMessage(String content, String reasonPhrase) {
         String message;
         if (version == Version.OSIAM_2_LEGACY_SCHEMAS) {
             message = getScimErrorMessageLegacy(content);
@@ -363,7 +758,7 @@ abstract class AbstractOsiamService<T extends Resource> {
 
         if (message == null) {
             message = String.format("Could not deserialize the error response for the HTTP status '%s'.",
-                    status.getReasonPhrase());
+                    reasonPhrase);
             if (content != null) {
                 message += String.format(" Original response: %s", content);
             }
@@ -374,28 +769,27 @@ abstract class AbstractOsiamService<T extends Resource> {
 
     private String getScimErrorMessage(String content) {
         try {
-            ErrorResponse error = objectMapper.readValue(content, ErrorResponse.class);
+            ErrorResponse error = jsonMapping.errorResponseReader().readValue(content);
             return error.getDetail();
-        } catch (ProcessingException | IOException e) {
+        } catch (IOException e) {
             return null;
         }
     }
 
     private String getScimErrorMessageLegacy(String content) {
         try {
-            Map<String, String> error = objectMapper.readValue(content, new TypeReference<Map<String, String>>() {
-            });
+            Map<String, String> error = jsonMapping.legacyErrorResponseReader().readValue(content);
             return error.get("description");
-        } catch (ProcessingException | IOException e) {
+        } catch (IOException e) {
             return null;
         }
     }
 
     private String getOAuthErrorMessage(String content) {
         try {
-            OAuthErrorMessage error = objectMapper.readValue(content, OAuthErrorMessage.class);
+            OAuthErrorMessage error = jsonMapping.oAuthErrorMessageReader().readValue(content);
             return error.getDescription();
-        } catch (ProcessingException | IOException e) {
+        } catch (IOException e) {
             return null;
         }
     }
@@ -411,4 +805,8 @@ abstract class AbstractOsiamService<T extends Resource> {
     Version getVersion() {
         return version;
     }
+
+    JsonMapping getJsonMapping() {
+        return jsonMapping;
+    }
 }
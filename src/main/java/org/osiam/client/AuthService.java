@@ -24,10 +24,10 @@
 package org.osiam.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Strings;
-import org.glassfish.jersey.client.ClientProperties;
-import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.CharStreams;
 import org.osiam.client.exception.BadCredentialsException;
 import org.osiam.client.exception.BadRequestException;
 import org.osiam.client.exception.ClientAlreadyExistsException;
@@ -42,25 +42,28 @@ import org.osiam.client.oauth.AccessToken;
 import org.osiam.client.oauth.Client;
 import org.osiam.client.oauth.GrantType;
 import org.osiam.client.oauth.Scope;
+import org.osiam.client.transport.OsiamTransport;
+import org.osiam.client.transport.TransportRequest;
+import org.osiam.client.transport.TransportResponse;
 
-import javax.ws.rs.ProcessingException;
-import javax.ws.rs.client.Entity;
-import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.Form;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
-import javax.ws.rs.core.Response.StatusType;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriBuilderException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static org.osiam.client.OsiamConnector.objectMapper;
 
 /**
  * The AuthService provides access to the OAuth2 service used to authorize requests.
@@ -68,11 +71,14 @@ import static org.osiam.client.OsiamConnector.objectMapper;
 class AuthService {
 
     private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String ACCEPT_HEADER = "Accept";
+    private static final String BASIC = "Basic ";
     private static final String BEARER = "Bearer ";
     private static final String TOKEN_ENDPOINT = "/oauth/token";
     private static final String TOKEN_REVOCATION_ENDPOINT = "/token/revocation";
     private static final String TOKEN_VALIDATION_ENDPOINT = "/token/validation";
     private static final String CLIENT_ENDPOINT = "/Client";
+    private static final String GENERAL_CONNECTION_ERROR = "Unable to retrieve access token.";
 
     private final String endpoint;
     private final String clientId;
@@ -81,112 +87,65 @@ class AuthService {
     private final int connectTimeout;
     private final int readTimeout;
 
-    private final WebTarget targetEndpoint;
+    private final OsiamTransport transport;
+    private final JsonMapping jsonMapping = JsonMapping.forVersion(Version.OSIAM_3);
+    private TokenValidationCache validationCache;
 
-    AuthService(String endpoint, String clientId, String clientSecret, String clientRedirectUri,
-                int connectTimeout, int readTimeout) {
+    AuthService(OsiamTransport transport, String endpoint, String clientId, String clientSecret,
+                String clientRedirectUri, int connectTimeout, int readTimeout) {
         this.endpoint = endpoint;
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.clientRedirectUri = clientRedirectUri;
         this.connectTimeout = connectTimeout;
         this.readTimeout = readTimeout;
-        targetEndpoint = OsiamConnector.getClient().target(endpoint);
+        this.transport = transport;
     }
 
     AccessToken retrieveAccessToken(Scope... scopes) {
+        return retrieveAccessTokenExchange(scopes).execute(transport);
+    }
+
+    Exchange<AccessToken> retrieveAccessTokenExchange(Scope... scopes) {
         ensureClientCredentialsAreSet();
         String formattedScopes = getScopesAsString(scopes);
-        Form form = new Form();
-        form.param("scope", formattedScopes);
-        form.param("grant_type", GrantType.CLIENT_CREDENTIALS.getUrlParam());
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("scope", formattedScopes);
+        form.put("grant_type", GrantType.CLIENT_CREDENTIALS.getUrlParam());
 
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(TOKEN_ENDPOINT)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .post(Entity.form(form));
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
-
-        checkAndHandleResponse(content, status, new AccessToken.Builder("n/a").build());
-
-        return getAccessToken(content);
+        return tokenExchange(form, new AccessToken.Builder("n/a").build(), false);
     }
 
     AccessToken retrieveAccessToken(String userName, String password, Scope... scopes) {
+        return retrieveAccessTokenExchange(userName, password, scopes).execute(transport);
+    }
+
+    Exchange<AccessToken> retrieveAccessTokenExchange(String userName, String password, Scope... scopes) {
         ensureClientCredentialsAreSet();
         String formattedScopes = getScopesAsString(scopes);
-        Form form = new Form();
-        form.param("scope", formattedScopes);
-        form.param("grant_type", GrantType.RESOURCE_OWNER_PASSWORD_CREDENTIALS.getUrlParam());
-        form.param("username", userName);
-        form.param("password", password);
-
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(TOKEN_ENDPOINT)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .post(Entity.form(form));
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("scope", formattedScopes);
+        form.put("grant_type", GrantType.RESOURCE_OWNER_PASSWORD_CREDENTIALS.getUrlParam());
+        form.put("username", userName);
+        form.put("password", password);
 
-        checkAndHandleResponse(content, status, new AccessToken.Builder("n/a").build());
-
-        return getAccessToken(content);
+        return tokenExchange(form, new AccessToken.Builder("n/a").build(), false);
     }
 
     AccessToken retrieveAccessToken(String authCode) {
+        return retrieveAccessTokenExchange(authCode).execute(transport);
+    }
+
+    Exchange<AccessToken> retrieveAccessTokenExchange(String authCode) {
         checkArgument(!Strings.isNullOrEmpty(authCode), "The given authentication code can't be null.");
         ensureClientCredentialsAreSet();
 
-        Form form = new Form();
-        form.param("code", authCode);
-        form.param("grant_type", "authorization_code");
-        form.param("redirect_uri", clientRedirectUri);
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("code", authCode);
+        form.put("grant_type", "authorization_code");
+        form.put("redirect_uri", clientRedirectUri);
 
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(TOKEN_ENDPOINT)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .post(Entity.form(form));
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
-
-        if (status.getStatusCode() == Status.BAD_REQUEST.getStatusCode()) {
-            String errorMessage = extractErrorMessage(content, status);
-            throw new ConflictException(errorMessage);
-        }
-        checkAndHandleResponse(content, status, new AccessToken.Builder("n/a").build());
-
-        return getAccessToken(content);
+        return tokenExchange(form, new AccessToken.Builder("n/a").build(), true);
     }
 
     private String getScopesAsString(Scope... scopes) {
@@ -199,6 +158,10 @@ class AuthService {
     }
 
     AccessToken refreshAccessToken(AccessToken accessToken, Scope... scopes) {
+        return refreshAccessTokenExchange(accessToken, scopes).execute(transport);
+    }
+
+    Exchange<AccessToken> refreshAccessTokenExchange(AccessToken accessToken, Scope... scopes) {
         checkArgument(accessToken != null, "The given accessToken code can't be null.");
         checkArgument(accessToken.getRefreshToken() != null,
                 "Unable to perform a refresh_token_grant request without refresh token.");
@@ -206,35 +169,12 @@ class AuthService {
 
         String formattedScopes = getScopesAsString(scopes);
 
-        Form form = new Form();
-        form.param("scope", formattedScopes);
-        form.param("grant_type", GrantType.REFRESH_TOKEN.getUrlParam());
-        form.param("refresh_token", accessToken.getRefreshToken());
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("scope", formattedScopes);
+        form.put("grant_type", GrantType.REFRESH_TOKEN.getUrlParam());
+        form.put("refresh_token", accessToken.getRefreshToken());
 
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(TOKEN_ENDPOINT)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .post(Entity.form(form));
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
-
-        // need to override default behavior of checkAndHandleResponse
-        if (status.getStatusCode() == Status.BAD_REQUEST.getStatusCode()) {
-            throw new ConflictException(extractErrorMessage(content, status));
-        }
-        checkAndHandleResponse(content, status, accessToken);
-
-        return getAccessToken(content);
+        return tokenExchange(form, accessToken, true);
     }
 
     URI getAuthorizationUri(Scope... scopes) {
@@ -253,272 +193,310 @@ class AuthService {
         }
     }
 
+    /**
+     * @param validationCache the cache for the results of token validations, or {@code null} to validate every token
+     *                        with OSIAM
+     */
+    void setValidationCache(TokenValidationCache validationCache) {
+        this.validationCache = validationCache;
+    }
+
     /**
      * @see OsiamConnector#validateAccessToken(AccessToken)
      */
     AccessToken validateAccessToken(AccessToken tokenToValidate) {
+        return validateAccessTokenExchange(tokenToValidate).execute(transport);
+    }
+
+    Exchange<AccessToken> validateAccessTokenExchange(final AccessToken tokenToValidate) {
         checkNotNull(tokenToValidate, "The tokenToValidate must not be null.");
 
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(TOKEN_VALIDATION_ENDPOINT)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .header(AUTHORIZATION_HEADER, BEARER + tokenToValidate.getToken())
-                    .post(Entity.json(""));
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
+        TransportRequest request = newRequest("POST", TOKEN_VALIDATION_ENDPOINT)
+                .header(AUTHORIZATION_HEADER, BEARER + tokenToValidate.getToken())
+                .body(new byte[0], MediaType.APPLICATION_JSON)
+                .build();
+        if (validationCache == null) {
+            return new Exchange<AccessToken>(request, GENERAL_CONNECTION_ERROR) {
+                @Override
+                AccessToken handleResponse(TransportResponse response) {
+                    checkAndHandleResponse(response, tokenToValidate);
+                    return getAccessToken(response);
+                }
+            };
         }
 
-        checkAndHandleResponse(content, status, tokenToValidate);
+        final AccessToken cachedToken = validationCache.get(tokenToValidate);
+        // taken before the request is sent, so the result for a token that is revoked meanwhile is not stored
+        final long invalidationStamp = validationCache.invalidationStamp();
+        return new Exchange<AccessToken>(request, GENERAL_CONNECTION_ERROR) {
+            @Override
+            AccessToken cachedResult() {
+                return cachedToken;
+            }
 
-        return getAccessToken(content);
+            @Override
+            AccessToken handleResponse(TransportResponse response) {
+                try {
+                    checkAndHandleResponse(response, tokenToValidate);
+                } catch (UnauthorizedException e) {
+                    validationCache.putInvalid(tokenToValidate, e.getMessage(), invalidationStamp);
+                    throw e;
+                }
+                AccessToken validatedToken = getAccessToken(response);
+                validationCache.putValid(tokenToValidate, validatedToken, invalidationStamp);
+                return validatedToken;
+            }
+        };
     }
 
     void revokeAccessToken(AccessToken tokenToRevoke) {
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(TOKEN_REVOCATION_ENDPOINT)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .header(AUTHORIZATION_HEADER, BEARER + tokenToRevoke.getToken())
-                    .post(Entity.json(""));
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
+        revokeAccessTokenExchange(tokenToRevoke).execute(transport);
+    }
 
-        checkAndHandleResponse(content, status, tokenToRevoke);
+    Exchange<Void> revokeAccessTokenExchange(final AccessToken tokenToRevoke) {
+        invalidateValidation(tokenToRevoke);
+        return new Exchange<Void>(newRequest("POST", TOKEN_REVOCATION_ENDPOINT)
+                .header(AUTHORIZATION_HEADER, BEARER + tokenToRevoke.getToken())
+                .body(new byte[0], MediaType.APPLICATION_JSON)
+                .build(), GENERAL_CONNECTION_ERROR) {
+            @Override
+            Void handleResponse(TransportResponse response) {
+                // again, as the token might have been validated before OSIAM has revoked it
+                invalidateValidation(tokenToRevoke);
+                checkAndHandleResponse(response, tokenToRevoke);
+                response.close();
+                return null;
+            }
+        };
     }
 
     void revokeAllAccessTokens(String id, AccessToken accessToken) {
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(TOKEN_REVOCATION_ENDPOINT).path(id)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
-                    .post(Entity.json(""));
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
+        revokeAllAccessTokensExchange(id, accessToken).execute(transport);
+    }
+
+    Exchange<Void> revokeAllAccessTokensExchange(final String id, final AccessToken accessToken) {
+        invalidateValidationsOfUser(id);
+        return new Exchange<Void>(newRequest("POST", TOKEN_REVOCATION_ENDPOINT).path(id)
+                .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
+                .body(new byte[0], MediaType.APPLICATION_JSON)
+                .build(), GENERAL_CONNECTION_ERROR) {
+            @Override
+            Void handleResponse(TransportResponse response) {
+                // again, as a token might have been validated before OSIAM has revoked it
+                invalidateValidationsOfUser(id);
+                checkAndHandleResponse(response, accessToken);
+                response.close();
+                return null;
+            }
+        };
+    }
+
+    private void invalidateValidation(AccessToken token) {
+        if (validationCache != null) {
+            validationCache.invalidate(token);
         }
+    }
 
-        checkAndHandleResponse(content, status, accessToken);
+    private void invalidateValidationsOfUser(String userId) {
+        if (validationCache != null) {
+            validationCache.invalidateUser(userId);
+        }
     }
 
     Client createClient(Client client, AccessToken accessToken) {
-        StatusType status;
-        String createdClient;
+        return createClientExchange(client, accessToken).execute(transport);
+    }
+
+    Exchange<Client> createClientExchange(Client client, final AccessToken accessToken) {
 
         String clientAsString;
         try {
-            clientAsString = objectMapper.writeValueAsString(client);
+            clientAsString = jsonMapping.clientWriter().writeValueAsString(client);
         } catch (JsonProcessingException e) {
             throw new OsiamClientException(String.format("Unable to parse Client: %s", client), e);
         }
 
-        try {
-            Response response = targetEndpoint.path(CLIENT_ENDPOINT)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
-                    .post(Entity.json(clientAsString));
-
-            status = response.getStatusInfo();
-            createdClient = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
-
-        // need to override default behavior of checkAndHandleResponse
-        if (status.getStatusCode() == Status.CONFLICT.getStatusCode()) {
-            throw new ClientAlreadyExistsException(extractErrorMessage(createdClient, status));
-        }
-
-        checkAndHandleResponse(createdClient, status, accessToken);
-
-        try {
-            return objectMapper.readValue(createdClient, Client.class);
-        } catch (IOException e) {
-            throw new OsiamClientException(String.format("Unable to parse Client: %s", createdClient), e);
-        }
+        TransportRequest request = newRequest("POST", CLIENT_ENDPOINT)
+                .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
+                .body(clientAsString.getBytes(StandardCharsets.UTF_8), MediaType.APPLICATION_JSON)
+                .build();
+        return new Exchange<Client>(request, GENERAL_CONNECTION_ERROR) {
+            @Override
+            Client handleResponse(TransportResponse response) {
+                // need to override default behavior of checkAndHandleResponse
+                if (response.getStatus() == Status.CONFLICT.getStatusCode()) {
+                    throw new ClientAlreadyExistsException(extractErrorMessage(response));
+                }
+
+                checkAndHandleResponse(response, accessToken);
+
+                return mapToType(response, jsonMapping.clientReader(), "Client");
+            }
+        };
     }
 
     Client getClient(String getClientId, AccessToken accessToken) {
-        StatusType status;
-        String client;
-        try {
-            Response response = targetEndpoint.path(CLIENT_ENDPOINT).path(getClientId)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
-                    .get();
-
-            status = response.getStatusInfo();
-            client = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
-
-        checkAndHandleResponse(client, status, accessToken);
+        return getClientExchange(getClientId, accessToken).execute(transport);
+    }
 
-        try {
-            return objectMapper.readValue(client, Client.class);
-        } catch (IOException e) {
-            throw new OsiamClientException(String.format("Unable to parse Client: %s", client), e);
-        }
+    Exchange<Client> getClientExchange(String getClientId, AccessToken accessToken) {
+        return clientExchange(newRequest("GET", CLIENT_ENDPOINT).path(getClientId)
+                .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
+                .build(), accessToken);
     }
 
     List<Client> getClients(AccessToken accessToken) {
-        StatusType status;
-        String clients;
-        try {
-            Response response = targetEndpoint.path(CLIENT_ENDPOINT)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
-                    .get();
-
-            status = response.getStatusInfo();
-            clients = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
+        return getClientsExchange(accessToken).execute(transport);
+    }
 
-        checkAndHandleResponse(clients, status, accessToken);
+    Exchange<List<Client>> getClientsExchange(final AccessToken accessToken) {
+        TransportRequest request = newRequest("GET", CLIENT_ENDPOINT)
+                .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
+                .build();
+        return new Exchange<List<Client>>(request, GENERAL_CONNECTION_ERROR) {
+            @Override
+            List<Client> handleResponse(TransportResponse response) {
+                checkAndHandleResponse(response, accessToken);
 
-        try {
-            return objectMapper.readValue(clients, new TypeReference<List<Client>>() {
-            });
-        } catch (IOException e) {
-            throw new OsiamClientException(String.format("Unable to parse list of Clients: %s", clients), e);
-        }
+                return mapToType(response, jsonMapping.clientsReader(), "list of Clients");
+            }
+        };
     }
 
     void deleteClient(String deleteClientId, AccessToken accessToken) {
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path(CLIENT_ENDPOINT).path(deleteClientId)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
-                    .delete();
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
+        deleteClientExchange(deleteClientId, accessToken).execute(transport);
+    }
 
-        checkAndHandleResponse(content, status, accessToken);
+    Exchange<Void> deleteClientExchange(String deleteClientId, AccessToken accessToken) {
+        return emptyExchange(newRequest("DELETE", CLIENT_ENDPOINT).path(deleteClientId)
+                .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
+                .build(), accessToken);
     }
 
     Client updateClient(String updateClientId, Client client, AccessToken accessToken) {
-        StatusType status;
-        String clientResponse;
+        return updateClientExchange(updateClientId, client, accessToken).execute(transport);
+    }
+
+    Exchange<Client> updateClientExchange(String updateClientId, Client client, AccessToken accessToken) {
 
         String clientAsString;
         try {
-            clientAsString = objectMapper.writeValueAsString(client);
+            clientAsString = jsonMapping.clientWriter().writeValueAsString(client);
         } catch (JsonProcessingException e) {
             throw new OsiamClientException(String.format("Unable to parse Client: %s", client), e);
         }
 
-        try {
-            Response response = targetEndpoint.path(CLIENT_ENDPOINT).path(updateClientId)
-                    .request(MediaType.APPLICATION_JSON)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_USERNAME, clientId)
-                    .property(HttpAuthenticationFeature.HTTP_AUTHENTICATION_PASSWORD, clientSecret)
-                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
-                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
-                    .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
-                    .put(Entity.json(clientAsString));
-
-            status = response.getStatusInfo();
-            clientResponse = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw createGeneralConnectionInitializationException(e);
-        }
+        return clientExchange(newRequest("PUT", CLIENT_ENDPOINT).path(updateClientId)
+                .header(AUTHORIZATION_HEADER, BEARER + accessToken.getToken())
+                .body(clientAsString.getBytes(StandardCharsets.UTF_8), MediaType.APPLICATION_JSON)
+                .build(), accessToken);
+    }
 
-        checkAndHandleResponse(clientResponse, status, accessToken);
+    /**
+     * Creates an exchange with the token endpoint that posts the given form and returns the issued access token.
+     *
+     * @param badRequestIsConflict if a response with status 400 should be reported as {@link ConflictException}
+     */
+    private Exchange<AccessToken> tokenExchange(Map<String, String> form, final AccessToken accessToken,
+                                                final boolean badRequestIsConflict) {
+        TransportRequest request = newRequest("POST", TOKEN_ENDPOINT)
+                .header(AUTHORIZATION_HEADER, getBasicAuthorization())
+                .body(encodeForm(form), MediaType.APPLICATION_FORM_URLENCODED)
+                .build();
+        return new Exchange<AccessToken>(request, GENERAL_CONNECTION_ERROR) {
+            @Override
+            AccessToken handleResponse(TransportResponse response) {
+                // need to override default behavior of checkAndHandleResponse
+                if (badRequestIsConflict && response.getStatus() == Status.BAD_REQUEST.getStatusCode()) {
+                    throw new ConflictException(extractErrorMessage(response));
+                }
+                checkAndHandleResponse(response, accessToken);
+
+                return getAccessToken(response);
+            }
+        };
+    }
 
-        try {
-            return objectMapper.readValue(clientResponse, Client.class);
-        } catch (IOException e) {
-            throw new OsiamClientException(String.format("Unable to parse Client: %s", clientResponse), e);
-        }
+    private Exchange<Client> clientExchange(TransportRequest request, final AccessToken accessToken) {
+        return new Exchange<Client>(request, GENERAL_CONNECTION_ERROR) {
+            @Override
+            Client handleResponse(TransportResponse response) {
+                checkAndHandleResponse(response, accessToken);
+
+                return mapToType(response, jsonMapping.clientReader(), "Client");
+            }
+        };
     }
 
-    private void checkAndHandleResponse(String content, StatusType status, AccessToken accessToken) {
-        if (status.getFamily() == Status.Family.SUCCESSFUL) {
+    private Exchange<Void> emptyExchange(TransportRequest request, final AccessToken accessToken) {
+        return new Exchange<Void>(request, GENERAL_CONNECTION_ERROR) {
+            @Override
+            Void handleResponse(TransportResponse response) {
+                checkAndHandleResponse(response, accessToken);
+                response.close();
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Checks the status of the given response. The entity is only read, if the response is an error and its message
+     * is needed.
+     */
+    private void checkAndHandleResponse(TransportResponse response, AccessToken accessToken) {
+        if (Status.Family.familyOf(response.getStatus()) == Status.Family.SUCCESSFUL) {
             return;
         }
+        checkAndHandleResponse(readContent(response), response.getStatus(), response.getReasonPhrase(), accessToken);
+    }
 
-        if (status.getStatusCode() == Status.BAD_REQUEST.getStatusCode()) {
-            String errorMessage = extractErrorMessage(content, status);
+    private void checkAndHandleResponse(String content, int status, String reasonPhrase, AccessToken accessToken) {
+        if (status == Status.BAD_REQUEST.getStatusCode()) {
+            String errorMessage = extractErrorMessage(content, reasonPhrase);
             if (errorMessage.equals("Bad credentials")) {
                 throw new BadCredentialsException(errorMessage);
             } else {
                 throw new BadRequestException(errorMessage);
             }
-        } else if (status.getStatusCode() == Status.UNAUTHORIZED.getStatusCode()) {
-            String errorMessage = extractErrorMessage(content, status);
+        } else if (status == Status.UNAUTHORIZED.getStatusCode()) {
+            String errorMessage = extractErrorMessage(content, reasonPhrase);
             throw new UnauthorizedException(errorMessage);
-        } else if (status.getStatusCode() == Status.FORBIDDEN.getStatusCode()) {
+        } else if (status == Status.FORBIDDEN.getStatusCode()) {
             String errorMessage = extractErrorMessageForbidden(accessToken);
             throw new ForbiddenException(errorMessage);
-        } else if (status.getStatusCode() == Status.NOT_FOUND.getStatusCode()) {
-            String errorMessage = extractErrorMessage(content, status);
+        } else if (status == Status.NOT_FOUND.getStatusCode()) {
+            String errorMessage = extractErrorMessage(content, reasonPhrase);
             throw new ClientNotFoundException(errorMessage);
-        } else if (status.getStatusCode() == Status.CONFLICT.getStatusCode()) {
-            String errorMessage = extractErrorMessage(content, status);
+        } else if (status == Status.CONFLICT.getStatusCode()) {
+            String errorMessage = extractErrorMessage(content, reasonPhrase);
             throw new ConflictException(errorMessage);
         } else {
-            String errorMessage = extractErrorMessage(content, status);
+            String errorMessage = extractErrorMessage(content, reasonPhrase);
             throw new ConnectionInitializationException(errorMessage);
         }
     }
 
-    private String extractErrorMessage(String content, StatusType status) {
+    private String extractErrorMessage(TransportResponse response) {
+        return extractErrorMessage(readContent(response), response.getReasonPhrase());
+    }
+
+    private String readContent(TransportResponse response) {
+        try (InputStream body = response.getBody()) {
+            return CharStreams.toString(new InputStreamReader(body, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw createGeneralConnectionInitializationException(e);
+        } finally {
+            response.close();
+        }
+    }
+
+    private String extractErrorMessage(String content, String reasonPhrase) {
         try {
-            OAuthErrorMessage error = objectMapper.readValue(content, OAuthErrorMessage.class);
+            OAuthErrorMessage error = jsonMapping.oAuthErrorMessageReader().readValue(content);
             return error.getDescription();
         } catch (IOException e) {
             String errorMessage = String.format("Could not deserialize the error response for the HTTP status '%s'.",
-                    status.getReasonPhrase());
+                    reasonPhrase);
 
             if (content != null) {
                 errorMessage += String.format(" Original response: %s", content);
@@ -532,12 +510,64 @@ class AuthService {
         return "Insufficient scopes: " + accessToken.getScopes();
     }
 
-    private AccessToken getAccessToken(String content) {
-        try {
-            return objectMapper.readValue(content, AccessToken.class);
+    private AccessToken getAccessToken(TransportResponse response) {
+        return mapToType(response, jsonMapping.accessTokenReader(), "access token");
+    }
+
+    /**
+     * Parses the entity of the given successful response directly from its stream and closes the response.
+     */
+    private <T> T mapToType(TransportResponse response, ObjectReader reader, String typeName) {
+        try (InputStream content = response.getBody()) {
+            return reader.readValue(content);
+        } catch (JsonProcessingException e) {
+            throw new OsiamClientException(String.format("Unable to parse %s", typeName), e);
         } catch (IOException e) {
-            throw new OsiamClientException(String.format("Unable to parse access token: %s", content), e);
+            throw createGeneralConnectionInitializationException(e);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Creates a request to the auth server that accepts JSON.
+     */
+    private TransportRequest.Builder newRequest(String method, String path) {
+        return new TransportRequest.Builder(method, endpoint).path(path)
+                .header(ACCEPT_HEADER, MediaType.APPLICATION_JSON)
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout);
+    }
+
+    /**
+     * Encodes the credentials of this client for HTTP Basic authentication with the charset used by Jersey before.
+     */
+    private String getBasicAuthorization() {
+        String credentials = clientId + ":" + clientSecret;
+        return BASIC + BaseEncoding.base64().encode(credentials.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Encodes the given parameters as {@code application/x-www-form-urlencoded}. Parameters without value are left out.
+     */
+    private static byte[] encodeForm(Map<String, String> form) {
+        StringBuilder encodedForm = new StringBuilder();
+        try {
+            for (Map.Entry<String, String> param : form.entrySet()) {
+                if (param.getValue() == null) {
+                    continue;
+                }
+                if (encodedForm.length() > 0) {
+                    encodedForm.append('&');
+                }
+                encodedForm.append(URLEncoder.encode(param.getKey(), "UTF-8"))
+                        .append('=')
+                        .append(URLEncoder.encode(param.getValue(), "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
         }
+        return encodedForm.toString().getBytes(StandardCharsets.UTF_8);
     }
 
     private void ensureClientCredentialsAreSet() {
@@ -546,6 +576,6 @@ class AuthService {
     }
 
     private ConnectionInitializationException createGeneralConnectionInitializationException(Throwable e) {
-        return new ConnectionInitializationException("Unable to retrieve access token.", e);
+        return new ConnectionInitializationException(GENERAL_CONNECTION_ERROR, e);
     }
 }
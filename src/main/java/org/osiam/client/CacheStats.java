@@ -0,0 +1,109 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import java.util.Map;
+
+/**
+ * Statistics of the resource cache or the token validation cache of an {@link OsiamConnector}. See
+ * {@link OsiamConnector.Builder#withResourceCache(int, long, java.util.concurrent.TimeUnit)} and
+ * {@link OsiamConnector.Builder#withTokenValidationCache(int, long, long, java.util.concurrent.TimeUnit)}.
+ */
+public final class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long size;
+    private final long staleHitCount;
+    private final Map<String, Long> staleHitCounts;
+
+    CacheStats(long hitCount, long missCount, long evictionCount, long size, long staleHitCount,
+               Map<String, Long> staleHitCounts) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+        this.staleHitCount = staleHitCount;
+        this.staleHitCounts = staleHitCounts;
+    }
+
+    /**
+     * @return the number of reads that have been answered from the cache
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of hits that have been answered with an expired resource while it was refreshed in the
+     * background, see {@link OsiamConnector.Builder#withStaleWhileRevalidate(long, java.util.concurrent.TimeUnit)}
+     */
+    public long getStaleHitCount() {
+        return staleHitCount;
+    }
+
+    /**
+     * @return the number of stale hits per id of the cached resources, or {@code "Me"} for the current user. Only
+     * resources that are still in the cache are included.
+     */
+    public Map<String, Long> getStaleHitCounts() {
+        return staleHitCounts;
+    }
+
+    /**
+     * @return the number of reads that had to be sent to OSIAM, including reads of expired entries
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the ratio of hits to all reads, or 1 if there have not been any reads
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * @return the number of entries that have been removed, or not admitted, to keep the cache within its size
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the number of entries in the cache, including expired ones that have not been removed yet
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats [hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount
+                + ", size=" + size + ", staleHitCount=" + staleHitCount + "]";
+    }
+}
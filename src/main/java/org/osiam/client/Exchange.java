@@ -0,0 +1,134 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.osiam.client.exception.ConnectionInitializationException;
+import org.osiam.client.transport.AsyncOsiamTransport;
+import org.osiam.client.transport.Cancellation;
+import org.osiam.client.transport.OsiamTransport;
+import org.osiam.client.transport.TransportRequest;
+import org.osiam.client.transport.TransportResponse;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * A single request to OSIAM together with the handling of its response. An exchange is either executed blocking, or
+ * without blocking a thread if the transport is an {@link AsyncOsiamTransport}. In both cases the response is handled
+ * the same way.
+ *
+ * @param <R> the type of the result
+ */
+abstract class Exchange<R> {
+
+    private final TransportRequest request;
+    private final String connectionErrorMessage;
+
+    /**
+     * @param request                the request to send
+     * @param connectionErrorMessage the message of the {@link ConnectionInitializationException} that is thrown if
+     *                               the request could not be sent
+     */
+    Exchange(TransportRequest request, String connectionErrorMessage) {
+        this.request = request;
+        this.connectionErrorMessage = connectionErrorMessage;
+    }
+
+    TransportRequest getRequest() {
+        return request;
+    }
+
+    String getConnectionErrorMessage() {
+        return connectionErrorMessage;
+    }
+
+    /**
+     * Checks the given response and maps it to the result. Implementations have to close the response.
+     */
+    abstract R handleResponse(TransportResponse response);
+
+    /**
+     * @return a result that makes sending the request unnecessary, e.g. from a cache, or {@code null} if the request
+     * has to be sent
+     */
+    R cachedResult() {
+        return null;
+    }
+
+    R execute(OsiamTransport transport) {
+        return execute(transport, null);
+    }
+
+    /**
+     * Sends the request blocking. Cancelling the given cancellation aborts the request while it is in flight.
+     *
+     * @param cancellation the cancellation of the request, or {@code null} if the request is not cancellable
+     */
+    R execute(OsiamTransport transport, Cancellation cancellation) {
+        R cachedResult = cachedResult();
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+        TransportRequest cancellableRequest = cancellation != null
+                ? new TransportRequest.Builder(request).cancellation(cancellation).build() : request;
+        TransportResponse response;
+        try {
+            response = transport.execute(cancellableRequest);
+        } catch (IOException e) {
+            throw new ConnectionInitializationException(connectionErrorMessage, e);
+        }
+        return handleResponse(response);
+    }
+
+    /**
+     * Sends the request without blocking. Once the response has been received, it is handled on the given executor,
+     * so mapping the response does not hold up the I/O threads of the transport. Only the translation of a failed
+     * request runs on the thread of the transport.
+     *
+     * @param executor the executor to handle the response on
+     */
+    ListenableFuture<R> executeAsync(AsyncOsiamTransport transport, Executor executor) {
+        R cachedResult = cachedResult();
+        if (cachedResult != null) {
+            return Futures.immediateFuture(cachedResult);
+        }
+        ListenableFuture<TransportResponse> response = Futures.catching(transport.executeAsync(request),
+                IOException.class, new Function<IOException, TransportResponse>() {
+                    @Override
+                    public TransportResponse apply(IOException e) {
+                        throw new ConnectionInitializationException(connectionErrorMessage, e);
+                    }
+                }, MoreExecutors.directExecutor());
+        return Futures.transform(response, new Function<TransportResponse, R>() {
+            @Override
+            public R apply(TransportResponse transportResponse) {
+                return handleResponse(transportResponse);
+            }
+        }, executor);
+    }
+}
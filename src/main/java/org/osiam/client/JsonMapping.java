@@ -0,0 +1,200 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.common.collect.ImmutableMap;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.Client;
+import org.osiam.client.exception.OAuthErrorMessage;
+import org.osiam.client.user.BasicUser;
+import org.osiam.resources.helper.ExtensionSchemaRegistry;
+import org.osiam.resources.helper.UserDeserializer;
+import org.osiam.resources.scim.ErrorResponse;
+import org.osiam.resources.scim.ExtensionSchema;
+import org.osiam.resources.scim.Group;
+import org.osiam.resources.scim.ProjectedResource;
+import org.osiam.resources.scim.Projection;
+import org.osiam.resources.scim.SCIMSearchResult;
+import org.osiam.resources.scim.User;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the immutable {@link ObjectReader}s and {@link ObjectWriter}s a connector uses to map JSON. There is one
+ * mapping per schema of users, created once and shared by all connectors that use this schema, so building a
+ * connector neither creates nor reconfigures an {@link ObjectMapper}. Only connectors with an
+ * {@link ExtensionSchemaRegistry} or deferred user attributes get a mapping of their own.
+ */
+final class JsonMapping {
+
+    private static final JsonMapping DEFAULT = new JsonMapping(new UserDeserializer());
+    private static final JsonMapping LEGACY_SCHEMAS = new JsonMapping(
+            new UserDeserializer(OsiamUserService.LEGACY_SCHEMA));
+
+    private final JsonFactory factory;
+    private final Map<Class<?>, ObjectReader> resourceReaders;
+    private final Map<Class<?>, ObjectReader> searchResultReaders;
+    private final Map<Class<?>, ObjectWriter> resourceWriters;
+    private final ObjectReader basicUserReader;
+    private final ObjectReader errorResponseReader;
+    private final ObjectReader legacyErrorResponseReader;
+    private final ObjectReader oAuthErrorMessageReader;
+    private final ObjectReader accessTokenReader;
+    private final ObjectReader clientReader;
+    private final ObjectReader clientsReader;
+    private final ObjectWriter clientWriter;
+    private final ObjectReader extensionSchemasReader;
+    private final ObjectReader projectedResourceReader;
+    private final ObjectReader projectedSearchResultReader;
+
+    private JsonMapping(UserDeserializer userDeserializer) {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new SimpleModule("userDeserializerModule",
+                        com.fasterxml.jackson.core.Version.unknownVersion())
+                        .addDeserializer(User.class, userDeserializer));
+        factory = mapper.getFactory();
+        resourceReaders = ImmutableMap.<Class<?>, ObjectReader>of(
+                User.class, mapper.readerFor(User.class),
+                Group.class, mapper.readerFor(Group.class));
+        searchResultReaders = ImmutableMap.<Class<?>, ObjectReader>of(
+                User.class, mapper.readerFor(new TypeReference<SCIMSearchResult<User>>() {
+                }),
+                Group.class, mapper.readerFor(new TypeReference<SCIMSearchResult<Group>>() {
+                }));
+        resourceWriters = ImmutableMap.<Class<?>, ObjectWriter>of(
+                User.class, mapper.writerFor(User.class),
+                Group.class, mapper.writerFor(Group.class));
+        basicUserReader = mapper.readerFor(BasicUser.class);
+        errorResponseReader = mapper.readerFor(ErrorResponse.class);
+        legacyErrorResponseReader = mapper.readerFor(new TypeReference<Map<String, String>>() {
+        });
+        oAuthErrorMessageReader = mapper.readerFor(OAuthErrorMessage.class);
+        accessTokenReader = mapper.readerFor(AccessToken.class);
+        clientReader = mapper.readerFor(Client.class);
+        clientsReader = mapper.readerFor(new TypeReference<List<Client>>() {
+        });
+        clientWriter = mapper.writerFor(Client.class);
+        extensionSchemasReader = mapper.readerFor(new TypeReference<SCIMSearchResult<ExtensionSchema>>() {
+        });
+        projectedResourceReader = mapper.readerFor(ProjectedResource.class);
+        projectedSearchResultReader = mapper.readerFor(new TypeReference<SCIMSearchResult<ProjectedResource>>() {
+        });
+    }
+
+    /**
+     * @return the mapping for the given version of OSIAM
+     */
+    static JsonMapping forVersion(Version version) {
+        return version == Version.OSIAM_2_LEGACY_SCHEMAS ? LEGACY_SCHEMAS : DEFAULT;
+    }
+
+    /**
+     * @return a new mapping for the given version of OSIAM that decodes extensions according to the given registry
+     * and optionally defers the decoding of multi-valued attributes and extensions of users, or the shared mapping if
+     * there is neither a registry nor deferral
+     */
+    static JsonMapping forVersion(Version version, ExtensionSchemaRegistry extensionSchemas,
+                                  boolean deferUserAttributes) {
+        if (extensionSchemas == null && !deferUserAttributes) {
+            return forVersion(version);
+        }
+        String schema = version == Version.OSIAM_2_LEGACY_SCHEMAS ? OsiamUserService.LEGACY_SCHEMA : User.SCHEMA;
+        return new JsonMapping(new UserDeserializer(schema, extensionSchemas, deferUserAttributes));
+    }
+
+    JsonFactory getFactory() {
+        return factory;
+    }
+
+    ObjectReader resourceReader(Class<?> type) {
+        return lookup(resourceReaders, type);
+    }
+
+    ObjectReader searchResultReader(Class<?> type) {
+        return lookup(searchResultReaders, type);
+    }
+
+    ObjectWriter resourceWriter(Class<?> type) {
+        return lookup(resourceWriters, type);
+    }
+
+    ObjectReader basicUserReader() {
+        return basicUserReader;
+    }
+
+    ObjectReader errorResponseReader() {
+        return errorResponseReader;
+    }
+
+    ObjectReader legacyErrorResponseReader() {
+        return legacyErrorResponseReader;
+    }
+
+    ObjectReader oAuthErrorMessageReader() {
+        return oAuthErrorMessageReader;
+    }
+
+    ObjectReader accessTokenReader() {
+        return accessTokenReader;
+    }
+
+    ObjectReader clientReader() {
+        return clientReader;
+    }
+
+    ObjectReader clientsReader() {
+        return clientsReader;
+    }
+
+    ObjectWriter clientWriter() {
+        return clientWriter;
+    }
+
+    ObjectReader extensionSchemasReader() {
+        return extensionSchemasReader;
+    }
+
+    ObjectReader projectedResourceReader(Projection projection) {
+        return projectedResourceReader.withAttribute(Projection.class, projection);
+    }
+
+    ObjectReader projectedSearchResultReader(Projection projection) {
+        return projectedSearchResultReader.withAttribute(Projection.class, projection);
+    }
+
+    private static <V> V lookup(Map<Class<?>, V> values, Class<?> type) {
+        V value = values.get(type);
+        if (value == null) {
+            throw new IllegalArgumentException("No mapping for " + type.getName());
+        }
+        return value;
+    }
+}
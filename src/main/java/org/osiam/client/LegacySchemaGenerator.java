@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+
+import java.io.IOException;
+
+/**
+ * Rewrites the {@code schemas} of a resource to the legacy schema while the resource is written, so the resource does
+ * not have to be converted to a tree first. The schema of the resource is left out of the top level {@code schemas}
+ * array and the legacy schema is appended to it.
+ */
+final class LegacySchemaGenerator extends JsonGeneratorDelegate {
+
+    private static final String SCHEMAS = "schemas";
+
+    private final String schema;
+    private final String legacySchema;
+    private boolean schemasFieldWritten;
+    private boolean inSchemas;
+
+    LegacySchemaGenerator(JsonGenerator generator, String schema, String legacySchema) {
+        super(generator, false);
+        this.schema = schema;
+        this.legacySchema = legacySchema;
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        schemasFieldWritten = isTopLevelField() && SCHEMAS.equals(name);
+        super.writeFieldName(name);
+    }
+
+    @Override
+    public void writeFieldName(SerializableString name) throws IOException {
+        schemasFieldWritten = isTopLevelField() && SCHEMAS.equals(name.getValue());
+        super.writeFieldName(name);
+    }
+
+    private boolean isTopLevelField() {
+        JsonStreamContext context = getOutputContext();
+        return context.inObject() && context.getParent() != null && context.getParent().inRoot();
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+        startArray();
+        super.writeStartArray();
+    }
+
+    @Override
+    public void writeStartArray(int size) throws IOException {
+        startArray();
+        super.writeStartArray(size);
+    }
+
+    private void startArray() {
+        inSchemas = schemasFieldWritten;
+        schemasFieldWritten = false;
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+        if (!inSchemas || !schema.equals(text)) {
+            super.writeString(text);
+        }
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        if (inSchemas) {
+            writeString(new String(text, offset, len));
+        } else {
+            super.writeString(text, offset, len);
+        }
+    }
+
+    @Override
+    public void writeString(SerializableString text) throws IOException {
+        if (inSchemas) {
+            writeString(text.getValue());
+        } else {
+            super.writeString(text);
+        }
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        if (inSchemas) {
+            inSchemas = false;
+            super.writeString(legacySchema);
+        }
+        super.writeEndArray();
+    }
+}
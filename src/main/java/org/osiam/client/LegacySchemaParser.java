@@ -0,0 +1,206 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Rewrites the {@code schemas} of a resource to the legacy schema while the resource is read, so the resource does not
+ * have to be read into a tree first. The schema of the resource is left out of the top level {@code schemas} array and
+ * the legacy schema is inserted as its first element.
+ */
+final class LegacySchemaParser extends JsonParserDelegate {
+
+    private static final String SCHEMAS = "schemas";
+
+    private final String schema;
+    private final String legacySchema;
+    private boolean schemasFieldRead;
+    private JsonStreamContext schemasContext;
+    private boolean legacySchemaPending;
+    private boolean atLegacySchema;
+
+    LegacySchemaParser(JsonParser parser, String schema, String legacySchema) {
+        super(parser);
+        this.schema = schema;
+        this.legacySchema = legacySchema;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        if (legacySchemaPending) {
+            legacySchemaPending = false;
+            atLegacySchema = true;
+            return JsonToken.VALUE_STRING;
+        }
+        atLegacySchema = false;
+
+        JsonToken token = delegate.nextToken();
+        if (schemasContext != null) {
+            while (token == JsonToken.VALUE_STRING && delegate.getParsingContext() == schemasContext
+                    && schema.equals(delegate.getText())) {
+                token = delegate.nextToken();
+            }
+            if (token == JsonToken.END_ARRAY && delegate.getParsingContext() == schemasContext.getParent()) {
+                schemasContext = null;
+            }
+            return token;
+        }
+
+        if (token == JsonToken.START_ARRAY && schemasFieldRead) {
+            schemasContext = delegate.getParsingContext();
+            legacySchemaPending = true;
+        }
+        schemasFieldRead = token == JsonToken.FIELD_NAME && isTopLevelField() && SCHEMAS.equals(delegate.getCurrentName());
+        return token;
+    }
+
+    private boolean isTopLevelField() {
+        JsonStreamContext context = delegate.getParsingContext();
+        return context.inObject() && context.getParent() != null && context.getParent().inRoot();
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+        JsonToken token = nextToken();
+        if (token == JsonToken.FIELD_NAME) {
+            token = nextToken();
+        }
+        return token;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        if (atLegacySchema) {
+            return this;
+        }
+        if (legacySchemaPending) {
+            legacySchemaPending = false;
+            schemasContext = null;
+        }
+        delegate.skipChildren();
+        return this;
+    }
+
+    @Override
+    public JsonToken currentToken() {
+        return atLegacySchema ? JsonToken.VALUE_STRING : delegate.currentToken();
+    }
+
+    @Override
+    public int currentTokenId() {
+        return atLegacySchema ? JsonTokenId.ID_STRING : delegate.currentTokenId();
+    }
+
+    @Override
+    public JsonToken getCurrentToken() {
+        return currentToken();
+    }
+
+    @Override
+    public int getCurrentTokenId() {
+        return currentTokenId();
+    }
+
+    @Override
+    public boolean hasCurrentToken() {
+        return atLegacySchema || delegate.hasCurrentToken();
+    }
+
+    @Override
+    public boolean hasTokenId(int id) {
+        return atLegacySchema ? id == JsonTokenId.ID_STRING : delegate.hasTokenId(id);
+    }
+
+    @Override
+    public boolean hasToken(JsonToken t) {
+        return atLegacySchema ? t == JsonToken.VALUE_STRING : delegate.hasToken(t);
+    }
+
+    @Override
+    public boolean isExpectedStartArrayToken() {
+        return !atLegacySchema && delegate.isExpectedStartArrayToken();
+    }
+
+    @Override
+    public boolean isExpectedStartObjectToken() {
+        return !atLegacySchema && delegate.isExpectedStartObjectToken();
+    }
+
+    @Override
+    public String getCurrentName() throws IOException {
+        return atLegacySchema ? null : delegate.getCurrentName();
+    }
+
+    @Override
+    public String getText() throws IOException {
+        return atLegacySchema ? legacySchema : delegate.getText();
+    }
+
+    @Override
+    public int getText(Writer writer) throws IOException {
+        if (atLegacySchema) {
+            writer.write(legacySchema);
+            return legacySchema.length();
+        }
+        return delegate.getText(writer);
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+        return !atLegacySchema && delegate.hasTextCharacters();
+    }
+
+    @Override
+    public char[] getTextCharacters() throws IOException {
+        return atLegacySchema ? legacySchema.toCharArray() : delegate.getTextCharacters();
+    }
+
+    @Override
+    public int getTextLength() throws IOException {
+        return atLegacySchema ? legacySchema.length() : delegate.getTextLength();
+    }
+
+    @Override
+    public int getTextOffset() throws IOException {
+        return atLegacySchema ? 0 : delegate.getTextOffset();
+    }
+
+    @Override
+    public String getValueAsString() throws IOException {
+        return atLegacySchema ? legacySchema : delegate.getValueAsString();
+    }
+
+    @Override
+    public String getValueAsString(String defaultValue) throws IOException {
+        return atLegacySchema ? legacySchema : delegate.getValueAsString(defaultValue);
+    }
+}
@@ -0,0 +1,434 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.osiam.client.exception.NoResultException;
+import org.osiam.client.exception.UnauthorizedException;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.Client;
+import org.osiam.client.oauth.Scope;
+import org.osiam.client.query.Query;
+import org.osiam.client.transport.AsyncOsiamTransport;
+import org.osiam.client.transport.Cancellation;
+import org.osiam.client.transport.OsiamTransport;
+import org.osiam.resources.scim.Group;
+import org.osiam.resources.scim.ProjectedResource;
+import org.osiam.resources.scim.Projection;
+import org.osiam.resources.scim.SCIMSearchResult;
+import org.osiam.resources.scim.User;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * OsiamAsyncConnector provides the same operations as the {@link OsiamConnector}, but does not block the calling
+ * thread. Every method returns a {@link ListenableFuture} that is completed with the result of the operation or, if
+ * the operation fails, with the same exception the {@link OsiamConnector} would have thrown, e.g. a
+ * {@link NoResultException} or an {@link UnauthorizedException}.
+ * <p>
+ * If the connector uses an {@link AsyncOsiamTransport}, e.g. an
+ * {@link org.osiam.client.transport.ApacheAsyncHttpTransport}, operations that consist of a single request are sent
+ * without occupying a thread while the request is in flight. Cancelling such a future aborts the request. Operations
+ * that need more than one request ({@link #getAllUsers(AccessToken, String...)},
+ * {@link #getAllGroups(AccessToken, String...)} and {@link #getMe(AccessToken, String...)}) and all operations of
+ * connectors with a blocking transport run on the async executor. Cancelling a future before its request has been
+ * sent prevents the request. Cancelling the future of a single request that is already in flight aborts the
+ * exchange and releases its connection, see {@link Cancellation}. Cancelling the future of an operation that needs
+ * more than one request interrupts the worker thread, which stops before the next request.
+ * <p>
+ * Instances are retrieved via {@link OsiamConnector#async()}. The executor that runs the requests can be configured
+ * with {@link OsiamConnector.Builder#withAsyncExecutor(java.util.concurrent.ExecutorService)}.
+ */
+public class OsiamAsyncConnector {
+
+    private final OsiamConnector connector;
+    private final ListeningExecutorService executor;
+
+    OsiamAsyncConnector(OsiamConnector connector, ListeningExecutorService executor) {
+        this.connector = connector;
+        this.executor = executor;
+    }
+
+    /**
+     * See {@link OsiamConnector#getUser(String, AccessToken, String...)}
+     */
+    public ListenableFuture<User> getUser(final String id, final AccessToken accessToken,
+                                          final String... attributes) {
+        return execute(new Callable<Exchange<User>>() {
+            @Override
+            public Exchange<User> call() {
+                return connector.getUserService().getResourceExchange(id, accessToken, attributes);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#getUser(String, AccessToken, Projection)}
+     */
+    public ListenableFuture<ProjectedResource> getUser(final String id, final AccessToken accessToken,
+                                                       final Projection projection) {
+        return execute(new Callable<Exchange<ProjectedResource>>() {
+            @Override
+            public Exchange<ProjectedResource> call() {
+                return connector.getUserService().getProjectedResourceExchange(id, accessToken, projection);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#getAllUsers(AccessToken, String...)}
+     */
+    public ListenableFuture<List<User>> getAllUsers(final AccessToken accessToken, final String... attributes) {
+        return executor.submit(new Callable<List<User>>() {
+            @Override
+            public List<User> call() {
+                return connector.getAllUsers(accessToken, attributes);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#searchUsers(Query, AccessToken)}
+     */
+    public ListenableFuture<SCIMSearchResult<User>> searchUsers(final Query query, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<SCIMSearchResult<User>>>() {
+            @Override
+            public Exchange<SCIMSearchResult<User>> call() {
+                return connector.getUserService().searchResourcesExchange(query, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#searchUsers(Query, AccessToken, Projection)}
+     */
+    public ListenableFuture<SCIMSearchResult<ProjectedResource>> searchUsers(final Query query,
+                                                                             final AccessToken accessToken,
+                                                                             final Projection projection) {
+        return execute(new Callable<Exchange<SCIMSearchResult<ProjectedResource>>>() {
+            @Override
+            public Exchange<SCIMSearchResult<ProjectedResource>> call() {
+                return connector.getUserService().searchProjectedResourcesExchange(query, accessToken, projection);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#getMe(AccessToken, String...)}
+     */
+    public ListenableFuture<User> getMe(final AccessToken accessToken, final String... attributes) {
+        return executor.submit(new Callable<User>() {
+            @Override
+            public User call() {
+                return connector.getMe(accessToken, attributes);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#createUser(User, AccessToken)}
+     */
+    public ListenableFuture<User> createUser(final User user, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<User>>() {
+            @Override
+            public Exchange<User> call() {
+                return connector.getUserService().createResourceExchange(user, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#replaceUser(String, User, AccessToken)}
+     */
+    public ListenableFuture<User> replaceUser(final String id, final User user, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<User>>() {
+            @Override
+            public Exchange<User> call() {
+                return connector.getUserService().replaceUserExchange(id, user, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#deleteUser(String, AccessToken)}
+     */
+    public ListenableFuture<Void> deleteUser(final String id, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<Void>>() {
+            @Override
+            public Exchange<Void> call() {
+                return connector.getUserService().deleteResourceExchange(id, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#getGroup(String, AccessToken, String...)}
+     */
+    public ListenableFuture<Group> getGroup(final String id, final AccessToken accessToken,
+                                            final String... attributes) {
+        return execute(new Callable<Exchange<Group>>() {
+            @Override
+            public Exchange<Group> call() {
+                return connector.getGroupService().getResourceExchange(id, accessToken, attributes);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#getAllGroups(AccessToken, String...)}
+     */
+    public ListenableFuture<List<Group>> getAllGroups(final AccessToken accessToken, final String... attributes) {
+        return executor.submit(new Callable<List<Group>>() {
+            @Override
+            public List<Group> call() {
+                return connector.getAllGroups(accessToken, attributes);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#searchGroups(Query, AccessToken)}
+     */
+    public ListenableFuture<SCIMSearchResult<Group>> searchGroups(final Query query, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<SCIMSearchResult<Group>>>() {
+            @Override
+            public Exchange<SCIMSearchResult<Group>> call() {
+                return connector.getGroupService().searchResourcesExchange(query, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#createGroup(Group, AccessToken)}
+     */
+    public ListenableFuture<Group> createGroup(final Group group, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<Group>>() {
+            @Override
+            public Exchange<Group> call() {
+                return connector.getGroupService().createResourceExchange(group, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#replaceGroup(String, Group, AccessToken)}
+     */
+    public ListenableFuture<Group> replaceGroup(final String id, final Group group, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<Group>>() {
+            @Override
+            public Exchange<Group> call() {
+                return connector.getGroupService().replaceResourceExchange(id, group, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#deleteGroup(String, AccessToken)}
+     */
+    public ListenableFuture<Void> deleteGroup(final String id, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<Void>>() {
+            @Override
+            public Exchange<Void> call() {
+                return connector.getGroupService().deleteResourceExchange(id, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#retrieveAccessToken(Scope...)}
+     */
+    public ListenableFuture<AccessToken> retrieveAccessToken(final Scope... scopes) {
+        return execute(new Callable<Exchange<AccessToken>>() {
+            @Override
+            public Exchange<AccessToken> call() {
+                return connector.getAuthService().retrieveAccessTokenExchange(scopes);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#retrieveAccessToken(String, String, Scope...)}
+     */
+    public ListenableFuture<AccessToken> retrieveAccessToken(final String userName, final String password,
+                                                             final Scope... scopes) {
+        return execute(new Callable<Exchange<AccessToken>>() {
+            @Override
+            public Exchange<AccessToken> call() {
+                return connector.getAuthService().retrieveAccessTokenExchange(userName, password, scopes);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#retrieveAccessToken(String)}
+     */
+    public ListenableFuture<AccessToken> retrieveAccessToken(final String authCode) {
+        return execute(new Callable<Exchange<AccessToken>>() {
+            @Override
+            public Exchange<AccessToken> call() {
+                return connector.getAuthService().retrieveAccessTokenExchange(authCode);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#refreshAccessToken(AccessToken, Scope...)}
+     */
+    public ListenableFuture<AccessToken> refreshAccessToken(final AccessToken accessToken, final Scope... scopes) {
+        return execute(new Callable<Exchange<AccessToken>>() {
+            @Override
+            public Exchange<AccessToken> call() {
+                return connector.getAuthService().refreshAccessTokenExchange(accessToken, scopes);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#validateAccessToken(AccessToken)}
+     */
+    public ListenableFuture<AccessToken> validateAccessToken(final AccessToken tokenToValidate) {
+        return execute(new Callable<Exchange<AccessToken>>() {
+            @Override
+            public Exchange<AccessToken> call() {
+                return connector.getAuthService().validateAccessTokenExchange(tokenToValidate);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#revokeAccessToken(AccessToken)}
+     */
+    public ListenableFuture<Void> revokeAccessToken(final AccessToken tokenToRevoke) {
+        return execute(new Callable<Exchange<Void>>() {
+            @Override
+            public Exchange<Void> call() {
+                return connector.getAuthService().revokeAccessTokenExchange(tokenToRevoke);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#revokeAllAccessTokens(String, AccessToken)}
+     */
+    public ListenableFuture<Void> revokeAllAccessTokens(final String id, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<Void>>() {
+            @Override
+            public Exchange<Void> call() {
+                return connector.getAuthService().revokeAllAccessTokensExchange(id, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#getClient(String, AccessToken)}
+     */
+    public ListenableFuture<Client> getClient(final String clientId, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<Client>>() {
+            @Override
+            public Exchange<Client> call() {
+                return connector.getAuthService().getClientExchange(clientId, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#getClients(AccessToken)}
+     */
+    public ListenableFuture<List<Client>> getClients(final AccessToken accessToken) {
+        return execute(new Callable<Exchange<List<Client>>>() {
+            @Override
+            public Exchange<List<Client>> call() {
+                return connector.getAuthService().getClientsExchange(accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#createClient(Client, AccessToken)}
+     */
+    public ListenableFuture<Client> createClient(final Client client, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<Client>>() {
+            @Override
+            public Exchange<Client> call() {
+                return connector.getAuthService().createClientExchange(client, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#updateClient(String, Client, AccessToken)}
+     */
+    public ListenableFuture<Client> updateClient(final String clientId, final Client client,
+                                                 final AccessToken accessToken) {
+        return execute(new Callable<Exchange<Client>>() {
+            @Override
+            public Exchange<Client> call() {
+                return connector.getAuthService().updateClientExchange(clientId, client, accessToken);
+            }
+        });
+    }
+
+    /**
+     * See {@link OsiamConnector#deleteClient(String, AccessToken)}
+     */
+    public ListenableFuture<Void> deleteClient(final String clientId, final AccessToken accessToken) {
+        return execute(new Callable<Exchange<Void>>() {
+            @Override
+            public Exchange<Void> call() {
+                return connector.getAuthService().deleteClientExchange(clientId, accessToken);
+            }
+        });
+    }
+
+    private <R> ListenableFuture<R> execute(final Callable<Exchange<R>> exchangeFactory) {
+        final OsiamTransport transport = connector.getConnectorTransport();
+        if (transport instanceof AsyncOsiamTransport) {
+            try {
+                return exchangeFactory.call().executeAsync((AsyncOsiamTransport) transport, executor);
+            } catch (Exception e) {
+                return Futures.immediateFailedFuture(e);
+            }
+        }
+        final Cancellation cancellation = new Cancellation();
+        final ListenableFuture<R> result = executor.submit(new Callable<R>() {
+            @Override
+            public R call() throws Exception {
+                return exchangeFactory.call().execute(transport, cancellation);
+            }
+        });
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    cancellation.cancel();
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+}
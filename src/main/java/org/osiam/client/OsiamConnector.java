@@ -24,57 +24,91 @@
 package org.osiam.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.google.common.base.Strings;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.glassfish.jersey.apache.connector.ApacheClientProperties;
-import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
-import org.glassfish.jersey.client.ClientConfig;
-import org.glassfish.jersey.client.ClientProperties;
-import org.glassfish.jersey.client.RequestEntityProcessing;
-import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.osiam.client.exception.*;
 import org.osiam.client.oauth.AccessToken;
 import org.osiam.client.oauth.Client;
 import org.osiam.client.oauth.Scope;
 import org.osiam.client.query.Query;
 import org.osiam.client.query.QueryBuilder;
+import org.osiam.client.transport.ContentEncodingTransport;
+import org.osiam.client.transport.JerseyTransport;
+import org.osiam.client.transport.OsiamTransport;
+import org.osiam.client.transport.TransferListener;
 import org.osiam.client.user.BasicUser;
+import org.osiam.resources.helper.ExtensionSchemaRegistry;
+import org.osiam.resources.helper.UserDeserializer;
 import org.osiam.resources.scim.*;
 
-import javax.ws.rs.client.ClientBuilder;
+import java.io.Closeable;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * OsiamConnector provides access to the OAuth2 service used to authorize requests and all methods necessary to
  * manipulate the {@link Group} and {@link User} resources registered in the given OSIAM installation. For the
  * construction of an instance please use the {@link OsiamConnector.Builder}
  */
-public class OsiamConnector {
+public class OsiamConnector implements Closeable {
 
-    public static final ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * @deprecated Connectors do not use this mapper anymore, but map JSON with their own immutable readers and
+     * writers. It is configured with the {@link UserDeserializer} once and not changed afterwards. Will be removed in
+     * 1.12 or 2.0.
+     */
+    @Deprecated
+    public static final ObjectMapper objectMapper = new ObjectMapper().registerModule(
+            new SimpleModule("userDeserializerModule", com.fasterxml.jackson.core.Version.unknownVersion())
+                    .addDeserializer(User.class, new UserDeserializer()));
     private static final int DEFAULT_CONNECT_TIMEOUT = 2500;
     private static final int DEFAULT_READ_TIMEOUT = 5000;
     private static final boolean DEFAULT_LEGACY_SCHEMAS = false;
     private static final int DEFAULT_MAX_CONNECTIONS = 40;
-    private static final PoolingHttpClientConnectionManager connectionManager =
-            new PoolingHttpClientConnectionManager();
-
-    private static final javax.ws.rs.client.Client client = ClientBuilder.newClient(new ClientConfig()
-            .connectorProvider(new ApacheConnectorProvider())
-            .property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED)
-            .property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager)
-            .register(HttpAuthenticationFeature.basicBuilder().build())
-            .property(ClientProperties.CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT)
-            .property(ClientProperties.READ_TIMEOUT, DEFAULT_READ_TIMEOUT));
-
-    static {
-        setMaxConnections(DEFAULT_MAX_CONNECTIONS);
-    }
-
+    private static final int DEFAULT_GET_ALL_PAGE_SIZE = 1000;
+    private static final int DEFAULT_GET_ALL_PARALLELISM = 4;
+    private static final int DEFAULT_CONDITIONAL_REQUEST_CACHE_SIZE = 10000;
+    private static final int REFRESH_THREADS = 2;
+    private static final int MAX_QUEUED_REFRESHES = 1000;
+
+    private static final JerseyTransport transport = createTransport(DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS,
+            DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+
+    private static final ListeningExecutorService asyncExecutor = createDefaultAsyncExecutor();
+
+    private final OsiamTransport ownTransport;
+    private final OsiamTransport connectorTransport;
+    private final ResourceCache resourceCache;
+    private final ExtensionSchemaRegistry extensionSchemas;
+    private ExecutorService refreshExecutor;
+    private ScheduledExecutorService tokenRefreshScheduler;
+    private TokenProvider tokenProvider;
+    private TokenValidationCache tokenValidationCache;
     private AuthService authService;
     private OsiamUserService userService;
     private OsiamGroupService groupService;
+    private final ListeningExecutorService executor;
+    private final OsiamAsyncConnector asyncConnector;
+    private final int getAllPageSize;
+    private final int getAllParallelism;
 
     /**
      * The private constructor for the OsiamConnector. Please use the {@link OsiamConnector.Builder}
@@ -83,6 +117,44 @@ public class OsiamConnector {
      * @param builder a valid {@link Builder} that holds all needed variables
      */
     private OsiamConnector(Builder builder) {
+        OsiamTransport baseTransport;
+        if (builder.transport != null) {
+            ownTransport = null;
+            baseTransport = builder.transport;
+        } else if (builder.maxConnections > 0) {
+            ownTransport = createTransport(builder.maxConnections, builder.maxConnectionsPerRoute,
+                    builder.connectTimeout, builder.readTimeout);
+            baseTransport = ownTransport;
+        } else {
+            ownTransport = null;
+            baseTransport = transport;
+        }
+        if (builder.requestCompression || builder.responseCompression || builder.transferListener != null) {
+            connectorTransport = ContentEncodingTransport.wrap(baseTransport, builder.requestCompression,
+                    builder.responseCompression, builder.transferListener);
+        } else {
+            connectorTransport = baseTransport;
+        }
+
+        if (builder.hardTimeToLiveUnit != null) {
+            checkState(builder.resourceCacheSize > 0, "Stale-while-revalidate requires a resource cache.");
+            long timeToLiveNanos = builder.resourceCacheTimeUnit.toNanos(builder.resourceCacheTimeToLive);
+            long hardTimeToLiveNanos = builder.hardTimeToLiveUnit.toNanos(builder.hardTimeToLive);
+            checkState(hardTimeToLiveNanos >= timeToLiveNanos,
+                    "The hard time to live must not be shorter than the time to live of the resource cache.");
+            resourceCache = new ResourceCache(builder.resourceCacheSize, timeToLiveNanos, hardTimeToLiveNanos,
+                    Ticker.systemTicker());
+            refreshExecutor = createRefreshExecutor();
+        } else if (builder.resourceCacheSize > 0) {
+            resourceCache = new ResourceCache(builder.resourceCacheSize, builder.resourceCacheTimeToLive,
+                    builder.resourceCacheTimeUnit);
+        } else if (builder.conditionalRequests) {
+            // resources expire immediately, so every read is revalidated
+            resourceCache = new ResourceCache(DEFAULT_CONDITIONAL_REQUEST_CACHE_SIZE, 0, TimeUnit.SECONDS);
+        } else {
+            resourceCache = null;
+        }
+
         String authEndpoint;
         String resourceEndpoint;
         Version version;
@@ -101,18 +173,129 @@ public class OsiamConnector {
         }
 
         if (!Strings.isNullOrEmpty(authEndpoint)) {
-            authService = new AuthService(authEndpoint, builder.clientId, builder.clientSecret,
+            authService = new AuthService(connectorTransport, authEndpoint, builder.clientId, builder.clientSecret,
                     builder.clientRedirectUri, builder.connectTimeout, builder.readTimeout);
+            if (builder.tokenValidationCacheSize > 0) {
+                tokenValidationCache = new TokenValidationCache(builder.tokenValidationCacheSize,
+                        builder.tokenValidationMaxTimeToLive, builder.tokenValidationNegativeTimeToLive,
+                        builder.tokenValidationTimeUnit);
+                authService.setValidationCache(tokenValidationCache);
+            }
         }
 
+        extensionSchemas = builder.extensionSchemas;
         if (!Strings.isNullOrEmpty(resourceEndpoint)) {
-            userService = new OsiamUserService(resourceEndpoint, builder.connectTimeout, builder.readTimeout, version);
-            groupService = new OsiamGroupService(resourceEndpoint, builder.connectTimeout, builder.readTimeout, version);
+            userService = new OsiamUserService(connectorTransport, resourceEndpoint, builder.connectTimeout,
+                    builder.readTimeout, version);
+            groupService = new OsiamGroupService(connectorTransport, resourceEndpoint, builder.connectTimeout,
+                    builder.readTimeout, version);
+            if (extensionSchemas != null || builder.deferUserAttributes) {
+                JsonMapping jsonMapping = JsonMapping.forVersion(version, extensionSchemas,
+                        builder.deferUserAttributes);
+                userService.setJsonMapping(jsonMapping);
+                groupService.setJsonMapping(jsonMapping);
+            }
+            userService.setStreamRequestBodies(builder.streamRequestBodies);
+            groupService.setStreamRequestBodies(builder.streamRequestBodies);
+            userService.setResourceCache(resourceCache);
+            groupService.setResourceCache(resourceCache);
+            userService.setConditionalRequests(builder.conditionalRequests);
+            groupService.setConditionalRequests(builder.conditionalRequests);
+            userService.setRefreshExecutor(refreshExecutor);
+            groupService.setRefreshExecutor(refreshExecutor);
+            if (builder.requestCoalescing) {
+                RequestCoalescer requestCoalescer = new RequestCoalescer();
+                userService.setRequestCoalescer(requestCoalescer);
+                groupService.setRequestCoalescer(requestCoalescer);
+            }
+        }
+
+        executor = builder.asyncExecutor != null
+                ? MoreExecutors.listeningDecorator(builder.asyncExecutor)
+                : asyncExecutor;
+        asyncConnector = new OsiamAsyncConnector(this, executor);
+        getAllPageSize = builder.getAllPageSize;
+        getAllParallelism = builder.getAllParallelism;
+    }
+
+    static OsiamTransport getTransport() {
+        return transport;
+    }
+
+    private static JerseyTransport createTransport(int maxConnections, int maxConnectionsPerRoute,
+                                                   int connectTimeout, int readTimeout) {
+        JerseyTransport jerseyTransport = new JerseyTransport(maxConnections, maxConnectionsPerRoute);
+        jerseyTransport.setConnectTimeout(connectTimeout);
+        jerseyTransport.setReadTimeout(readTimeout);
+        return jerseyTransport;
+    }
+
+    /**
+     * Closes the HTTP client and the connection pool of this connector, if it has been built with its own ones via
+     * {@link Builder#withOwnConnectionPool(int, int)}. Connectors that use the application global HTTP client or a
+     * transport set via {@link Builder#withTransport(OsiamTransport)} are not affected. The connector must not be used
+     * after it has been closed.
+     */
+    @Override
+    public void close() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        synchronized (this) {
+            if (tokenRefreshScheduler != null) {
+                tokenRefreshScheduler.shutdownNow();
+            }
+        }
+        if (ownTransport != null) {
+            ownTransport.close();
         }
     }
 
-    static javax.ws.rs.client.Client getClient() {
-        return client;
+    /**
+     * Creates the scheduler for background refreshes of the {@link TokenProvider}. Its thread is only started when the
+     * first token is retrieved, and stops when there are no refreshes scheduled for a minute.
+     */
+    private static ScheduledExecutorService createTokenRefreshScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("osiam-connector-token-refresh-%d").setDaemon(true).build());
+        scheduler.setKeepAliveTime(60, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Creates the executor for background refreshes of the resource cache. Its queue is bounded, so refreshes are
+     * dropped instead of piling up if OSIAM is slow; the stale resources are refreshed by a later read then.
+     */
+    private static ExecutorService createRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED_REFRESHES),
+                new ThreadFactoryBuilder().setNameFormat("osiam-connector-refresh-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ListeningExecutorService createDefaultAsyncExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("osiam-connector-async-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return MoreExecutors.listeningDecorator(executor);
+    }
+
+    /**
+     * Provides the non-blocking variant of this connector. All operations of the returned
+     * {@link OsiamAsyncConnector} use the endpoints, credentials and timeouts of this connector.
+     * <p>
+     * Unless an executor has been set via {@link Builder#withAsyncExecutor(ExecutorService)}, the
+     * requests are run by an application global pool of daemon threads, which is as large as the
+     * default number of HTTP connections.
+     *
+     * @return the asynchronous variant of this connector
+     */
+    public OsiamAsyncConnector async() {
+        return asyncConnector;
     }
 
     /**
@@ -126,7 +309,7 @@ public class OsiamConnector {
      * @param connectTimeout the connect timeout interval, in milliseconds
      */
     public static void setConnectTimeout(int connectTimeout) {
-        client.property(ClientProperties.CONNECT_TIMEOUT, connectTimeout);
+        transport.setConnectTimeout(connectTimeout);
     }
 
     /**
@@ -140,7 +323,7 @@ public class OsiamConnector {
      * @param readTimeout the read timeout interval, in milliseconds
      */
     public static void setReadTimeout(int readTimeout) {
-        client.property(ClientProperties.READ_TIMEOUT, readTimeout);
+        transport.setReadTimeout(readTimeout);
     }
 
     /**
@@ -156,8 +339,8 @@ public class OsiamConnector {
      * @param maxConnections The maximum number of HTTP connections
      */
     public static void setMaxConnections(int maxConnections) {
-        connectionManager.setMaxTotal(maxConnections);
-        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        transport.setMaxConnections(maxConnections);
+        transport.setMaxConnectionsPerRoute(maxConnections);
     }
 
     /**
@@ -184,24 +367,71 @@ public class OsiamConnector {
      * @param maxConnectionsPerRoute The maximum number of HTTP connections per route
      */
     public static void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
-        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        transport.setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+    }
+
+    OsiamTransport getConnectorTransport() {
+        return connectorTransport;
+    }
+
+    /**
+     * Provides the statistics of the resource cache, see
+     * {@link Builder#withResourceCache(int, long, TimeUnit)}. All values are 0 if the connector has no cache.
+     *
+     * @return a snapshot of the statistics of the resource cache
+     */
+    public CacheStats getResourceCacheStats() {
+        return resourceCache != null
+                ? resourceCache.stats()
+                : new CacheStats(0, 0, 0, 0, 0, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * Provides the token provider of this connector, which shares access tokens retrieved via client credentials grant
+     * between all callers and refreshes them in the background before they expire. See {@link TokenProvider}.
+     * <p>
+     * The token provider and its scheduler are created by the first call of this method.
+     *
+     * @return the token provider of this connector
+     * @throws IllegalStateException if OSIAM's endpoint(s) are not properly configured
+     */
+    public synchronized TokenProvider getTokenProvider() {
+        if (tokenProvider == null) {
+            AuthService authService = getAuthService();
+            tokenRefreshScheduler = createTokenRefreshScheduler();
+            tokenProvider = new TokenProvider(authService, tokenRefreshScheduler, new Random());
+        }
+        return tokenProvider;
+    }
+
+    /**
+     * Provides the statistics of the token validation cache, see
+     * {@link Builder#withTokenValidationCache(int, long, long, TimeUnit)}. All values are 0 if the connector has no
+     * token validation cache.
+     *
+     * @return a snapshot of the statistics of the token validation cache
+     */
+    public CacheStats getTokenValidationCacheStats() {
+        return tokenValidationCache != null
+                ? tokenValidationCache.stats()
+                : new CacheStats(0, 0, 0, 0, 0, Collections.<String, Long>emptyMap());
     }
 
-    private AuthService getAuthService() {
+    AuthService getAuthService() {
         if (authService == null) {
             throw new IllegalStateException("OSIAM's endpoint(s) are not properly configured.");
         }
         return authService;
     }
 
-    private OsiamUserService getUserService() {
+    OsiamUserService getUserService() {
         if (userService == null) {
             throw new IllegalStateException("OSIAM's endpoint(s) are not properly configured.");
         }
         return userService;
     }
 
-    private OsiamGroupService getGroupService() {
+    OsiamGroupService getGroupService() {
         if (groupService == null) {
             throw new IllegalStateException("OSIAM's endpoint(s) are not properly configured.");
         }
@@ -226,10 +456,34 @@ public class OsiamConnector {
         return getUserService().getUser(id, accessToken, attributes);
     }
 
+    /**
+     * Retrieve the attributes of the given projection of a single User with the given id. Only these attributes are
+     * requested from OSIAM and bound into the returned {@link ProjectedResource}. If no user for the given id can be
+     * found a {@link NoResultException} is thrown.
+     *
+     * @param id          the id of the wanted user
+     * @param accessToken the OSIAM access token from for the current session
+     * @param projection  the attributes to retrieve, e.g. {@code Projection.of(User.USER_NAME, User.EMAILS_VALUE)}
+     * @return the requested attributes of the user with the given id
+     * @throws UnauthorizedException             if the request could not be authorized.
+     * @throws NoResultException                 if no user with the given id can be found
+     * @throws ForbiddenException                if the scope doesn't allow this request
+     * @throws ConnectionInitializationException if the connection to the given OSIAM service could not be initialized
+     * @throws IllegalStateException             if OSIAM's endpoint(s) are not properly configured
+     */
+    public ProjectedResource getUser(String id, AccessToken accessToken, Projection projection) {
+        return getUserService().getUser(id, accessToken, projection);
+    }
+
     /**
      * Retrieve a list of the of all {@link User} resources saved in the OSIAM service. If you need to have all User but
      * the number is very large, this method can be slow. In this case you can also use Query.Builder with no filter to
-     * split the number of User returned
+     * split the number of User returned or {@link #iterateUsers(Query, AccessToken)}.
+     * <p>
+     * The Users are retrieved in pages, several of them at the same time. The page size and the number of parallel
+     * requests can be configured via {@link Builder#withGetAllPageSize(int)} and
+     * {@link Builder#withGetAllParallelism(int)}. The returned list is sorted by id, or in the order of the server if
+     * the page size is {@link Integer#MAX_VALUE}.
      *
      * @param accessToken A valid AccessToken
      * @param attributes  the list of attributes that should be returned in the response
@@ -240,7 +494,7 @@ public class OsiamConnector {
      * @throws IllegalStateException             if OSIAM's endpoint(s) are not properly configured
      */
     public List<User> getAllUsers(AccessToken accessToken, String... attributes) {
-        return getUserService().getAllUsers(accessToken, attributes);
+        return getUserService().getAllResources(accessToken, getAllPageSize, getAllParallelism, executor, attributes);
     }
 
     /**
@@ -258,6 +512,46 @@ public class OsiamConnector {
         return getUserService().searchResources(query, accessToken);
     }
 
+    /**
+     * Search for existing Users by the given {@link org.osiam.client.query.Query Query} and retrieve the attributes
+     * of the given projection of the found Users. The attributes of the query are replaced by the attributes of the
+     * projection.
+     *
+     * @param query       containing the query to execute.
+     * @param accessToken the OSIAM access token from for the current session
+     * @param projection  the attributes to retrieve, e.g. {@code Projection.of(User.USER_NAME, User.EMAILS_VALUE)}
+     * @return a SCIMSearchResult Containing the requested attributes of all found Users
+     * @throws UnauthorizedException             if the request could not be authorized.
+     * @throws ForbiddenException                if the scope doesn't allow this request
+     * @throws ConnectionInitializationException if the connection to the given OSIAM service could not be initialized
+     * @throws IllegalStateException             if OSIAM's endpoint(s) are not properly configured
+     */
+    public SCIMSearchResult<ProjectedResource> searchUsers(Query query, AccessToken accessToken,
+                                                           Projection projection) {
+        return getUserService().searchUsers(query, accessToken, projection);
+    }
+
+    /**
+     * Iterates over all Users matching the given {@link org.osiam.client.query.Query Query}. The pages of the search
+     * result are retrieved lazily, starting with the page described by the query. While a page is consumed, the
+     * following page is already retrieved in the background, so at most two pages are held in memory. The page size
+     * is the count of the query.
+     * <p>
+     * Every call of {@link Iterable#iterator()} starts a new iteration. Errors while retrieving a page are thrown by
+     * {@link java.util.Iterator#hasNext()} or {@link java.util.Iterator#next()}.
+     *
+     * @param query       containing the query to execute.
+     * @param accessToken the OSIAM access token from for the current session
+     * @return an Iterable over all found Users
+     * @throws UnauthorizedException             if the request could not be authorized.
+     * @throws ForbiddenException                if the scope doesn't allow this request
+     * @throws ConnectionInitializationException if the connection to the given OSIAM service could not be initialized
+     * @throws IllegalStateException             if OSIAM's endpoint(s) are not properly configured
+     */
+    public Iterable<User> iterateUsers(Query query, AccessToken accessToken) {
+        return getUserService().iterateResources(query, accessToken, executor);
+    }
+
     /**
      * Retrieves the User holding the given access token. Not to be used for the grant Client-Credentials. If the
      * version of OSIAM to be queried is lower than 3.0 and only the basic Data like the userName, Name, primary
@@ -313,6 +607,37 @@ public class OsiamConnector {
         return getUserService().getCurrentUserBasic(accessToken);
     }
 
+    /**
+     * Retrieve the schemas of all extensions from OSIAM's {@code /Schemas} endpoint and register them in the
+     * {@link ExtensionSchemaRegistry} of this connector, so that the fields of these extensions are decoded straight
+     * into their type from then on. The schemas of the core resources are not registered.
+     *
+     * @param accessToken the OSIAM access token from for the current session
+     * @return the registered schemas
+     * @throws UnauthorizedException             if the request could not be authorized.
+     * @throws ForbiddenException                if the scope doesn't allow this request
+     * @throws ConnectionInitializationException if no connection to the given OSIAM services could be initialized
+     * @throws IllegalStateException             if OSIAM's endpoint(s) are not properly configured or this connector
+     *                                           has no {@link ExtensionSchemaRegistry}
+     */
+    public List<ExtensionSchema> loadExtensionSchemas(AccessToken accessToken) {
+        checkState(extensionSchemas != null, "No extension schema registry has been configured.");
+        List<ExtensionSchema> schemas = new ArrayList<>();
+        for (ExtensionSchema schema : getUserService().getSchemas(accessToken)) {
+            if (!isCoreSchema(schema.getUrn())) {
+                schemas.add(schema);
+            }
+        }
+        extensionSchemas.registerAll(schemas);
+        return schemas;
+    }
+
+    private static boolean isCoreSchema(String urn) {
+        return urn.startsWith("urn:ietf:params:scim:schemas:core:")
+                || urn.startsWith("urn:ietf:params:scim:api:")
+                || urn.startsWith("urn:scim:schemas:core:");
+    }
+
     /**
      * Retrieve a single Group with the given id. If no group with the given id can be found a {@link NoResultException}
      * is thrown.
@@ -334,7 +659,9 @@ public class OsiamConnector {
     /**
      * Retrieve a list of the of all {@link Group} resources saved in the OSIAM service. If you need to have all Group
      * but the number is very large, this method can be slow. In this case you can also use Query.Builder with no filter
-     * to split the number of Groups returned
+     * to split the number of Groups returned or {@link #iterateGroups(Query, AccessToken)}.
+     * <p>
+     * The Groups are retrieved in pages, see {@link #getAllUsers(AccessToken, String...)} for details.
      *
      * @param accessToken the OSIAM access token for the current session
      * @param attributes  the list of attributes that should be returned in the response
@@ -345,7 +672,7 @@ public class OsiamConnector {
      * @throws IllegalStateException             if OSIAM's endpoint(s) are not properly configured
      */
     public List<Group> getAllGroups(AccessToken accessToken, String... attributes) {
-        return getGroupService().getAllGroups(accessToken);
+        return getGroupService().getAllResources(accessToken, getAllPageSize, getAllParallelism, executor, attributes);
     }
 
     /**
@@ -366,6 +693,22 @@ public class OsiamConnector {
         return getGroupService().searchGroups(query, accessToken);
     }
 
+    /**
+     * Iterates over all Groups matching the given {@link org.osiam.client.query.Query Query}. The pages of the search
+     * result are retrieved lazily, see {@link #iterateUsers(Query, AccessToken)} for details.
+     *
+     * @param query       containing the query to execute.
+     * @param accessToken the OSIAM access token from for the current session
+     * @return an Iterable over all found Groups
+     * @throws UnauthorizedException             if the request could not be authorized.
+     * @throws ForbiddenException                if the scope doesn't allow this request
+     * @throws ConnectionInitializationException if the connection to the given OSIAM service could not be initialized
+     * @throws IllegalStateException             if OSIAM's endpoint(s) are not properly configured
+     */
+    public Iterable<Group> iterateGroups(Query query, AccessToken accessToken) {
+        return getGroupService().iterateResources(query, accessToken, executor);
+    }
+
     /**
      * Provides a new and refreshed access token by getting the refresh token from the given access token.
      *
@@ -725,6 +1068,29 @@ public class OsiamConnector {
         private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
         private int readTimeout = DEFAULT_READ_TIMEOUT;
         private boolean legacySchemas = DEFAULT_LEGACY_SCHEMAS;
+        private ExecutorService asyncExecutor;
+        private int getAllPageSize = DEFAULT_GET_ALL_PAGE_SIZE;
+        private int getAllParallelism = DEFAULT_GET_ALL_PARALLELISM;
+        private int maxConnections;
+        private int maxConnectionsPerRoute;
+        private OsiamTransport transport;
+        private boolean requestCompression;
+        private boolean responseCompression;
+        private TransferListener transferListener;
+        private boolean streamRequestBodies;
+        private int resourceCacheSize;
+        private long resourceCacheTimeToLive;
+        private TimeUnit resourceCacheTimeUnit;
+        private boolean conditionalRequests;
+        private long hardTimeToLive;
+        private TimeUnit hardTimeToLiveUnit;
+        private boolean requestCoalescing;
+        private int tokenValidationCacheSize;
+        private long tokenValidationMaxTimeToLive;
+        private long tokenValidationNegativeTimeToLive;
+        private TimeUnit tokenValidationTimeUnit;
+        private ExtensionSchemaRegistry extensionSchemas;
+        private boolean deferUserAttributes;
 
         /**
          * Use the given endpoint for communication with OSIAM.
@@ -887,6 +1253,293 @@ public class OsiamConnector {
             return this;
         }
 
+        /**
+         * Let the connector use its own HTTP client and connection pool instead of the application global one.
+         * <p>
+         * <p/>The limits of the pool only apply to this connector, so a slow OSIAM installation cannot use up the
+         * connections of other connectors. The connect and read timeouts of this builder become the defaults of the
+         * client. The settings of {@link OsiamConnector#setMaxConnections(int)},
+         * {@link OsiamConnector#setMaxConnectionsPerRoute(int)}, {@link OsiamConnector#setConnectTimeout(int)} and
+         * {@link OsiamConnector#setReadTimeout(int)} do not apply to it. Close the connector via
+         * {@link OsiamConnector#close()} when it is not needed anymore.
+         *
+         * @param maxConnections         the maximum number of HTTP connections
+         * @param maxConnectionsPerRoute the maximum number of HTTP connections per route
+         * @return The builder itself
+         * @throws IllegalArgumentException if one of the limits is lower than 1
+         */
+        public Builder withOwnConnectionPool(int maxConnections, int maxConnectionsPerRoute) {
+            checkArgument(maxConnections > 0, "The maximum number of connections must be greater than 0.");
+            checkArgument(maxConnectionsPerRoute > 0,
+                    "The maximum number of connections per route must be greater than 0.");
+            this.maxConnections = maxConnections;
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * Let the connector send its requests via the given transport instead of the application global Jersey client.
+         * <p>
+         * <p/>Use {@link org.osiam.client.transport.ApacheHttpTransport} for a transport with less overhead per
+         * request than the default one. The transport takes precedence over
+         * {@link #withOwnConnectionPool(int, int)}. The connector does not close the given transport, so it can be
+         * shared by several connectors.
+         *
+         * @param transport the transport that sends the requests to OSIAM
+         * @return The builder itself
+         */
+        public Builder withTransport(OsiamTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Ask OSIAM for gzip or deflate compressed responses. The responses are decompressed while they are parsed.
+         * Compression is disabled by default.
+         *
+         * @param responseCompression if the responses may be compressed
+         * @return The builder itself
+         */
+        public Builder withResponseCompression(boolean responseCompression) {
+            this.responseCompression = responseCompression;
+            return this;
+        }
+
+        /**
+         * Compress the JSON bodies of requests, i.e. of created, replaced and updated resources, with gzip. Bodies below
+         * {@value ContentEncodingTransport#MIN_COMPRESSED_REQUEST_SIZE} bytes are sent uncompressed. Enable this only
+         * if OSIAM, or a proxy in front of it, accepts compressed request bodies. Compression is disabled by default.
+         *
+         * @param requestCompression if the request bodies should be compressed
+         * @return The builder itself
+         */
+        public Builder withRequestCompression(boolean requestCompression) {
+            this.requestCompression = requestCompression;
+            return this;
+        }
+
+        /**
+         * Cache users and groups retrieved by id, i.e. via {@link OsiamConnector#getUser(String, AccessToken, String...)}
+         * and {@link OsiamConnector#getGroup(String, AccessToken, String...)}, and their asynchronous variants, as well
+         * as the current user retrieved via {@link OsiamConnector#getMe(AccessToken, String...)} from OSIAM 3.x.
+         * <p>
+         * <p/>A resource is cached per access token and requested attributes, so it is only returned to callers with
+         * the same access token. It expires after the given time. Resources that are replaced, updated or deleted via
+         * this connector are removed from the cache immediately; changes by other clients become visible when the
+         * cached resource expires. So do changes of the groups of a cached user, even if the group is changed via
+         * this connector. If the cache is full, resources that are read rarely are evicted first. See
+         * {@link OsiamConnector#getResourceCacheStats()} for the hit rate. There is no cache by default.
+         *
+         * @param maximumSize the maximum number of cached resources
+         * @param timeToLive  the time after which a cached resource expires, may be 0 together with
+         *                    {@link #withConditionalRequests(boolean)}
+         * @param unit        the unit of timeToLive
+         * @return The builder itself
+         */
+        public Builder withResourceCache(int maximumSize, long timeToLive, TimeUnit unit) {
+            checkArgument(maximumSize > 0, "The maximum size of the cache must be greater than 0.");
+            checkArgument(timeToLive >= 0, "The time to live must not be negative.");
+            this.resourceCacheSize = maximumSize;
+            this.resourceCacheTimeToLive = timeToLive;
+            this.resourceCacheTimeUnit = checkNotNull(unit, "The given unit must not be null.");
+            return this;
+        }
+
+        /**
+         * Revalidate expired resources in the resource cache with a conditional request instead of retrieving them
+         * again. The request carries the entity tag of the cached resource in an {@code If-None-Match} header, which
+         * is taken from the {@code ETag} header of the response or, if there is none, from the version in the meta
+         * data of the resource. If the server answers with {@code 304 Not Modified}, the cached resource is returned
+         * without transferring or parsing it again.
+         * <p>
+         * <p/>If no resource cache is configured via {@link #withResourceCache(int, long, TimeUnit)}, a cache of
+         * 10000 resources is used whose resources expire immediately, so
+         * every read is revalidated. Conditional requests are disabled by default.
+         *
+         * @param conditionalRequests if expired resources should be revalidated
+         * @return The builder itself
+         */
+        public Builder withConditionalRequests(boolean conditionalRequests) {
+            this.conditionalRequests = conditionalRequests;
+            return this;
+        }
+
+        /**
+         * Serve expired users and groups from the resource cache, including the current user retrieved via
+         * {@link OsiamConnector#getMe(AccessToken, String...)}, and refresh them in the background. The time to live
+         * of the resource cache set via {@link #withResourceCache(int, long, TimeUnit)} is the soft time to live: a
+         * resource older than that is returned immediately, and a refresh is started on a small pool of daemon
+         * threads. There is at most one refresh per resource in flight. A resource older than the given hard time to
+         * live is not served anymore, but retrieved synchronously. Refreshes use conditional requests if they have been
+         * enabled via {@link #withConditionalRequests(boolean)}.
+         * <p>
+         * <p/>A resource cache has to be configured. {@link OsiamConnector#getResourceCacheStats()} reports how often
+         * stale resources have been served, in total and per resource. Stale-while-revalidate is disabled by default.
+         *
+         * @param hardTimeToLive the time after which a cached resource must not be served anymore, must not be shorter
+         *                       than the time to live of the resource cache
+         * @param unit           the unit of hardTimeToLive
+         * @return The builder itself
+         */
+        public Builder withStaleWhileRevalidate(long hardTimeToLive, TimeUnit unit) {
+            checkArgument(hardTimeToLive > 0, "The hard time to live must be greater than 0.");
+            this.hardTimeToLive = hardTimeToLive;
+            this.hardTimeToLiveUnit = checkNotNull(unit, "The given unit must not be null.");
+            return this;
+        }
+
+        /**
+         * Let identical reads of users and groups that are in flight at the same time share one request: the first
+         * caller sends it, the others wait for its response and get the same result, i.e. the very same object, or
+         * the same exception. This applies to the retrieval of single resources, including the current user, and to
+         * searches, but not to writes. Reads are identical if they have the same URL and headers, so only callers with
+         * the same access token share a result. This protects OSIAM from bursts of identical requests, e.g. when many
+         * threads read a popular group at the same time. Coalescing is disabled by default.
+         *
+         * @param requestCoalescing if identical reads in flight should share a request
+         * @return The builder itself
+         */
+        public Builder withRequestCoalescing(boolean requestCoalescing) {
+            this.requestCoalescing = requestCoalescing;
+            return this;
+        }
+
+        /**
+         * Cache the results of {@link OsiamConnector#validateAccessToken(AccessToken)}, so resource servers that
+         * validate the token of every incoming request do not send a request to OSIAM every time. Results are cached
+         * per SHA-256 hash of the token.
+         * <p>
+         * <p/>A valid token is cached until it expires, but at most for the given maximum time to live. An invalid
+         * token is cached for the negative time to live, i.e. the {@link UnauthorizedException} is thrown again
+         * without asking OSIAM. Tokens revoked via {@link OsiamConnector#revokeAccessToken(AccessToken)} and
+         * {@link OsiamConnector#revokeAllAccessTokens(String, AccessToken)} are removed from the cache immediately;
+         * tokens revoked by other clients stay valid in the cache for up to the maximum time to live. See
+         * {@link OsiamConnector#getTokenValidationCacheStats()} for the hit rate. There is no cache by default.
+         *
+         * @param maximumSize        the maximum number of cached validation results
+         * @param maxTimeToLive      the maximum time a valid token is cached
+         * @param negativeTimeToLive the time an invalid token is cached, may be 0 to not cache invalid tokens
+         * @param unit               the unit of maxTimeToLive and negativeTimeToLive
+         * @return The builder itself
+         */
+        public Builder withTokenValidationCache(int maximumSize, long maxTimeToLive, long negativeTimeToLive,
+                                                TimeUnit unit) {
+            checkArgument(maximumSize > 0, "The maximum size of the cache must be greater than 0.");
+            checkArgument(maxTimeToLive > 0, "The maximum time to live must be greater than 0.");
+            checkArgument(negativeTimeToLive >= 0, "The negative time to live must not be negative.");
+            this.tokenValidationCacheSize = maximumSize;
+            this.tokenValidationMaxTimeToLive = maxTimeToLive;
+            this.tokenValidationNegativeTimeToLive = negativeTimeToLive;
+            this.tokenValidationTimeUnit = checkNotNull(unit, "The given unit must not be null.");
+            return this;
+        }
+
+        /**
+         * Serialize created and replaced resources directly into the connection while the request is sent, instead
+         * of serializing them into memory first. The resources are sent with chunked transfer encoding, so OSIAM, and
+         * any proxy in front of it, has to accept chunked request bodies. This saves memory for large resources, e.g.
+         * groups with many members or users with photos. Streaming is disabled by default.
+         *
+         * @param streamRequestBodies if the resources should be streamed
+         * @return The builder itself
+         */
+        public Builder withStreamingRequestBodies(boolean streamRequestBodies) {
+            this.streamRequestBodies = streamRequestBodies;
+            return this;
+        }
+
+        /**
+         * Report the sizes of the request and response bodies of every exchange with OSIAM, before and after the
+         * compression, to the given listener.
+         *
+         * @param transferListener the listener that receives the statistics
+         * @return The builder itself
+         */
+        public Builder withTransferListener(TransferListener transferListener) {
+            this.transferListener = transferListener;
+            return this;
+        }
+
+        /**
+         * Decode the fields of extensions whose schema is registered in the given registry straight into their
+         * declared {@link ExtensionFieldType}, instead of guessing the type from the JSON value. Extensions that are
+         * not registered are decoded as before. Schemas can be registered at any time, e.g. with
+         * {@link OsiamConnector#loadExtensionSchemas(AccessToken)}.
+         *
+         * @param extensionSchemas the registry of known extension schemas
+         * @return The builder itself
+         */
+        public Builder withExtensionSchemas(ExtensionSchemaRegistry extensionSchemas) {
+            this.extensionSchemas = checkNotNull(extensionSchemas, "The given registry must not be null.");
+            return this;
+        }
+
+        /**
+         * Defer the decoding of the multi-valued attributes, e.g. emails or groups, and the extensions of received
+         * users until they are accessed for the first time. Single-valued attributes are decoded right away. This
+         * makes reading users, especially pages of search results, cheaper if only a few of their attributes are
+         * used. Extensions and the structure of multi-valued attributes are checked while a user is read, so they
+         * fail like without deferral. Only a value that does not convert to its field, e.g. a {@code primary} that is
+         * no boolean, raises an {@link IllegalArgumentException} later, when the attribute is decoded, which includes
+         * printing, copying and serializing the user. Deferral is disabled by default.
+         *
+         * @param deferUserAttributes if multi-valued attributes and extensions should be decoded on first access
+         * @return The builder itself
+         */
+        public Builder withDeferredUserAttributes(boolean deferUserAttributes) {
+            this.deferUserAttributes = deferUserAttributes;
+            return this;
+        }
+
+        /**
+         * Use the given executor to run the requests issued via {@link OsiamConnector#async()}.
+         * <p>
+         * <p/>The connector does not shut down the given executor. If none is set, an application
+         * global pool is used.
+         *
+         * @param asyncExecutor the executor that runs asynchronous requests
+         * @return The builder itself
+         */
+        public Builder withAsyncExecutor(ExecutorService asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+            return this;
+        }
+
+        /**
+         * Set the number of resources that {@link OsiamConnector#getAllUsers(AccessToken, String...)} and
+         * {@link OsiamConnector#getAllGroups(AccessToken, String...)} retrieve per request.
+         * <p>
+         * The default value is 1000. Use {@link Integer#MAX_VALUE} to retrieve all resources with a single unsorted
+         * request, like versions up to 1.9 did.
+         *
+         * @param getAllPageSize the number of resources per request
+         * @return The builder itself
+         * @throws IllegalArgumentException if the page size is lower than 1
+         */
+        public Builder withGetAllPageSize(int getAllPageSize) {
+            checkArgument(getAllPageSize > 0, "The page size must be greater than 0.");
+            this.getAllPageSize = getAllPageSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of requests that {@link OsiamConnector#getAllUsers(AccessToken, String...)} and
+         * {@link OsiamConnector#getAllGroups(AccessToken, String...)} send at the same time, after the first page
+         * has been retrieved.
+         * <p>
+         * The default value is 4. The requests are run by the calling thread and the executor of
+         * {@link OsiamConnector#async()}.
+         *
+         * @param getAllParallelism the number of parallel requests
+         * @return The builder itself
+         * @throws IllegalArgumentException if the parallelism is lower than 1
+         */
+        public Builder withGetAllParallelism(int getAllParallelism) {
+            checkArgument(getAllParallelism > 0, "The parallelism must be greater than 0.");
+            this.getAllParallelism = getAllParallelism;
+            return this;
+        }
+
         /**
          * Construct the {@link OsiamConnector} with the parameters passed to this builder.
          *
@@ -25,6 +25,7 @@ package org.osiam.client;
 
 import org.osiam.client.oauth.AccessToken;
 import org.osiam.client.query.Query;
+import org.osiam.client.transport.OsiamTransport;
 import org.osiam.resources.scim.Group;
 import org.osiam.resources.scim.SCIMSearchResult;
 import org.osiam.resources.scim.UpdateGroup;
@@ -40,7 +41,11 @@ class OsiamGroupService extends AbstractOsiamService<Group> {
     private static final String LEGACY_SCHEMA = "urn:scim:schemas:core:2.0:Group";
 
     OsiamGroupService(String endpoint, int connectTimeout, int readTimeout, Version version) {
-        super(endpoint, Group.class, connectTimeout, readTimeout, version);
+        this(OsiamConnector.getTransport(), endpoint, connectTimeout, readTimeout, version);
+    }
+
+    OsiamGroupService(OsiamTransport transport, String endpoint, int connectTimeout, int readTimeout, Version version) {
+        super(transport, endpoint, Group.class, connectTimeout, readTimeout, version);
     }
 
     /**
@@ -51,7 +56,7 @@ class OsiamGroupService extends AbstractOsiamService<Group> {
     }
 
     /**
-     * See {@link OsiamConnector#getAllGroups(AccessToken)}
+     * See {@link OsiamConnector#getAllGroups(AccessToken, String...)}
      */
     List<Group> getAllGroups(AccessToken accessToken, String... attributes) {
         return getAllResources(accessToken, attributes);
@@ -25,21 +25,20 @@ package org.osiam.client;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
-import org.glassfish.jersey.client.ClientProperties;
-import org.osiam.client.exception.ConnectionInitializationException;
 import org.osiam.client.exception.InvalidAttributeException;
 import org.osiam.client.oauth.AccessToken;
 import org.osiam.client.query.Query;
+import org.osiam.client.transport.OsiamTransport;
+import org.osiam.client.transport.TransportRequest;
+import org.osiam.client.transport.TransportResponse;
 import org.osiam.client.user.BasicUser;
+import org.osiam.resources.scim.ExtensionSchema;
+import org.osiam.resources.scim.ProjectedResource;
+import org.osiam.resources.scim.Projection;
 import org.osiam.resources.scim.SCIMSearchResult;
 import org.osiam.resources.scim.UpdateUser;
 import org.osiam.resources.scim.User;
 
-import javax.ws.rs.ProcessingException;
-import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
-import javax.ws.rs.core.Response.StatusType;
 import java.util.List;
 
 /**
@@ -51,7 +50,11 @@ class OsiamUserService extends AbstractOsiamService<User> {
     static final String LEGACY_SCHEMA = "urn:scim:schemas:core:2.0:User";
 
     OsiamUserService(String endpoint, int connectTimeout, int readTimeout, Version version) {
-        super(endpoint, User.class, connectTimeout, readTimeout, version);
+        this(OsiamConnector.getTransport(), endpoint, connectTimeout, readTimeout, version);
+    }
+
+    OsiamUserService(OsiamTransport transport, String endpoint, int connectTimeout, int readTimeout, Version version) {
+        super(transport, endpoint, User.class, connectTimeout, readTimeout, version);
     }
 
     /**
@@ -61,6 +64,13 @@ class OsiamUserService extends AbstractOsiamService<User> {
         return getResource(id, accessToken, attributes);
     }
 
+    /**
+     * See {@link OsiamConnector#getUser(String, AccessToken, Projection)}
+     */
+    ProjectedResource getUser(String id, AccessToken accessToken, Projection projection) {
+        return getProjectedResource(id, accessToken, projection);
+    }
+
     /**
      * See {@link OsiamConnector#getCurrentUserBasic(AccessToken)}
      *
@@ -68,27 +78,17 @@ class OsiamUserService extends AbstractOsiamService<User> {
      * is going to go away with version 1.12 or 2.0.
      */
     @Deprecated
-    BasicUser getCurrentUserBasic(AccessToken accessToken) {
+    BasicUser getCurrentUserBasic(final AccessToken accessToken) {
         checkAccessTokenIsNotNull(accessToken);
 
-        StatusType status;
-        String content;
-        try {
-            Response response = targetEndpoint.path("me").request(MediaType.APPLICATION_JSON)
-                    .header("Authorization", BEARER + accessToken.getToken())
-                    .property(ClientProperties.CONNECT_TIMEOUT, getConnectTimeout())
-                    .property(ClientProperties.READ_TIMEOUT, getReadTimeout())
-                    .get();
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
-        }
-
-        checkAndHandleResponse(content, status, accessToken);
-
-        return mapToType(content, BasicUser.class);
+        return execute(new Exchange<BasicUser>(newRequest("GET", accessToken).path("me").build(),
+                CONNECTION_SETUP_ERROR_STRING) {
+            @Override
+            BasicUser handleResponse(TransportResponse response) {
+                checkAndHandleResponse(response, accessToken);
+                return mapToType(response, getJsonMapping().basicUserReader(), "BasicUser");
+            }
+        });
     }
 
     /**
@@ -108,7 +108,7 @@ class OsiamUserService extends AbstractOsiamService<User> {
      */
     User getMe(AccessToken accessToken, String... attributes) {
         return getVersion() == Version.OSIAM_3
-                ? mapToType(getMeResource(accessToken, attributes), User.class)
+                ? execute(getMeExchange(accessToken, attributes))
                 : getUser(getCurrentUserBasic(accessToken).getId(), accessToken);
     }
 
@@ -126,6 +126,13 @@ class OsiamUserService extends AbstractOsiamService<User> {
         return searchResources(query, accessToken);
     }
 
+    /**
+     * See {@link OsiamConnector#searchUsers(Query, AccessToken, Projection)}
+     */
+    SCIMSearchResult<ProjectedResource> searchUsers(Query query, AccessToken accessToken, Projection projection) {
+        return searchProjectedResources(query, accessToken, projection);
+    }
+
     /**
      * See {@link OsiamConnector#deleteUser(String, AccessToken)}
      */
@@ -157,13 +164,35 @@ class OsiamUserService extends AbstractOsiamService<User> {
      * See {@link OsiamConnector#replaceUser(String, User, AccessToken)}
      */
     User replaceUser(String id, User user, AccessToken accessToken) {
+        return execute(replaceUserExchange(id, user, accessToken));
+    }
+
+    Exchange<User> replaceUserExchange(String id, User user, AccessToken accessToken) {
         if (user == null) {
             throw new InvalidAttributeException("The given User can't be null.");
         }
         if (Strings.isNullOrEmpty(id)) {
             throw new InvalidAttributeException("The given User ID can't be null or empty.");
         }
-        return replaceResource(id, user, accessToken);
+        return replaceResourceExchange(id, user, accessToken);
+    }
+
+    /**
+     * Retrieves the schemas of all resources and extensions from the {@code /Schemas} endpoint.
+     */
+    List<ExtensionSchema> getSchemas(final AccessToken accessToken) {
+        checkAccessTokenIsNotNull(accessToken);
+
+        return execute(new Exchange<List<ExtensionSchema>>(newRequest("GET", accessToken).path("Schemas").build(),
+                CONNECTION_SETUP_ERROR_STRING) {
+            @Override
+            List<ExtensionSchema> handleResponse(TransportResponse response) {
+                checkAndHandleResponse(response, accessToken);
+                SCIMSearchResult<ExtensionSchema> schemas = mapToType(response,
+                        getJsonMapping().extensionSchemasReader(), "Schemas");
+                return schemas.getResources();
+            }
+        });
     }
 
     @Override
@@ -176,31 +205,16 @@ class OsiamUserService extends AbstractOsiamService<User> {
         return LEGACY_SCHEMA;
     }
 
-    private String getMeResource(AccessToken accessToken, String... attributes) {
+    /**
+     * Creates the exchange that retrieves the current user from the {@code /Me} endpoint of OSIAM 3.x.
+     */
+    Exchange<User> getMeExchange(final AccessToken accessToken, String... attributes) {
         checkAccessTokenIsNotNull(accessToken);
-        WebTarget target;
-        if (attributes == null || attributes.length == 0) {
-            target = targetEndpoint;
-        } else {
-            target = targetEndpoint.queryParam("attributes", Joiner.on(",").join(attributes));
+        String joinedAttributes = attributes != null ? Joiner.on(",").join(attributes) : "";
+        TransportRequest.Builder request = newRequest("GET", accessToken).path("Me");
+        if (!joinedAttributes.isEmpty()) {
+            request.queryParam("attributes", joinedAttributes);
         }
-
-        StatusType status;
-        String content;
-        try {
-            Response response = target.path("Me").request(MediaType.APPLICATION_JSON)
-                    .header("Authorization", BEARER + accessToken.getToken())
-                    .property(ClientProperties.CONNECT_TIMEOUT, getConnectTimeout())
-                    .property(ClientProperties.READ_TIMEOUT, getReadTimeout())
-                    .get();
-
-            status = response.getStatusInfo();
-            content = response.readEntity(String.class);
-        } catch (ProcessingException e) {
-            throw new ConnectionInitializationException(CONNECTION_SETUP_ERROR_STRING, e);
-        }
-
-        checkAndHandleResponse(content, status, accessToken);
-        return content;
+        return singleResourceExchange(request, "Me", joinedAttributes, accessToken);
     }
 }
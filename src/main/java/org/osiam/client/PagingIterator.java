@@ -0,0 +1,111 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.osiam.client.exception.OsiamClientException;
+import org.osiam.client.query.Query;
+import org.osiam.client.query.QueryBuilder;
+import org.osiam.resources.scim.SCIMSearchResult;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+/**
+ * Iterates lazily over all resources matching a {@link Query}, page by page. While a page is consumed, the following
+ * page is already fetched by the given executor, so at most two pages are held in memory at any time.
+ */
+class PagingIterator<T> extends AbstractIterator<T> {
+
+    private final Function<Query, SCIMSearchResult<T>> search;
+    private final ListeningExecutorService executor;
+
+    private Query query;
+    private boolean started;
+    private ListenableFuture<SCIMSearchResult<T>> nextPage;
+    private Iterator<T> currentPage = Collections.emptyIterator();
+
+    PagingIterator(Query query, Function<Query, SCIMSearchResult<T>> search, ListeningExecutorService executor) {
+        this.query = query;
+        this.search = search;
+        this.executor = executor;
+    }
+
+    @Override
+    protected T computeNext() {
+        while (!currentPage.hasNext()) {
+            SCIMSearchResult<T> page;
+            if (!started) {
+                started = true;
+                page = search.apply(query);
+            } else if (nextPage != null) {
+                page = awaitNextPage();
+            } else {
+                return endOfData();
+            }
+
+            List<T> resources = page.getResources();
+            long nextStartIndex = query.getStartIndex() + resources.size();
+            if (!resources.isEmpty() && nextStartIndex <= page.getTotalResults()) {
+                prefetch(nextStartIndex);
+            }
+            currentPage = resources.iterator();
+        }
+        return currentPage.next();
+    }
+
+    private void prefetch(long startIndex) {
+        final Query pageQuery = new QueryBuilder(query).startIndex(startIndex).build();
+        query = pageQuery;
+        nextPage = executor.submit(new Callable<SCIMSearchResult<T>>() {
+            @Override
+            public SCIMSearchResult<T> call() {
+                return search.apply(pageQuery);
+            }
+        });
+    }
+
+    private SCIMSearchResult<T> awaitNextPage() {
+        ListenableFuture<SCIMSearchResult<T>> page = nextPage;
+        nextPage = null;
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            throwIfUnchecked(e.getCause());
+            throw new OsiamClientException("Unable to retrieve the next page of the search result", e.getCause());
+        } catch (InterruptedException e) {
+            page.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new OsiamClientException("Interrupted while retrieving the next page of the search result", e);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.osiam.client.exception.OsiamClientException;
+import org.osiam.client.transport.AsyncOsiamTransport;
+import org.osiam.client.transport.Cancellation;
+import org.osiam.client.transport.OsiamTransport;
+import org.osiam.client.transport.TransportRequest;
+import org.osiam.client.transport.TransportResponse;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Coalesces identical reads that are in flight at the same time: the first caller sends the request, all callers that
+ * arrive before its response has been handled wait for it and get the same result, or the same exception. Requests are
+ * identical if they have the same method, URL and headers, so only callers with the same access token share a result.
+ * <p>
+ * Every caller subscribes to the shared request. Cancelling a caller only ends its own subscription; once every caller
+ * has cancelled, the shared request is cancelled too, so the transport can abort it and release its connection.
+ * </p>
+ * <p>
+ * The requests in flight are kept in a {@link ConcurrentHashMap}, which locks single bins only, so callers with
+ * different requests do not contend.
+ * </p>
+ */
+final class RequestCoalescer {
+
+    private final ConcurrentMap<List<Object>, Flight<?>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @return an exchange that shares its result with all identical exchanges in flight at the same time
+     */
+    <R> Exchange<R> coalesce(Exchange<R> exchange) {
+        return new CoalescingExchange<>(exchange);
+    }
+
+    /**
+     * @return the number of distinct requests currently in flight
+     */
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static List<Object> keyOf(TransportRequest request) {
+        return Arrays.<Object>asList(request.getMethod(), request.getEndpoint(), request.getPath(),
+                request.getQueryParams(), request.getHeaders());
+    }
+
+    /**
+     * A shared request and the number of callers waiting for it.
+     */
+    private static final class Flight<R> {
+
+        private final SettableFuture<R> result = SettableFuture.create();
+        private final Cancellation cancellation = new Cancellation();
+        private int subscribers;
+        private boolean abandoned;
+
+        private Flight() {
+            result.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (result.isCancelled()) {
+                        cancellation.cancel();
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        /**
+         * @return a future of the shared result for one caller, cancelling it ends the subscription; or {@code null}
+         * if every caller has cancelled and the flight must not be joined anymore
+         */
+        private ListenableFuture<R> subscribe() {
+            synchronized (this) {
+                if (abandoned) {
+                    return null;
+                }
+                subscribers++;
+            }
+            final SettableFuture<R> subscription = SettableFuture.create();
+            subscription.setFuture(Futures.nonCancellationPropagating(result));
+            subscription.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (subscription.isCancelled()) {
+                        unsubscribe();
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+            return subscription;
+        }
+
+        private void unsubscribe() {
+            synchronized (this) {
+                if (--subscribers > 0 || result.isDone()) {
+                    return;
+                }
+                abandoned = true;
+            }
+            result.cancel(false);
+        }
+    }
+
+    private final class CoalescingExchange<R> extends Exchange<R> {
+
+        private final Exchange<R> delegate;
+        private final List<Object> key;
+
+        private CoalescingExchange(Exchange<R> delegate) {
+            super(delegate.getRequest(), delegate.getConnectionErrorMessage());
+            this.delegate = delegate;
+            this.key = keyOf(delegate.getRequest());
+        }
+
+        @Override
+        R handleResponse(TransportResponse response) {
+            return delegate.handleResponse(response);
+        }
+
+        @Override
+        R cachedResult() {
+            return delegate.cachedResult();
+        }
+
+        /**
+         * The given cancellation only ends the subscription of this caller, the shared request is aborted once every
+         * caller has cancelled.
+         */
+        @Override
+        R execute(OsiamTransport transport, Cancellation cancellation) {
+            R cachedResult = cachedResult();
+            if (cachedResult != null) {
+                return cachedResult;
+            }
+            Flight<R> flight = new Flight<>();
+            ListenableFuture<R> subscription;
+            Flight<R> leader;
+            do {
+                leader = join(flight);
+                subscription = leader.subscribe();
+            } while (subscription == null);
+            Runnable unsubscribe = cancelOnAbort(subscription);
+            if (cancellation != null) {
+                cancellation.register(unsubscribe);
+            }
+            try {
+                if (leader != flight) {
+                    return await(subscription);
+                }
+                return send(flight, transport);
+            } finally {
+                if (cancellation != null) {
+                    cancellation.unregister(unsubscribe);
+                }
+            }
+        }
+
+        private R send(Flight<R> flight, OsiamTransport transport) {
+            try {
+                R result = delegate.execute(transport, flight.cancellation);
+                flight.result.set(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                flight.result.setException(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        @Override
+        ListenableFuture<R> executeAsync(AsyncOsiamTransport transport, Executor executor) {
+            R cachedResult = cachedResult();
+            if (cachedResult != null) {
+                return Futures.immediateFuture(cachedResult);
+            }
+            final Flight<R> flight = new Flight<>();
+            ListenableFuture<R> subscription;
+            Flight<R> leader;
+            do {
+                leader = join(flight);
+                subscription = leader.subscribe();
+            } while (subscription == null);
+            if (leader != flight) {
+                return subscription;
+            }
+            flight.result.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    inFlight.remove(key, flight);
+                }
+            }, MoreExecutors.directExecutor());
+            try {
+                flight.result.setFuture(delegate.executeAsync(transport, executor));
+            } catch (RuntimeException | Error e) {
+                flight.result.setException(e);
+            }
+            return subscription;
+        }
+
+        /**
+         * Registers the given flight for the request, unless an identical request is already in flight. An abandoned
+         * flight is replaced.
+         *
+         * @return the flight the caller has to subscribe to, if it is the given one, the caller has to send the request
+         */
+        @SuppressWarnings("unchecked")
+        private Flight<R> join(Flight<R> flight) {
+            while (true) {
+                Flight<R> leader = (Flight<R>) inFlight.putIfAbsent(key, flight);
+                if (leader == null) {
+                    return flight;
+                }
+                synchronized (leader) {
+                    if (!leader.abandoned) {
+                        return leader;
+                    }
+                }
+                inFlight.remove(key, leader);
+            }
+        }
+
+        private Runnable cancelOnAbort(final ListenableFuture<R> subscription) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    subscription.cancel(false);
+                }
+            };
+        }
+
+        private R await(ListenableFuture<R> subscription) {
+            try {
+                return Uninterruptibles.getUninterruptibly(subscription);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new OsiamClientException(cause.getMessage(), cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,468 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import org.osiam.resources.scim.Resource;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A size-bounded cache of resources retrieved by id. Entries expire a fixed time after they have been stored or
+ * revalidated. Expired entries are kept until they are evicted, so they can be revalidated with a conditional request.
+ * Until their hard time to live has passed as well, expired entries may also be served while they are refreshed in the
+ * background; the cache keeps track of the refreshes in flight and counts how often each resource was served stale.
+ * <p>
+ * The cache uses the W-TinyLFU policy: new entries enter a small LRU window. An entry that falls out of the window is
+ * only admitted to the main space if it has been accessed more often recently than the entry it would replace. The
+ * main space is a segmented LRU with a probation and a protected segment. The access frequencies are estimated by a
+ * {@link FrequencySketch}. This keeps frequently used resources in the cache, even if many resources are read once.
+ * </p>
+ * <p>
+ * Reads do not block: the lookup is a {@link ConcurrentHashMap} read and the access is only recorded in the policy if
+ * its lock is free. Writes and evictions are serialized by the lock.
+ * </p>
+ */
+final class ResourceCache {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = -1;
+    private static final int INVALIDATION_STRIPES = 256;
+
+    private final ConcurrentMap<Key, Node> data = new ConcurrentHashMap<>();
+    private final SetMultimap<String, Node> nodesById = HashMultimap.create();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+    private final int maximumMainSize;
+    private final int maximumWindowSize;
+    private final int maximumProtectedSize;
+    private final long timeToLiveNanos;
+    private final long hardTimeToLiveNanos;
+    private final Ticker ticker;
+    private final Set<Key> refreshesInFlight = Sets.newConcurrentHashSet();
+    private final ConcurrentMap<String, AtomicLong> staleHitCountsById = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong staleHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final long[] lastInvalidationOfStripe = new long[INVALIDATION_STRIPES];
+    private volatile long invalidationCount;
+
+    ResourceCache(int maximumSize, long timeToLive, TimeUnit unit) {
+        this(maximumSize, timeToLive, unit, Ticker.systemTicker());
+    }
+
+    ResourceCache(int maximumSize, long timeToLive, TimeUnit unit, Ticker ticker) {
+        this(maximumSize, unit.toNanos(timeToLive), unit.toNanos(timeToLive), ticker);
+    }
+
+    /**
+     * @param timeToLiveNanos     the time after which an entry expires and has to be refreshed
+     * @param hardTimeToLiveNanos the time after which an expired entry must not be served anymore
+     */
+    ResourceCache(int maximumSize, long timeToLiveNanos, long hardTimeToLiveNanos, Ticker ticker) {
+        checkArgument(maximumSize > 0, "The maximum size of the cache must be greater than 0.");
+        checkArgument(timeToLiveNanos >= 0, "The time to live must not be negative.");
+        checkArgument(hardTimeToLiveNanos >= timeToLiveNanos,
+                "The hard time to live must not be shorter than the time to live.");
+        maximumWindowSize = Math.max(1, maximumSize / 100);
+        maximumMainSize = maximumSize - maximumWindowSize;
+        maximumProtectedSize = (int) (maximumMainSize * 0.8);
+        sketch = new FrequencySketch(maximumSize);
+        this.timeToLiveNanos = timeToLiveNanos;
+        this.hardTimeToLiveNanos = hardTimeToLiveNanos;
+        this.ticker = ticker;
+    }
+
+    /**
+     * @return the cached resource for the given key, or {@code null} if it is not cached or has expired
+     */
+    Resource get(Key key) {
+        CachedResource cachedResource = lookup(key);
+        return cachedResource != null && isFresh(cachedResource) ? cachedResource.resource : null;
+    }
+
+    /**
+     * Looks up the given key. Expired resources are kept until they are evicted, so they can be revalidated, and
+     * are returned by this method as well. A lookup counts as hit, if the resource may be served, i.e. it has not
+     * expired or it has not passed its hard time to live yet. The latter also counts as stale hit.
+     *
+     * @return the cached resource for the given key, or {@code null} if it is not cached
+     */
+    CachedResource lookup(Key key) {
+        Node node = data.get(key);
+        if (node == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        CachedResource cachedResource = node.cachedResource;
+        if (isFresh(cachedResource)) {
+            hitCount.incrementAndGet();
+        } else if (isServable(cachedResource)) {
+            hitCount.incrementAndGet();
+            staleHitCount.incrementAndGet();
+            AtomicLong staleHitCountOfId = staleHitCountsById.get(key.id);
+            if (staleHitCountOfId == null) {
+                AtomicLong newCount = new AtomicLong();
+                staleHitCountOfId = staleHitCountsById.putIfAbsent(key.id, newCount);
+                if (staleHitCountOfId == null) {
+                    staleHitCountOfId = newCount;
+                }
+            }
+            staleHitCountOfId.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        if (lock.tryLock()) {
+            try {
+                if (node.queue != REMOVED) {
+                    onAccess(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return cachedResource;
+    }
+
+    /**
+     * @return if the given resource has not expired yet
+     */
+    boolean isFresh(CachedResource cachedResource) {
+        return cachedResource.storedAt + timeToLiveNanos - ticker.read() > 0;
+    }
+
+    /**
+     * @return if the given resource may still be served, because it has not passed its hard time to live yet
+     */
+    boolean isServable(CachedResource cachedResource) {
+        return cachedResource.storedAt + hardTimeToLiveNanos - ticker.read() > 0;
+    }
+
+    /**
+     * Marks the given key as being refreshed.
+     *
+     * @return {@code true} if no other refresh of the key is in flight, so the caller has to refresh it and call
+     * {@link #finishRefresh(Key)} afterwards
+     */
+    boolean startRefresh(Key key) {
+        return refreshesInFlight.add(key);
+    }
+
+    void finishRefresh(Key key) {
+        refreshesInFlight.remove(key);
+    }
+
+    /**
+     * Returns a stamp to pass to {@link #put(Key, Resource, long)}. A resource is not stored if it has been invalidated
+     * after the stamp was taken, as it might have been retrieved before the change. Invalidations are tracked per
+     * stripe of ids, so invalidating one resource only rarely discards a retrieval of another one.
+     */
+    long invalidationStamp() {
+        return invalidationCount;
+    }
+
+    void put(Key key, Resource resource, long invalidationStamp) {
+        put(key, resource, null, invalidationStamp);
+    }
+
+    /**
+     * Stores the given resource, or renews it, if it has been revalidated.
+     *
+     * @param entityTag the entity tag of the resource to revalidate it with, or {@code null} if it has none
+     */
+    void put(Key key, Resource resource, String entityTag, long invalidationStamp) {
+        lock.lock();
+        try {
+            if (isInvalidatedAfter(key.id, invalidationStamp)
+                    || resource.getId() != null && isInvalidatedAfter(resource.getId(), invalidationStamp)) {
+                return;
+            }
+            sketch.increment(key);
+            CachedResource cachedResource = new CachedResource(resource, entityTag, ticker.read());
+            Node node = data.get(key);
+            if (node != null) {
+                node.cachedResource = cachedResource;
+                onAccess(node);
+                return;
+            }
+            node = new Node(key, cachedResource);
+            data.put(key, node);
+            nodesById.put(key.id, node);
+            if (resource.getId() != null) {
+                // e.g. the current user is cached under "Me", but has to be invalidated under its id
+                nodesById.put(resource.getId(), node);
+            }
+            window.add(node);
+            node.queue = WINDOW;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries of the resource with the given id, regardless of the access token and attributes they have
+     * been retrieved with.
+     */
+    void invalidate(String id) {
+        lock.lock();
+        try {
+            lastInvalidationOfStripe[stripeOf(id)] = ++invalidationCount;
+            for (Node node : nodesById.get(id).toArray(new Node[0])) {
+                remove(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isInvalidatedAfter(String id, long invalidationStamp) {
+        return lastInvalidationOfStripe[stripeOf(id)] > invalidationStamp;
+    }
+
+    private static int stripeOf(String id) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (INVALIDATION_STRIPES - 1);
+    }
+
+    CacheStats stats() {
+        ImmutableMap.Builder<String, Long> staleHitCounts = ImmutableMap.builder();
+        for (Map.Entry<String, AtomicLong> entry : staleHitCountsById.entrySet()) {
+            staleHitCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        return new CacheStats(hitCount.get(), missCount.get(), evictionCount.get(), data.size(), staleHitCount.get(),
+                staleHitCounts.build());
+    }
+
+    private void onAccess(Node node) {
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                protectedQueue.add(node);
+                node.queue = PROTECTED;
+                if (protectedQueue.size > maximumProtectedSize) {
+                    Node demoted = protectedQueue.first();
+                    protectedQueue.remove(demoted);
+                    probation.add(demoted);
+                    demoted.queue = PROBATION;
+                }
+                break;
+            case PROTECTED:
+                protectedQueue.moveToBack(node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Moves the entries that fall out of the window to the main space, if they are accessed more often than the
+     * entries they would replace.
+     */
+    private void evict() {
+        while (window.size > maximumWindowSize) {
+            Node candidate = window.first();
+            window.remove(candidate);
+            candidate.queue = REMOVED;
+            if (probation.size + protectedQueue.size < maximumMainSize) {
+                probation.add(candidate);
+                candidate.queue = PROBATION;
+                continue;
+            }
+            Node victim = probation.size > 0 ? probation.first() : protectedQueue.first();
+            if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evict(candidate);
+            } else {
+                evict(victim);
+                probation.add(candidate);
+                candidate.queue = PROBATION;
+            }
+        }
+    }
+
+    private void evict(Node node) {
+        remove(node);
+        evictionCount.incrementAndGet();
+    }
+
+    private void remove(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedQueue.remove(node);
+                break;
+            default:
+                break;
+        }
+        node.queue = REMOVED;
+        data.remove(node.key, node);
+        nodesById.remove(node.key.id, node);
+        String resourceId = node.cachedResource.resource.getId();
+        if (resourceId != null) {
+            nodesById.remove(resourceId, node);
+        }
+        if (!nodesById.containsKey(node.key.id)) {
+            staleHitCountsById.remove(node.key.id);
+        }
+    }
+
+    /**
+     * Identifies a cached resource. Resources are only shared between requests with the same access token, so a
+     * caller never gets a resource it would not have been allowed to read.
+     */
+    static final class Key {
+
+        private final String resourceType;
+        private final String id;
+        private final String attributes;
+        private final String accessToken;
+
+        Key(String resourceType, String id, String attributes, String accessToken) {
+            this.resourceType = resourceType;
+            this.id = id;
+            this.attributes = attributes;
+            this.accessToken = accessToken;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return id.equals(other.id)
+                    && accessToken.equals(other.accessToken)
+                    && attributes.equals(other.attributes)
+                    && resourceType.equals(other.resourceType);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = resourceType.hashCode();
+            result = 31 * result + id.hashCode();
+            result = 31 * result + attributes.hashCode();
+            result = 31 * result + accessToken.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * A cached resource together with the data needed to revalidate it.
+     */
+    static final class CachedResource {
+
+        final Resource resource;
+        final String entityTag;
+        private final long storedAt;
+
+        private CachedResource(Resource resource, String entityTag, long storedAt) {
+            this.resource = resource;
+            this.entityTag = entityTag;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private static final class Node {
+
+        private final Key key;
+        private volatile CachedResource cachedResource;
+        private int queue = REMOVED;
+        private Node previous;
+        private Node next;
+
+        private Node(Key key, CachedResource cachedResource) {
+            this.key = key;
+            this.cachedResource = cachedResource;
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes in access order, the least recently used node first.
+     */
+    private static final class AccessQueue {
+
+        private final Node head = new Node(null, null);
+        private int size;
+
+        private AccessQueue() {
+            head.previous = head;
+            head.next = head;
+        }
+
+        private Node first() {
+            return size > 0 ? head.next : null;
+        }
+
+        private void add(Node node) {
+            node.previous = head.previous;
+            node.next = head;
+            head.previous.next = node;
+            head.previous = node;
+            size++;
+        }
+
+        private void remove(Node node) {
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            node.previous = null;
+            node.next = null;
+            size--;
+        }
+
+        private void moveToBack(Node node) {
+            remove(node);
+            add(node);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.Scope;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Provides access tokens retrieved via client credentials grant, shared by all threads of an application. A token is
+ * cached per set of scopes, and refreshed in the background before it expires, so callers usually do not have to wait
+ * for a token request at all.
+ * <p>
+ * The refresh is scheduled at a random point between 80% and 90% of the remaining lifetime of the token, so tokens
+ * retrieved at the same time do not expire, and are not refreshed, at the same time. A token that has a refresh token
+ * is refreshed via refresh token grant, all other tokens are retrieved again. There is at most one token request per
+ * set of scopes at a time: concurrent callers that need a new token wait for the request that is in flight, including
+ * a background refresh.
+ * </p>
+ * <p>
+ * The token request of a background refresh is sent without blocking callers, which get the current token meanwhile.
+ * If a background refresh fails, it is retried with exponential backoff, starting at one second, as long as the current
+ * token is valid; after that the next caller retrieves a new token and gets the exception if that fails, too. Use
+ * {@link OsiamConnector#getTokenProvider()} to get the token provider of a connector.
+ * </p>
+ */
+public final class TokenProvider {
+
+    private static final double MIN_REFRESH_MARGIN = 0.1;
+    private static final double MAX_REFRESH_MARGIN = 0.2;
+    private static final long INITIAL_RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60000;
+
+    private final AuthService authService;
+    private final ScheduledExecutorService scheduler;
+    private final Random random;
+    private final ConcurrentMap<Set<Scope>, Entry> entries = new ConcurrentHashMap<>();
+
+    TokenProvider(AuthService authService, ScheduledExecutorService scheduler, Random random) {
+        this.authService = authService;
+        this.scheduler = scheduler;
+        this.random = random;
+    }
+
+    /**
+     * Provides a valid access token with the given scopes. The token is retrieved via client credentials grant, if
+     * there is no valid token with the same scopes yet. If the token has expired while it is refreshed in the
+     * background, the caller waits for the refresh.
+     *
+     * @param scopes the scopes of the access token
+     * @return a valid access token
+     * @throws org.osiam.client.exception.ConnectionInitializationException if the connection to OSIAM could not be
+     *                                                                      initialized
+     * @throws org.osiam.client.exception.UnauthorizedException             if the client credentials are not valid
+     */
+    public AccessToken getAccessToken(Scope... scopes) {
+        Entry entry = entry(ImmutableSet.copyOf(scopes));
+        AccessToken accessToken = entry.accessToken;
+        if (isValid(accessToken)) {
+            return accessToken;
+        }
+        entry.lock.lock();
+        try {
+            while (entry.refreshing && !isValid(entry.accessToken)) {
+                entry.refreshed.awaitUninterruptibly();
+            }
+            accessToken = entry.accessToken;
+            if (isValid(accessToken)) {
+                return accessToken;
+            }
+            return retrieve(entry);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Discards the cached access token with the given scopes, e.g. because it has been revoked. The next call of
+     * {@link #getAccessToken(Scope...)} retrieves a new token.
+     *
+     * @param scopes the scopes of the access token
+     */
+    public void invalidate(Scope... scopes) {
+        Entry entry = entries.get(ImmutableSet.copyOf(scopes));
+        if (entry != null) {
+            entry.lock.lock();
+            try {
+                entry.accessToken = null;
+                entry.generation++;
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    private Entry entry(Set<Scope> scopes) {
+        Entry entry = entries.get(scopes);
+        if (entry == null) {
+            Entry newEntry = new Entry(scopes);
+            entry = entries.putIfAbsent(scopes, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Retrieves a new token for the given entry and schedules its refresh. Has to be called with the lock of the entry
+     * held.
+     */
+    private AccessToken retrieve(Entry entry) {
+        AccessToken accessToken = authService.retrieveAccessToken(entry.scopeArray());
+        install(entry, accessToken);
+        return accessToken;
+    }
+
+    /**
+     * Replaces the token of the given entry and schedules its refresh. Has to be called with the lock of the entry
+     * held.
+     */
+    private void install(Entry entry, AccessToken accessToken) {
+        entry.accessToken = accessToken;
+        long generation = ++entry.generation;
+        Date expiresAt = accessToken.getExpiresAt();
+        if (expiresAt == null) {
+            return;
+        }
+        long remainingMillis = expiresAt.getTime() - System.currentTimeMillis();
+        if (remainingMillis <= 0) {
+            return;
+        }
+        double margin = MIN_REFRESH_MARGIN + random.nextDouble() * (MAX_REFRESH_MARGIN - MIN_REFRESH_MARGIN);
+        schedule(entry, generation, (long) (remainingMillis * (1 - margin)), 0);
+    }
+
+    private void schedule(final Entry entry, final long generation, long delayMillis, final int failedAttempts) {
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    refresh(entry, generation, failedAttempts);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the connector has been closed, the token is retrieved again when it has expired
+        }
+    }
+
+    /**
+     * Refreshes the token of the given entry, unless it has been replaced or invalidated since the refresh has been
+     * scheduled. The token request is sent without holding the lock of the entry, so callers are served the current
+     * token meanwhile; the entry is marked as refreshing, so callers whose token has expired wait for the refresh
+     * instead of sending a request of their own. A failed refresh is retried with exponential backoff as long as the
+     * current token is valid.
+     */
+    private void refresh(Entry entry, long generation, int failedAttempts) {
+        AccessToken accessToken;
+        entry.lock.lock();
+        try {
+            if (entry.generation != generation) {
+                return;
+            }
+            accessToken = entry.accessToken;
+            entry.refreshing = true;
+        } finally {
+            entry.lock.unlock();
+        }
+
+        AccessToken refreshedToken = null;
+        try {
+            refreshedToken = hasValidRefreshToken(accessToken)
+                    ? authService.refreshAccessToken(accessToken, entry.scopeArray())
+                    : authService.retrieveAccessToken(entry.scopeArray());
+        } catch (RuntimeException e) {
+            // the refresh is retried once the waiting callers have been released
+        } finally {
+            entry.lock.lock();
+            try {
+                if (refreshedToken != null && entry.generation == generation) {
+                    install(entry, refreshedToken);
+                }
+                entry.refreshing = false;
+                entry.refreshed.signalAll();
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        if (refreshedToken == null) {
+            retry(entry, generation, accessToken, failedAttempts + 1);
+        }
+    }
+
+    private void retry(Entry entry, long generation, AccessToken accessToken, int failedAttempts) {
+        long delayMillis = Math.min(INITIAL_RETRY_DELAY_MILLIS << Math.min(failedAttempts - 1, 16),
+                MAX_RETRY_DELAY_MILLIS);
+        Date expiresAt = accessToken != null ? accessToken.getExpiresAt() : null;
+        if (expiresAt != null && expiresAt.getTime() - System.currentTimeMillis() <= delayMillis) {
+            // the token is retrieved again by the next caller once it has expired
+            return;
+        }
+        schedule(entry, generation, delayMillis, failedAttempts);
+    }
+
+    private static boolean isValid(AccessToken accessToken) {
+        if (accessToken == null) {
+            return false;
+        }
+        Date expiresAt = accessToken.getExpiresAt();
+        return expiresAt == null || expiresAt.getTime() > System.currentTimeMillis();
+    }
+
+    private static boolean hasValidRefreshToken(AccessToken accessToken) {
+        if (accessToken == null || Strings.isNullOrEmpty(accessToken.getRefreshToken())) {
+            return false;
+        }
+        Date refreshTokenExpiresAt = accessToken.getRefreshTokenExpiresAt();
+        return refreshTokenExpiresAt == null || refreshTokenExpiresAt.getTime() > System.currentTimeMillis();
+    }
+
+    private static final class Entry {
+
+        private final Set<Scope> scopes;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition refreshed = lock.newCondition();
+        private volatile AccessToken accessToken;
+        private long generation;
+        private boolean refreshing;
+
+        private Entry(Set<Scope> scopes) {
+            this.scopes = scopes;
+        }
+
+        private Scope[] scopeArray() {
+            return scopes.toArray(new Scope[scopes.size()]);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.osiam.client.exception.UnauthorizedException;
+import org.osiam.client.oauth.AccessToken;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A size-bounded cache of the results of token validations. Entries are keyed by the SHA-256 hash of the token, so the
+ * cache does not keep the tokens that have been validated.
+ * <p>
+ * A valid token is cached until it expires, but at most for the maximum time to live. An invalid token is cached for
+ * the negative time to live, which should be short, as only the failure message is remembered. Tokens that are revoked
+ * via the connector are removed immediately; a validation that has been in flight during a revocation is not stored.
+ * </p>
+ */
+final class TokenValidationCache {
+
+    private final Cache<HashCode, Entry> entries;
+    private final long maxTimeToLiveNanos;
+    private final long negativeTimeToLiveNanos;
+    private final Ticker ticker;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private volatile long invalidationCount;
+
+    TokenValidationCache(int maximumSize, long maxTimeToLive, long negativeTimeToLive, TimeUnit unit) {
+        this(maximumSize, maxTimeToLive, negativeTimeToLive, unit, Ticker.systemTicker());
+    }
+
+    TokenValidationCache(int maximumSize, long maxTimeToLive, long negativeTimeToLive, TimeUnit unit,
+                         Ticker ticker) {
+        checkArgument(maximumSize > 0, "The maximum size of the cache must be greater than 0.");
+        checkArgument(maxTimeToLive > 0, "The maximum time to live must be greater than 0.");
+        checkArgument(negativeTimeToLive >= 0, "The negative time to live must not be negative.");
+        this.maxTimeToLiveNanos = unit.toNanos(maxTimeToLive);
+        this.negativeTimeToLiveNanos = unit.toNanos(negativeTimeToLive);
+        this.ticker = ticker;
+        entries = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxTimeToLive, unit)
+                .ticker(ticker)
+                .removalListener(new RemovalListener<HashCode, Entry>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<HashCode, Entry> notification) {
+                        if (notification.getCause() == RemovalCause.SIZE) {
+                            evictionCount.incrementAndGet();
+                        }
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the cached result of the validation of the given token.
+     *
+     * @return the validated access token, or {@code null} if the result of the validation is not cached
+     * @throws UnauthorizedException if the token is cached as invalid
+     */
+    AccessToken get(AccessToken tokenToValidate) {
+        HashCode key = keyOf(tokenToValidate);
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null || entry.expiresAt - ticker.read() <= 0) {
+            if (entry != null) {
+                entries.asMap().remove(key, entry);
+            }
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        if (entry.validatedToken == null) {
+            throw new UnauthorizedException(entry.failureMessage);
+        }
+        return entry.validatedToken;
+    }
+
+    /**
+     * Returns a stamp to pass to {@link #putValid(AccessToken, AccessToken, long)} and
+     * {@link #putInvalid(AccessToken, String, long)}. A result is not stored if any token has been revoked after the
+     * stamp was taken.
+     */
+    long invalidationStamp() {
+        return invalidationCount;
+    }
+
+    void putValid(AccessToken tokenToValidate, AccessToken validatedToken, long invalidationStamp) {
+        long timeToLiveNanos = maxTimeToLiveNanos;
+        Date expiresAt = validatedToken.getExpiresAt();
+        if (expiresAt != null) {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(expiresAt.getTime() - System.currentTimeMillis());
+            timeToLiveNanos = Math.min(timeToLiveNanos, remainingNanos);
+        }
+        put(tokenToValidate, new Entry(validatedToken, null, ticker.read() + timeToLiveNanos), timeToLiveNanos,
+                invalidationStamp);
+    }
+
+    void putInvalid(AccessToken tokenToValidate, String failureMessage, long invalidationStamp) {
+        put(tokenToValidate, new Entry(null, failureMessage, ticker.read() + negativeTimeToLiveNanos),
+                negativeTimeToLiveNanos, invalidationStamp);
+    }
+
+    private void put(AccessToken tokenToValidate, Entry entry, long timeToLiveNanos, long invalidationStamp) {
+        if (timeToLiveNanos <= 0) {
+            return;
+        }
+        HashCode key = keyOf(tokenToValidate);
+        synchronized (this) {
+            if (invalidationStamp == invalidationCount) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Removes the cached result of the validation of the given token.
+     */
+    synchronized void invalidate(AccessToken token) {
+        invalidationCount++;
+        entries.invalidate(keyOf(token));
+    }
+
+    /**
+     * Removes the cached results of all valid tokens of the user with the given id. The cache is scanned, as
+     * revocations are rare compared to validations.
+     */
+    synchronized void invalidateUser(String userId) {
+        invalidationCount++;
+        Iterator<Entry> iterator = entries.asMap().values().iterator();
+        while (iterator.hasNext()) {
+            AccessToken validatedToken = iterator.next().validatedToken;
+            if (validatedToken != null && userId.equals(validatedToken.getUserId())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    CacheStats stats() {
+        return new CacheStats(hitCount.get(), missCount.get(), evictionCount.get(), entries.size(), 0,
+                Collections.<String, Long>emptyMap());
+    }
+
+    private static HashCode keyOf(AccessToken token) {
+        return Hashing.sha256().hashString(token.getToken(), StandardCharsets.UTF_8);
+    }
+
+    private static final class Entry {
+
+        private final AccessToken validatedToken;
+        private final String failureMessage;
+        private final long expiresAt;
+
+        private Entry(AccessToken validatedToken, String failureMessage, long expiresAt) {
+            this.validatedToken = validatedToken;
+            this.failureMessage = failureMessage;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -24,10 +24,10 @@
 package org.osiam.client.helper;
 
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Set;
 
 import org.osiam.client.oauth.Scope;
+import org.osiam.client.oauth.ScopeSet;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
@@ -37,18 +37,6 @@ public class ScopeDeserializer extends JsonDeserializer<Set<Scope>> {
 
     @Override
     public Set<Scope> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-        String text = jp.getText();
-        return parseParameterList(text);
-    }
-
-    private Set<Scope> parseParameterList(String values) {
-        Set<Scope> scopeResult = new HashSet<>();
-        if (values != null && values.trim().length() > 0) {
-            String[] scopes = values.split("\\s+");
-            for (String scope : scopes) {
-                scopeResult.add(new Scope(scope));
-            }
-        }
-        return scopeResult;
+        return ScopeSet.parse(jp.getText());
     }
 }
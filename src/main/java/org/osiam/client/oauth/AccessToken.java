@@ -30,6 +30,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.base.Strings;
 import org.osiam.client.helper.ScopeDeserializer;
 import org.osiam.client.helper.ScopeSerializer;
+import org.osiam.resources.helper.JsonDateDeserializer;
 
 import java.util.Date;
 import java.util.HashSet;
@@ -45,14 +46,16 @@ public class AccessToken {
     @JsonProperty("access_token")
     private String token;
     @JsonProperty("expires_at")
+    @JsonDeserialize(using = JsonDateDeserializer.class)
     private Date expiresAt;
     @JsonSerialize(using = ScopeSerializer.class)
     @JsonDeserialize(using = ScopeDeserializer.class)
     @JsonProperty("scope")
-    private Set<Scope> scopes = new HashSet<>();
+    private Set<Scope> scopes = ScopeSet.EMPTY;
     @JsonProperty("refresh_token")
     private String refreshToken;
     @JsonProperty("refresh_token_expires_at")
+    @JsonDeserialize(using = JsonDateDeserializer.class)
     private Date refreshTokenExpiresAt;
     @JsonProperty("token_type")
     private String type;
@@ -72,7 +75,7 @@ public class AccessToken {
     private AccessToken(Builder builder) {
         token = builder.token;
         expiresAt = builder.expiresAt;
-        scopes = builder.scopes;
+        scopes = ScopeSet.copyOf(builder.scopes);
         refreshToken = builder.refreshToken;
         refreshTokenExpiresAt = builder.refreshTokenExpiresAt;
         type = builder.type;
@@ -114,12 +117,42 @@ public class AccessToken {
     /**
      * Retrieve the possible Scopes of this AccessToken
      *
-     * @return The scopes
+     * @return The scopes as immutable {@link ScopeSet}
      */
     public Set<Scope> getScopes() {
         return scopes;
     }
 
+    /**
+     * Checks if this access token has been granted the given scope
+     *
+     * @param scope the scope to check
+     * @return true if the access token has the given scope
+     */
+    public boolean hasScope(Scope scope) {
+        return ScopeSet.copyOf(scopes).hasScope(scope);
+    }
+
+    /**
+     * Checks if this access token has been granted all of the given scopes
+     *
+     * @param scopes the scopes to check
+     * @return true if the access token has all of the given scopes
+     */
+    public boolean hasAllScopes(Scope... scopes) {
+        return ScopeSet.copyOf(this.scopes).hasAll(scopes);
+    }
+
+    /**
+     * Checks if this access token has been granted at least one of the given scopes
+     *
+     * @param scopes the scopes to check
+     * @return true if the access token has at least one of the given scopes
+     */
+    public boolean hasAnyScope(Scope... scopes) {
+        return ScopeSet.copyOf(this.scopes).hasAny(scopes);
+    }
+
     /**
      * Retrieve the refresh token for this access token
      *
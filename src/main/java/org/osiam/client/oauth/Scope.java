@@ -23,6 +23,10 @@
  */
 package org.osiam.client.oauth;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.osiam.resources.scim.User;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -32,39 +36,53 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * <p>
  * Scopes defined by OSIAM are available as static constants of this class, e.g. {@link Scope#ME}.
  * </p>
+ * <p>
+ * Known scopes are registered with a small integer id, so a {@link ScopeSet} can store them as bits. The scopes
+ * defined by OSIAM are registered, further scopes can be registered via {@link #register(String)}. Use
+ * {@link #of(String)} to get the registered instance of a scope.
+ * </p>
  */
 public class Scope {
 
+    /**
+     * The maximum number of scopes that can be registered.
+     */
+    public static final int MAX_REGISTERED_SCOPES = 1024;
+
+    private static final ConcurrentMap<String, Scope> REGISTRY = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<Scope> SCOPES_BY_ID = new AtomicReferenceArray<>(MAX_REGISTERED_SCOPES);
+    private static int registeredScopes;
+
     /**
      * @deprecated Use {@link Scope#ME} or {@link Scope#ADMIN}. This field will be removed in version 1.10 or 2.0.
      */
     @Deprecated
-    public static final Scope GET = new Scope("GET");
+    public static final Scope GET = register("GET");
     /**
      * @deprecated Use {@link Scope#ME} or {@link Scope#ADMIN}. This field will be removed in version 1.10 or 2.0.
      */
     @Deprecated
-    public static final Scope POST = new Scope("POST");
+    public static final Scope POST = register("POST");
     /**
      * @deprecated Use {@link Scope#ME} or {@link Scope#ADMIN}. This field will be removed in version 1.10 or 2.0.
      */
     @Deprecated
-    public static final Scope PUT = new Scope("PUT");
+    public static final Scope PUT = register("PUT");
     /**
      * @deprecated Use {@link Scope#ME} or {@link Scope#ADMIN}. This field will be removed in version 1.10 or 2.0.
      */
     @Deprecated
-    public static final Scope PATCH = new Scope("PATCH");
+    public static final Scope PATCH = register("PATCH");
     /**
      * @deprecated Use {@link Scope#ME} or {@link Scope#ADMIN}. This field will be removed in version 1.10 or 2.0.
      */
     @Deprecated
-    public static final Scope DELETE = new Scope("DELETE");
+    public static final Scope DELETE = register("DELETE");
     /**
      * @deprecated Use {@link Scope#ME} or {@link Scope#ADMIN}. This field will be removed in version 1.10 or 2.0.
      */
     @Deprecated
-    public static final Scope ALL = new Scope(Scope.GET + " " + Scope.POST + " " + Scope.PUT + " "
+    public static final Scope ALL = register(Scope.GET + " " + Scope.POST + " " + Scope.PUT + " "
             + Scope.PATCH + " " + Scope.DELETE);
 
     /**
@@ -83,17 +101,83 @@ public class Scope {
      * retrieved via client credentials grant <strong>CANNOT</strong> access any user's data.
      * </p>
      */
-    public static final Scope ME = new Scope("ME");
+    public static final Scope ME = register("ME");
 
     /**
      * {@code ADMIN} is a scope that allows full access to any resource.
      */
-    public static final Scope ADMIN = new Scope("ADMIN");
+    public static final Scope ADMIN = register("ADMIN");
 
     private String value;
+    private final int id;
 
+    /**
+     * Creates a scope. If a scope with the given value has been registered, the new scope shares its id, but
+     * {@link #of(String)} should be preferred.
+     *
+     * @param value the value of the scope
+     */
     public Scope(String value) {
         this.value = value;
+        Scope registeredScope = value != null ? REGISTRY.get(value) : null;
+        this.id = registeredScope != null ? registeredScope.id : -1;
+    }
+
+    private Scope(String value, int id) {
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * Registers the scope with the given value, unless it has already been registered.
+     *
+     * @param value the value of the scope
+     * @return the registered scope
+     * @throws IllegalStateException if {@value #MAX_REGISTERED_SCOPES} scopes have already been registered
+     */
+    public static synchronized Scope register(String value) {
+        Scope scope = REGISTRY.get(value);
+        if (scope != null) {
+            return scope;
+        }
+        if (registeredScopes == MAX_REGISTERED_SCOPES) {
+            throw new IllegalStateException("No more than " + MAX_REGISTERED_SCOPES
+                    + " scopes can be registered.");
+        }
+        scope = new Scope(value, registeredScopes);
+        SCOPES_BY_ID.set(registeredScopes, scope);
+        registeredScopes++;
+        REGISTRY.put(value, scope);
+        return scope;
+    }
+
+    /**
+     * Provides the scope with the given value without allocating a new instance if it has been registered.
+     *
+     * @param value the value of the scope
+     * @return the registered scope, or a new, unregistered scope
+     */
+    public static Scope of(String value) {
+        Scope scope = value != null ? REGISTRY.get(value) : null;
+        return scope != null ? scope : new Scope(value);
+    }
+
+    /**
+     * @return the registered scope with the given id, or {@code null} if there is none
+     */
+    static Scope byId(int id) {
+        return SCOPES_BY_ID.get(id);
+    }
+
+    /**
+     * @return the id of the scope, or -1 if the scope had not been registered when it was created
+     */
+    int id() {
+        if (id >= 0 || value == null) {
+            return id;
+        }
+        Scope registeredScope = REGISTRY.get(value);
+        return registeredScope != null ? registeredScope.id : -1;
     }
 
     @JsonProperty
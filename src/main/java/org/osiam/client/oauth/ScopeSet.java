@@ -0,0 +1,304 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.oauth;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of {@link Scope}s. Registered scopes are stored as bits indexed by their id, so checking whether
+ * the set contains a scope does neither hash nor compare strings. Scopes that are not registered are kept in a small
+ * array, which is only searched if the scope is not found among the bits.
+ */
+public final class ScopeSet extends AbstractSet<Scope> {
+
+    /**
+     * The empty scope set.
+     */
+    public static final ScopeSet EMPTY = new ScopeSet(new long[0], new Scope[0]);
+
+    private static final long[] NO_WORDS = new long[0];
+    private static final Scope[] NO_SCOPES = new Scope[0];
+
+    private final long[] words;
+    private final Scope[] unregisteredScopes;
+    private final int size;
+
+    private ScopeSet(long[] words, Scope[] unregisteredScopes) {
+        this.words = words;
+        this.unregisteredScopes = unregisteredScopes;
+        int bitCount = 0;
+        for (long word : words) {
+            bitCount += Long.bitCount(word);
+        }
+        this.size = bitCount + unregisteredScopes.length;
+    }
+
+    /**
+     * @param scopes the scopes of the set
+     * @return a set of the given scopes
+     */
+    public static ScopeSet of(Scope... scopes) {
+        return copyOf(Arrays.asList(scopes));
+    }
+
+    /**
+     * @param scopes the scopes of the set
+     * @return a set of the given scopes, or the given set itself if it is a {@code ScopeSet}
+     */
+    public static ScopeSet copyOf(Collection<Scope> scopes) {
+        if (scopes instanceof ScopeSet) {
+            return (ScopeSet) scopes;
+        }
+        Builder builder = new Builder();
+        for (Scope scope : scopes) {
+            builder.add(scope);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parses a list of scopes separated by whitespace, as used by OAuth 2.0. Registered scopes are looked up without
+     * allocating new {@link Scope} instances.
+     *
+     * @param scopes the list of scopes, may be {@code null}
+     * @return the parsed scopes
+     */
+    public static ScopeSet parse(String scopes) {
+        if (scopes == null) {
+            return EMPTY;
+        }
+        Builder builder = null;
+        int length = scopes.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && Character.isWhitespace(scopes.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            while (end < length && !Character.isWhitespace(scopes.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                if (builder == null) {
+                    builder = new Builder();
+                }
+                builder.add(Scope.of(scopes.substring(start, end)));
+            }
+            start = end;
+        }
+        return builder != null ? builder.build() : EMPTY;
+    }
+
+    /**
+     * @param scope the scope to check
+     * @return if this set contains the given scope
+     */
+    public boolean hasScope(Scope scope) {
+        int id = scope.id();
+        if (id >= 0) {
+            int word = id >>> 6;
+            if (word < words.length && (words[word] & (1L << id)) != 0) {
+                return true;
+            }
+        }
+        // the scope might have been registered after this set was created
+        for (Scope unregisteredScope : unregisteredScopes) {
+            if (unregisteredScope.equals(scope)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param scopes the scopes to check
+     * @return if this set contains all of the given scopes
+     */
+    public boolean hasAll(Scope... scopes) {
+        for (Scope scope : scopes) {
+            if (!hasScope(scope)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param scopes the scopes to check
+     * @return if this set contains at least one of the given scopes
+     */
+    public boolean hasAny(Scope... scopes) {
+        for (Scope scope : scopes) {
+            if (hasScope(scope)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether this set contains all scopes of the given set. Registered scopes are compared a word of 64 scopes
+     * at a time.
+     *
+     * @param scopes the scopes to check
+     * @return if this set contains all of the given scopes
+     */
+    public boolean hasAll(ScopeSet scopes) {
+        for (int i = 0; i < scopes.words.length; i++) {
+            long word = i < words.length ? words[i] : 0;
+            if ((scopes.words[i] & ~word) != 0) {
+                return unregisteredScopes.length > 0 && containsAll(scopes);
+            }
+        }
+        for (Scope scope : scopes.unregisteredScopes) {
+            if (!hasScope(scope)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether this set contains at least one scope of the given set. Registered scopes are compared a word of
+     * 64 scopes at a time.
+     *
+     * @param scopes the scopes to check
+     * @return if this set contains at least one of the given scopes
+     */
+    public boolean hasAny(ScopeSet scopes) {
+        for (int i = 0; i < Math.min(words.length, scopes.words.length); i++) {
+            if ((words[i] & scopes.words[i]) != 0) {
+                return true;
+            }
+        }
+        if (unregisteredScopes.length == 0 && scopes.unregisteredScopes.length == 0) {
+            return false;
+        }
+        for (Scope scope : scopes) {
+            if (hasScope(scope)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Scope && hasScope((Scope) o);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Scope> iterator() {
+        return new Iterator<Scope>() {
+
+            private int nextId = nextId(0);
+            private int nextUnregisteredScope;
+
+            @Override
+            public boolean hasNext() {
+                return nextId >= 0 || nextUnregisteredScope < unregisteredScopes.length;
+            }
+
+            @Override
+            public Scope next() {
+                if (nextId >= 0) {
+                    Scope scope = Scope.byId(nextId);
+                    nextId = nextId(nextId + 1);
+                    return scope;
+                }
+                if (nextUnregisteredScope < unregisteredScopes.length) {
+                    return unregisteredScopes[nextUnregisteredScope++];
+                }
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("A ScopeSet is immutable.");
+            }
+        };
+    }
+
+    /**
+     * @return the smallest id of a registered scope in this set that is not smaller than the given id, or -1 if there
+     * is none
+     */
+    private int nextId(int fromId) {
+        int word = fromId >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & (-1L << fromId);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+    }
+
+    private static final class Builder {
+
+        private long[] words = NO_WORDS;
+        private Scope[] unregisteredScopes = NO_SCOPES;
+        private int unregisteredScopeCount;
+
+        private void add(Scope scope) {
+            int id = scope.id();
+            if (id >= 0) {
+                int word = id >>> 6;
+                if (word >= words.length) {
+                    words = Arrays.copyOf(words, word + 1);
+                }
+                words[word] |= 1L << id;
+                return;
+            }
+            for (int i = 0; i < unregisteredScopeCount; i++) {
+                if (unregisteredScopes[i].equals(scope)) {
+                    return;
+                }
+            }
+            if (unregisteredScopeCount == unregisteredScopes.length) {
+                unregisteredScopes = Arrays.copyOf(unregisteredScopes, Math.max(2, unregisteredScopeCount * 2));
+            }
+            unregisteredScopes[unregisteredScopeCount++] = scope;
+        }
+
+        private ScopeSet build() {
+            return new ScopeSet(words, Arrays.copyOf(unregisteredScopes, unregisteredScopeCount));
+        }
+    }
+}
@@ -24,8 +24,8 @@
 package org.osiam.client.query;
 
 import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
+import org.osiam.resources.helper.DateTimeCodec;
+import org.osiam.resources.scim.Projection;
 
 /**
  * Builder for {@link Query} objects.
@@ -87,6 +87,19 @@ public class QueryBuilder {
         return this;
     }
 
+    /**
+     * Sets the attributes of the resources to return to the attributes of the given projection.
+     *
+     * @param projection
+     *        the projection whose attributes to return
+     *
+     * @see Projection#getAttributesParameter()
+     */
+    public QueryBuilder attributes(Projection projection) {
+        this.attributes = projection.getAttributesParameter();
+        return this;
+    }
+
     /**
      * Filter the resulting resources by the given filter string.
      *
@@ -160,7 +173,10 @@ public class QueryBuilder {
      * @return dateTime as scim conform String
      */
     public static String getScimConformFormatedDateTime(DateTime dateTime) {
-        DateTimeFormatter dateFormat = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
-        return dateFormat.print(dateTime);
+        long millis = dateTime.getMillis();
+        char[] buffer = new char[DateTimeCodec.MAX_FORMATTED_LENGTH];
+        int length = DateTimeCodec.format(millis + dateTime.getZone().getOffset(millis), buffer, 0);
+        // the local date-time of the given zone, without the designator of UTC
+        return new String(buffer, 0, length - 1);
     }
 }
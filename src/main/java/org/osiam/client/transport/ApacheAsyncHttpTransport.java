@@ -0,0 +1,365 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link AsyncOsiamTransport} built on the non-blocking Apache HttpAsyncClient. A small number of I/O threads
+ * serves all requests, so thousands of requests can be in flight at the same time without a thread for each of them.
+ * Requests that exceed the limits of the connection pool wait for a free connection without blocking a thread.
+ * <p>
+ * The body of a successful response is fed into Jackson's non-blocking parser while it is received, so the tokens are
+ * ready when the response is complete. The bodies of error responses are kept as they are, as they are only needed
+ * for the error message. So are compressed bodies; wrap the transport in a {@link ContentEncodingTransport} to
+ * decompress them.
+ * </p>
+ * <p>
+ * The I/O threads are daemon threads. Close the transport when it is not needed anymore to stop them.
+ * </p>
+ */
+public final class ApacheAsyncHttpTransport implements AsyncOsiamTransport {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CloseableHttpAsyncClient httpClient;
+
+    /**
+     * Creates a transport with one I/O thread per available processor.
+     *
+     * @param maxConnections         the maximum number of connections in the pool
+     * @param maxConnectionsPerRoute the maximum number of connections to a single host
+     */
+    public ApacheAsyncHttpTransport(int maxConnections, int maxConnectionsPerRoute) {
+        this(Runtime.getRuntime().availableProcessors(), maxConnections, maxConnectionsPerRoute);
+    }
+
+    /**
+     * @param ioThreads              the number of threads that send the requests and receive the responses
+     * @param maxConnections         the maximum number of connections in the pool
+     * @param maxConnectionsPerRoute the maximum number of connections to a single host
+     */
+    public ApacheAsyncHttpTransport(int ioThreads, int maxConnections, int maxConnectionsPerRoute) {
+        checkArgument(ioThreads > 0, "The number of I/O threads must be greater than 0.");
+        checkArgument(maxConnections > 0, "The maximum number of connections must be greater than 0.");
+        checkArgument(maxConnectionsPerRoute > 0,
+                "The maximum number of connections per route must be greater than 0.");
+
+        DefaultConnectingIOReactor ioReactor;
+        try {
+            ioReactor = new DefaultConnectingIOReactor(
+                    IOReactorConfig.custom().setIoThreadCount(ioThreads).build(),
+                    new ThreadFactoryBuilder().setNameFormat("osiam-transport-io-%d").setDaemon(true).build());
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Unable to create the I/O reactor", e);
+        }
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(ioReactor);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setThreadFactory(new ThreadFactoryBuilder()
+                        .setNameFormat("osiam-transport-reactor-%d").setDaemon(true).build())
+                .disableCookieManagement()
+                .build();
+        httpClient.start();
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        ListenableFuture<TransportResponse> response = executeAsync(request);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } catch (ExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public ListenableFuture<TransportResponse> executeAsync(TransportRequest request) {
+        final HttpUriRequest httpRequest;
+        try {
+            httpRequest = ApacheHttpTransport.createHttpRequest(request);
+        } catch (IOException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+
+        final SettableFuture<TransportResponse> response = SettableFuture.create();
+        httpClient.execute(HttpAsyncMethods.create(httpRequest),
+                new JsonResponseConsumer(), new FutureCallback<TransportResponse>() {
+                    @Override
+                    public void completed(TransportResponse result) {
+                        response.set(result);
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        response.setException(e instanceof IOException || e instanceof RuntimeException
+                                ? e : new IOException(e));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        response.cancel(false);
+                    }
+                });
+        final Cancellation cancellation = request.getCancellation();
+        final Runnable abortAction = new Runnable() {
+            @Override
+            public void run() {
+                response.cancel(false);
+            }
+        };
+        response.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (response.isCancelled()) {
+                    // cancelling the future of the client does not release the connection, aborting the request does
+                    httpRequest.abort();
+                }
+                if (cancellation != null) {
+                    cancellation.unregister(abortAction);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        if (cancellation != null) {
+            cancellation.register(abortAction);
+        }
+        return response;
+    }
+
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException ignored) {
+            // closing the client only shuts down the I/O reactor
+        }
+    }
+
+    /**
+     * Receives a response on an I/O thread. The body of a successful response is tokenized chunk by chunk, any other
+     * body is collected as it is.
+     */
+    private static final class JsonResponseConsumer extends AbstractAsyncResponseConsumer<TransportResponse> {
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private HttpResponse response;
+        private JsonParser parser;
+        private TokenBuffer tokens;
+        private JsonProcessingException parseFailure;
+        private ByteArrayOutputStream rawBody;
+        private long bodySize;
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) throws IOException {
+            this.response = response;
+            int status = response.getStatusLine().getStatusCode();
+            if (status >= 200 && status < 300 && !response.containsHeader("Content-Encoding")) {
+                parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+                // keeps floats exact, a blocking parser also provides the exact value of a float as BigDecimal
+                tokens = new TokenBuffer(null, false).forceUseOfBigDecimal(true);
+            } else {
+                rawBody = new ByteArrayOutputStream();
+            }
+        }
+
+        @Override
+        protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+            // the body is consumed in onContentReceived
+        }
+
+        @Override
+        protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+            while (decoder.read(buffer) > 0) {
+                bodySize += buffer.position();
+                if (rawBody != null) {
+                    rawBody.write(buffer.array(), 0, buffer.position());
+                } else if (parseFailure == null) {
+                    ((ByteArrayFeeder) parser.getNonBlockingInputFeeder())
+                            .feedInput(buffer.array(), 0, buffer.position());
+                    readAvailableTokens();
+                }
+                buffer.clear();
+            }
+        }
+
+        private void readAvailableTokens() throws IOException {
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                    tokens.copyCurrentEvent(parser);
+                }
+            } catch (JsonProcessingException e) {
+                // the rest of the body is discarded, the failure is reported when the body is parsed
+                parseFailure = e;
+            }
+        }
+
+        @Override
+        protected TransportResponse buildResult(HttpContext context) throws IOException {
+            if (parser != null && parseFailure == null) {
+                ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+                readAvailableTokens();
+            }
+            return new BufferedResponse(response.getStatusLine(), response.getAllHeaders(),
+                    tokens, parseFailure, rawBody != null ? rawBody.toByteArray() : null, bodySize);
+        }
+
+        @Override
+        protected void releaseResources() {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException ignored) {
+                    // the parser does not hold any resources besides its buffers
+                }
+            }
+        }
+    }
+
+    /**
+     * A completely received response. Reading its body does not block.
+     */
+    private static final class BufferedResponse implements JsonTransportResponse {
+
+        private final StatusLine statusLine;
+        private final Header[] headers;
+        private final TokenBuffer tokens;
+        private final JsonProcessingException parseFailure;
+        private final byte[] rawBody;
+        private final long bodySize;
+
+        private BufferedResponse(StatusLine statusLine, Header[] headers, TokenBuffer tokens,
+                                 JsonProcessingException parseFailure, byte[] rawBody, long bodySize) {
+            this.statusLine = statusLine;
+            this.headers = headers;
+            this.tokens = tokens;
+            this.parseFailure = parseFailure;
+            this.rawBody = rawBody;
+            this.bodySize = bodySize;
+        }
+
+        @Override
+        public int getStatus() {
+            return statusLine.getStatusCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return statusLine.getReasonPhrase() != null ? statusLine.getReasonPhrase() : "";
+        }
+
+        @Override
+        public String getHeader(String name) {
+            for (Header header : headers) {
+                if (header.getName().equalsIgnoreCase(name)) {
+                    return header.getValue();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public JsonParser getJsonBody() throws IOException {
+            if (parseFailure != null) {
+                throw parseFailure;
+            }
+            return rawBody != null ? JSON_FACTORY.createParser(rawBody) : tokens.asParser();
+        }
+
+        @Override
+        public long getBodySize() {
+            return bodySize;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (rawBody != null) {
+                return new ByteArrayInputStream(rawBody);
+            }
+            if (parseFailure != null) {
+                throw parseFailure;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(body)) {
+                tokens.serialize(generator);
+            }
+            return new ByteArrayInputStream(body.toByteArray());
+        }
+
+        @Override
+        public void close() {
+            // the response has been received completely, so there is no connection to release
+        }
+    }
+}
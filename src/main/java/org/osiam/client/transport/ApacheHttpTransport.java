@@ -0,0 +1,244 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link OsiamTransport} that sends the requests directly with Apache HttpClient. It skips the JAX-RS layer, i.e.
+ * the provider lookup, the entity buffering and the filter chain, so it needs less CPU time and allocations per
+ * request than the {@link JerseyTransport}.
+ * <p>
+ * The bodies are passed through as they are; wrap the transport in a {@link ContentEncodingTransport} to compress
+ * them.
+ * </p>
+ */
+public final class ApacheHttpTransport implements OsiamTransport {
+
+    private final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * @param maxConnections         the maximum number of connections in the pool
+     * @param maxConnectionsPerRoute the maximum number of connections to a single host
+     */
+    public ApacheHttpTransport(int maxConnections, int maxConnectionsPerRoute) {
+        checkArgument(maxConnections > 0, "The maximum number of connections must be greater than 0.");
+        checkArgument(maxConnectionsPerRoute > 0,
+                "The maximum number of connections per route must be greater than 0.");
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .disableCookieManagement()
+                .disableContentCompression()
+                .build();
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        final HttpUriRequest httpRequest = createHttpRequest(request);
+        Cancellation cancellation = request.getCancellation();
+        if (cancellation == null) {
+            return new ApacheResponse(httpClient.execute(httpRequest), null, null);
+        }
+        Runnable abortAction = new Runnable() {
+            @Override
+            public void run() {
+                httpRequest.abort();
+            }
+        };
+        cancellation.register(abortAction);
+        try {
+            return new ApacheResponse(httpClient.execute(httpRequest), cancellation, abortAction);
+        } catch (IOException | RuntimeException e) {
+            cancellation.unregister(abortAction);
+            throw e;
+        }
+    }
+
+    static HttpUriRequest createHttpRequest(TransportRequest request) throws IOException {
+        RequestBuilder requestBuilder = RequestBuilder.create(request.getMethod())
+                .setUri(buildUri(request))
+                .setConfig(RequestConfig.custom()
+                        .setConnectTimeout(request.getConnectTimeout())
+                        .setSocketTimeout(request.getReadTimeout())
+                        .build());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            requestBuilder.setHeader(header.getKey(), header.getValue());
+        }
+        if (request.getBody() != null) {
+            requestBuilder.setEntity(new RequestBodyEntity(request.getBody(), request.getContentType()));
+        }
+        return requestBuilder.build();
+    }
+
+    private static URI buildUri(TransportRequest request) throws IOException {
+        try {
+            URIBuilder uriBuilder = new URIBuilder(request.getEndpoint());
+            StringBuilder path = new StringBuilder(uriBuilder.getPath() != null ? uriBuilder.getPath() : "");
+            for (String segment : request.getPathSegments()) {
+                if (path.length() == 0 || path.charAt(path.length() - 1) != '/') {
+                    path.append('/');
+                }
+                path.append(segment);
+            }
+            uriBuilder.setPath(path.toString());
+            for (Map.Entry<String, String> queryParam : request.getQueryParams().entrySet()) {
+                uriBuilder.addParameter(queryParam.getKey(), queryParam.getValue());
+            }
+            return uriBuilder.build();
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException ignored) {
+            // closing the client only shuts down the connection pool
+        }
+    }
+
+    /**
+     * Writes a {@link RequestBody} to the connection. Bodies of unknown length are sent chunked.
+     */
+    private static final class RequestBodyEntity extends AbstractHttpEntity {
+
+        private final RequestBody body;
+
+        private RequestBodyEntity(RequestBody body, String contentType) {
+            this.body = body;
+            setContentType(contentType);
+            setChunked(body.getContentLength() < 0);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.getContentLength();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            // only used by clients that cannot write to the connection, e.g. the non-blocking one
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            body.writeTo(content);
+            return new ByteArrayInputStream(content.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            body.writeTo(out);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+    private static final class ApacheResponse implements TransportResponse {
+
+        private final CloseableHttpResponse response;
+        private final Cancellation cancellation;
+        private final Runnable abortAction;
+
+        private ApacheResponse(CloseableHttpResponse response, Cancellation cancellation, Runnable abortAction) {
+            this.response = response;
+            this.cancellation = cancellation;
+            this.abortAction = abortAction;
+        }
+
+        @Override
+        public int getStatus() {
+            return response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            String reasonPhrase = response.getStatusLine().getReasonPhrase();
+            return reasonPhrase != null ? reasonPhrase : "";
+        }
+
+        @Override
+        public String getHeader(String name) {
+            Header header = response.getFirstHeader(name);
+            return header != null ? header.getValue() : null;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            HttpEntity entity = response.getEntity();
+            return entity != null ? entity.getContent() : new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public void close() {
+            try {
+                // consuming the rest of the body returns the connection to the pool instead of closing it
+                EntityUtils.consume(response.getEntity());
+            } catch (IOException ignored) {
+                // the connection is discarded by closing the response
+            } finally {
+                try {
+                    response.close();
+                } catch (IOException ignored) {
+                    // nothing left to release
+                }
+                if (cancellation != null) {
+                    cancellation.unregister(abortAction);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * An {@link OsiamTransport} that can send requests without blocking a thread while they are in flight. If the
+ * transport of a connector implements this interface, the operations of {@link org.osiam.client.OsiamAsyncConnector}
+ * that consist of a single request are sent with {@link #executeAsync(TransportRequest)} instead of occupying a
+ * thread of the executor.
+ */
+public interface AsyncOsiamTransport extends OsiamTransport {
+
+    /**
+     * Sends the given request without blocking the calling thread. The returned future is completed when the whole
+     * response has been received, so reading the body of the response does not block. The future fails with an
+     * {@link java.io.IOException} if the request could not be sent or no response was received. Cancelling the
+     * future aborts the request.
+     * <p>
+     * Listeners that are added with a direct executor run on a thread of the transport and must not block.
+     * </p>
+     *
+     * @param request the request to send
+     * @return the future response to the request
+     */
+    ListenableFuture<TransportResponse> executeAsync(TransportRequest request);
+}
@@ -0,0 +1,92 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aborts the requests it is attached to, see {@link TransportRequest.Builder#cancellation(Cancellation)}. While a
+ * request is in flight, i.e. until its response has been closed, the transport registers an action that aborts the
+ * exchange and releases its connection. Cancelling runs all registered actions, and actions that are registered
+ * afterwards right away.
+ * <p>
+ * Instances are thread-safe.
+ * </p>
+ */
+public final class Cancellation {
+
+    private final List<Runnable> abortActions = new ArrayList<>();
+    private boolean cancelled;
+
+    /**
+     * Aborts all requests that are in flight and all requests that are sent afterwards.
+     */
+    public void cancel() {
+        List<Runnable> actions;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            actions = new ArrayList<>(abortActions);
+            abortActions.clear();
+        }
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    /**
+     * @return true if {@link #cancel()} has been called
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Registers an action that aborts a request in flight. If this cancellation has been cancelled already, the action
+     * runs right away.
+     *
+     * @param abortAction the action that aborts the request
+     */
+    public void register(Runnable abortAction) {
+        synchronized (this) {
+            if (!cancelled) {
+                abortActions.add(abortAction);
+                return;
+            }
+        }
+        abortAction.run();
+    }
+
+    /**
+     * Removes an action once its request is no longer in flight.
+     *
+     * @param abortAction the action that has been registered
+     */
+    public synchronized void unregister(Runnable abortAction) {
+        abortActions.remove(abortAction);
+    }
+}
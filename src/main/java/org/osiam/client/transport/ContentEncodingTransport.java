@@ -0,0 +1,356 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An {@link OsiamTransport} that negotiates the content encoding of the exchanges with OSIAM and measures their size.
+ * It wraps the transport that actually sends the requests and
+ * <ul>
+ * <li>asks for gzip or deflate compressed responses and decompresses them while they are read,</li>
+ * <li>compresses JSON request bodies of at least {@value #MIN_COMPRESSED_REQUEST_SIZE} bytes, and streamed ones, with
+ * gzip, and</li>
+ * <li>reports the sizes of the bodies before and after the encoding to a {@link TransferListener}.</li>
+ * </ul>
+ * <p>
+ * The wrapped transport has to pass the bodies through unchanged. The {@link JerseyTransport} decompresses the
+ * responses itself, so the received size equals the decompressed size with it.
+ * </p>
+ */
+public class ContentEncodingTransport implements OsiamTransport {
+
+    /**
+     * Request bodies below this size are sent uncompressed, as gzip would hardly save anything.
+     */
+    public static final int MIN_COMPRESSED_REQUEST_SIZE = 1024;
+
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OsiamTransport transport;
+    private final boolean compressRequests;
+    private final boolean acceptCompressedResponses;
+    private final TransferListener transferListener;
+
+    private ContentEncodingTransport(OsiamTransport transport, boolean compressRequests,
+                                     boolean acceptCompressedResponses, TransferListener transferListener) {
+        this.transport = transport;
+        this.compressRequests = compressRequests;
+        this.acceptCompressedResponses = acceptCompressedResponses;
+        this.transferListener = transferListener;
+    }
+
+    /**
+     * Wraps the given transport. The returned transport is an {@link AsyncOsiamTransport} if the given one is.
+     *
+     * @param transport                 the transport that sends the requests
+     * @param compressRequests          if JSON request bodies should be compressed with gzip
+     * @param acceptCompressedResponses if the responses may be compressed with gzip or deflate
+     * @param transferListener          the listener that receives the sizes of every exchange, may be {@code null}
+     * @return the wrapping transport
+     */
+    public static OsiamTransport wrap(OsiamTransport transport, boolean compressRequests,
+                                      boolean acceptCompressedResponses, TransferListener transferListener) {
+        if (transport instanceof AsyncOsiamTransport) {
+            return new Async((AsyncOsiamTransport) transport, compressRequests, acceptCompressedResponses,
+                    transferListener);
+        }
+        return new ContentEncodingTransport(transport, compressRequests, acceptCompressedResponses,
+                transferListener);
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        TransportRequest encodedRequest = encode(request);
+        return decode(request, encodedRequest, transport.execute(encodedRequest));
+    }
+
+    TransportRequest encode(TransportRequest request) throws IOException {
+        RequestBody body = request.getBody();
+        boolean compress = isCompressible(request);
+        boolean streamed = body != null && body.getContentLength() < 0;
+        if (!acceptCompressedResponses && !compress && !streamed) {
+            return request;
+        }
+        TransportRequest.Builder encodedRequest = new TransportRequest.Builder(request);
+        if (acceptCompressedResponses) {
+            encodedRequest.header(ACCEPT_ENCODING_HEADER, "gzip, deflate");
+        }
+        if (compress) {
+            encodedRequest.header(CONTENT_ENCODING_HEADER, "gzip");
+        }
+        if (streamed) {
+            // the size of a streamed body is only known after it has been sent
+            encodedRequest.body(new CountingBody(body, compress), request.getContentType());
+        } else if (compress) {
+            ByteArrayOutputStream compressedBody = new ByteArrayOutputStream((int) body.getContentLength() / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressedBody)) {
+                body.writeTo(gzip);
+            }
+            encodedRequest.body(compressedBody.toByteArray(), request.getContentType());
+        }
+        return encodedRequest.build();
+    }
+
+    private boolean isCompressible(TransportRequest request) {
+        return compressRequests
+                && request.getBody() != null
+                && (request.getBody().getContentLength() < 0
+                || request.getBody().getContentLength() >= MIN_COMPRESSED_REQUEST_SIZE)
+                && request.getContentType().startsWith(JSON_CONTENT_TYPE);
+    }
+
+    TransportResponse decode(TransportRequest request, TransportRequest encodedRequest, TransportResponse response)
+            throws IOException {
+        String contentEncoding = response.getHeader(CONTENT_ENCODING_HEADER);
+        if (contentEncoding != null) {
+            contentEncoding = contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+            if (contentEncoding.equals("identity")) {
+                contentEncoding = null;
+            } else if (!contentEncoding.equals("gzip") && !contentEncoding.equals("x-gzip")
+                    && !contentEncoding.equals("deflate")) {
+                response.close();
+                throw new IOException("Unsupported content encoding of the response: " + contentEncoding);
+            }
+        }
+        if (contentEncoding == null && response instanceof JsonTransportResponse) {
+            return new DecodedJsonResponse(request, encodedRequest, (JsonTransportResponse) response);
+        }
+        return new DecodedResponse(request, encodedRequest, response, contentEncoding);
+    }
+
+    @Override
+    public void close() {
+        transport.close();
+    }
+
+    private static long requestBytes(TransportRequest request, TransportRequest encodedRequest) {
+        if (encodedRequest.getBody() instanceof CountingBody) {
+            return ((CountingBody) encodedRequest.getBody()).bytesWritten;
+        }
+        return request.getBody() != null ? request.getBody().getContentLength() : 0;
+    }
+
+    private static long requestBytesSent(TransportRequest encodedRequest) {
+        if (encodedRequest.getBody() instanceof CountingBody) {
+            return ((CountingBody) encodedRequest.getBody()).bytesSent;
+        }
+        return encodedRequest.getBody() != null ? encodedRequest.getBody().getContentLength() : 0;
+    }
+
+    /**
+     * A streamed body that is optionally compressed and counted while it is written.
+     */
+    private static final class CountingBody extends RequestBody {
+
+        private final RequestBody body;
+        private final boolean compress;
+        private volatile long bytesWritten;
+        private volatile long bytesSent;
+
+        private CountingBody(RequestBody body, boolean compress) {
+            this.body = body;
+            this.compress = compress;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            CountingOutputStream sent = new CountingOutputStream(out);
+            CountingOutputStream written;
+            if (compress) {
+                GZIPOutputStream gzip = new GZIPOutputStream(sent, BUFFER_SIZE);
+                written = new CountingOutputStream(gzip);
+                body.writeTo(written);
+                gzip.finish();
+            } else {
+                written = sent;
+                body.writeTo(written);
+            }
+            bytesWritten = written.getCount();
+            bytesSent = sent.getCount();
+        }
+    }
+
+    private static final class Async extends ContentEncodingTransport implements AsyncOsiamTransport {
+
+        private final AsyncOsiamTransport transport;
+
+        private Async(AsyncOsiamTransport transport, boolean compressRequests, boolean acceptCompressedResponses,
+                      TransferListener transferListener) {
+            super(transport, compressRequests, acceptCompressedResponses, transferListener);
+            this.transport = transport;
+        }
+
+        @Override
+        public ListenableFuture<TransportResponse> executeAsync(final TransportRequest request) {
+            final TransportRequest encodedRequest;
+            try {
+                encodedRequest = encode(request);
+            } catch (IOException e) {
+                return Futures.immediateFailedFuture(e);
+            }
+            return Futures.transformAsync(transport.executeAsync(encodedRequest),
+                    new AsyncFunction<TransportResponse, TransportResponse>() {
+                        @Override
+                        public ListenableFuture<TransportResponse> apply(TransportResponse response)
+                                throws IOException {
+                            return Futures.immediateFuture(decode(request, encodedRequest, response));
+                        }
+                    }, MoreExecutors.directExecutor());
+        }
+    }
+
+    /**
+     * A response whose body is decompressed and counted while it is read.
+     */
+    private class DecodedResponse implements TransportResponse {
+
+        private final TransportRequest request;
+        private final TransportRequest encodedRequest;
+        private final TransportResponse response;
+        private final String contentEncoding;
+        private CountingInputStream receivedBody;
+        private CountingInputStream body;
+        private boolean closed;
+
+        private DecodedResponse(TransportRequest request, TransportRequest encodedRequest,
+                                TransportResponse response, String contentEncoding) {
+            this.request = request;
+            this.encodedRequest = encodedRequest;
+            this.response = response;
+            this.contentEncoding = contentEncoding;
+        }
+
+        @Override
+        public int getStatus() {
+            return response.getStatus();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return response.getReasonPhrase();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return response.getHeader(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                receivedBody = new CountingInputStream(response.getBody());
+                InputStream decodedBody;
+                if (contentEncoding == null) {
+                    decodedBody = receivedBody;
+                } else if (contentEncoding.equals("deflate")) {
+                    decodedBody = new InflaterInputStream(receivedBody);
+                } else {
+                    decodedBody = new GZIPInputStream(receivedBody);
+                }
+                body = new CountingInputStream(decodedBody);
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            response.close();
+            if (transferListener != null) {
+                transferListener.onTransfer(new TransferStatistics(request.getMethod(), request.getPath(),
+                        getStatus(), requestBytes(request, encodedRequest), requestBytesSent(encodedRequest),
+                        getResponseBytes(), getResponseBytesReceived()));
+            }
+        }
+
+        long getResponseBytes() {
+            return body != null ? body.getCount() : 0;
+        }
+
+        long getResponseBytesReceived() {
+            return receivedBody != null ? receivedBody.getCount() : 0;
+        }
+    }
+
+    /**
+     * An uncompressed response that has already been tokenized by the transport.
+     */
+    private class DecodedJsonResponse extends DecodedResponse implements JsonTransportResponse {
+
+        private final JsonTransportResponse response;
+
+        private DecodedJsonResponse(TransportRequest request, TransportRequest encodedRequest,
+                                    JsonTransportResponse response) {
+            super(request, encodedRequest, response, null);
+            this.response = response;
+        }
+
+        @Override
+        public JsonParser getJsonBody() throws IOException {
+            return response.getJsonBody();
+        }
+
+        @Override
+        public long getBodySize() {
+            return response.getBodySize();
+        }
+
+        @Override
+        long getResponseBytes() {
+            return Math.max(super.getResponseBytes(), getBodySize());
+        }
+
+        @Override
+        long getResponseBytesReceived() {
+            return Math.max(super.getResponseBytesReceived(), getBodySize());
+        }
+    }
+}
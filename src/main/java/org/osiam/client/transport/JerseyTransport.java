@@ -0,0 +1,307 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link OsiamTransport} that sends the requests with a JAX-RS client of Jersey, backed by a pool of Apache
+ * HttpClient connections. This has been the only transport up to version 1.9 and is still the default one.
+ * <p>
+ * Jersey does not expose the request it sends, so a {@link Cancellation} aborts the exchange by shutting down the
+ * connection that has been leased for it.
+ * </p>
+ */
+public final class JerseyTransport implements OsiamTransport {
+
+    private static final ThreadLocal<Cancellation> CURRENT_CANCELLATION = new ThreadLocal<>();
+
+    private final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    private final Client client;
+
+    /**
+     * @param maxConnections         the maximum number of connections in the pool
+     * @param maxConnectionsPerRoute the maximum number of connections to a single host
+     */
+    public JerseyTransport(int maxConnections, int maxConnectionsPerRoute) {
+        setMaxConnections(maxConnections);
+        setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+        client = ClientBuilder.newClient(new ClientConfig()
+                .connectorProvider(new ApacheConnectorProvider())
+                .property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED)
+                .property(ApacheClientProperties.CONNECTION_MANAGER,
+                        new CancellableConnectionManager(connectionManager)));
+    }
+
+    /**
+     * @param maxConnections the maximum number of connections in the pool
+     */
+    public void setMaxConnections(int maxConnections) {
+        checkArgument(maxConnections > 0, "The maximum number of connections must be greater than 0.");
+        connectionManager.setMaxTotal(maxConnections);
+    }
+
+    /**
+     * @param maxConnectionsPerRoute the maximum number of connections to a single host
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        checkArgument(maxConnectionsPerRoute > 0,
+                "The maximum number of connections per route must be greater than 0.");
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    }
+
+    /**
+     * @param connectTimeout the connect timeout of the client, in milliseconds, which applies if a request has none
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        client.property(ClientProperties.CONNECT_TIMEOUT, connectTimeout);
+    }
+
+    /**
+     * @param readTimeout the read timeout of the client, in milliseconds, which applies if a request has none
+     */
+    public void setReadTimeout(int readTimeout) {
+        client.property(ClientProperties.READ_TIMEOUT, readTimeout);
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        WebTarget target = client.target(request.getEndpoint()).path(request.getPath());
+        for (Map.Entry<String, String> queryParam : request.getQueryParams().entrySet()) {
+            target = target.queryParam(queryParam.getKey(), queryParam.getValue());
+        }
+
+        Invocation.Builder invocation = target.request()
+                .property(ClientProperties.CONNECT_TIMEOUT, request.getConnectTimeout())
+                .property(ClientProperties.READ_TIMEOUT, request.getReadTimeout());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            invocation = invocation.header(header.getKey(), header.getValue());
+        }
+
+        // Jersey leases the connection on the calling thread
+        CURRENT_CANCELLATION.set(request.getCancellation());
+        try {
+            if (request.getBody() == null) {
+                return new JerseyResponse(invocation.method(request.getMethod()));
+            }
+            final RequestBody body = request.getBody();
+            if (body.getContentLength() < 0) {
+                invocation.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED);
+            }
+            StreamingOutput output = new StreamingOutput() {
+                @Override
+                public void write(OutputStream out) throws IOException {
+                    body.writeTo(out);
+                }
+            };
+            Entity<StreamingOutput> entity = Entity.entity(output, request.getContentType());
+            return new JerseyResponse(invocation.method(request.getMethod(), entity));
+        } catch (ProcessingException e) {
+            throw new IOException(e);
+        } finally {
+            CURRENT_CANCELLATION.remove();
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        connectionManager.shutdown();
+    }
+
+    /**
+     * Registers the connections leased for a request with a {@link Cancellation} with it, until they are released.
+     */
+    private static final class CancellableConnectionManager implements HttpClientConnectionManager {
+
+        private final HttpClientConnectionManager delegate;
+        private final ConcurrentMap<HttpClientConnection, Lease> leases = new ConcurrentHashMap<>();
+
+        private CancellableConnectionManager(HttpClientConnectionManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            final ConnectionRequest connectionRequest = delegate.requestConnection(route, state);
+            final Cancellation cancellation = CURRENT_CANCELLATION.get();
+            if (cancellation == null) {
+                return connectionRequest;
+            }
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit tunit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    HttpClientConnection connection = connectionRequest.get(timeout, tunit);
+                    Lease lease = new Lease(connection, cancellation);
+                    leases.put(connection, lease);
+                    cancellation.register(lease);
+                    return connection;
+                }
+
+                @Override
+                public boolean cancel() {
+                    return connectionRequest.cancel();
+                }
+            };
+        }
+
+        @Override
+        public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration,
+                                      TimeUnit timeUnit) {
+            Lease lease = leases.remove(conn);
+            if (lease != null) {
+                lease.cancellation.unregister(lease);
+            }
+            delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+        }
+
+        @Override
+        public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+                throws IOException {
+            delegate.connect(conn, route, connectTimeout, context);
+        }
+
+        @Override
+        public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+            delegate.upgrade(conn, route, context);
+        }
+
+        @Override
+        public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context)
+                throws IOException {
+            delegate.routeComplete(conn, route, context);
+        }
+
+        @Override
+        public void closeIdleConnections(long idletime, TimeUnit tunit) {
+            delegate.closeIdleConnections(idletime, tunit);
+        }
+
+        @Override
+        public void closeExpiredConnections() {
+            delegate.closeExpiredConnections();
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+    }
+
+    /**
+     * A connection leased for a cancellable request, which is shut down if the request is cancelled. The pool then
+     * discards the connection when it is released.
+     */
+    private static final class Lease implements Runnable {
+
+        private final HttpClientConnection connection;
+        private final Cancellation cancellation;
+
+        private Lease(HttpClientConnection connection, Cancellation cancellation) {
+            this.connection = connection;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        public void run() {
+            try {
+                connection.shutdown();
+            } catch (IOException ignored) {
+                // the connection is closed anyway
+            }
+        }
+    }
+
+    private static final class JerseyResponse implements TransportResponse {
+
+        private final Response response;
+
+        private JerseyResponse(Response response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getStatus() {
+            return response.getStatus();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            String reasonPhrase = response.getStatusInfo().getReasonPhrase();
+            return reasonPhrase != null ? reasonPhrase : "";
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return response.getHeaderString(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            try {
+                InputStream body = response.readEntity(InputStream.class);
+                return body != null ? body : new ByteArrayInputStream(new byte[0]);
+            } catch (ProcessingException | IllegalStateException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sends HTTP requests to OSIAM on behalf of the connector. All requests of an
+ * {@link org.osiam.client.OsiamConnector} go through a transport, so an implementation decides about the HTTP client,
+ * connection pooling and timeouts.
+ * <p>
+ * Implementations have to be thread-safe.
+ * </p>
+ */
+public interface OsiamTransport extends Closeable {
+
+    /**
+     * Sends the given request and returns the response as soon as its status line and headers have been received.
+     * The caller has to close the returned response. If the request has a {@link Cancellation}, cancelling it aborts
+     * the exchange until the response has been closed, and releases its connection.
+     *
+     * @param request the request to send
+     * @return the response to the request
+     * @throws IOException if the request could not be sent or no response was received
+     */
+    TransportResponse execute(TransportRequest request) throws IOException;
+
+    /**
+     * Releases all resources held by this transport. No requests can be sent after a transport has been closed.
+     */
+    @Override
+    void close();
+}
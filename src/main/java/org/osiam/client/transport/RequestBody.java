@@ -0,0 +1,69 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The body of a {@link TransportRequest}. A body is either a byte array of known length, or it is produced while it is
+ * sent, e.g. by serializing a resource straight into the connection. The latter are sent with chunked transfer encoding.
+ * A body can be written more than once, e.g. if a transport retries a request.
+ */
+public abstract class RequestBody {
+
+    /**
+     * @param content the content of the body
+     * @return a body of the given bytes
+     */
+    public static RequestBody of(final byte[] content) {
+        checkNotNull(content, "The given content must not be null.");
+        return new RequestBody() {
+            @Override
+            public long getContentLength() {
+                return content.length;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(content);
+            }
+        };
+    }
+
+    /**
+     * @return the length of the body in bytes, or -1 if it is not known before the body is written
+     */
+    public abstract long getContentLength();
+
+    /**
+     * Writes the body to the given stream. The stream is not closed.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the body could not be produced or written
+     */
+    public abstract void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,106 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+/**
+ * The sizes of the bodies of a single exchange with OSIAM, before and after the content encoding. The sizes of the
+ * response count the bytes that have been read from the body.
+ */
+public final class TransferStatistics {
+
+    private final String method;
+    private final String path;
+    private final int status;
+    private final long requestBytes;
+    private final long requestBytesSent;
+    private final long responseBytes;
+    private final long responseBytesReceived;
+
+    TransferStatistics(String method, String path, int status, long requestBytes, long requestBytesSent,
+                       long responseBytes, long responseBytesReceived) {
+        this.method = method;
+        this.path = path;
+        this.status = status;
+        this.requestBytes = requestBytes;
+        this.requestBytesSent = requestBytesSent;
+        this.responseBytes = responseBytes;
+        this.responseBytesReceived = responseBytesReceived;
+    }
+
+    /**
+     * @return the HTTP method of the request
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the path of the request relative to the endpoint, e.g. {@code Users/123}
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the HTTP status code of the response
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the size of the request body before it has been compressed
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return the size of the request body as it has been sent
+     */
+    public long getRequestBytesSent() {
+        return requestBytesSent;
+    }
+
+    /**
+     * @return the size of the response body after it has been decompressed
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @return the size of the response body as it has been received
+     */
+    public long getResponseBytesReceived() {
+        return responseBytesReceived;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path + " " + status
+                + " request: " + requestBytes + " bytes, " + requestBytesSent + " sent"
+                + " response: " + responseBytes + " bytes, " + responseBytesReceived + " received";
+    }
+}
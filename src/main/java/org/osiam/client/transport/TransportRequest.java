@@ -0,0 +1,290 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An HTTP request to OSIAM, independent of the HTTP client used by the {@link OsiamTransport}. Path segments and query
+ * parameters are kept unencoded, the transport encodes them when it builds the request URI.
+ */
+public final class TransportRequest {
+
+    private final String method;
+    private final String endpoint;
+    private final List<String> pathSegments;
+    private final Map<String, String> queryParams;
+    private final Map<String, String> headers;
+    private final RequestBody body;
+    private final String contentType;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final Cancellation cancellation;
+
+    private TransportRequest(Builder builder) {
+        method = builder.method;
+        endpoint = builder.endpoint;
+        pathSegments = Collections.unmodifiableList(new ArrayList<>(builder.pathSegments));
+        queryParams = Collections.unmodifiableMap(new LinkedHashMap<>(builder.queryParams));
+        headers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.headers));
+        body = builder.body;
+        contentType = builder.contentType;
+        connectTimeout = builder.connectTimeout;
+        readTimeout = builder.readTimeout;
+        cancellation = builder.cancellation;
+    }
+
+    /**
+     * @return the HTTP method, e.g. {@code GET}
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the base URI the path is appended to, e.g. {@code http://localhost:8080/osiam}
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return the unencoded path segments that are appended to the endpoint
+     */
+    public List<String> getPathSegments() {
+        return pathSegments;
+    }
+
+    /**
+     * @return the path appended to the endpoint, i.e. the path segments joined with {@code /}
+     */
+    public String getPath() {
+        return Joiner.on('/').join(pathSegments);
+    }
+
+    /**
+     * @return the unencoded query parameters in the order they were added
+     */
+    public Map<String, String> getQueryParams() {
+        return queryParams;
+    }
+
+    /**
+     * @return the headers of the request
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the body of the request, or {@code null} if the request has no body
+     */
+    public RequestBody getBody() {
+        return body;
+    }
+
+    /**
+     * @return the content type of the body, or {@code null} if the request has no body
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return the connect timeout in milliseconds, 0 means no timeout
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @return the read timeout in milliseconds, 0 means no timeout
+     */
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * @return the cancellation that aborts the request, or {@code null} if the request is not cancellable
+     */
+    public Cancellation getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Builds a {@link TransportRequest}.
+     */
+    public static final class Builder {
+
+        private final String method;
+        private final String endpoint;
+        private final List<String> pathSegments = new ArrayList<>();
+        private final Map<String, String> queryParams = new LinkedHashMap<>();
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private RequestBody body;
+        private String contentType;
+        private int connectTimeout;
+        private int readTimeout;
+        private Cancellation cancellation;
+
+        /**
+         * @param method   the HTTP method
+         * @param endpoint the base URI of the request
+         */
+        public Builder(String method, String endpoint) {
+            checkArgument(!Strings.isNullOrEmpty(method), "The given method must not be null nor empty.");
+            checkArgument(!Strings.isNullOrEmpty(endpoint), "The given endpoint must not be null nor empty.");
+            this.method = method;
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Creates a builder that is initialized with the given request, e.g. to add a header to it.
+         *
+         * @param request the request to copy
+         */
+        public Builder(TransportRequest request) {
+            method = request.method;
+            endpoint = request.endpoint;
+            pathSegments.addAll(request.pathSegments);
+            queryParams.putAll(request.queryParams);
+            headers.putAll(request.headers);
+            body = request.body;
+            contentType = request.contentType;
+            connectTimeout = request.connectTimeout;
+            readTimeout = request.readTimeout;
+            cancellation = request.cancellation;
+        }
+
+        /**
+         * Appends a path to the request. Leading and trailing slashes are ignored, slashes inside the path separate
+         * segments.
+         *
+         * @param path the unencoded path to append
+         * @return this builder
+         */
+        public Builder path(String path) {
+            checkNotNull(path, "The given path must not be null.");
+            for (String segment : path.split("/")) {
+                if (!segment.isEmpty()) {
+                    pathSegments.add(segment);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds a query parameter. Parameters with a {@code null} value are not added.
+         *
+         * @param name  the name of the parameter
+         * @param value the unencoded value of the parameter
+         * @return this builder
+         */
+        public Builder queryParam(String name, Object value) {
+            if (value != null) {
+                queryParams.put(name, value.toString());
+            }
+            return this;
+        }
+
+        /**
+         * Sets a header, replacing any previous value of it.
+         *
+         * @param name  the name of the header
+         * @param value the value of the header
+         * @return this builder
+         */
+        public Builder header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        /**
+         * @param body        the body of the request
+         * @param contentType the content type of the body
+         * @return this builder
+         */
+        public Builder body(byte[] body, String contentType) {
+            checkNotNull(body, "The given body must not be null.");
+            return body(RequestBody.of(body), contentType);
+        }
+
+        /**
+         * @param body        the body of the request
+         * @param contentType the content type of the body
+         * @return this builder
+         */
+        public Builder body(RequestBody body, String contentType) {
+            this.body = checkNotNull(body, "The given body must not be null.");
+            this.contentType = checkNotNull(contentType, "The given contentType must not be null.");
+            return this;
+        }
+
+        /**
+         * @param connectTimeout the connect timeout in milliseconds, 0 means no timeout
+         * @return this builder
+         */
+        public Builder connectTimeout(int connectTimeout) {
+            checkArgument(connectTimeout >= 0, "The given connectTimeout must not be negative.");
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param readTimeout the read timeout in milliseconds, 0 means no timeout
+         * @return this builder
+         */
+        public Builder readTimeout(int readTimeout) {
+            checkArgument(readTimeout >= 0, "The given readTimeout must not be negative.");
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * @param cancellation the cancellation that aborts the request while it is in flight, or {@code null}
+         * @return this builder
+         */
+        public Builder cancellation(Cancellation cancellation) {
+            this.cancellation = cancellation;
+            return this;
+        }
+
+        /**
+         * @return the request
+         */
+        public TransportRequest build() {
+            return new TransportRequest(this);
+        }
+    }
+}
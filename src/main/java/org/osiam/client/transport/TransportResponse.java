@@ -0,0 +1,63 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The response to a {@link TransportRequest}. The body is streamed from the connection, so a response has to be closed
+ * to release the connection.
+ */
+public interface TransportResponse extends Closeable {
+
+    /**
+     * @return the HTTP status code
+     */
+    int getStatus();
+
+    /**
+     * @return the HTTP reason phrase, or the empty string if the server did not send one
+     */
+    String getReasonPhrase();
+
+    /**
+     * @param name the name of the header, case-insensitive
+     * @return the value of the header, or {@code null} if the header is not present
+     */
+    String getHeader(String name);
+
+    /**
+     * @return the body of the response; an empty stream if the response has no body
+     * @throws IOException if the body could not be opened
+     */
+    InputStream getBody() throws IOException;
+
+    /**
+     * Releases the connection. Any part of the body that has not been read is discarded.
+     */
+    @Override
+    void close();
+}
@@ -25,7 +25,9 @@ package org.osiam.client.user;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.osiam.resources.helper.JsonDateDeserializer;
 import org.osiam.resources.helper.JsonDateSerializer;
 import org.osiam.resources.scim.User;
 
@@ -52,6 +54,7 @@ public class BasicUser {
     private String locale;
     @JsonProperty("updated_time")
     @JsonSerialize(using = JsonDateSerializer.class)
+    @JsonDeserialize(using = JsonDateDeserializer.class)
     private Date updatedTime;
 
     private BasicUser() {
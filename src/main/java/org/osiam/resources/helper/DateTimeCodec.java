@@ -0,0 +1,313 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.helper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Parses and formats ISO-8601 date-times, e.g. {@code 2011-08-01T18:29:49.793Z}, to and from milliseconds since the
+ * epoch, without intermediate objects. Dates, meta data, access tokens, extension fields and queries all go through
+ * this codec, so they accept and produce the same format.
+ * <p>
+ * Dates are formatted in UTC with milliseconds. Parsing accepts a date with an optional time, seconds, fraction of a
+ * second and offset, i.e. {@code Z}, {@code +hh}, {@code +hhmm} or {@code +hh:mm}. A date-time without offset is in
+ * UTC. Digits of the fraction beyond milliseconds are truncated.
+ * </p>
+ */
+public final class DateTimeCodec {
+
+    /**
+     * The maximum number of characters that {@link #format(long, char[], int)} writes
+     */
+    public static final int MAX_FORMATTED_LENGTH = 30;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final int DAYS_0000_TO_1970 = 719468;
+    private static final int DAYS_PER_400_YEARS = 146097;
+    private static final int MAX_YEAR_DIGITS = 9;
+    private static final int BUFFER_LENGTH = 64;
+
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[BUFFER_LENGTH];
+        }
+    };
+
+    private DateTimeCodec() {
+    }
+
+    /**
+     * Parses the given date-time.
+     *
+     * @param text the date-time
+     * @return the milliseconds since the epoch
+     * @throws IllegalArgumentException if the text is not an ISO-8601 date-time
+     */
+    public static long parse(String text) {
+        int length = text.length();
+        if (length > BUFFER_LENGTH) {
+            return parse(text.toCharArray(), 0, length);
+        }
+        char[] buffer = BUFFER.get();
+        text.getChars(0, length, buffer, 0);
+        return parse(buffer, 0, length);
+    }
+
+    /**
+     * Parses the date-time the given parser is positioned at straight from its text buffer, without creating a
+     * {@link String}.
+     *
+     * @param jp the parser, positioned at a string value
+     * @return the milliseconds since the epoch
+     * @throws IllegalArgumentException if the value is not an ISO-8601 date-time
+     * @throws IOException              if the parser fails to provide the text
+     */
+    public static long parse(JsonParser jp) throws IOException {
+        return parse(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+    }
+
+    /**
+     * Parses the date-time in the given range of characters, e.g. the text buffer of a {@link JsonParser}.
+     *
+     * @param text   the characters
+     * @param offset the index of the first character of the date-time
+     * @param length the number of characters of the date-time
+     * @return the milliseconds since the epoch
+     * @throws IllegalArgumentException if the characters are not an ISO-8601 date-time
+     */
+    public static long parse(char[] text, int offset, int length) {
+        int end = offset + length;
+        int pos = offset;
+
+        boolean negativeYear = false;
+        if (pos < end && (text[pos] == '-' || text[pos] == '+')) {
+            negativeYear = text[pos] == '-';
+            pos++;
+        }
+        int yearStart = pos;
+        long year = 0;
+        while (pos < end && isDigit(text[pos]) && pos - yearStart < MAX_YEAR_DIGITS) {
+            year = year * 10 + text[pos++] - '0';
+        }
+        if (pos - yearStart < 4 || !isChar(text, pos, end, '-')) {
+            throw invalid(text, offset, length);
+        }
+        if (negativeYear) {
+            year = -year;
+        }
+        int month = twoDigits(text, pos + 1, end);
+        int day = isChar(text, pos + 3, end, '-') ? twoDigits(text, pos + 4, end) : -1;
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            throw invalid(text, offset, length);
+        }
+        pos += 6;
+        long millis = epochDay(year, month, day) * MILLIS_PER_DAY;
+        if (pos == end) {
+            return millis;
+        }
+
+        int hour = isChar(text, pos, end, 'T') ? twoDigits(text, pos + 1, end) : -1;
+        int minute = isChar(text, pos + 3, end, ':') ? twoDigits(text, pos + 4, end) : -1;
+        pos += 6;
+        int second = 0;
+        int millisOfSecond = 0;
+        if (isChar(text, pos, end, ':')) {
+            second = twoDigits(text, pos + 1, end);
+            pos += 3;
+            if (isChar(text, pos, end, '.') || isChar(text, pos, end, ',')) {
+                int fractionStart = ++pos;
+                for (int scale = 100; pos < end && isDigit(text[pos]); pos++, scale /= 10) {
+                    millisOfSecond += (text[pos] - '0') * scale;
+                }
+                if (pos == fractionStart) {
+                    throw invalid(text, offset, length);
+                }
+            }
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            throw invalid(text, offset, length);
+        }
+        millis += ((hour * 60L + minute) * 60 + second) * 1000 + millisOfSecond;
+
+        if (pos == end) {
+            return millis;
+        }
+        char sign = text[pos++];
+        if (sign == 'Z' && pos == end) {
+            return millis;
+        }
+        if (sign != '+' && sign != '-') {
+            throw invalid(text, offset, length);
+        }
+        int offsetHours = twoDigits(text, pos, end);
+        pos += 2;
+        int offsetMinutes = 0;
+        if (pos < end) {
+            if (text[pos] == ':') {
+                pos++;
+            }
+            offsetMinutes = twoDigits(text, pos, end);
+            pos += 2;
+        }
+        if (pos != end || offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59) {
+            throw invalid(text, offset, length);
+        }
+        long offsetMillis = (offsetHours * 60L + offsetMinutes) * 60000;
+        return sign == '+' ? millis - offsetMillis : millis + offsetMillis;
+    }
+
+    /**
+     * Formats the given date-time in UTC, e.g. {@code 2011-08-01T18:29:49.793Z}.
+     *
+     * @param millis the milliseconds since the epoch
+     * @return the formatted date-time
+     */
+    public static String format(long millis) {
+        char[] buffer = BUFFER.get();
+        return new String(buffer, 0, format(millis, buffer, 0));
+    }
+
+    /**
+     * Formats the given date-time in UTC into the given buffer, which must have room for
+     * {@link #MAX_FORMATTED_LENGTH} characters.
+     *
+     * @param millis the milliseconds since the epoch
+     * @param buffer the buffer to write to
+     * @param offset the index in the buffer to start at
+     * @return the number of characters written
+     */
+    public static int format(long millis, char[] buffer, int offset) {
+        long epochDay = millis / MILLIS_PER_DAY;
+        long millisOfDay = millis % MILLIS_PER_DAY;
+        if (millisOfDay < 0) {
+            epochDay--;
+            millisOfDay += MILLIS_PER_DAY;
+        }
+
+        // civil date of the epoch day, see http://howardhinnant.github.io/date_algorithms.html
+        long days = epochDay + DAYS_0000_TO_1970;
+        long era = (days >= 0 ? days : days - DAYS_PER_400_YEARS + 1) / DAYS_PER_400_YEARS;
+        long dayOfEra = days - era * DAYS_PER_400_YEARS;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        int pos = offset;
+        if (year < 0) {
+            buffer[pos++] = '-';
+            year = -year;
+        }
+        int yearDigits = 4;
+        for (long bound = 10000; year >= bound && yearDigits < MAX_YEAR_DIGITS; bound *= 10) {
+            yearDigits++;
+        }
+        for (int i = pos + yearDigits - 1; i >= pos; i--, year /= 10) {
+            buffer[i] = (char) ('0' + year % 10);
+        }
+        pos += yearDigits;
+        buffer[pos++] = '-';
+        pos = writeTwoDigits(month, buffer, pos);
+        buffer[pos++] = '-';
+        pos = writeTwoDigits(day, buffer, pos);
+        buffer[pos++] = 'T';
+        int millisOfDayInt = (int) millisOfDay;
+        pos = writeTwoDigits(millisOfDayInt / 3600000, buffer, pos);
+        buffer[pos++] = ':';
+        pos = writeTwoDigits(millisOfDayInt / 60000 % 60, buffer, pos);
+        buffer[pos++] = ':';
+        pos = writeTwoDigits(millisOfDayInt / 1000 % 60, buffer, pos);
+        buffer[pos++] = '.';
+        int millisOfSecond = millisOfDayInt % 1000;
+        buffer[pos++] = (char) ('0' + millisOfSecond / 100);
+        pos = writeTwoDigits(millisOfSecond % 100, buffer, pos);
+        buffer[pos++] = 'Z';
+        return pos - offset;
+    }
+
+    /**
+     * Writes the given date-time as string with the given generator, formatted into a reused buffer.
+     */
+    static void write(long millis, JsonGenerator generator) throws IOException {
+        char[] buffer = BUFFER.get();
+        generator.writeString(buffer, 0, format(millis, buffer, 0));
+    }
+
+    private static long epochDay(long year, int month, int day) {
+        long yearOfMarch = month <= 2 ? year - 1 : year;
+        long era = (yearOfMarch >= 0 ? yearOfMarch : yearOfMarch - 399) / 400;
+        long yearOfEra = yearOfMarch - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    private static int daysInMonth(long year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int writeTwoDigits(int value, char[] buffer, int pos) {
+        buffer[pos] = (char) ('0' + value / 10);
+        buffer[pos + 1] = (char) ('0' + value % 10);
+        return pos + 2;
+    }
+
+    /**
+     * @return the value of the two digits at the given position, or -1 if there are no two digits
+     */
+    private static int twoDigits(char[] text, int pos, int end) {
+        if (pos + 2 > end || !isDigit(text[pos]) || !isDigit(text[pos + 1])) {
+            return -1;
+        }
+        return (text[pos] - '0') * 10 + text[pos + 1] - '0';
+    }
+
+    private static boolean isChar(char[] text, int pos, int end, char c) {
+        return pos < end && text[pos] == c;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static IllegalArgumentException invalid(char[] text, int offset, int length) {
+        return new IllegalArgumentException("Not an ISO-8601 date-time: " + new String(text, offset, length));
+    }
+}
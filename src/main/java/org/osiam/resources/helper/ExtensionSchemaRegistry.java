@@ -0,0 +1,134 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.helper;
+
+import org.osiam.resources.scim.ExtensionSchema;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the {@link ExtensionSchema}s of known extensions. The {@link UserDeserializer} decodes the fields of a
+ * registered extension straight into their declared type. Extensions that are not registered, and fields that their
+ * schema does not declare, are decoded by their JSON type as before.
+ * <p>
+ * Instead of a schema, a class can be registered for an extension, e.g. {@link org.osiam.resources.scim.Enterprise}.
+ * The {@link UserDeserializer} binds such extensions to an instance of the class, which is available via
+ * {@link org.osiam.resources.scim.User#getExtension(String, Class)}.
+ * </p>
+ * <p>
+ * Schemas can be registered at any time, instances of this class are thread-safe.
+ * </p>
+ */
+public final class ExtensionSchemaRegistry implements Serializable {
+
+    private static final long serialVersionUID = 3187422071620325196L;
+
+    private final ConcurrentMap<String, ExtensionSchema> schemas = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Class<?>> types = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the given schema, replacing a schema with the same URN.
+     *
+     * @param schema the schema to register
+     * @return the registry itself
+     */
+    public ExtensionSchemaRegistry register(ExtensionSchema schema) {
+        if (schema == null) {
+            throw new IllegalArgumentException("The schema can't be null.");
+        }
+        schemas.put(schema.getUrn(), schema);
+        return this;
+    }
+
+    /**
+     * Registers the given schemas, replacing schemas with the same URNs.
+     *
+     * @param schemas the schemas to register
+     * @return the registry itself
+     */
+    public ExtensionSchemaRegistry registerAll(Collection<ExtensionSchema> schemas) {
+        for (ExtensionSchema schema : schemas) {
+            register(schema);
+        }
+        return this;
+    }
+
+    /**
+     * Registers the class the extension with the given URN is bound to. The class needs to be mappable by Jackson
+     * and {@link Serializable}, like the {@link org.osiam.resources.scim.User} it is bound into. A class takes
+     * precedence over a schema with the same URN.
+     *
+     * @param urn  the URN of the extension
+     * @param type the class of the extension
+     * @return the registry itself
+     * @throws IllegalArgumentException if the URN is null or empty, or the type is null or not serializable
+     */
+    public ExtensionSchemaRegistry registerType(String urn, Class<?> type) {
+        if (urn == null || urn.isEmpty()) {
+            throw new IllegalArgumentException("The URN can't be null or empty.");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("The type can't be null.");
+        }
+        if (!Serializable.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException("The type must be serializable.");
+        }
+        types.put(urn, type);
+        return this;
+    }
+
+    /**
+     * Returns the class the extension with the given URN is bound to.
+     *
+     * @param urn the URN of the extension
+     * @return the class, or {@code null} if no class has been registered for the URN
+     */
+    public Class<?> getType(String urn) {
+        return types.get(urn);
+    }
+
+    /**
+     * Returns the schema of the extension with the given URN.
+     *
+     * @param urn the URN of the extension
+     * @return the schema, or {@code null} if no schema has been registered for the URN
+     */
+    public ExtensionSchema getSchema(String urn) {
+        return schemas.get(urn);
+    }
+
+    /**
+     * Returns all registered schemas.
+     *
+     * @return a copy of the registered schemas
+     */
+    public List<ExtensionSchema> getSchemas() {
+        return new ArrayList<>(schemas.values());
+    }
+}
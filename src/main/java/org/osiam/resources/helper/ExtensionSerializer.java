@@ -31,8 +31,6 @@ import org.osiam.resources.scim.Extension.Field;
 import org.osiam.resources.scim.ExtensionFieldType;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -45,23 +43,21 @@ public class ExtensionSerializer extends JsonSerializer<Extension> {
 
         Map<String, Field> fields = value.getFields();
         for (Entry<String, Field> entry : fields.entrySet()) {
-            String fieldName = entry.getKey();
-            ExtensionFieldType<?> fieldType = entry.getValue().getType();
-            String rawFieldValue = entry.getValue().getValue();
+            Field field = entry.getValue();
+            ExtensionFieldType<?> fieldType = field.getType();
 
-            jgen.writeFieldName(fieldName);
+            jgen.writeFieldName(entry.getKey());
 
             if (fieldType == ExtensionFieldType.INTEGER) {
-                BigInteger valueAsBigInteger = ExtensionFieldType.INTEGER.fromString(rawFieldValue);
-                jgen.writeNumber(valueAsBigInteger);
+                jgen.writeNumber(field.getValue(ExtensionFieldType.INTEGER));
             } else if (fieldType == ExtensionFieldType.DECIMAL) {
-                BigDecimal valueAsBigDecimal = ExtensionFieldType.DECIMAL.fromString(rawFieldValue);
-                jgen.writeNumber(valueAsBigDecimal);
+                jgen.writeNumber(field.getValue(ExtensionFieldType.DECIMAL));
             } else if (fieldType == ExtensionFieldType.BOOLEAN) {
-                Boolean valueAsBoolean = ExtensionFieldType.BOOLEAN.fromString(rawFieldValue);
-                jgen.writeBoolean(valueAsBoolean);
+                jgen.writeBoolean(field.getValue(ExtensionFieldType.BOOLEAN));
+            } else if (fieldType == ExtensionFieldType.DATE_TIME) {
+                DateTimeCodec.write(field.getValue(ExtensionFieldType.DATE_TIME).getTime(), jgen);
             } else {
-                jgen.writeString(rawFieldValue);
+                jgen.writeString(field.getValue());
             }
         }
 
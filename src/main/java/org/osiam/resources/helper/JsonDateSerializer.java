@@ -26,21 +26,17 @@ package org.osiam.resources.helper;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
-import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.ISODateTimeFormat;
 
 import java.io.IOException;
 import java.util.Date;
 
 /**
- * Jackson serializer for {@link Date}
+ * Jackson serializer for {@link Date}, which writes ISO-8601 strings in UTC, see {@link DateTimeCodec}.
  */
 public class JsonDateSerializer extends JsonSerializer<Date> {
 
-    private final DateTimeFormatter dateTimeFormatter = ISODateTimeFormat.dateTime();
-
     @Override
     public void serialize(Date value, JsonGenerator gen, SerializerProvider provider) throws IOException {
-        gen.writeString(dateTimeFormatter.print(value.getTime()));
+        DateTimeCodec.write(value.getTime(), gen);
     }
 }
@@ -23,26 +23,64 @@
  */
 package org.osiam.resources.helper;
 
-import com.fasterxml.jackson.core.JsonLocation;
-import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.osiam.resources.exception.SCIMDataValidationException;
+import org.osiam.resources.scim.Address;
+import org.osiam.resources.scim.DeferredAttributes;
+import org.osiam.resources.scim.Email;
+import org.osiam.resources.scim.Entitlement;
 import org.osiam.resources.scim.Extension;
 import org.osiam.resources.scim.ExtensionFieldType;
+import org.osiam.resources.scim.ExtensionSchema;
+import org.osiam.resources.scim.GroupRef;
+import org.osiam.resources.scim.Im;
+import org.osiam.resources.scim.Meta;
+import org.osiam.resources.scim.Name;
+import org.osiam.resources.scim.PhoneNumber;
+import org.osiam.resources.scim.Photo;
+import org.osiam.resources.scim.Role;
 import org.osiam.resources.scim.User;
+import org.osiam.resources.scim.X509Certificate;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Deserializes a {@link User} in a single pass over the tokens of the parser. Core attributes are read into a
+ * {@link User.Builder} as they appear. Objects that are not core attributes are read as {@link Extension}s and added
+ * to the user if their URN is one of the user's schemas, which may appear before or after them. The fields of
+ * extensions whose schema is known to the {@link ExtensionSchemaRegistry} are decoded straight into their declared
+ * {@link ExtensionFieldType}, all other fields by their JSON type. Extensions that are bound to a class in the registry
+ * are read as instances of that class instead.
+ * <p>
+ * Optionally, multi-valued attributes and extensions are only copied as tokens and bound when they are accessed for
+ * the first time, see {@link DeferredAttributes}. This is cheaper if only a few attributes of a user are used. The
+ * fields of extensions are checked while they are copied, so malformed extensions fail the parse as before.
+ * </p>
+ */
 public class UserDeserializer extends StdDeserializer<User> {
 
     private static final long serialVersionUID = 1L;
@@ -52,7 +90,55 @@ public class UserDeserializer extends StdDeserializer<User> {
         MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
+    private static final ObjectReader STRING_READER = MAPPER.readerFor(String.class);
+    private static final ObjectReader BOOLEAN_READER = MAPPER.readerFor(Boolean.class);
+    private static final ObjectReader SCHEMAS_READER = MAPPER.readerFor(new TypeReference<Set<String>>() {
+    });
+    private static final ObjectReader META_READER = MAPPER.readerFor(Meta.class);
+    private static final ObjectReader NAME_READER = MAPPER.readerFor(Name.class);
+    private static final ObjectReader EMAILS_READER = MAPPER.readerFor(new TypeReference<List<Email>>() {
+    });
+    private static final ObjectReader PHONE_NUMBERS_READER = MAPPER.readerFor(new TypeReference<List<PhoneNumber>>() {
+    });
+    private static final ObjectReader IMS_READER = MAPPER.readerFor(new TypeReference<List<Im>>() {
+    });
+    private static final ObjectReader PHOTOS_READER = MAPPER.readerFor(new TypeReference<List<Photo>>() {
+    });
+    private static final ObjectReader ADDRESSES_READER = MAPPER.readerFor(new TypeReference<List<Address>>() {
+    });
+    private static final ObjectReader GROUPS_READER = MAPPER.readerFor(new TypeReference<List<GroupRef>>() {
+    });
+    private static final ObjectReader ENTITLEMENTS_READER = MAPPER.readerFor(new TypeReference<List<Entitlement>>() {
+    });
+    private static final ObjectReader ROLES_READER = MAPPER.readerFor(new TypeReference<List<Role>>() {
+    });
+    private static final ObjectReader X509_CERTIFICATES_READER =
+            MAPPER.readerFor(new TypeReference<List<X509Certificate>>() {
+            });
+    private static final ConcurrentMap<Class<?>, ObjectReader> BOUND_EXTENSION_READERS = new ConcurrentHashMap<>();
+    private static final Map<String, ObjectReader> MULTI_VALUED_ATTRIBUTE_READERS =
+            ImmutableMap.<String, ObjectReader>builder()
+                    .put("emails", EMAILS_READER)
+                    .put("phoneNumbers", PHONE_NUMBERS_READER)
+                    .put("ims", IMS_READER)
+                    .put("photos", PHOTOS_READER)
+                    .put("addresses", ADDRESSES_READER)
+                    .put("groups", GROUPS_READER)
+                    .put("entitlements", ENTITLEMENTS_READER)
+                    .put("roles", ROLES_READER)
+                    .put("x509Certificates", X509_CERTIFICATES_READER)
+                    .build();
+    private static final Set<String> MULTI_VALUED_ATTRIBUTE_FIELDS =
+            ImmutableSet.of("operation", "value", "display", "primary", "$ref", "type");
+    private static final Set<String> ADDRESS_FIELDS = ImmutableSet.<String>builder()
+            .addAll(MULTI_VALUED_ATTRIBUTE_FIELDS)
+            .add("formatted", "streetAddress", "locality", "region", "postalCode", "country")
+            .build();
+    private static final String EXTENSIONS = "extensions";
+
     private final String schema;
+    private final ExtensionSchemaRegistry extensionSchemas;
+    private final boolean deferAttributes;
 
     /**
      * Create a {@link UserDeserializer} that validates the {@link User} against {@link User#SCHEMA}.
@@ -66,8 +152,34 @@ public class UserDeserializer extends StdDeserializer<User> {
      * instead of {@link User#SCHEMA}.
      */
     public UserDeserializer(String schema) {
+        this(schema, null);
+    }
+
+    /**
+     * Create a {@link UserDeserializer} that validates the {@link User} against the given schema and decodes the
+     * fields of extensions according to the schemas in the given registry.
+     *
+     * @param schema           the schema of the user
+     * @param extensionSchemas the registry of known extension schemas, may be null
+     */
+    public UserDeserializer(String schema, ExtensionSchemaRegistry extensionSchemas) {
+        this(schema, extensionSchemas, false);
+    }
+
+    /**
+     * Create a {@link UserDeserializer} that validates the {@link User} against the given schema, decodes the
+     * fields of extensions according to the schemas in the given registry and optionally defers the decoding of
+     * multi-valued attributes and extensions until they are accessed.
+     *
+     * @param schema           the schema of the user
+     * @param extensionSchemas the registry of known extension schemas, may be null
+     * @param deferAttributes  if multi-valued attributes and extensions should be decoded on first access
+     */
+    public UserDeserializer(String schema, ExtensionSchemaRegistry extensionSchemas, boolean deferAttributes) {
         super(User.class);
         this.schema = schema;
+        this.extensionSchemas = extensionSchemas;
+        this.deferAttributes = deferAttributes;
     }
 
     /**
@@ -77,37 +189,197 @@ public class UserDeserializer extends StdDeserializer<User> {
     public UserDeserializer(Class<?> valueClass) {
         super(valueClass);
         this.schema = User.SCHEMA;
+        this.extensionSchemas = null;
+        this.deferAttributes = false;
     }
 
     @Override
+    @SuppressWarnings("deprecation")
     public User deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-        JsonNode rootNode = jp.readValueAsTree();
-
-        User user = MAPPER.readValue(rootNode.traverse(), User.class);
-        if (user.getSchemas() == null) {
-            throw new JsonMappingException("Required field 'schemas' is missing");
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jp.nextToken();
         }
-        if (user.getSchemas().size() == 1) {
-            return user;
+        if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            throw JsonMappingException.from(jp, "User must be a JSON object");
         }
 
-        User.Builder builder = new User.Builder(user);
+        User.Builder builder = new User.Builder();
+        Set<String> schemas = null;
+        Map<String, Extension> extensions = null;
+        Map<String, Object> boundExtensions = null;
+        Map<String, TokenBuffer> unboundExtensions = null;
+        Map<String, Exception> malformedExtensions = null;
+        Map<String, TokenBuffer> deferredAttributes = null;
+        Map<String, TokenBuffer> deferredExtensions = null;
 
-        for (String urn : user.getSchemas()) {
-            if (urn.equals(schema)) {
+        for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            String fieldName = jp.getCurrentName();
+            JsonToken valueToken = jp.nextToken();
+            if (deferAttributes && valueToken == JsonToken.START_ARRAY
+                    && MULTI_VALUED_ATTRIBUTE_READERS.containsKey(fieldName)) {
+                deferredAttributes = put(deferredAttributes, fieldName,
+                        copyMultiValuedAttribute(jp, ctxt, fieldName));
                 continue;
             }
-
-            JsonNode extensionNode = rootNode.get(urn);
-            if (extensionNode == null) {
-                continue;
+            switch (fieldName) {
+                case "id":
+                    builder.setId(readString(jp));
+                    break;
+                case "externalId":
+                    builder.setExternalId(readString(jp));
+                    break;
+                case "meta":
+                    builder.setMeta(META_READER.<Meta>readValue(jp));
+                    break;
+                case "schemas":
+                    schemas = SCHEMAS_READER.readValue(jp);
+                    break;
+                case "userName":
+                    builder.setUserName(readString(jp));
+                    break;
+                case "name":
+                    builder.setName(NAME_READER.<Name>readValue(jp));
+                    break;
+                case "displayName":
+                    builder.setDisplayName(readString(jp));
+                    break;
+                case "nickName":
+                    builder.setNickName(readString(jp));
+                    break;
+                case "profileUrl":
+                    builder.setProfileUrl(readString(jp));
+                    break;
+                case "title":
+                    builder.setTitle(readString(jp));
+                    break;
+                case "userType":
+                    builder.setUserType(readString(jp));
+                    break;
+                case "preferredLanguage":
+                    builder.setPreferredLanguage(readString(jp));
+                    break;
+                case "locale":
+                    builder.setLocale(readString(jp));
+                    break;
+                case "timezone":
+                    builder.setTimezone(readString(jp));
+                    break;
+                case "active":
+                    builder.setActive(readBoolean(jp));
+                    break;
+                case "password":
+                    builder.setPassword(readString(jp));
+                    break;
+                case "emails":
+                    builder.addEmails(EMAILS_READER.<List<Email>>readValue(jp));
+                    break;
+                case "phoneNumbers":
+                    builder.addPhoneNumbers(PHONE_NUMBERS_READER.<List<PhoneNumber>>readValue(jp));
+                    break;
+                case "ims":
+                    builder.addIms(IMS_READER.<List<Im>>readValue(jp));
+                    break;
+                case "photos":
+                    builder.addPhotos(PHOTOS_READER.<List<Photo>>readValue(jp));
+                    break;
+                case "addresses":
+                    builder.addAddresses(ADDRESSES_READER.<List<Address>>readValue(jp));
+                    break;
+                case "groups":
+                    List<GroupRef> groups = GROUPS_READER.readValue(jp);
+                    if (groups != null) {
+                        builder.setGroups(groups);
+                    }
+                    break;
+                case "entitlements":
+                    builder.addEntitlements(ENTITLEMENTS_READER.<List<Entitlement>>readValue(jp));
+                    break;
+                case "roles":
+                    builder.addRoles(ROLES_READER.<List<Role>>readValue(jp));
+                    break;
+                case "x509Certificates":
+                    builder.addX509Certificates(X509_CERTIFICATES_READER.<List<X509Certificate>>readValue(jp));
+                    break;
+                default:
+                    if (fieldName.equals(schema) || schemas != null && !schemas.contains(fieldName)) {
+                        jp.skipChildren();
+                    } else if (valueToken != JsonToken.START_OBJECT) {
+                        jp.skipChildren();
+                        malformedExtensions = put(malformedExtensions, fieldName,
+                                (Exception) JsonMappingException.from(jp, "Extension is of wrong JSON type"));
+                    } else if (extensionSchemas != null && extensionSchemas.getType(fieldName) != null) {
+                        // the parser can't be recovered after a failed binding, so the extension is only bound
+                        // once its URN is known to be declared, as failures of undeclared ones must not be thrown
+                        if (schemas != null) {
+                            boundExtensions = put(boundExtensions, fieldName,
+                                    readerFor(extensionSchemas.getType(fieldName)).readValue(jp));
+                        } else {
+                            unboundExtensions = put(unboundExtensions, fieldName, copy(jp, ctxt));
+                        }
+                    } else if (deferAttributes) {
+                        try {
+                            deferredExtensions = put(deferredExtensions, fieldName,
+                                    copyExtension(jp, ctxt, fieldName));
+                        } catch (IllegalArgumentException e) {
+                            malformedExtensions = put(malformedExtensions, fieldName, (Exception) e);
+                        }
+                    } else {
+                        try {
+                            extensions = put(extensions, fieldName, deserializeExtension(jp, fieldName,
+                                    ctxt.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)));
+                        } catch (IllegalArgumentException e) {
+                            malformedExtensions = put(malformedExtensions, fieldName, (Exception) e);
+                        }
+                    }
             }
+        }
+
+        if (schemas == null) {
+            throw JsonMappingException.from(jp, "Required field 'schemas' is missing");
+        }
 
-            builder.addExtension(deserializeExtension(extensionNode, urn));
+        Map<String, TokenBuffer> declaredExtensions = null;
+        if (schemas.size() == 1) {
+            builder.setSchemas(schemas);
+        } else {
+            Set<String> allSchemas = new HashSet<>(schemas);
+            allSchemas.add(User.SCHEMA);
+            builder.setSchemas(allSchemas);
+            for (String urn : schemas) {
+                if (urn.equals(schema)) {
+                    continue;
+                }
+                if (malformedExtensions != null && malformedExtensions.containsKey(urn)) {
+                    Exception e = malformedExtensions.get(urn);
+                    if (e instanceof IOException) {
+                        throw (IOException) e;
+                    }
+                    throw (RuntimeException) e;
+                }
+                if (extensions != null && extensions.containsKey(urn)) {
+                    builder.addExtension(extensions.get(urn));
+                } else if (boundExtensions != null && boundExtensions.containsKey(urn)) {
+                    builder.addExtension(urn, boundExtensions.get(urn));
+                } else if (unboundExtensions != null && unboundExtensions.containsKey(urn)) {
+                    builder.addExtension(urn, readerFor(extensionSchemas.getType(urn))
+                            .readValue(unboundExtensions.get(urn).asParser()));
+                } else if (deferredExtensions != null && deferredExtensions.containsKey(urn)) {
+                    declaredExtensions = put(declaredExtensions, urn, deferredExtensions.get(urn));
+                }
+            }
+        }
 
+        if (deferredAttributes != null || declaredExtensions != null) {
+            builder.setDeferredAttributes(new DeferredTokens(deferredAttributes, declaredExtensions,
+                    ctxt.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)));
         }
 
-        return builder.build();
+        try {
+            return builder.build();
+        } catch (SCIMDataValidationException e) {
+            throw JsonMappingException.from(jp, e.getMessage(), e);
+        }
     }
 
     public Extension deserializeExtension(JsonNode rootNode, String urn) throws IOException {
@@ -147,4 +419,301 @@ public class UserDeserializer extends StdDeserializer<User> {
 
         return extensionBuilder.build();
     }
+
+    /**
+     * Reads the extension object the parser is positioned at. Unsupported values are skipped, so that the parser is
+     * left at the end of the object, and reported afterwards.
+     *
+     * @param bigDecimalForFloats if floats of undeclared fields are read exactly, like
+     *                            {@link DeserializationFeature#USE_BIG_DECIMAL_FOR_FLOATS} makes a tree do
+     */
+    private Extension deserializeExtension(JsonParser jp, String urn, boolean bigDecimalForFloats)
+            throws IOException {
+        Extension.Builder extensionBuilder = new Extension.Builder(urn);
+        ExtensionSchema extensionSchema = extensionSchemas != null ? extensionSchemas.getSchema(urn) : null;
+        String unsupportedType = null;
+        String malformedField = null;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jp.getCurrentName();
+            JsonToken token = jp.nextToken();
+            ExtensionFieldType<?> fieldType = extensionSchema != null ? extensionSchema.getFieldType(fieldName) : null;
+            if (fieldType != null && token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                if (!setField(extensionBuilder, fieldName, fieldType, jp, token) && malformedField == null) {
+                    malformedField = "Field '" + fieldName + "' of extension '" + urn + "' is not of type "
+                            + fieldType.getName();
+                }
+                continue;
+            }
+            switch (token) {
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    extensionBuilder.setField(fieldName, Boolean.valueOf(token == JsonToken.VALUE_TRUE));
+                    break;
+                case VALUE_STRING:
+                    extensionBuilder.setField(fieldName, jp.getText());
+                    break;
+                case VALUE_NUMBER_INT:
+                    extensionBuilder.setField(fieldName, jp.getBigIntegerValue());
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    // the same value as a number node of a tree would provide, even if the parser is a buffer that
+                    // holds the exact value of every float
+                    BigDecimal decimalValue = bigDecimalForFloats
+                            ? jp.getDecimalValue() : BigDecimal.valueOf(jp.getDoubleValue());
+                    extensionBuilder.setField(fieldName, decimalValue);
+                    break;
+                default:
+                    if (unsupportedType == null) {
+                        unsupportedType = nodeTypeOf(token).toString();
+                    }
+                    jp.skipChildren();
+            }
+        }
+        if (unsupportedType != null) {
+            throw new IllegalArgumentException("JSON type not supported: " + unsupportedType);
+        }
+        if (malformedField != null) {
+            throw new IllegalArgumentException(malformedField);
+        }
+        return extensionBuilder.build();
+    }
+
+    /**
+     * Copies the extension object the parser is positioned at, leaving the parser at its end. The fields are checked
+     * like {@link #deserializeExtension(JsonParser, String, boolean)} does, so that the copy can be decoded later without
+     * failing.
+     *
+     * @throws IllegalArgumentException if a field is not supported or does not match its declared type
+     */
+    private TokenBuffer copyExtension(JsonParser jp, DeserializationContext ctxt, String urn) throws IOException {
+        ExtensionSchema extensionSchema = extensionSchemas != null ? extensionSchemas.getSchema(urn) : null;
+        TokenBuffer buffer = new TokenBuffer(jp, ctxt);
+        buffer.copyCurrentEvent(jp);
+        String unsupportedType = null;
+        String malformedField = null;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jp.getCurrentName();
+            buffer.copyCurrentEvent(jp);
+            JsonToken token = jp.nextToken();
+            if (!token.isScalarValue() || token == JsonToken.VALUE_NULL) {
+                if (unsupportedType == null) {
+                    unsupportedType = nodeTypeOf(token).toString();
+                }
+                jp.skipChildren();
+                continue;
+            }
+            ExtensionFieldType<?> fieldType = extensionSchema != null ? extensionSchema.getFieldType(fieldName) : null;
+            if (fieldType != null && valueOf(fieldType, jp, token) == null && malformedField == null) {
+                malformedField = "Field '" + fieldName + "' of extension '" + urn + "' is not of type "
+                        + fieldType.getName();
+            }
+            buffer.copyCurrentEvent(jp);
+        }
+        buffer.copyCurrentEvent(jp);
+        if (unsupportedType != null) {
+            throw new IllegalArgumentException("JSON type not supported: " + unsupportedType);
+        }
+        if (malformedField != null) {
+            throw new IllegalArgumentException(malformedField);
+        }
+        return buffer;
+    }
+
+    /**
+     * Copies the multi-valued attribute the parser is positioned at, leaving the parser at its end. Its structure is
+     * checked like binding it would, i.e. every value has to be an object and its known fields scalars, so that a copy
+     * with a malformed structure fails right away. A scalar that does not convert to its field, e.g. a primary that is
+     * no boolean, only fails when the attribute is decoded.
+     *
+     * @throws JsonMappingException if a value is not an object or one of its known fields is not a scalar
+     */
+    private static TokenBuffer copyMultiValuedAttribute(JsonParser jp, DeserializationContext ctxt, String attribute)
+            throws IOException {
+        Set<String> fields = "addresses".equals(attribute) ? ADDRESS_FIELDS : MULTI_VALUED_ATTRIBUTE_FIELDS;
+        TokenBuffer buffer = new TokenBuffer(jp, ctxt);
+        buffer.copyCurrentEvent(jp);
+        JsonToken token;
+        while ((token = jp.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_NULL) {
+                buffer.copyCurrentEvent(jp);
+                continue;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw JsonMappingException.from(jp, "Values of '" + attribute + "' must be JSON objects");
+            }
+            buffer.copyCurrentEvent(jp);
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = jp.getCurrentName();
+                buffer.copyCurrentEvent(jp);
+                if (!jp.nextToken().isScalarValue() && fields.contains(fieldName)) {
+                    throw JsonMappingException.from(jp,
+                            "Field '" + fieldName + "' of '" + attribute + "' must be a JSON scalar");
+                }
+                buffer.copyCurrentStructure(jp);
+            }
+            buffer.copyCurrentEvent(jp);
+        }
+        buffer.copyCurrentEvent(jp);
+        return buffer;
+    }
+
+    /**
+     * Sets the scalar value the parser is positioned at as field of the given type.
+     *
+     * @return false if the value does not match the type
+     */
+    private static <T> boolean setField(Extension.Builder extensionBuilder, String fieldName,
+                                        ExtensionFieldType<T> fieldType, JsonParser jp, JsonToken token)
+            throws IOException {
+        Object value = valueOf(fieldType, jp, token);
+        if (value == null) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        T typedValue = (T) value;
+        extensionBuilder.setField(fieldName, typedValue, fieldType);
+        return true;
+    }
+
+    /**
+     * Reads the scalar value the parser is positioned at as value of the given type, taking numbers and booleans
+     * from the parser as they are and converting strings with the type.
+     *
+     * @return the value, or null if the value does not match the type
+     */
+    private static Object valueOf(ExtensionFieldType<?> fieldType, JsonParser jp, JsonToken token)
+            throws IOException {
+        Object value;
+        if (fieldType == ExtensionFieldType.INTEGER) {
+            value = token == JsonToken.VALUE_NUMBER_INT ? jp.getBigIntegerValue() : null;
+        } else if (fieldType == ExtensionFieldType.DECIMAL) {
+            value = token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT
+                    ? jp.getDecimalValue() : null;
+        } else if (fieldType == ExtensionFieldType.BOOLEAN) {
+            value = token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE
+                    ? Boolean.valueOf(token == JsonToken.VALUE_TRUE) : null;
+        } else if (fieldType == ExtensionFieldType.DATE_TIME && token == JsonToken.VALUE_STRING) {
+            try {
+                value = new Date(DateTimeCodec.parse(jp));
+            } catch (IllegalArgumentException e) {
+                value = null;
+            }
+        } else if (token == JsonToken.VALUE_STRING) {
+            try {
+                value = fieldType.fromString(jp.getText());
+            } catch (IllegalArgumentException e) {
+                value = null;
+            }
+        } else {
+            value = null;
+        }
+        return value;
+    }
+
+    /**
+     * Copies the value the parser is positioned at, leaving the parser at its end.
+     */
+    private static TokenBuffer copy(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(jp, ctxt);
+        buffer.copyCurrentStructure(jp);
+        return buffer;
+    }
+
+    private static ObjectReader readerFor(Class<?> type) {
+        ObjectReader reader = BOUND_EXTENSION_READERS.get(type);
+        if (reader == null) {
+            reader = MAPPER.readerFor(type);
+            BOUND_EXTENSION_READERS.putIfAbsent(type, reader);
+        }
+        return reader;
+    }
+
+    private static JsonNodeType nodeTypeOf(JsonToken token) {
+        switch (token) {
+            case START_OBJECT:
+                return JsonNodeType.OBJECT;
+            case START_ARRAY:
+                return JsonNodeType.ARRAY;
+            case VALUE_NULL:
+                return JsonNodeType.NULL;
+            default:
+                return JsonNodeType.POJO;
+        }
+    }
+
+    private static String readString(JsonParser jp) throws IOException {
+        switch (jp.getCurrentToken()) {
+            case VALUE_STRING:
+                return jp.getText();
+            case VALUE_NULL:
+                return null;
+            default:
+                return STRING_READER.readValue(jp);
+        }
+    }
+
+    private static Boolean readBoolean(JsonParser jp) throws IOException {
+        switch (jp.getCurrentToken()) {
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return BOOLEAN_READER.readValue(jp);
+        }
+    }
+
+    private static <V> Map<String, V> put(Map<String, V> map, String key, V value) {
+        Map<String, V> result = map != null ? map : new HashMap<String, V>();
+        result.put(key, value);
+        return result;
+    }
+
+    /**
+     * The multi-valued attributes and extensions of a user as copied tokens, which are bound when they are accessed.
+     */
+    private final class DeferredTokens implements DeferredAttributes {
+
+        private final Map<String, TokenBuffer> attributes;
+        private final Map<String, TokenBuffer> extensions;
+        private final boolean bigDecimalForFloats;
+
+        private DeferredTokens(Map<String, TokenBuffer> attributes, Map<String, TokenBuffer> extensions,
+                               boolean bigDecimalForFloats) {
+            this.attributes = attributes != null ? attributes : ImmutableMap.<String, TokenBuffer>of();
+            this.extensions = extensions;
+            this.bigDecimalForFloats = bigDecimalForFloats;
+        }
+
+        @Override
+        public boolean isDeferred(String attribute) {
+            return EXTENSIONS.equals(attribute) ? extensions != null : attributes.containsKey(attribute);
+        }
+
+        @Override
+        public boolean isExtensionDeferred(String urn) {
+            return extensions != null && extensions.containsKey(urn);
+        }
+
+        @Override
+        public Object decode(String attribute) {
+            try {
+                if (EXTENSIONS.equals(attribute)) {
+                    Map<String, Extension> decoded = new HashMap<>();
+                    for (Map.Entry<String, TokenBuffer> extension : extensions.entrySet()) {
+                        JsonParser jp = extension.getValue().asParser();
+                        jp.nextToken();
+                        decoded.put(extension.getKey(),
+                                deserializeExtension(jp, extension.getKey(), bigDecimalForFloats));
+                    }
+                    return decoded;
+                }
+                return MULTI_VALUED_ATTRIBUTE_READERS.get(attribute).readValue(attributes.get(attribute).asParser());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to decode " + attribute, e);
+            }
+        }
+    }
 }
@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.scim;
+
+import com.google.common.base.Strings;
+
+import java.io.Serializable;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A typed attribute of a resource that can be requested by a {@link Projection}, e.g. {@link User#USER_NAME}.
+ * <p>
+ * The path of an attribute is either the name of an attribute, e.g. {@code userName}, the name of an attribute and
+ * one of its sub-attributes, e.g. {@code meta.lastModified}, or the URN of an extension and the name of one of its
+ * fields, e.g. {@code urn:ietf:params:scim:schemas:extension:enterprise:2.0:User:employeeNumber}. Names are matched
+ * exactly, so they have to be given in the case OSIAM returns them.
+ * </p>
+ * <p>
+ * The value of a multi-valued attribute is a {@link List} with one entry per value of the attribute. If a
+ * sub-attribute of a multi-valued attribute is requested, e.g. {@code emails.value}, the list has an entry for each
+ * value, which is {@code null} if the value does not have the sub-attribute, so the lists of several sub-attributes
+ * line up.
+ * </p>
+ *
+ * @param <V> the type of the value of the attribute
+ */
+public final class Attribute<V> implements Serializable {
+
+    private static final long serialVersionUID = 2741873612540296181L;
+    private static final String URN_PREFIX = "urn:";
+
+    private final String path;
+    private final String name;
+    private final String subAttribute;
+    private final Class<?> type;
+    private final boolean multiValued;
+
+    private Attribute(String path, Class<?> type, boolean multiValued) {
+        checkArgument(!Strings.isNullOrEmpty(path), "The path can't be null or empty.");
+        checkNotNull(type, "The type can't be null.");
+        int separator = path.startsWith(URN_PREFIX) ? path.lastIndexOf(':') : path.indexOf('.');
+        if (path.startsWith(URN_PREFIX)) {
+            checkArgument(separator > URN_PREFIX.length() && separator < path.length() - 1,
+                    "The path %s does not name a field of an extension.", path);
+            checkArgument(!multiValued, "The field %s of an extension can't be multi-valued.", path);
+        } else {
+            checkArgument(separator != 0 && separator < path.length() - 1 && path.indexOf('.', separator + 1) < 0,
+                    "The path %s is not an attribute or a sub-attribute.", path);
+        }
+        this.path = path;
+        this.name = separator < 0 ? path : path.substring(0, separator);
+        this.subAttribute = separator < 0 ? null : path.substring(separator + 1);
+        this.type = type;
+        this.multiValued = multiValued;
+    }
+
+    /**
+     * Creates a single-valued attribute.
+     *
+     * @param path the path of the attribute, e.g. {@code meta.lastModified}
+     * @param type the type of the value, e.g. {@link java.util.Date}
+     * @param <V>  the type of the value
+     * @return the attribute
+     * @throws IllegalArgumentException if the path is not valid
+     */
+    public static <V> Attribute<V> of(String path, Class<V> type) {
+        return new Attribute<>(path, type, false);
+    }
+
+    /**
+     * Creates a multi-valued attribute or a sub-attribute of a multi-valued attribute.
+     *
+     * @param path        the path of the attribute, e.g. {@code emails} or {@code emails.value}
+     * @param elementType the type of a single value, e.g. {@link Email} or {@link String}
+     * @param <E>         the type of a single value
+     * @return the attribute
+     * @throws IllegalArgumentException if the path is not valid
+     */
+    public static <E> Attribute<List<E>> multiValued(String path, Class<E> elementType) {
+        return new Attribute<>(path, elementType, true);
+    }
+
+    /**
+     * @return the path of the attribute, as it is given in the {@code attributes} parameter
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the name of the attribute, or the URN of the extension
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the name of the sub-attribute, or {@code null} if the whole attribute is requested
+     */
+    public String getSubAttribute() {
+        return subAttribute;
+    }
+
+    /**
+     * @return the type of a single value of the attribute
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return true if the value of the attribute is a {@link List}
+     */
+    public boolean isMultiValued() {
+        return multiValued;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = path.hashCode();
+        result = 31 * result + type.hashCode();
+        return 31 * result + (multiValued ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        Attribute<?> other = (Attribute<?>) obj;
+        return path.equals(other.path) && type.equals(other.type) && multiValued == other.multiValued;
+    }
+
+    @Override
+    public String toString() {
+        return "Attribute [path=" + path + ", type=" + type.getSimpleName() + ", multiValued=" + multiValued + "]";
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.scim;
+
+/**
+ * Attributes of a {@link User} that are decoded when they are accessed for the first time, instead of when the user
+ * is read. See {@link User.Builder#setDeferredAttributes(DeferredAttributes)}.
+ * <p>
+ * Implementations must be thread-safe. A {@link User} decodes each attribute at most once per thread that races for
+ * it and keeps the first result.
+ * </p>
+ */
+public interface DeferredAttributes {
+
+    /**
+     * @param attribute the name of a multi-valued attribute, e.g. {@code emails}, or {@code extensions}
+     * @return true if the attribute is deferred
+     */
+    boolean isDeferred(String attribute);
+
+    /**
+     * Tells if an extension is deferred without decoding the extensions. Only asked if {@code extensions} is
+     * deferred.
+     *
+     * @param urn the URN of an extension
+     * @return true if the extension with the given URN is part of the deferred extensions
+     */
+    boolean isExtensionDeferred(String urn);
+
+    /**
+     * Decodes the deferred attribute with the given name.
+     *
+     * @param attribute the name of a multi-valued attribute, e.g. {@code emails}, or {@code extensions}
+     * @return a {@link java.util.List} of the values of a multi-valued attribute, or a {@link java.util.Map} of the
+     * {@link Extension}s by their URN for {@code extensions}
+     * @throws IllegalArgumentException if the attribute can't be decoded
+     */
+    Object decode(String attribute);
+}
@@ -23,10 +23,27 @@
  */
 package org.osiam.resources.scim;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+
+import java.io.Serializable;
+
 /**
  * Java class for extension enterprise.
+ * <p>
+ * Register it for {@link #SCHEMA} with
+ * {@link org.osiam.resources.helper.ExtensionSchemaRegistry#registerType(String, Class)} to read the extension with
+ * {@link User#getExtension(String, Class)}.
+ * </p>
  */
-public final class Enterprise {
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonDeserialize(builder = Enterprise.Builder.class)
+public final class Enterprise implements Serializable {
+
+    public static final String SCHEMA = "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User";
+    private static final long serialVersionUID = 6375128731289063716L;
 
     private final String employeeNumber;
     private final String costCenter;
@@ -68,6 +85,8 @@ public final class Enterprise {
         return manager;
     }
 
+    @JsonPOJOBuilder(withPrefix = "set")
+    @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Builder {
         private String employeeNumber;
         private String costCenter;
@@ -30,6 +30,8 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.collect.ImmutableMap;
 import org.osiam.resources.helper.ExtensionSerializer;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -97,7 +99,7 @@ public final class Extension implements Serializable {
             throw new NoSuchElementException("Field " + field + " not valid in this extension");
         }
 
-        return extensionFieldType.fromString(fields.get(field).value);
+        return fields.get(field).getValue(extensionFieldType);
     }
 
     /**
@@ -400,7 +402,7 @@ public final class Extension implements Serializable {
             if (type == null) {
                 throw new IllegalArgumentException("The type can't be null.");
             }
-            fields.put(fieldName, new Field(type, type.toString(value)));
+            fields.put(fieldName, new Field(type, type.copy(value), null));
             return this;
         }
 
@@ -422,13 +424,19 @@ public final class Extension implements Serializable {
 
     /**
      * This class represents a field of an extension with its type and value. Instances of this class are immutable.
+     * <p>
+     * The value is kept in its native type, e.g. {@link BigInteger} for {@link ExtensionFieldType#INTEGER}, so it is
+     * not parsed again on every read. The string form is only created when it is needed.
+     * </p>
      */
     public static final class Field implements Serializable {
 
         private static final long serialVersionUID = 5733905110534921573L;
 
         private final ExtensionFieldType<?> type;
-        private final String value;
+        // both are computed from each other on demand, a racy recomputation is harmless
+        private String value;
+        private transient Object nativeValue;
 
         /**
          * Constructs a new {@link Field} with the given type and value.
@@ -441,6 +449,12 @@ public final class Extension implements Serializable {
             this.value = value;
         }
 
+        <T> Field(ExtensionFieldType<T> type, T nativeValue, String value) {
+            this.type = type;
+            this.nativeValue = nativeValue;
+            this.value = value;
+        }
+
         /**
          * Returns the type of the {@link Field}
          *
@@ -456,7 +470,43 @@ public final class Extension implements Serializable {
          * @return the value of the {@link Field}
          */
         public String getValue() {
-            return value;
+            String stringValue = value;
+            if (stringValue == null && nativeValue != null) {
+                stringValue = toString(type, nativeValue);
+                value = stringValue;
+            }
+            return stringValue;
+        }
+
+        /**
+         * Returns the value of the {@link Field} as the given type. If the given type is the type of the field, the
+         * value is returned without parsing it.
+         *
+         * @param type the type to return the value as
+         * @return the value of the {@link Field}
+         * @throws IllegalArgumentException if the value cannot be converted to the given type
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getValue(ExtensionFieldType<T> type) {
+            if (type != this.type) {
+                return type.fromString(getValue());
+            }
+            Object typedValue = nativeValue;
+            if (typedValue == null) {
+                typedValue = type.fromString(value);
+                nativeValue = typedValue;
+            }
+            return type.copy((T) typedValue);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> String toString(ExtensionFieldType<T> type, Object nativeValue) {
+            return type.toString((T) nativeValue);
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            getValue();
+            out.defaultWriteObject();
         }
 
         @Override
@@ -464,6 +514,7 @@ public final class Extension implements Serializable {
             final int prime = 31;
             int result = 1;
             result = prime * result + ((type == null) ? 0 : type.hashCode());
+            String value = getValue();
             result = prime * result + ((value == null) ? 0 : value.hashCode());
             return result;
         }
@@ -487,11 +538,13 @@ public final class Extension implements Serializable {
             } else if (!type.equals(other.type)) {
                 return false;
             }
+            String value = getValue();
+            String otherValue = other.getValue();
             if (value == null) {
-                if (other.value != null) {
+                if (otherValue != null) {
                     return false;
                 }
-            } else if (!value.equals(other.value)) {
+            } else if (!value.equals(otherValue)) {
                 return false;
             }
             return true;
@@ -499,7 +552,7 @@ public final class Extension implements Serializable {
 
         @Override
         public String toString() {
-            return "Field [type=" + type + ", value=" + value + "]";
+            return "Field [type=" + type + ", value=" + getValue() + "]";
         }
 
     }
@@ -24,8 +24,7 @@
 package org.osiam.resources.scim;
 
 import com.google.common.io.BaseEncoding;
-import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.ISODateTimeFormat;
+import org.osiam.resources.helper.DateTimeCodec;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -149,6 +148,11 @@ public abstract class ExtensionFieldType<T> implements Serializable {
             return BaseEncoding.base64().encode(value.array());
         }
 
+        @Override
+        ByteBuffer copy(ByteBuffer value) {
+            return ByteBuffer.wrap(value.array().clone());
+        }
+
     };
     /**
      * ExtensionFieldType for the Scim type Reference (actual type is {@link URI})
@@ -173,10 +177,6 @@ public abstract class ExtensionFieldType<T> implements Serializable {
 
     };
     private static final long serialVersionUID = 5665143978696725609L;
-    /**
-     * Since this field can not be serialized, it will be created when the object is de-serialized (see readObject()).
-     */
-    private static DateTimeFormatter dateTimeFormatter = ISODateTimeFormat.dateTime().withZoneUTC();
     /**
      * ExtensionFieldType for the Scim type DateTime (actual type is {@link Date}). Valid values are in ISO
      * DateTimeFormat with the timeZone UTC like '2011-08-01T18:29:49.000Z'
@@ -189,9 +189,8 @@ public abstract class ExtensionFieldType<T> implements Serializable {
         public Date fromString(String stringValue) {
             ensureValueIsNotNull(stringValue);
             try {
-                long millis = dateTimeFormatter.parseDateTime(stringValue).getMillis();
-                return new Date(millis);
-            } catch (NumberFormatException e) {
+                return new Date(DateTimeCodec.parse(stringValue));
+            } catch (IllegalArgumentException e) {
                 throw createConversionException(stringValue, "Date", e);
             }
         }
@@ -199,7 +198,12 @@ public abstract class ExtensionFieldType<T> implements Serializable {
         @Override
         public String toString(Date value) {
             ensureValueIsNotNull(value);
-            return dateTimeFormatter.print(value.getTime());
+            return DateTimeCodec.format(value.getTime());
+        }
+
+        @Override
+        Date copy(Date value) {
+            return new Date(value.getTime());
         }
 
     };
@@ -253,6 +257,20 @@ public abstract class ExtensionFieldType<T> implements Serializable {
      */
     public abstract String toString(T value);
 
+    /**
+     * Keeps the types singletons when they are deserialized, as fields compare them by identity.
+     */
+    Object readResolve() {
+        return valueOf(name);
+    }
+
+    /**
+     * Copies the given value if it is mutable, so that a value stored in an {@link Extension} cannot be changed.
+     */
+    T copy(T value) {
+        return value;
+    }
+
     /**
      * Returns the name of the {@link ExtensionFieldType}
      *
@@ -0,0 +1,211 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.scim;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The schema of an {@link Extension}, i.e. its URN and the {@link ExtensionFieldType} of each of its fields.
+ * <p>
+ * A schema can be built with the {@link Builder} or read from the SCIM representation of a schema as provided by the
+ * {@code /Schemas} endpoint. Attributes of types that extensions do not support, e.g. {@code complex}, are left out.
+ * </p>
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class ExtensionSchema implements Serializable {
+
+    private static final long serialVersionUID = -4906521937564802376L;
+
+    private final String urn;
+    private final Map<String, ExtensionFieldType<?>> fieldTypes;
+
+    @JsonCreator
+    private ExtensionSchema(@JsonProperty("id") String urn,
+                            @JsonProperty("attributes") List<SchemaAttribute> attributes) {
+        if (urn == null || urn.isEmpty()) {
+            throw new IllegalArgumentException("The URN can't be null or empty.");
+        }
+        this.urn = urn;
+        ImmutableMap.Builder<String, ExtensionFieldType<?>> fieldTypes = ImmutableMap.builder();
+        if (attributes != null) {
+            for (SchemaAttribute attribute : attributes) {
+                ExtensionFieldType<?> fieldType = fieldTypeOf(attribute.type);
+                if (attribute.name != null && fieldType != null) {
+                    fieldTypes.put(attribute.name, fieldType);
+                }
+            }
+        }
+        this.fieldTypes = fieldTypes.build();
+    }
+
+    private ExtensionSchema(Builder builder) {
+        this.urn = builder.urn;
+        this.fieldTypes = ImmutableMap.copyOf(builder.fieldTypes);
+    }
+
+    /**
+     * Returns the URN of the extension.
+     *
+     * @return the URN
+     */
+    public String getUrn() {
+        return urn;
+    }
+
+    /**
+     * Returns the type of the given field.
+     *
+     * @param field the name of the field
+     * @return the type of the field, or {@code null} if the schema does not contain the field
+     */
+    public ExtensionFieldType<?> getFieldType(String field) {
+        return fieldTypes.get(field);
+    }
+
+    /**
+     * Returns the types of all fields of the extension. Note that the returned {@link Map} is immutable.
+     *
+     * @return the types of the fields by their name
+     */
+    public Map<String, ExtensionFieldType<?>> getFieldTypes() {
+        return fieldTypes;
+    }
+
+    /**
+     * Maps the SCIM attribute types, e.g. {@code dateTime}, and the names of the {@link ExtensionFieldType}s, e.g.
+     * {@code DATE_TIME}, to the {@link ExtensionFieldType}.
+     */
+    private static ExtensionFieldType<?> fieldTypeOf(String type) {
+        if (type == null) {
+            return null;
+        }
+        switch (type.replace("_", "").toUpperCase(Locale.ENGLISH)) {
+            case "STRING":
+                return ExtensionFieldType.STRING;
+            case "BOOLEAN":
+                return ExtensionFieldType.BOOLEAN;
+            case "DECIMAL":
+                return ExtensionFieldType.DECIMAL;
+            case "INTEGER":
+                return ExtensionFieldType.INTEGER;
+            case "DATETIME":
+                return ExtensionFieldType.DATE_TIME;
+            case "BINARY":
+                return ExtensionFieldType.BINARY;
+            case "REFERENCE":
+                return ExtensionFieldType.REFERENCE;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * urn.hashCode() + fieldTypes.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ExtensionSchema other = (ExtensionSchema) obj;
+        return urn.equals(other.urn) && fieldTypes.equals(other.fieldTypes);
+    }
+
+    @Override
+    public String toString() {
+        return "ExtensionSchema [urn=" + urn + ", fieldTypes=" + fieldTypes + "]";
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static final class SchemaAttribute {
+
+        private final String name;
+        private final String type;
+
+        @JsonCreator
+        private SchemaAttribute(@JsonProperty("name") String name, @JsonProperty("type") String type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Builder class that is used to build {@link ExtensionSchema} instances
+     */
+    public static class Builder {
+
+        private final String urn;
+        private final Map<String, ExtensionFieldType<?>> fieldTypes = new LinkedHashMap<>();
+
+        /**
+         * Constructs a schema of the extension with the given URN.
+         *
+         * @param urn the URN of the extension
+         * @throws IllegalArgumentException if the given URN is null or empty
+         */
+        public Builder(String urn) {
+            if (urn == null || urn.isEmpty()) {
+                throw new IllegalArgumentException("The URN can't be null or empty.");
+            }
+            this.urn = urn;
+        }
+
+        /**
+         * Adds a field of the given type.
+         *
+         * @param fieldName the name of the field
+         * @param type      the type of the field
+         * @return the builder itself
+         * @throws IllegalArgumentException if the field name is null or empty, or the type is null
+         */
+        public Builder addField(String fieldName, ExtensionFieldType<?> type) {
+            if (fieldName == null || fieldName.isEmpty()) {
+                throw new IllegalArgumentException("The field name can't be null or empty.");
+            }
+            if (type == null) {
+                throw new IllegalArgumentException("The type can't be null.");
+            }
+            fieldTypes.put(fieldName, type);
+            return this;
+        }
+
+        public ExtensionSchema build() {
+            return new ExtensionSchema(this);
+        }
+    }
+}
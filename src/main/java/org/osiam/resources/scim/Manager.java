@@ -23,15 +23,29 @@
  */
 package org.osiam.resources.scim;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+
 /**
  * Java class for manager complex type.
  */
-public final class Manager {
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class Manager implements Serializable {
+
+    private static final long serialVersionUID = -1480398512765304431L;
 
     private final String managerId;
     private final String displayName;
 
-    public Manager(String managerId, String displayName) {
+    @JsonCreator
+    public Manager(@JsonProperty("value") @JsonAlias("managerId") String managerId,
+                   @JsonProperty("displayName") String displayName) {
         this.managerId = managerId;
         this.displayName = displayName;
     }
@@ -41,6 +55,7 @@ public final class Manager {
      *
      * @return possible object is {@link String }
      */
+    @JsonProperty("value")
     public String getManagerId() {
         return managerId;
     }
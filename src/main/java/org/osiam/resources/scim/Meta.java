@@ -25,7 +25,9 @@ package org.osiam.resources.scim;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.osiam.resources.helper.JsonDateDeserializer;
 import org.osiam.resources.helper.JsonDateSerializer;
 
 import java.io.Serializable;
@@ -54,8 +56,10 @@ public final class Meta implements Serializable {
     private final Set<String> attributes;
     private final String resourceType;
 
-    public Meta(@JsonProperty("created") @JsonSerialize(using = JsonDateSerializer.class) Date created,
-                @JsonProperty("lastModified") @JsonSerialize(using = JsonDateSerializer.class) Date lastModified,
+    public Meta(@JsonProperty("created") @JsonSerialize(using = JsonDateSerializer.class)
+                @JsonDeserialize(using = JsonDateDeserializer.class) Date created,
+                @JsonProperty("lastModified") @JsonSerialize(using = JsonDateSerializer.class)
+                @JsonDeserialize(using = JsonDateDeserializer.class) Date lastModified,
                 @JsonProperty("location") String location,
                 @JsonProperty("version") String version,
                 @JsonProperty("attributes") Set<String> attributes,
@@ -0,0 +1,117 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.scim;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A resource that holds only the values of the attributes of a {@link Projection}, see
+ * {@link org.osiam.client.OsiamConnector#getUser(String, org.osiam.client.oauth.AccessToken, Projection)}.
+ * <p>
+ * To bind the JSON representation of a resource, the projection has to be given as attribute {@code Projection.class}
+ * of the {@link com.fasterxml.jackson.databind.ObjectReader}, e.g.
+ * {@code mapper.readerFor(ProjectedResource.class).withAttribute(Projection.class, projection)}.
+ * </p>
+ */
+@JsonDeserialize(using = ProjectedResource.Deserializer.class)
+public final class ProjectedResource {
+
+    private final Projection projection;
+    private final String id;
+    private final Object[] values;
+
+    ProjectedResource(Projection projection, String id, Object[] values) {
+        this.projection = projection;
+        this.id = id;
+        this.values = values;
+    }
+
+    /**
+     * Returns the id of the resource, which OSIAM returns regardless of the requested attributes.
+     *
+     * @return the id of the resource
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the projection the resource has been retrieved with
+     */
+    public Projection getProjection() {
+        return projection;
+    }
+
+    /**
+     * Returns the value of the given attribute. The value of a multi-valued attribute is an immutable {@link List},
+     * which is empty if the resource does not have the attribute.
+     *
+     * @param attribute an attribute of the projection
+     * @param <V>       the type of the value
+     * @return the value of the attribute, or {@code null} if the resource does not have the attribute
+     * @throws IllegalArgumentException if the attribute is not part of the projection
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Attribute<V> attribute) {
+        Object value = values[projection.indexOf(attribute)];
+        if (value == null && attribute.isMultiValued()) {
+            return (V) Collections.emptyList();
+        }
+        return (V) value;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("ProjectedResource [id=").append(id);
+        List<Attribute<?>> attributes = projection.getAttributes();
+        for (int i = 0; i < attributes.size(); i++) {
+            result.append(", ").append(attributes.get(i).getPath()).append('=').append(values[i]);
+        }
+        return result.append(']').toString();
+    }
+
+    private static final class Deserializer extends StdDeserializer<ProjectedResource> {
+
+        private Deserializer() {
+            super(ProjectedResource.class);
+        }
+
+        @Override
+        public ProjectedResource deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            Object projection = ctxt.getAttribute(Projection.class);
+            if (!(projection instanceof Projection)) {
+                throw JsonMappingException.from(jp, "No projection to bind the resource with");
+            }
+            return ((Projection) projection).read(jp, ctxt);
+        }
+    }
+}
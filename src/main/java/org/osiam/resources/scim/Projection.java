@@ -0,0 +1,334 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.scim;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.osiam.resources.helper.DateTimeCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The attributes of resources to retrieve, e.g. {@code Projection.of(User.USER_NAME, User.EMAILS_VALUE)}. A projection
+ * renders the {@code attributes} parameter of requests, so OSIAM only returns the requested attributes, and binds the
+ * responses into {@link ProjectedResource}s, which hold only the values of the requested attributes.
+ * <p>
+ * The parameter and the plan to bind responses are built once, when the projection is created, so projections should
+ * be kept in constants and reused. Projections are immutable and thread-safe.
+ * </p>
+ */
+public final class Projection {
+
+    private final List<Attribute<?>> attributes;
+    private final Map<Attribute<?>, Integer> indexes;
+    private final Map<String, Node> nodes;
+    private final String attributesParameter;
+
+    private Projection(List<Attribute<?>> attributes) {
+        this.attributes = ImmutableList.copyOf(attributes);
+        Map<Attribute<?>, Integer> indexes = new HashMap<>();
+        Set<String> paths = new HashSet<>();
+        Map<String, Node> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute<?> attribute = attributes.get(i);
+            checkArgument(paths.add(attribute.getPath()),
+                    "The attribute %s is requested more than once.", attribute.getPath());
+            indexes.put(attribute, i);
+            Node node = nodes.get(attribute.getName());
+            if (node == null) {
+                node = new Node(attribute.isMultiValued());
+                nodes.put(attribute.getName(), node);
+            }
+            checkArgument(node.multiValued == attribute.isMultiValued(),
+                    "The attribute %s is requested as single-valued and as multi-valued.", attribute.getName());
+            node.add(attribute, i);
+        }
+        this.indexes = ImmutableMap.copyOf(indexes);
+        this.nodes = ImmutableMap.copyOf(nodes);
+        this.attributesParameter = Joiner.on(',').join(pathsOf(attributes));
+    }
+
+    /**
+     * Creates a projection of the given attributes.
+     *
+     * @param attributes the attributes to retrieve
+     * @return the projection
+     * @throws IllegalArgumentException if no attributes are given, an attribute is given more than once, or an
+     *                                  attribute is given as single-valued and as multi-valued
+     */
+    public static Projection of(Attribute<?>... attributes) {
+        checkNotNull(attributes, "The attributes can't be null.");
+        checkArgument(attributes.length > 0, "A projection needs at least one attribute.");
+        for (Attribute<?> attribute : attributes) {
+            checkNotNull(attribute, "The attributes can't contain null.");
+        }
+        return new Projection(Arrays.<Attribute<?>>asList(attributes));
+    }
+
+    /**
+     * @return the requested attributes, in the order they were given. Note that the returned {@link List} is
+     * immutable.
+     */
+    public List<Attribute<?>> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return the paths of the requested attributes, separated by commas, as given in the {@code attributes} parameter
+     */
+    public String getAttributesParameter() {
+        return attributesParameter;
+    }
+
+    /**
+     * @return true if the given attribute is part of this projection
+     */
+    public boolean contains(Attribute<?> attribute) {
+        return indexes.containsKey(attribute);
+    }
+
+    /**
+     * @return the position of the given attribute in this projection
+     * @throws IllegalArgumentException if the attribute is not part of this projection
+     */
+    int indexOf(Attribute<?> attribute) {
+        Integer index = indexes.get(attribute);
+        checkArgument(index != null, "The attribute %s is not part of the projection.", attribute);
+        return index;
+    }
+
+    /**
+     * Binds the resource the parser is positioned at, leaving the parser at its end. Attributes that are not part of
+     * this projection are skipped without being decoded.
+     */
+    ProjectedResource read(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jp.nextToken();
+        }
+        if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            ctxt.reportWrongTokenException(ProjectedResource.class, JsonToken.START_OBJECT,
+                    "A resource has to be an object.");
+        }
+        String id = null;
+        Object[] values = new Object[attributes.size()];
+        for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            String name = jp.getCurrentName();
+            jp.nextToken();
+            if ("id".equals(name)) {
+                id = jp.getValueAsString();
+            }
+            Node node = nodes.get(name);
+            if (node != null) {
+                node.read(name, jp, ctxt, values);
+            } else {
+                jp.skipChildren();
+            }
+        }
+        return new ProjectedResource(this, id, values);
+    }
+
+    private static List<String> pathsOf(List<Attribute<?>> attributes) {
+        List<String> paths = new ArrayList<>(attributes.size());
+        for (Attribute<?> attribute : attributes) {
+            paths.add(attribute.getPath());
+        }
+        return paths;
+    }
+
+    private static Object decode(JsonParser jp, DeserializationContext ctxt, Class<?> type) throws IOException {
+        if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (type == Date.class && jp.getCurrentToken() == JsonToken.VALUE_STRING) {
+            try {
+                return new Date(DateTimeCodec.parse(jp));
+            } catch (IllegalArgumentException e) {
+                throw ctxt.weirdStringException(jp.getText(), Date.class, e.getMessage());
+            }
+        }
+        return ctxt.readValue(jp, type);
+    }
+
+    @Override
+    public int hashCode() {
+        return attributes.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return attributes.equals(((Projection) obj).attributes);
+    }
+
+    @Override
+    public String toString() {
+        return "Projection [attributes=" + attributesParameter + "]";
+    }
+
+    /**
+     * The requested parts of an attribute: the whole attribute, some of its sub-attributes, or both.
+     */
+    private final class Node {
+
+        private final boolean multiValued;
+        private final Map<String, Integer> subAttributes = new HashMap<>();
+        private int whole = -1;
+
+        private Node(boolean multiValued) {
+            this.multiValued = multiValued;
+        }
+
+        private void add(Attribute<?> attribute, int index) {
+            if (attribute.getSubAttribute() == null) {
+                whole = index;
+            } else {
+                subAttributes.put(attribute.getSubAttribute(), index);
+            }
+        }
+
+        private void read(String name, JsonParser jp, DeserializationContext ctxt, Object[] values)
+                throws IOException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            if (!multiValued) {
+                readValue(name, jp, ctxt, values);
+                return;
+            }
+            if (jp.getCurrentToken() != JsonToken.START_ARRAY) {
+                ctxt.reportWrongTokenException(ProjectedResource.class, JsonToken.START_ARRAY,
+                        "The attribute %s has to be multi-valued.", name);
+            }
+            List<Integer> indexes = new ArrayList<>(subAttributes.values());
+            if (whole >= 0) {
+                indexes.add(whole);
+            }
+            for (int index : indexes) {
+                values[index] = new ArrayList<>();
+            }
+            int count = 0;
+            while (jp.nextToken() != JsonToken.END_ARRAY) {
+                readValue(name, jp, ctxt, values);
+                count++;
+                // values without a requested sub-attribute get a null entry, so the lists line up
+                for (int index : indexes) {
+                    List<Object> list = listAt(values, index);
+                    if (list.size() < count) {
+                        list.add(null);
+                    }
+                }
+            }
+            for (int index : indexes) {
+                values[index] = Collections.unmodifiableList(listAt(values, index));
+            }
+        }
+
+        /**
+         * Reads a single value of the attribute, which is buffered if it is requested as a whole as well as by its
+         * sub-attributes.
+         */
+        private void readValue(String name, JsonParser jp, DeserializationContext ctxt, Object[] values)
+                throws IOException {
+            JsonParser subAttributeParser = jp;
+            if (whole >= 0) {
+                TokenBuffer buffer = null;
+                JsonParser wholeParser = jp;
+                if (!subAttributes.isEmpty() && jp.getCurrentToken() == JsonToken.START_OBJECT) {
+                    buffer = new TokenBuffer(jp, ctxt);
+                    buffer.copyCurrentStructure(jp);
+                    wholeParser = parserOf(buffer, jp);
+                    subAttributeParser = parserOf(buffer, jp);
+                }
+                put(values, whole, decode(wholeParser, ctxt, attributes.get(whole).getType()));
+                if (buffer == null) {
+                    return;
+                }
+            }
+            readSubAttributes(name, subAttributeParser, ctxt, values);
+        }
+
+        private void readSubAttributes(String name, JsonParser jp, DeserializationContext ctxt, Object[] values)
+                throws IOException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+                ctxt.reportWrongTokenException(ProjectedResource.class, JsonToken.START_OBJECT,
+                        "The attribute %s has to be complex.", name);
+            }
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                Integer index = subAttributes.get(jp.getCurrentName());
+                jp.nextToken();
+                if (index != null) {
+                    put(values, index, decode(jp, ctxt, attributes.get(index).getType()));
+                } else {
+                    jp.skipChildren();
+                }
+            }
+        }
+
+        private void put(Object[] values, int index, Object value) {
+            if (multiValued) {
+                listAt(values, index).add(value);
+            } else {
+                values[index] = value;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Object> listAt(Object[] values, int index) {
+            return (List<Object>) values[index];
+        }
+
+        private JsonParser parserOf(TokenBuffer buffer, JsonParser jp) throws IOException {
+            JsonParser parser = buffer.asParser(jp.getCodec());
+            parser.nextToken();
+            return parser;
+        }
+    }
+}
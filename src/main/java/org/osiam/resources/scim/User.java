@@ -37,11 +37,14 @@ import org.osiam.resources.exception.SCIMDataValidationException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * User resources are meant to enable expression of common User information. It should be possible to express most user
@@ -56,6 +59,38 @@ import java.util.Set;
 public final class User extends Resource implements Serializable {
 
     public static final String SCHEMA = "urn:ietf:params:scim:schemas:core:2.0:User";
+
+    public static final Attribute<String> EXTERNAL_ID = Attribute.of("externalId", String.class);
+    public static final Attribute<String> USER_NAME = Attribute.of("userName", String.class);
+    public static final Attribute<Name> NAME = Attribute.of("name", Name.class);
+    public static final Attribute<String> NAME_FORMATTED = Attribute.of("name.formatted", String.class);
+    public static final Attribute<String> NAME_FAMILY_NAME = Attribute.of("name.familyName", String.class);
+    public static final Attribute<String> NAME_GIVEN_NAME = Attribute.of("name.givenName", String.class);
+    public static final Attribute<String> DISPLAY_NAME = Attribute.of("displayName", String.class);
+    public static final Attribute<String> NICK_NAME = Attribute.of("nickName", String.class);
+    public static final Attribute<String> TITLE = Attribute.of("title", String.class);
+    public static final Attribute<String> USER_TYPE = Attribute.of("userType", String.class);
+    public static final Attribute<String> PREFERRED_LANGUAGE = Attribute.of("preferredLanguage", String.class);
+    public static final Attribute<String> LOCALE = Attribute.of("locale", String.class);
+    public static final Attribute<String> TIMEZONE = Attribute.of("timezone", String.class);
+    public static final Attribute<Boolean> ACTIVE = Attribute.of("active", Boolean.class);
+    public static final Attribute<List<Email>> EMAILS = Attribute.multiValued("emails", Email.class);
+    public static final Attribute<List<String>> EMAILS_VALUE = Attribute.multiValued("emails.value", String.class);
+    public static final Attribute<List<Boolean>> EMAILS_PRIMARY =
+            Attribute.multiValued("emails.primary", Boolean.class);
+    public static final Attribute<List<PhoneNumber>> PHONE_NUMBERS =
+            Attribute.multiValued("phoneNumbers", PhoneNumber.class);
+    public static final Attribute<List<String>> PHONE_NUMBERS_VALUE =
+            Attribute.multiValued("phoneNumbers.value", String.class);
+    public static final Attribute<List<GroupRef>> GROUPS = Attribute.multiValued("groups", GroupRef.class);
+    public static final Attribute<List<String>> GROUPS_VALUE = Attribute.multiValued("groups.value", String.class);
+    public static final Attribute<List<String>> GROUPS_DISPLAY =
+            Attribute.multiValued("groups.display", String.class);
+    public static final Attribute<Meta> META = Attribute.of("meta", Meta.class);
+    public static final Attribute<Date> META_CREATED = Attribute.of("meta.created", Date.class);
+    public static final Attribute<Date> META_LAST_MODIFIED = Attribute.of("meta.lastModified", Date.class);
+    public static final Attribute<String> META_VERSION = Attribute.of("meta.version", String.class);
+
     private static final long serialVersionUID = -4076516708797425414L;
 
     private final String userName;
@@ -80,6 +115,9 @@ public final class User extends Resource implements Serializable {
     private final List<Role> roles;
     private final List<X509Certificate> x509Certificates;
     private final Map<String, Extension> extensions;
+    private final Map<String, Object> boundExtensions;
+    private final transient DeferredAttributes deferredAttributes;
+    private final transient ConcurrentMap<String, Object> decodedAttributes;
 
     @JsonCreator
     private User(@JsonProperty("id") String id,
@@ -108,6 +146,18 @@ public final class User extends Resource implements Serializable {
                  @JsonProperty("roles") List<Role> roles,
                  @JsonProperty("x509Certificates") List<X509Certificate> x509Certificates,
                  @JsonProperty("extensions") Map<String, Extension> extensions) {
+        this(id, externalId, meta, schemas, userName, name, displayName, nickName, profileUrl, title, userType,
+                preferredLanguage, locale, timezone, active, password, emails, phoneNumbers, ims, photos, addresses,
+                groups, entitlements, roles, x509Certificates, extensions, null, null);
+    }
+
+    private User(String id, String externalId, Meta meta, Set<String> schemas, String userName, Name name,
+                 String displayName, String nickName, String profileUrl, String title, String userType,
+                 String preferredLanguage, String locale, String timezone, Boolean active, String password,
+                 List<Email> emails, List<PhoneNumber> phoneNumbers, List<Im> ims, List<Photo> photos,
+                 List<Address> addresses, List<GroupRef> groups, List<Entitlement> entitlements, List<Role> roles,
+                 List<X509Certificate> x509Certificates, Map<String, Extension> extensions,
+                 Map<String, Object> boundExtensions, DeferredAttributes deferredAttributes) {
         super(id, externalId, meta, schemas);
         this.userName = userName != null ? userName : "";
         this.name = name;
@@ -133,6 +183,10 @@ public final class User extends Resource implements Serializable {
         this.x509Certificates = x509Certificates != null ? ImmutableList.copyOf(x509Certificates) : ImmutableList.<X509Certificate>of();
 
         this.extensions = extensions != null ? ImmutableMap.copyOf(extensions) : ImmutableMap.<String, Extension>of();
+        this.boundExtensions = boundExtensions != null
+                ? ImmutableMap.copyOf(boundExtensions) : ImmutableMap.<String, Object>of();
+        this.deferredAttributes = deferredAttributes;
+        this.decodedAttributes = deferredAttributes != null ? new ConcurrentHashMap<String, Object>() : null;
     }
 
     User(Builder builder) {
@@ -141,7 +195,20 @@ public final class User extends Resource implements Serializable {
                 builder.title, builder.userType, builder.preferredLanguage, builder.locale, builder.timezone,
                 builder.active, builder.password, builder.emails, builder.phoneNumbers, builder.ims,
                 builder.photos, builder.addresses, builder.groups, builder.entitlements, builder.roles,
-                builder.x509Certificates, builder.extensions);
+                builder.x509Certificates, builder.extensions, builder.boundExtensions, builder.deferredAttributes);
+    }
+
+    /**
+     * Serializes a user with deferred attributes as a user with all attributes decoded.
+     */
+    private Object writeReplace() {
+        if (deferredAttributes == null) {
+            return this;
+        }
+        return new User(getId(), getExternalId(), getMeta(), getSchemas(), userName, name, displayName, nickName,
+                profileUrl, title, userType, preferredLanguage, locale, timezone, active, password, getEmails(),
+                getPhoneNumbers(), getIms(), getPhotos(), getAddresses(), getGroups(), getEntitlements(), getRoles(),
+                getX509Certificates(), getExtensions(), boundExtensions, null);
     }
 
     /**
@@ -310,7 +377,7 @@ public final class User extends Resource implements Serializable {
      * @return the email addresses of the {@link User}
      */
     public List<Email> getEmails() {
-        return emails;
+        return deferred("emails", emails);
     }
 
     /**
@@ -323,6 +390,7 @@ public final class User extends Resource implements Serializable {
      */
     @JsonIgnore
     public Optional<Email> getPrimaryOrFirstEmail() {
+        List<Email> emails = getEmails();
         for (Email email : emails) {
             if (email.isPrimary()) {
                 return Optional.of(email);
@@ -346,7 +414,7 @@ public final class User extends Resource implements Serializable {
      * @return the phone numbers of the {@link User}
      */
     public List<PhoneNumber> getPhoneNumbers() {
-        return phoneNumbers;
+        return deferred("phoneNumbers", phoneNumbers);
     }
 
     /**
@@ -360,7 +428,7 @@ public final class User extends Resource implements Serializable {
      * @return the ims of the {@link User}
      */
     public List<Im> getIms() {
-        return ims;
+        return deferred("ims", ims);
     }
 
     /**
@@ -374,7 +442,7 @@ public final class User extends Resource implements Serializable {
      * @return the photo URL's of the {@link User}
      */
     public List<Photo> getPhotos() {
-        return photos;
+        return deferred("photos", photos);
     }
 
     /**
@@ -388,7 +456,7 @@ public final class User extends Resource implements Serializable {
      * @return the addresses of the {@link User}
      */
     public List<Address> getAddresses() {
-        return addresses;
+        return deferred("addresses", addresses);
     }
 
     /**
@@ -402,7 +470,7 @@ public final class User extends Resource implements Serializable {
      * @return a list of all {@link Group}s where the {@link User} is a member of
      */
     public List<GroupRef> getGroups() {
-        return groups;
+        return deferred("groups", groups);
     }
 
     /**
@@ -416,7 +484,7 @@ public final class User extends Resource implements Serializable {
      * @return a list of all entitlements of the {@link User}
      */
     public List<Entitlement> getEntitlements() {
-        return entitlements;
+        return deferred("entitlements", entitlements);
     }
 
     /**
@@ -430,7 +498,7 @@ public final class User extends Resource implements Serializable {
      * @return a list of the roles of the {@link User}
      */
     public List<Role> getRoles() {
-        return roles;
+        return deferred("roles", roles);
     }
 
     /**
@@ -444,17 +512,31 @@ public final class User extends Resource implements Serializable {
      * @return a list of the certificates of the {@link User}
      */
     public List<X509Certificate> getX509Certificates() {
-        return x509Certificates;
+        return deferred("x509Certificates", x509Certificates);
     }
 
     /**
-     * Provides an unmodifiable view of all additional {@link Extension} fields of the user
+     * Provides an unmodifiable view of all additional {@link Extension} fields of the user. Extensions that are bound
+     * to a class, see {@link #getExtension(String, Class)}, are not part of this view.
      *
      * @return an unmodifiable view of the extensions
      */
-    @JsonAnyGetter
+    @JsonIgnore
     public Map<String, Extension> getExtensions() {
-        return extensions;
+        return deferred("extensions", extensions);
+    }
+
+    /**
+     * Provides the extensions, bound or not, for the serialization of the user.
+     */
+    @JsonAnyGetter
+    private Map<String, Object> getAllExtensions() {
+        if (boundExtensions.isEmpty()) {
+            return ImmutableMap.<String, Object>copyOf(getExtensions());
+        }
+        Map<String, Object> allExtensions = new HashMap<String, Object>(getExtensions());
+        allExtensions.putAll(boundExtensions);
+        return allExtensions;
     }
 
     /**
@@ -470,11 +552,40 @@ public final class User extends Resource implements Serializable {
             throw new IllegalArgumentException("urn must be neither null nor empty");
         }
 
-        if (!extensions.containsKey(urn)) {
+        Extension extension = getExtensions().get(urn);
+        if (extension == null) {
             throw new NoSuchElementException("extension " + urn + " is not available");
         }
 
-        return extensions.get(urn);
+        return extension;
+    }
+
+    /**
+     * Provides the extension with the given URN as instance of the class it has been bound to, either by the
+     * {@link org.osiam.resources.helper.ExtensionSchemaRegistry} of the connector when the user was read, or by
+     * {@link Builder#addExtension(String, Object)}.
+     *
+     * @param urn  The URN of the extension
+     * @param type The class the extension is bound to, e.g. {@link Enterprise}
+     * @return The extension for the given URN
+     * @throws IllegalArgumentException If urn is null or empty, or the extension is bound to another class
+     * @throws NoSuchElementException   If no extension with the given urn is bound
+     */
+    public <E> E getExtension(String urn, Class<E> type) {
+        if (urn == null || urn.isEmpty()) {
+            throw new IllegalArgumentException("urn must be neither null nor empty");
+        }
+
+        Object extension = boundExtensions.get(urn);
+        if (extension == null) {
+            throw new NoSuchElementException("extension " + urn + " is not available as " + type.getName());
+        }
+        if (!type.isInstance(extension)) {
+            throw new IllegalArgumentException("extension " + urn + " is bound to " + extension.getClass().getName()
+                    + ", not to " + type.getName());
+        }
+
+        return type.cast(extension);
     }
 
     /**
@@ -484,18 +595,50 @@ public final class User extends Resource implements Serializable {
      * @return true if the given extension is present, else false
      */
     public boolean isExtensionPresent(String urn) {
+        if (boundExtensions.containsKey(urn)) {
+            return true;
+        }
+        if (deferredAttributes != null && deferredAttributes.isDeferred("extensions")) {
+            return deferredAttributes.isExtensionDeferred(urn);
+        }
         return extensions.containsKey(urn);
     }
 
+    /**
+     * Returns the given value of an attribute, or the decoded value if the attribute is deferred. Decoded values are
+     * kept, so the attribute is decoded only once.
+     */
+    @SuppressWarnings("unchecked")
+    private <V> V deferred(String attribute, V value) {
+        if (deferredAttributes == null || !deferredAttributes.isDeferred(attribute)) {
+            return value;
+        }
+        Object decoded = decodedAttributes.get(attribute);
+        if (decoded == null) {
+            decoded = deferredAttributes.decode(attribute);
+            if (decoded instanceof Map) {
+                decoded = ImmutableMap.copyOf((Map<?, ?>) decoded);
+            } else {
+                decoded = decoded != null ? ImmutableList.copyOf((List<?>) decoded) : ImmutableList.of();
+            }
+            Object previous = decodedAttributes.putIfAbsent(attribute, decoded);
+            if (previous != null) {
+                decoded = previous;
+            }
+        }
+        return (V) decoded;
+    }
+
     @Override
     public String toString() {
         return "User [userName=" + userName + ", name=" + name + ", displayName=" + displayName + ", nickName="
                 + nickName + ", profileUrl=" + profileUrl + ", title=" + title + ", userType=" + userType
                 + ", preferredLanguage=" + preferredLanguage + ", locale=" + locale + ", timezone=" + timezone
-                + ", active=" + active + ", password=" + password + ", emails=" + emails + ", phoneNumbers="
-                + phoneNumbers + ", ims=" + ims + ", photos=" + photos + ", addresses=" + addresses + ", groups="
-                + groups + ", entitlements=" + entitlements + ", roles=" + roles + ", x509Certificates="
-                + x509Certificates + ", extensions=" + extensions + ", getId()=" + getId() + ", getExternalId()="
+                + ", active=" + active + ", password=" + password + ", emails=" + getEmails() + ", phoneNumbers="
+                + getPhoneNumbers() + ", ims=" + getIms() + ", photos=" + getPhotos() + ", addresses="
+                + getAddresses() + ", groups=" + getGroups() + ", entitlements=" + getEntitlements() + ", roles="
+                + getRoles() + ", x509Certificates=" + getX509Certificates() + ", extensions=" + getExtensions()
+                + ", boundExtensions=" + boundExtensions + ", getId()=" + getId() + ", getExternalId()="
                 + getExternalId() + ", getMeta()=" + getMeta() + ", getSchemas()=" + getSchemas() + "]";
     }
 
@@ -525,6 +668,8 @@ public final class User extends Resource implements Serializable {
         private List<Role> roles = new ArrayList<>();
         private List<X509Certificate> x509Certificates = new ArrayList<>();
         private Map<String, Extension> extensions = new HashMap<>();
+        private Map<String, Object> boundExtensions = new HashMap<>();
+        private DeferredAttributes deferredAttributes;
 
         /**
          * @deprecated Change the user name with {@link #setUserName(String)}. Will be removed in 1.12 or 2.0.
@@ -546,16 +691,17 @@ public final class User extends Resource implements Serializable {
                 this.timezone = user.timezone;
                 this.active = user.active;
                 this.password = user.password;
-                this.emails.addAll(user.emails);
-                this.phoneNumbers.addAll(user.phoneNumbers);
-                this.ims.addAll(user.ims);
-                this.photos.addAll(user.photos);
-                this.addresses.addAll(user.addresses);
-                this.groups.addAll(user.groups);
-                this.entitlements.addAll(user.entitlements);
-                this.roles.addAll(user.roles);
-                this.x509Certificates.addAll(user.x509Certificates);
-                this.extensions.putAll(user.extensions);
+                this.emails.addAll(user.getEmails());
+                this.phoneNumbers.addAll(user.getPhoneNumbers());
+                this.ims.addAll(user.getIms());
+                this.photos.addAll(user.getPhotos());
+                this.addresses.addAll(user.getAddresses());
+                this.groups.addAll(user.getGroups());
+                this.entitlements.addAll(user.getEntitlements());
+                this.roles.addAll(user.getRoles());
+                this.x509Certificates.addAll(user.getX509Certificates());
+                this.extensions.putAll(user.getExtensions());
+                this.boundExtensions.putAll(user.boundExtensions);
             }
             if (!Strings.isNullOrEmpty(userName)) {
                 this.userName = userName;
@@ -1152,11 +1298,37 @@ public final class User extends Resource implements Serializable {
         public Builder addExtension(Extension extension) {
             if (extension != null) {
                 extensions.put(extension.getUrn(), extension);
+                boundExtensions.remove(extension.getUrn());
                 addSchema(extension.getUrn());
             }
             return this;
         }
 
+        /**
+         * Sets an extension that is bound to a class, e.g. {@link Enterprise}, to the User (See
+         * {@link User#getExtension(String, Class)}). The extension is serialized like any other object, so its class
+         * needs to be mappable by Jackson, and it needs to be {@link Serializable} like the user itself.
+         *
+         * @param urn       the URN of the extension
+         * @param extension the extension
+         * @return the builder itself
+         * @throws IllegalArgumentException if the URN is null or empty, or the extension is not serializable
+         */
+        public Builder addExtension(String urn, Object extension) {
+            if (urn == null || urn.isEmpty()) {
+                throw new IllegalArgumentException("urn must be neither null nor empty");
+            }
+            if (extension != null && !(extension instanceof Serializable)) {
+                throw new IllegalArgumentException("extension " + urn + " must be serializable");
+            }
+            if (extension != null) {
+                boundExtensions.put(urn, extension);
+                extensions.remove(urn);
+                addSchema(urn);
+            }
+            return this;
+        }
+
         /**
          * removes all Extensions from the actual User
          *
@@ -1164,6 +1336,7 @@ public final class User extends Resource implements Serializable {
          */
         public Builder removeExtensions() {
             this.extensions.clear();
+            this.boundExtensions.clear();
             return this;
         }
 
@@ -1175,6 +1348,7 @@ public final class User extends Resource implements Serializable {
          */
         public Builder removeExtension(String urn) {
             this.extensions.remove(urn);
+            this.boundExtensions.remove(urn);
             return this;
         }
 
@@ -1215,6 +1389,18 @@ public final class User extends Resource implements Serializable {
             return this;
         }
 
+        /**
+         * Defers the decoding of multi-valued attributes and extensions until they are accessed. Deferred attributes
+         * replace the values that have been set on this builder.
+         *
+         * @param deferredAttributes the attributes to decode on first access, or {@code null} to decode nothing
+         * @return the builder itself
+         */
+        public Builder setDeferredAttributes(DeferredAttributes deferredAttributes) {
+            this.deferredAttributes = deferredAttributes;
+            return this;
+        }
+
         @Override
         public User build() {
             return new User(this);
@@ -0,0 +1,102 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.helper
+
+import com.fasterxml.jackson.core.JsonFactory
+import org.joda.time.format.ISODateTimeFormat
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class DateTimeCodecSpec extends Specification {
+
+    def joda = ISODateTimeFormat.dateTime().withZoneUTC()
+
+    def 'formats and parses dates like Joda'() {
+        given:
+        def random = new Random(42)
+        def maxMillis = joda.parseMillis('9999-12-31T23:59:59.999Z')
+        def minMillis = joda.parseMillis('0000-01-01T00:00:00.000Z')
+
+        expect:
+        (0..<10000).every {
+            long millis = minMillis + (long) (random.nextDouble() * (maxMillis - minMillis))
+            String formatted = DateTimeCodec.format(millis)
+            formatted == joda.print(millis) && DateTimeCodec.parse(formatted) == millis
+        }
+    }
+
+    def 'formats dates before year 0 and after year 9999'() {
+        expect:
+        DateTimeCodec.parse(DateTimeCodec.format(millis)) == millis
+        where:
+        millis << [Long.MIN_VALUE, Long.MAX_VALUE, -62167219200001L, 253402300800000L]
+    }
+
+    @Unroll
+    def 'parses #text'() {
+        expect:
+        DateTimeCodec.parse(text) == joda.parseMillis(expected)
+        where:
+        text                                  | expected
+        '2011-08-01T18:29:49.793Z'            | '2011-08-01T18:29:49.793Z'
+        '2011-08-01T20:29:49.793+02:00'       | '2011-08-01T18:29:49.793Z'
+        '2011-08-01T20:29:49.000+0200'        | '2011-08-01T18:29:49.000Z'
+        '2011-08-01T16:29:49.7-02'            | '2011-08-01T18:29:49.700Z'
+        '2011-08-01T18:29:49.793456789Z'      | '2011-08-01T18:29:49.793Z'
+        '2011-08-01T18:29:49'                 | '2011-08-01T18:29:49.000Z'
+        '2011-08-01T18:29Z'                   | '2011-08-01T18:29:00.000Z'
+        '2011-08-01'                          | '2011-08-01T00:00:00.000Z'
+        '2012-02-29T00:00:00.000Z'            | '2012-02-29T00:00:00.000Z'
+    }
+
+    def 'parses the string value a parser is positioned at'() {
+        given:
+        def jp = new JsonFactory().createParser('["x", "2011-08-01T18:29:49.793Z"]')
+        jp.nextToken()
+        jp.nextToken()
+        jp.nextToken()
+
+        expect:
+        DateTimeCodec.parse(jp) == joda.parseMillis('2011-08-01T18:29:49.793Z')
+    }
+
+    @Unroll
+    def 'rejects #text'() {
+        when:
+        DateTimeCodec.parse(text)
+        then:
+        thrown(IllegalArgumentException)
+        where:
+        text << ['', 'now', '2011-8-01', '2011-08-01T', '2011-08-01 18:29:49', '2011-13-01', '2011-02-29',
+                 '2011-08-01T24:00:00Z', '2011-08-01T18:60Z', '2011-08-01T18:29:49.Z', '2011-08-01T18:29:49ZZ',
+                 '2011-08-01T18:29:49+2', '2011-08-01T18:29:49+02:00:00']
+    }
+
+    def 'parses from a range of a char array'() {
+        given:
+        def text = '"2011-08-01T18:29:49.793Z"'.toCharArray()
+        expect:
+        DateTimeCodec.parse(text, 1, text.length - 2) == joda.parseMillis('2011-08-01T18:29:49.793Z')
+    }
+}
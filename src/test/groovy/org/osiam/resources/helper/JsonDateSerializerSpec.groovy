@@ -39,6 +39,6 @@ class JsonDateSerializerSpec extends Specification {
         jsonDateSerializer.serialize(GregorianCalendar.getInstance().getTime(), jsonGeneratorMock, serializerProviderMock)
 
         then:
-        1 * jsonGeneratorMock.writeString(_)
+        1 * jsonGeneratorMock.writeString(_, 0, 24)
     }
 }
\ No newline at end of file
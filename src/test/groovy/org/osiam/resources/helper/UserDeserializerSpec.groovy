@@ -26,8 +26,10 @@ package org.osiam.resources.helper
 import com.fasterxml.jackson.databind.JsonMappingException
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.module.SimpleModule
+import org.osiam.resources.scim.Enterprise
 import org.osiam.resources.scim.Extension
 import org.osiam.resources.scim.ExtensionFieldType
+import org.osiam.resources.scim.ExtensionSchema
 import org.osiam.resources.scim.User
 import org.osiam.test.util.DateHelper
 import org.osiam.test.util.JsonFixturesHelper
@@ -143,6 +145,372 @@ class UserDeserializerSpec extends Specification {
         thrown(JsonMappingException)
     }
 
+    def 'Extension that appears before the schemas is deserialized'() {
+        given:
+        def userAsJson = '''
+                {
+                    "urn:scim:schemas:extension:enterprise:2.0:User":{
+                        "keyString":"example",
+                        "keyInteger":123
+                    },
+                    "userName":"bjensen",
+                    "schemas":[
+                        "urn:ietf:params:scim:schemas:core:2.0:User",
+                        "urn:scim:schemas:extension:enterprise:2.0:User"
+                    ]
+                }'''
+        when:
+        def user = mapper.readValue(userAsJson, User)
+        then:
+        user.getUserName() == 'bjensen'
+        def extension = user.getExtension(JsonFixturesHelper.ENTERPRISE_URN)
+        extension.getFieldAsString('keyString') == 'example'
+        extension.getFieldAsInteger('keyInteger') == 123
+    }
+
+    def 'Objects and unknown fields that are not declared in the schemas are ignored'() {
+        given:
+        def userAsJson = '''
+                {
+                    "urn:example:undeclared":{
+                        "nested":{"key":"value"}
+                    },
+                    "unknown":[1, 2, 3],
+                    "schemas":[
+                        "urn:ietf:params:scim:schemas:core:2.0:User"
+                    ],
+                    "userName":"bjensen"
+                }'''
+        when:
+        def user = mapper.readValue(userAsJson, User)
+        then:
+        user.getUserName() == 'bjensen'
+        user.getExtensions().isEmpty()
+    }
+
+    def 'Extension with an unsupported JSON type raises exception'() {
+        given:
+        def userAsJson = '''
+                {
+                    "schemas":[
+                        "urn:ietf:params:scim:schemas:core:2.0:User",
+                        "urn:scim:schemas:extension:enterprise:2.0:User"
+                    ],
+                    "urn:scim:schemas:extension:enterprise:2.0:User":{
+                        "nested":{"key":"value"}
+                    }
+                }'''
+        when:
+        mapper.readValue(userAsJson, User)
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def 'Missing schemas raise exception'() {
+        when:
+        mapper.readValue('{"userName":"bjensen"}', User)
+        then:
+        thrown(JsonMappingException)
+    }
+
+    def 'Fields of a registered extension are decoded into their declared type'() {
+        given:
+        def registry = new ExtensionSchemaRegistry().register(new ExtensionSchema.Builder(JsonFixturesHelper.ENTERPRISE_URN)
+                .addField('keyDateTime', ExtensionFieldType.DATE_TIME)
+                .addField('keyReference', ExtensionFieldType.REFERENCE)
+                .addField('keyBinary', ExtensionFieldType.BINARY)
+                .addField('keyDecimal', ExtensionFieldType.DECIMAL)
+                .build())
+        def userAsJson = '''
+                {
+                    "schemas":[
+                        "urn:ietf:params:scim:schemas:core:2.0:User",
+                        "urn:scim:schemas:extension:enterprise:2.0:User"
+                    ],
+                    "urn:scim:schemas:extension:enterprise:2.0:User":{
+                        "keyDateTime":"2011-08-01T18:29:49.000Z",
+                        "keyReference":"https://example.com/Users/28",
+                        "keyBinary":"ZXhhbXBsZQ==",
+                        "keyDecimal":12,
+                        "keyString":"example"
+                    }
+                }'''
+        when:
+        def user = mapperWith(registry).readValue(userAsJson, User)
+        then:
+        def extension = user.getExtension(JsonFixturesHelper.ENTERPRISE_URN)
+        extension.getField('keyDateTime', ExtensionFieldType.DATE_TIME) == DateHelper.createDate(2011, 7, 1, 18, 29, 49)
+        extension.getField('keyReference', ExtensionFieldType.REFERENCE) == new URI('https://example.com/Users/28')
+        extension.getField('keyBinary', ExtensionFieldType.BINARY) == ByteBuffer.wrap('example'.bytes)
+        extension.getField('keyDecimal', ExtensionFieldType.DECIMAL) == 12G
+        extension.getFields()['keyDecimal'].type == ExtensionFieldType.DECIMAL
+        extension.getFields()['keyString'].type == ExtensionFieldType.STRING
+    }
+
+    def 'Field of a registered extension that does not match its type raises exception'() {
+        given:
+        def registry = new ExtensionSchemaRegistry().register(new ExtensionSchema.Builder(JsonFixturesHelper.ENTERPRISE_URN)
+                .addField('keyInteger', ExtensionFieldType.INTEGER)
+                .build())
+        def userAsJson = '''
+                {
+                    "schemas":[
+                        "urn:ietf:params:scim:schemas:core:2.0:User",
+                        "urn:scim:schemas:extension:enterprise:2.0:User"
+                    ],
+                    "urn:scim:schemas:extension:enterprise:2.0:User":{
+                        "keyInteger":"123"
+                    }
+                }'''
+        when:
+        mapperWith(registry).readValue(userAsJson, User)
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def 'Extension schema is read from its SCIM representation'() {
+        given:
+        def schemaAsJson = '''
+                {
+                    "id":"urn:scim:schemas:extension:enterprise:2.0:User",
+                    "name":"EnterpriseUser",
+                    "attributes":[
+                        {"name":"employeeNumber","type":"string"},
+                        {"name":"hireDate","type":"dateTime"},
+                        {"name":"manager","type":"complex"},
+                        {"name":"salary","type":"DECIMAL"}
+                    ]
+                }'''
+        when:
+        def schema = new ObjectMapper().readValue(schemaAsJson, ExtensionSchema)
+        then:
+        schema.urn == JsonFixturesHelper.ENTERPRISE_URN
+        schema.fieldTypes == [employeeNumber: ExtensionFieldType.STRING,
+                              hireDate      : ExtensionFieldType.DATE_TIME,
+                              salary        : ExtensionFieldType.DECIMAL]
+    }
+
+    def 'Extension bound to a class is read as instance of the class'() {
+        given:
+        def registry = new ExtensionSchemaRegistry().registerType(Enterprise.SCHEMA, Enterprise)
+        def userAsJson = '''
+                {
+                    "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User":{
+                        "employeeNumber":"701984",
+                        "manager":{"value":"26118915", "displayName":"John Smith"}
+                    },
+                    "userName":"bjensen",
+                    "schemas":[
+                        "urn:ietf:params:scim:schemas:core:2.0:User",
+                        "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User"
+                    ]
+                }'''
+        when:
+        def user = mapperWith(registry).readValue(userAsJson, User)
+        then:
+        def enterprise = user.getExtension(Enterprise.SCHEMA, Enterprise)
+        enterprise.employeeNumber == '701984'
+        enterprise.manager.managerId == '26118915'
+        user.isExtensionPresent(Enterprise.SCHEMA)
+        user.getExtensions().isEmpty()
+        mapperWith(registry).readValue(mapperWith(registry).writeValueAsString(user), User)
+                .getExtension(Enterprise.SCHEMA, Enterprise).manager.displayName == 'John Smith'
+    }
+
+    def 'Bound extension that can not be bound is ignored if its URN is not declared'() {
+        given:
+        def registry = new ExtensionSchemaRegistry().registerType(Enterprise.SCHEMA, Enterprise)
+        def userAsJson = '''
+                {
+                    "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User":{
+                        "employeeNumber":{"unexpected":"object"}
+                    },
+                    "userName":"bjensen",
+                    "schemas":["urn:ietf:params:scim:schemas:core:2.0:User"]
+                }'''
+        when:
+        def user = mapperWith(registry).readValue(userAsJson, User)
+        then:
+        user.userName == 'bjensen'
+        !user.isExtensionPresent(Enterprise.SCHEMA)
+    }
+
+    def 'Bound extension that can not be bound raises exception if its URN is declared after it'() {
+        given:
+        def registry = new ExtensionSchemaRegistry().registerType(Enterprise.SCHEMA, Enterprise)
+        def userAsJson = '''
+                {
+                    "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User":{
+                        "employeeNumber":{"unexpected":"object"}
+                    },
+                    "userName":"bjensen",
+                    "schemas":[
+                        "urn:ietf:params:scim:schemas:core:2.0:User",
+                        "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User"
+                    ]
+                }'''
+        when:
+        mapperWith(registry).readValue(userAsJson, User)
+        then:
+        thrown(JsonMappingException)
+    }
+
+    def 'Registering a class that is not serializable raises exception'() {
+        when:
+        new ExtensionSchemaRegistry().registerType(Enterprise.SCHEMA, Object)
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def 'Deferred attributes are decoded like eager ones on first access'() {
+        given:
+        def deferringMapper = new ObjectMapper().registerModule(new SimpleModule('UserDeserializer')
+                .addDeserializer(User, new UserDeserializer(User.SCHEMA, null, true)))
+        when:
+        User deferred = deferringMapper.readValue(jsonFixtures.jsonExtendedUser, User)
+        User eager = mapExtendedUser()
+        then:
+        deferred.userName == eager.userName
+        deferred.emails == eager.emails
+        deferred.emails.is(deferred.emails)
+        deferred.phoneNumbers == eager.phoneNumbers
+        deferred.addresses == eager.addresses
+        deferred.groups == eager.groups
+        deferred.extensions == eager.extensions
+        deferringMapper.readTree(deferringMapper.writeValueAsString(deferred)) ==
+                mapper.readTree(mapper.writeValueAsString(eager))
+    }
+
+    def 'Deferred user is serialized with its decoded attributes'() {
+        given:
+        def deferringMapper = new ObjectMapper().registerModule(new SimpleModule('UserDeserializer')
+                .addDeserializer(User, new UserDeserializer(User.SCHEMA, null, true)))
+        User deferred = deferringMapper.readValue(jsonFixtures.jsonExtendedUser, User)
+        def bytes = new ByteArrayOutputStream()
+        new ObjectOutputStream(bytes).writeObject(deferred)
+        when:
+        User copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject() as User
+        then:
+        copy.emails == deferred.emails
+        copy.extensions == deferred.extensions
+    }
+
+    def 'Malformed deferred extension raises exception like an eager one'() {
+        given:
+        def deferringMapper = new ObjectMapper().registerModule(new SimpleModule('UserDeserializer')
+                .addDeserializer(User, new UserDeserializer(User.SCHEMA, null, true)))
+        def userAsJson = '''
+                {
+                    "schemas":[
+                        "urn:ietf:params:scim:schemas:core:2.0:User",
+                        "urn:scim:schemas:extension:enterprise:2.0:User"
+                    ],
+                    "userName":"bjensen",
+                    "urn:scim:schemas:extension:enterprise:2.0:User":{
+                        "nested":{"key":"value"}
+                    }
+                }'''
+        when:
+        deferringMapper.readValue(userAsJson, User)
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def 'Deferred extension of the wrong field type raises exception like an eager one'() {
+        given:
+        def registry = new ExtensionSchemaRegistry().register(new ExtensionSchema.Builder(JsonFixturesHelper.ENTERPRISE_URN)
+                .addField('keyDateTime', ExtensionFieldType.DATE_TIME)
+                .build())
+        def deferringMapper = new ObjectMapper().registerModule(new SimpleModule('UserDeserializer')
+                .addDeserializer(User, new UserDeserializer(User.SCHEMA, registry, true)))
+        def userAsJson = '''
+                {
+                    "schemas":[
+                        "urn:ietf:params:scim:schemas:core:2.0:User",
+                        "urn:scim:schemas:extension:enterprise:2.0:User"
+                    ],
+                    "urn:scim:schemas:extension:enterprise:2.0:User":{
+                        "keyDateTime":"not a date"
+                    }
+                }'''
+        when:
+        deferringMapper.readValue(userAsJson, User)
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def 'Malformed deferred multi-valued attribute raises exception like an eager one'() {
+        given:
+        def deferringMapper = new ObjectMapper().registerModule(new SimpleModule('UserDeserializer')
+                .addDeserializer(User, new UserDeserializer(User.SCHEMA, null, true)))
+        def userAsJson = '''
+                {
+                    "schemas":["urn:ietf:params:scim:schemas:core:2.0:User"],
+                    "userName":"bjensen",
+                    "emails":[{"primary":{"x":1}}]
+                }'''
+        when:
+        mapperWith(null).readValue(userAsJson, User)
+        then:
+        thrown(JsonMappingException)
+        when:
+        deferringMapper.readValue(userAsJson, User)
+        then:
+        thrown(JsonMappingException)
+    }
+
+    def 'Deferred multi-valued attribute with a value of the wrong type fails when it is accessed'() {
+        given:
+        def deferringMapper = new ObjectMapper().registerModule(new SimpleModule('UserDeserializer')
+                .addDeserializer(User, new UserDeserializer(User.SCHEMA, null, true)))
+        User deferred = deferringMapper.readValue('''
+                {
+                    "schemas":["urn:ietf:params:scim:schemas:core:2.0:User"],
+                    "userName":"bjensen",
+                    "emails":[{"value":"bjensen@example.com","primary":"yes"}]
+                }''', User)
+        when:
+        deferred.emails
+        then:
+        thrown(IllegalArgumentException)
+        deferred.userName == 'bjensen'
+    }
+
+    def 'Unknown fields of a deferred multi-valued attribute are ignored like eager ones'() {
+        given:
+        def deferringMapper = new ObjectMapper().registerModule(new SimpleModule('UserDeserializer')
+                .addDeserializer(User, new UserDeserializer(User.SCHEMA, null, true)))
+        def userAsJson = '''
+                {
+                    "schemas":["urn:ietf:params:scim:schemas:core:2.0:User"],
+                    "userName":"bjensen",
+                    "addresses":[{"country":"DE","geo":{"lat":50.7}}]
+                }'''
+        when:
+        User deferred = deferringMapper.readValue(userAsJson, User)
+        then:
+        deferred.addresses == mapperWith(null).readValue(userAsJson, User).addresses
+        deferred.addresses[0].country == 'DE'
+    }
+
+    def 'Presence of a deferred extension is known without decoding it'() {
+        given:
+        def deferringMapper = new ObjectMapper().registerModule(new SimpleModule('UserDeserializer')
+                .addDeserializer(User, new UserDeserializer(User.SCHEMA, null, true)))
+        User user = deferringMapper.readValue(jsonFixtures.jsonExtendedUser, User)
+        when:
+        def present = user.isExtensionPresent(JsonFixturesHelper.ENTERPRISE_URN)
+        then:
+        present
+        !user.isExtensionPresent('urn:example:unknown')
+        user.@decodedAttributes.isEmpty()
+    }
+
+    private static ObjectMapper mapperWith(ExtensionSchemaRegistry registry) {
+        new ObjectMapper().registerModule(new SimpleModule('UserDeserializer')
+                .addDeserializer(User, new UserDeserializer(User.SCHEMA, registry)))
+    }
+
     private User mapBasicUser() {
         jsonFixtures.configuredObjectMapper().readValue(jsonFixtures.jsonBasicUser, User)
     }
@@ -23,6 +23,7 @@
  */
 package org.osiam.resources.scim
 
+import com.fasterxml.jackson.databind.ObjectMapper
 import spock.lang.Specification
 
 class EnterpriseSpec extends Specification {
@@ -46,4 +47,35 @@ class EnterpriseSpec extends Specification {
         enterprise.organization == builder.organization
     }
 
+    def 'a user with a bound enterprise extension is serialized with the extension as object'() {
+        given:
+        def user = new User.Builder('bjensen')
+                .addExtension(Enterprise.SCHEMA, new Enterprise.Builder()
+                .setEmployeeNumber('701984')
+                .setManager(new Manager('26118915-6090-4610-87e4-49d8ca9f808d', 'John Smith'))
+                .build())
+                .build()
+        when:
+        def json = new ObjectMapper().readTree(new ObjectMapper().writeValueAsString(user))
+        then:
+        json.get('schemas')*.asText() as Set == [User.SCHEMA, Enterprise.SCHEMA] as Set
+        json.get(Enterprise.SCHEMA).get('employeeNumber').asText() == '701984'
+        json.get(Enterprise.SCHEMA).get('manager').get('value').asText() == '26118915-6090-4610-87e4-49d8ca9f808d'
+        !json.get(Enterprise.SCHEMA).has('costCenter')
+    }
+
+    def 'enterprise is read from JSON, with the manager id as #managerIdField'() {
+        when:
+        def enterprise = new ObjectMapper().readValue("""{
+                "employeeNumber":"701984",
+                "unknown":"ignored",
+                "manager":{"${managerIdField}":"26118915", "displayName":"John Smith", "\$ref":"../Users/26118915"}
+            }""", Enterprise)
+        then:
+        enterprise.employeeNumber == '701984'
+        enterprise.manager.managerId == '26118915'
+        enterprise.manager.displayName == 'John Smith'
+        where:
+        managerIdField << ['value', 'managerId']
+    }
 }
@@ -210,6 +210,45 @@ class ExtensionSpec extends Specification {
         extensionBuilder.build().isFieldPresent(FIELD_INJECTED) == false
     }
 
+    def 'Values are returned in their native type without converting them'() {
+        given:
+        BigInteger integer = new BigInteger('123')
+        Extension extension = new Extension.Builder(URN).setField(FIELD, integer).build()
+
+        expect:
+        extension.getFieldAsInteger(FIELD).is(integer)
+        extension.getFieldAsString(FIELD) == '123'
+        extension.getFields()[FIELD] == new Field(ExtensionFieldType.INTEGER, '123')
+    }
+
+    def 'Mutable values cannot be changed from outside the extension'() {
+        given:
+        Date date = DateHelper.createDate(2011, 7, 1, 18, 29, 49)
+        Extension extension = new Extension.Builder(URN).setField(FIELD, date).build()
+
+        when:
+        date.setTime(0)
+        extension.getFieldAsDate(FIELD).setTime(0)
+
+        then:
+        extension.getFieldAsDate(FIELD) == DateHelper.createDate(2011, 7, 1, 18, 29, 49)
+    }
+
+    def 'Fields keep their value when they are serialized'() {
+        given:
+        Field field = new Extension.Builder(URN).setField(FIELD, new BigDecimal('12.50')).build().getFields()[FIELD]
+
+        when:
+        def bytes = new ByteArrayOutputStream()
+        new ObjectOutputStream(bytes).writeObject(field)
+        Field result = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject() as Field
+
+        then:
+        result.getValue() == '12.50'
+        result.getType().is(ExtensionFieldType.DECIMAL)
+        result.getValue(ExtensionFieldType.DECIMAL) == new BigDecimal('12.50')
+    }
+
     private def emptyExtensionBuilder() {
         extensionBuilder = new Extension.Builder('')
     }
@@ -0,0 +1,168 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.resources.scim
+
+import com.fasterxml.jackson.databind.JsonMappingException
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.ObjectReader
+import spock.lang.Specification
+
+class ProjectionSpec extends Specification {
+
+    static final String USER = '''{
+            "schemas":["urn:ietf:params:scim:schemas:core:2.0:User"],
+            "id":"cef9452e-00a9-4cec-a086-d171374ffbef",
+            "userName":"bjensen",
+            "name":{"familyName":"Jensen","givenName":"Barbara"},
+            "emails":[
+                {"value":"bjensen@example.com","type":"work","primary":true},
+                {"type":"home"},
+                {"value":"babs@jensen.org","type":"other"}
+            ],
+            "groups":[],
+            "meta":{"created":"2011-08-01T18:29:49.793Z","lastModified":"2011-08-01T20:31:02.315+02:00",
+                    "version":"W/\\"3694e05e9dff590\\"","resourceType":"User"},
+            "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User":{"employeeNumber":"701984"}
+        }'''
+
+    def 'the attributes parameter lists the paths of the attributes in order'() {
+        when:
+        def projection = Projection.of(User.USER_NAME, User.EMAILS_VALUE, User.META_LAST_MODIFIED)
+
+        then:
+        projection.attributesParameter == 'userName,emails.value,meta.lastModified'
+        projection.attributes == [User.USER_NAME, User.EMAILS_VALUE, User.META_LAST_MODIFIED]
+    }
+
+    def 'only the values of the requested attributes are bound'() {
+        given:
+        def projection = Projection.of(User.USER_NAME, User.NAME_GIVEN_NAME, User.EMAILS_VALUE,
+                User.META_LAST_MODIFIED, User.DISPLAY_NAME)
+
+        when:
+        ProjectedResource resource = readerFor(projection).readValue(USER)
+
+        then:
+        resource.id == 'cef9452e-00a9-4cec-a086-d171374ffbef'
+        resource.get(User.USER_NAME) == 'bjensen'
+        resource.get(User.NAME_GIVEN_NAME) == 'Barbara'
+        resource.get(User.META_LAST_MODIFIED) == new Date(1312223462315L)
+        resource.get(User.DISPLAY_NAME) == null
+    }
+
+    def 'the lists of sub-attributes of a multi-valued attribute line up'() {
+        given:
+        def emailsType = Attribute.multiValued('emails.type', String)
+        def projection = Projection.of(User.EMAILS_VALUE, emailsType, User.GROUPS_VALUE, User.PHONE_NUMBERS)
+
+        when:
+        ProjectedResource resource = readerFor(projection).readValue(USER)
+
+        then:
+        resource.get(User.EMAILS_VALUE) == ['bjensen@example.com', null, 'babs@jensen.org']
+        resource.get(emailsType) == ['work', 'home', 'other']
+        resource.get(User.GROUPS_VALUE) == []
+        resource.get(User.PHONE_NUMBERS) == []
+    }
+
+    def 'an attribute can be requested as a whole and by its sub-attributes'() {
+        given:
+        def projection = Projection.of(User.EMAILS, User.EMAILS_PRIMARY, User.META, User.META_VERSION)
+
+        when:
+        ProjectedResource resource = readerFor(projection).readValue(USER)
+
+        then:
+        resource.get(User.EMAILS)*.value == ['bjensen@example.com', null, 'babs@jensen.org']
+        resource.get(User.EMAILS_PRIMARY) == [true, null, null]
+        resource.get(User.META).version == 'W/"3694e05e9dff590"'
+        resource.get(User.META_VERSION) == 'W/"3694e05e9dff590"'
+    }
+
+    def 'fields of extensions are bound'() {
+        given:
+        def employeeNumber = Attribute.of("${Enterprise.SCHEMA}:employeeNumber", String)
+
+        when:
+        ProjectedResource resource = readerFor(Projection.of(employeeNumber)).readValue(USER)
+
+        then:
+        employeeNumber.name == Enterprise.SCHEMA
+        employeeNumber.subAttribute == 'employeeNumber'
+        resource.get(employeeNumber) == '701984'
+    }
+
+    def 'a value of the wrong shape raises an exception'() {
+        when:
+        readerFor(Projection.of(User.EMAILS_VALUE)).readValue('{"emails":{"value":"bjensen@example.com"}}')
+
+        then:
+        thrown(JsonMappingException)
+    }
+
+    def 'an attribute that is not part of the projection raises an exception'() {
+        given:
+        ProjectedResource resource = readerFor(Projection.of(User.USER_NAME)).readValue(USER)
+
+        when:
+        resource.get(User.EMAILS_VALUE)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def 'a resource can only be bound with a projection'() {
+        when:
+        new ObjectMapper().readValue(USER, ProjectedResource)
+
+        then:
+        thrown(JsonMappingException)
+    }
+
+    def 'a projection of #attributes is rejected'() {
+        when:
+        Projection.of(attributes as Attribute[])
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        attributes << [[], [User.USER_NAME, User.USER_NAME], [Attribute.of('emails.display', String), User.EMAILS]]
+    }
+
+    def 'the path #path is rejected'() {
+        when:
+        Attribute.of(path, String)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        path << ['', '.value', 'emails.', 'name.givenName.first', 'urn:x', "${Enterprise.SCHEMA}:"]
+    }
+
+    private static ObjectReader readerFor(Projection projection) {
+        new ObjectMapper().readerFor(ProjectedResource).withAttribute(Projection, projection)
+    }
+}
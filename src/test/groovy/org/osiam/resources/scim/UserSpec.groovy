@@ -76,6 +76,14 @@ class UserSpec extends Specification {
         parameter << [null, '']
     }
 
+    def 'adding a bound extension that is not serializable raises exception'() {
+        when:
+        new User.Builder('username').addExtension(Enterprise.SCHEMA, new Object())
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
     def 'should generate a user based on builder'() {
         given:
 
@@ -0,0 +1,124 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.mockserver.verify.VerificationTimes;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.scim.User;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class ConditionalRequestsTest {
+
+    private static final int PORT_NUMBER = 9999;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String USER_PATH = "/osiam/Users/" + USER_ID;
+    private static final AccessToken ACCESS_TOKEN = new AccessToken.Builder("token").build();
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    private OsiamConnector connector;
+
+    @Before
+    public void setUp() {
+        connector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .withConditionalRequests(true)
+                .build();
+    }
+
+    @Test
+    public void unmodified_user_is_revalidated_with_its_version() {
+        mockServerClient
+                .when(request().withMethod("GET").withPath(USER_PATH).withHeader("If-None-Match", "\"v1\""))
+                .respond(response().withStatusCode(304));
+        mockServerClient
+                .when(request().withMethod("GET").withPath(USER_PATH))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(user("v1")));
+
+        User user = connector.getUser(USER_ID, ACCESS_TOKEN);
+
+        assertThat(connector.getUser(USER_ID, ACCESS_TOKEN), is(sameInstance(user)));
+        assertThat(connector.getUser(USER_ID, ACCESS_TOKEN), is(sameInstance(user)));
+        mockServerClient.verify(request().withMethod("GET").withPath(USER_PATH), VerificationTimes.exactly(3));
+        mockServerClient.verify(request().withMethod("GET").withPath(USER_PATH)
+                .withHeader("If-None-Match", "\"v1\""), VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void entity_tag_header_is_preferred_over_the_version() throws Exception {
+        mockServerClient
+                .when(request().withMethod("GET").withPath(USER_PATH).withHeader("If-None-Match", "W/\"tag\""))
+                .respond(response().withStatusCode(304));
+        mockServerClient
+                .when(request().withMethod("GET").withPath(USER_PATH))
+                .respond(response()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("ETag", "W/\"tag\"")
+                        .withBody(user("v1")));
+
+        User user = connector.getUser(USER_ID, ACCESS_TOKEN);
+
+        assertThat(connector.async().getUser(USER_ID, ACCESS_TOKEN).get(), is(sameInstance(user)));
+    }
+
+    @Test
+    public void modified_user_is_retrieved_again() {
+        mockServerClient
+                .when(request().withMethod("GET").withPath(USER_PATH).withHeader("If-None-Match", "\"v1\""))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(user("v2")));
+        mockServerClient
+                .when(request().withMethod("GET").withPath(USER_PATH))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(user("v1")));
+
+        User user = connector.getUser(USER_ID, ACCESS_TOKEN);
+        User modifiedUser = connector.getUser(USER_ID, ACCESS_TOKEN);
+
+        assertThat(modifiedUser, is(not(sameInstance(user))));
+        assertThat(modifiedUser.getMeta().getVersion(), is(equalTo("v2")));
+    }
+
+    private static String user(String version) {
+        return "{"
+                + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+                + "\"id\":\"" + USER_ID + "\","
+                + "\"userName\":\"marissa\","
+                + "\"meta\":{\"version\":\"" + version + "\"}"
+                + "}";
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.helper.ExtensionSchemaRegistry;
+import org.osiam.resources.scim.Extension;
+import org.osiam.resources.scim.ExtensionFieldType;
+import org.osiam.resources.scim.ExtensionSchema;
+import org.osiam.resources.scim.User;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class ExtensionSchemasTest {
+
+    private static final int PORT_NUMBER = 9091;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String EXTENSION_URN = "urn:org.osiam:scim:extensions:auth-server";
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String SCHEMAS = "{"
+            + "\"schemas\":[\"urn:ietf:params:scim:api:messages:2.0:ListResponse\"],"
+            + "\"totalResults\":2,"
+            + "\"Resources\":["
+            + "{\"id\":\"urn:ietf:params:scim:schemas:core:2.0:User\","
+            + "\"attributes\":[{\"name\":\"userName\",\"type\":\"string\"}]},"
+            + "{\"id\":\"" + EXTENSION_URN + "\","
+            + "\"attributes\":[{\"name\":\"origin\",\"type\":\"string\"},{\"name\":\"rating\",\"type\":\"decimal\"}]}"
+            + "]}";
+    private static final String USER = "{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\",\"" + EXTENSION_URN + "\"],"
+            + "\"id\":\"" + USER_ID + "\","
+            + "\"userName\":\"marissa\","
+            + "\"" + EXTENSION_URN + "\":{\"origin\":\"ldap\",\"rating\":3}"
+            + "}";
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    private final AccessToken accessToken = new AccessToken.Builder("token").build();
+    private final ExtensionSchemaRegistry registry = new ExtensionSchemaRegistry();
+    private final OsiamConnector connector = new OsiamConnector.Builder()
+            .withEndpoint(ENDPOINT)
+            .withExtensionSchemas(registry)
+            .build();
+
+    @Test
+    public void loaded_extension_schemas_are_registered_without_the_core_schemas() {
+        givenSchemas();
+
+        List<ExtensionSchema> schemas = connector.loadExtensionSchemas(accessToken);
+
+        assertThat(schemas, hasSize(1));
+        ExtensionSchema schema = registry.getSchema(EXTENSION_URN);
+        assertThat(schema, is(notNullValue()));
+        assertThat(schema.getFieldType("rating"), is(equalTo((Object) ExtensionFieldType.DECIMAL)));
+        assertThat(registry.getSchemas(), hasSize(1));
+    }
+
+    @Test
+    public void fields_of_loaded_extensions_are_decoded_into_their_type() {
+        givenSchemas();
+        mockServerClient.when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(USER));
+        connector.loadExtensionSchemas(accessToken);
+
+        User user = connector.getUser(USER_ID, accessToken);
+
+        Extension extension = user.getExtension(EXTENSION_URN);
+        assertThat(extension.getFields().get("rating").getType(), is(equalTo((Object) ExtensionFieldType.DECIMAL)));
+        assertThat(extension.getField("rating", ExtensionFieldType.DECIMAL), is(equalTo(new BigDecimal(3))));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void loading_extension_schemas_requires_a_registry() {
+        new OsiamConnector.Builder().withEndpoint(ENDPOINT).build().loadExtensionSchemas(accessToken);
+    }
+
+    private void givenSchemas() {
+        mockServerClient.when(request().withMethod("GET").withPath("/osiam/Schemas"))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(SCHEMAS));
+    }
+}
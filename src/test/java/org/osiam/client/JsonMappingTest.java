@@ -0,0 +1,63 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.osiam.resources.scim.User;
+
+public class JsonMappingTest {
+
+    private static final String USER_WITH_LEGACY_SCHEMA_OBJECT = "{"
+            + "\"schemas\":[\"" + User.SCHEMA + "\",\"" + OsiamUserService.LEGACY_SCHEMA + "\"],"
+            + "\"userName\":\"bjensen\","
+            + "\"" + OsiamUserService.LEGACY_SCHEMA + "\":{\"key\":\"value\"}"
+            + "}";
+
+    @Test
+    public void mappings_are_shared_per_schema() {
+        assertThat(JsonMapping.forVersion(Version.OSIAM_2), is(sameInstance(JsonMapping.forVersion(Version.OSIAM_3))));
+        assertThat(JsonMapping.forVersion(Version.OSIAM_2_LEGACY_SCHEMAS),
+                is(not(sameInstance(JsonMapping.forVersion(Version.OSIAM_3)))));
+    }
+
+    @Test
+    public void legacy_and_default_mapping_do_not_affect_each_other() throws IOException {
+        User legacyUser = JsonMapping.forVersion(Version.OSIAM_2_LEGACY_SCHEMAS).resourceReader(User.class)
+                .readValue(USER_WITH_LEGACY_SCHEMA_OBJECT);
+        User user = JsonMapping.forVersion(Version.OSIAM_3).resourceReader(User.class)
+                .readValue(USER_WITH_LEGACY_SCHEMA_OBJECT);
+
+        assertFalse(legacyUser.isExtensionPresent(OsiamUserService.LEGACY_SCHEMA));
+        assertTrue(user.isExtensionPresent(OsiamUserService.LEGACY_SCHEMA));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.osiam.resources.helper.UserDeserializer;
+import org.osiam.resources.scim.User;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+public class LegacySchemaParserTest {
+
+    private static final String ENTERPRISE_URN = "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User";
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new SimpleModule()
+                    .addDeserializer(User.class, new UserDeserializer(OsiamUserService.LEGACY_SCHEMA)));
+
+    @Test
+    public void schema_is_replaced_by_the_legacy_schema() throws IOException {
+        Map<String, Object> resource = read("{"
+                + "\"id\":\"1\","
+                + "\"schemas\":[\"" + User.SCHEMA + "\",\"" + ENTERPRISE_URN + "\"],"
+                + "\"userName\":\"bjensen\""
+                + "}", new TypeReference<Map<String, Object>>() {
+                });
+
+        assertThat(resource.get("schemas"),
+                is(equalTo((Object) Arrays.asList(OsiamUserService.LEGACY_SCHEMA, ENTERPRISE_URN))));
+        assertThat(resource.get("userName"), is(equalTo((Object) "bjensen")));
+    }
+
+    @Test
+    public void only_the_top_level_schemas_are_rewritten() throws IOException {
+        Map<String, Object> resource = read("{"
+                + "\"nested\":{\"schemas\":[\"" + User.SCHEMA + "\"]},"
+                + "\"schemas\":[{\"schemas\":[\"" + User.SCHEMA + "\"]}, \"" + User.SCHEMA + "\"]"
+                + "}", new TypeReference<Map<String, Object>>() {
+                });
+
+        assertThat(resource.get("nested"),
+                is(equalTo(mapper.readValue("{\"schemas\":[\"" + User.SCHEMA + "\"]}", Object.class))));
+        assertThat(((List<?>) resource.get("schemas")).size(), is(2));
+        assertThat(((List<?>) resource.get("schemas")).get(0), is(equalTo((Object) OsiamUserService.LEGACY_SCHEMA)));
+    }
+
+    @Test
+    public void user_with_extension_is_read_through_the_legacy_parser() throws IOException {
+        User user = read("{"
+                + "\"schemas\":[\"" + User.SCHEMA + "\",\"" + ENTERPRISE_URN + "\"],"
+                + "\"userName\":\"bjensen\","
+                + "\"" + ENTERPRISE_URN + "\":{\"employeeNumber\":\"701984\"}"
+                + "}", new TypeReference<User>() {
+                });
+
+        assertThat(user.getUserName(), is(equalTo("bjensen")));
+        assertThat(user.getSchemas(), containsInAnyOrder(User.SCHEMA, OsiamUserService.LEGACY_SCHEMA, ENTERPRISE_URN));
+        assertThat(user.getExtension(ENTERPRISE_URN).getFieldAsString("employeeNumber"), is(equalTo("701984")));
+    }
+
+    private <T> T read(String json, TypeReference<T> type) throws IOException {
+        try (JsonParser parser = new LegacySchemaParser(mapper.getFactory().createParser(json), User.SCHEMA,
+                OsiamUserService.LEGACY_SCHEMA)) {
+            return mapper.readValue(parser, type);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.mockserver.model.Delay;
+import org.mockserver.verify.VerificationTimes;
+import org.osiam.client.exception.NoResultException;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.transport.ApacheAsyncHttpTransport;
+import org.osiam.client.transport.ApacheHttpTransport;
+import org.osiam.client.transport.OsiamTransport;
+import org.osiam.resources.scim.User;
+
+import javax.ws.rs.core.Response;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class OsiamAsyncConnectorTest {
+
+    private static final int PORT_NUMBER = 9292;
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String SLOW_USER_ID = "a2f1b3c4-5d6e-4f70-8192-a3b4c5d6e7f8";
+    private static final String endpoint = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    private AccessToken accessToken;
+    private OsiamAsyncConnector connector;
+
+    @Before
+    public void setUp() {
+        connector = new OsiamConnector.Builder().withEndpoint(endpoint).build().async();
+        accessToken = new AccessToken.Builder("c5d116cb-2758-4e7c-9aca-4a115bc4f19e")
+                .setExpiresAt(new Date(System.currentTimeMillis() * 2))
+                .build();
+    }
+
+    @Test
+    public void future_is_completed_with_the_retrieved_user() throws Exception {
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withBody("{"
+                        + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+                        + "\"id\":\"" + USER_ID + "\","
+                        + "\"userName\":\"marissa\""
+                        + "}"));
+
+        User user = connector.getUser(USER_ID, accessToken).get();
+
+        assertThat(user.getId(), is(equalTo(USER_ID)));
+        assertThat(user.getUserName(), is(equalTo("marissa")));
+    }
+
+    @Test
+    public void response_of_a_non_blocking_request_is_mapped_on_the_async_executor() throws Exception {
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withBody("{"
+                        + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+                        + "\"id\":\"" + USER_ID + "\","
+                        + "\"userName\":\"marissa\""
+                        + "}"));
+        final AtomicInteger executedTasks = new AtomicInteger();
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>()) {
+            @Override
+            public void execute(Runnable command) {
+                executedTasks.incrementAndGet();
+                super.execute(command);
+            }
+        };
+        ApacheAsyncHttpTransport transport = new ApacheAsyncHttpTransport(1, 4, 4);
+        try {
+            OsiamAsyncConnector asyncConnector = new OsiamConnector.Builder()
+                    .withEndpoint(endpoint)
+                    .withTransport(transport)
+                    .withAsyncExecutor(executor)
+                    .build()
+                    .async();
+
+            User user = asyncConnector.getUser(USER_ID, accessToken).get();
+
+            assertThat(user.getUserName(), is(equalTo("marissa")));
+            assertThat(executedTasks.get(), is(1));
+        } finally {
+            transport.close();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void future_fails_with_the_same_exception_as_the_blocking_connector() throws Exception {
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withStatusCode(Response.Status.NOT_FOUND.getStatusCode()));
+
+        try {
+            connector.getUser(USER_ID, accessToken).get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(NoResultException.class)));
+        }
+    }
+
+    @Test
+    public void cancelling_a_request_in_flight_releases_the_connection_of_the_jersey_transport() throws Exception {
+        OsiamAsyncConnector asyncConnector = new OsiamConnector.Builder()
+                .withEndpoint(endpoint)
+                .withOwnConnectionPool(1, 1)
+                .build()
+                .async();
+
+        assertThatCancellingReleasesTheConnection(asyncConnector);
+    }
+
+    @Test
+    public void cancelling_a_request_in_flight_releases_the_connection_of_the_apache_transport() throws Exception {
+        OsiamTransport transport = new ApacheHttpTransport(1, 1);
+        try {
+            OsiamAsyncConnector asyncConnector = new OsiamConnector.Builder()
+                    .withEndpoint(endpoint)
+                    .withTransport(transport)
+                    .build()
+                    .async();
+
+            assertThatCancellingReleasesTheConnection(asyncConnector);
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void cancelling_a_request_in_flight_releases_the_connection_of_the_async_transport() throws Exception {
+        ApacheAsyncHttpTransport transport = new ApacheAsyncHttpTransport(1, 1, 1);
+        try {
+            OsiamAsyncConnector asyncConnector = new OsiamConnector.Builder()
+                    .withEndpoint(endpoint)
+                    .withTransport(transport)
+                    .build()
+                    .async();
+
+            assertThatCancellingReleasesTheConnection(asyncConnector);
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void cancelling_the_only_caller_of_a_coalesced_request_releases_the_connection_of_the_async_transport()
+            throws Exception {
+        ApacheAsyncHttpTransport transport = new ApacheAsyncHttpTransport(1, 1, 1);
+        try {
+            OsiamAsyncConnector asyncConnector = new OsiamConnector.Builder()
+                    .withEndpoint(endpoint)
+                    .withTransport(transport)
+                    .withRequestCoalescing(true)
+                    .build()
+                    .async();
+
+            assertThatCancellingReleasesTheConnection(asyncConnector);
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void cancelling_the_only_caller_of_a_coalesced_request_releases_the_connection_of_the_jersey_transport()
+            throws Exception {
+        OsiamAsyncConnector asyncConnector = new OsiamConnector.Builder()
+                .withEndpoint(endpoint)
+                .withOwnConnectionPool(1, 1)
+                .withRequestCoalescing(true)
+                .build()
+                .async();
+
+        assertThatCancellingReleasesTheConnection(asyncConnector);
+    }
+
+    @Test
+    public void cancelling_one_caller_of_a_coalesced_request_does_not_cancel_the_others() throws Exception {
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withBody("{"
+                        + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+                        + "\"id\":\"" + USER_ID + "\","
+                        + "\"userName\":\"marissa\""
+                        + "}").withDelay(new Delay(TimeUnit.MILLISECONDS, 500)));
+        ApacheAsyncHttpTransport transport = new ApacheAsyncHttpTransport(1, 1, 1);
+        try {
+            OsiamAsyncConnector asyncConnector = new OsiamConnector.Builder()
+                    .withEndpoint(endpoint)
+                    .withTransport(transport)
+                    .withRequestCoalescing(true)
+                    .build()
+                    .async();
+
+            Future<User> cancelledUser = asyncConnector.getUser(USER_ID, accessToken);
+            Future<User> user = asyncConnector.getUser(USER_ID, accessToken);
+            cancelledUser.cancel(true);
+
+            assertThat(user.get().getUserName(), is(equalTo("marissa")));
+            mockServerClient.verify(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID),
+                    VerificationTimes.exactly(1));
+        } finally {
+            transport.close();
+        }
+    }
+
+    private void assertThatCancellingReleasesTheConnection(OsiamAsyncConnector asyncConnector) throws Exception {
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + SLOW_USER_ID))
+                .respond(response().withBody("{}").withDelay(new Delay(TimeUnit.SECONDS, 5)));
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withBody("{"
+                        + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+                        + "\"id\":\"" + USER_ID + "\","
+                        + "\"userName\":\"marissa\""
+                        + "}"));
+
+        Future<User> slowUser = asyncConnector.getUser(SLOW_USER_ID, accessToken);
+        awaitRequestTo("/osiam/Users/" + SLOW_USER_ID);
+        slowUser.cancel(true);
+        long start = System.nanoTime();
+        User user = asyncConnector.getUser(USER_ID, accessToken).get();
+
+        assertThat(user.getUserName(), is(equalTo("marissa")));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), is(lessThan(2000L)));
+    }
+
+    private void awaitRequestTo(String path) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mockServerClient.retrieveRecordedRequests(request().withPath(path)).length == 0) {
+            if (System.nanoTime() > deadline) {
+                fail("Expected a request to " + path);
+            }
+            Thread.sleep(50);
+        }
+    }
+}
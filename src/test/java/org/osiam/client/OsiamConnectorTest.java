@@ -23,10 +23,29 @@
  */
 package org.osiam.client;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.scim.User;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
 
 public class OsiamConnectorTest {
 
+    private static final int PORT_NUMBER = 9393;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
     @Test(expected = IllegalStateException.class)
     public void throws_illegal_state_exception_when_no_resource_server_is_configured_and_user_is_retrieved() {
         OsiamConnector connector = new OsiamConnector.Builder().setAuthServerEndpoint("irrelevant").build();
@@ -44,4 +63,40 @@ public class OsiamConnectorTest {
         OsiamConnector connector = new OsiamConnector.Builder().setResourceServerEndpoint("irrelevant").build();
         connector.retrieveAccessToken("irrelevant");
     }
+
+    @Test
+    public void connector_with_own_connection_pool_can_retrieve_resources() {
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withBody("{"
+                        + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+                        + "\"id\":\"" + USER_ID + "\","
+                        + "\"userName\":\"marissa\""
+                        + "}"));
+        OsiamConnector connector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .withOwnConnectionPool(2, 2)
+                .build();
+
+        User user = connector.getUser(USER_ID, new AccessToken.Builder("irrelevant").build());
+
+        assertThat(user.getUserName(), is(equalTo("marissa")));
+        connector.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closed_connector_with_own_connection_pool_cannot_be_used() {
+        OsiamConnector connector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .withOwnConnectionPool(2, 2)
+                .build();
+        connector.close();
+
+        connector.getUser(USER_ID, new AccessToken.Builder("irrelevant").build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void own_connection_pool_without_connections_is_rejected() {
+        new OsiamConnector.Builder().withOwnConnectionPool(0, 1);
+    }
 }
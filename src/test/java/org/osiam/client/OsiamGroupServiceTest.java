@@ -29,15 +29,25 @@ import org.junit.Test;
 import org.mockserver.client.server.MockServerClient;
 import org.mockserver.junit.MockServerRule;
 import org.mockserver.matchers.Times;
+import org.mockserver.verify.VerificationTimes;
 import org.osiam.client.exception.BadRequestException;
+import org.osiam.client.exception.OsiamClientException;
 import org.osiam.client.oauth.AccessToken;
 import org.osiam.client.query.QueryBuilder;
 import org.osiam.resources.scim.Group;
 
 import javax.ws.rs.core.Response;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
-
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
 
@@ -143,6 +153,17 @@ public class OsiamGroupServiceTest {
         service.getAllGroups(accessToken, "displayName");
     }
 
+    @Test
+    public void a_request_for_all_groups_at_once_is_not_sorted() {
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Groups"), Times.once())
+                .respond(response().withBody("{\"totalResults\":1,\"Resources\":[" + group("group1") + "]}"));
+
+        service.getAllGroups(accessToken);
+
+        mockServerClient.verify(request().withQueryStringParameter("sortBy", "id"), VerificationTimes.exactly(0));
+    }
+
 
     @Test
     public void passing_attributes_for_single_group_creates_the_correct_request() {
@@ -162,4 +183,69 @@ public class OsiamGroupServiceTest {
         service.getGroup(groupId, accessToken, "displayName");
     }
 
+    @Test
+    public void all_groups_are_retrieved_in_parallel_pages_and_returned_in_server_order() {
+        mockPage("3", group("group3") + "," + group("group4"));
+        mockPage("5", group("group5"));
+        mockServerClient
+                .when(
+                        request()
+                                .withMethod("GET")
+                                .withPath("/osiam/Groups")
+                                .withQueryStringParameter("count", "2"),
+                        Times.once())
+                .respond(response().withBody("{\"totalResults\":5,\"Resources\":["
+                        + group("group1") + "," + group("group2") + "]}"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Group> groups;
+        try {
+            groups = service.getAllResources(accessToken, 2, 3, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> displayNames = new ArrayList<>();
+        for (Group group : groups) {
+            displayNames.add(group.getDisplayName());
+        }
+        assertThat(displayNames, contains("group1", "group2", "group3", "group4", "group5"));
+    }
+
+    @Test(expected = OsiamClientException.class)
+    public void a_rejected_page_worker_aborts_retrieving_all_groups() {
+        mockServerClient
+                .when(
+                        request()
+                                .withMethod("GET")
+                                .withPath("/osiam/Groups")
+                                .withQueryStringParameter("count", "2"),
+                        Times.once())
+                .respond(response().withBody("{\"totalResults\":5,\"Resources\":["
+                        + group("group1") + "," + group("group2") + "]}"));
+
+        service.getAllResources(accessToken, 2, 3, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+    }
+
+    private void mockPage(String startIndex, String resources) {
+        mockServerClient
+                .when(
+                        request()
+                                .withMethod("GET")
+                                .withPath("/osiam/Groups")
+                                .withQueryStringParameter("count", "2")
+                                .withQueryStringParameter("sortBy", "id")
+                                .withQueryStringParameter("startIndex", startIndex),
+                        Times.once())
+                .respond(response().withBody("{\"totalResults\":5,\"Resources\":[" + resources + "]}"));
+    }
+
+    private String group(String displayName) {
+        return "{\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:Group\"],\"displayName\":\"" + displayName + "\"}";
+    }
 }
@@ -34,9 +34,15 @@ import org.osiam.client.oauth.AccessToken;
 import org.osiam.client.query.QueryBuilder;
 import org.osiam.resources.scim.User;
 
+import com.google.common.util.concurrent.MoreExecutors;
+
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
 
@@ -150,6 +156,42 @@ public class OsiamUserServiceTest {
         service.getUser(userId, accessToken, "userName", "nickName");
     }
 
+    @Test
+    public void iterating_users_retrieves_all_pages() {
+        mockServerClient
+                .when(
+                        request()
+                                .withMethod("GET")
+                                .withPath("/osiam/Users")
+                                .withQueryStringParameter("count", "2")
+                                .withQueryStringParameter("startIndex", "3"),
+                        Times.once())
+                .respond(response().withBody(
+                        "{\"totalResults\":3,\"itemsPerPage\":1,\"startIndex\":3,\"Resources\":["
+                                + "{\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],\"userName\":\"third\"}"
+                                + "]}"));
+        mockServerClient
+                .when(
+                        request()
+                                .withMethod("GET")
+                                .withPath("/osiam/Users")
+                                .withQueryStringParameter("count", "2"),
+                        Times.once())
+                .respond(response().withBody(
+                        "{\"totalResults\":3,\"itemsPerPage\":2,\"startIndex\":1,\"Resources\":["
+                                + "{\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],\"userName\":\"first\"},"
+                                + "{\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],\"userName\":\"second\"}"
+                                + "]}"));
+
+        List<String> userNames = new ArrayList<>();
+        for (User user : service.iterateResources(new QueryBuilder().count(2).build(), accessToken,
+                MoreExecutors.newDirectExecutorService())) {
+            userNames.add(user.getUserName());
+        }
+
+        assertThat(userNames, contains("first", "second", "third"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void delete_null_user_raises_exception() {
         service.deleteUser(null, accessToken);
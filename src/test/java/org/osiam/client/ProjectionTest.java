@@ -0,0 +1,97 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.query.QueryBuilder;
+import org.osiam.resources.scim.ProjectedResource;
+import org.osiam.resources.scim.Projection;
+import org.osiam.resources.scim.SCIMSearchResult;
+import org.osiam.resources.scim.User;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class ProjectionTest {
+
+    private static final int PORT_NUMBER = 9092;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final Projection PROJECTION = Projection.of(User.USER_NAME, User.EMAILS_VALUE);
+    private static final String USER = "{"
+            + "\"id\":\"" + USER_ID + "\","
+            + "\"userName\":\"marissa\","
+            + "\"emails\":[{\"value\":\"marissa@example.com\"}]"
+            + "}";
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    private final AccessToken accessToken = new AccessToken.Builder("token").build();
+    private final OsiamConnector connector = new OsiamConnector.Builder().withEndpoint(ENDPOINT).build();
+
+    @Test
+    public void a_user_is_retrieved_with_the_attributes_of_the_projection() {
+        mockServerClient.when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID)
+                .withQueryStringParameter("attributes", "userName,emails.value"))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(USER));
+
+        ProjectedResource user = connector.getUser(USER_ID, accessToken, PROJECTION);
+
+        assertThat(user.getId(), is(equalTo(USER_ID)));
+        assertThat(user.get(User.USER_NAME), is(equalTo("marissa")));
+        assertThat(user.get(User.EMAILS_VALUE), is(equalTo(Arrays.asList("marissa@example.com"))));
+    }
+
+    @Test
+    public void the_attributes_of_a_search_are_replaced_by_the_projection() {
+        mockServerClient.when(request().withMethod("GET").withPath("/osiam/Users")
+                .withQueryStringParameter("attributes", "userName,emails.value")
+                .withQueryStringParameter("filter", "userName eq \"marissa\""))
+                .respond(response().withHeader("Content-Type", "application/json").withBody("{"
+                        + "\"schemas\":[\"urn:ietf:params:scim:api:messages:2.0:ListResponse\"],"
+                        + "\"totalResults\":1,\"itemsPerPage\":1,\"startIndex\":1,"
+                        + "\"Resources\":[" + USER + "]}"));
+
+        SCIMSearchResult<ProjectedResource> result = connector.searchUsers(new QueryBuilder()
+                .filter("userName eq \"marissa\"")
+                .attributes("displayName")
+                .build(), accessToken, PROJECTION);
+
+        assertThat(result.getTotalResults(), is(1L));
+        assertThat(result.getResources(), hasSize(1));
+        assertThat(result.getResources().get(0).get(User.USER_NAME), is(equalTo("marissa")));
+    }
+}
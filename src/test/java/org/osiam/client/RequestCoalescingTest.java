@@ -0,0 +1,150 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.mockserver.model.Delay;
+import org.mockserver.verify.VerificationTimes;
+import org.osiam.client.exception.NoResultException;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.scim.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class RequestCoalescingTest {
+
+    private static final int PORT_NUMBER = 9089;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String USER_PATH = "/osiam/Users/" + USER_ID;
+    private static final String USER = "{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+            + "\"id\":\"" + USER_ID + "\","
+            + "\"userName\":\"marissa\""
+            + "}";
+    private static final int CALLERS = 8;
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    private final OsiamConnector connector = new OsiamConnector.Builder()
+            .withEndpoint(ENDPOINT)
+            .withRequestCoalescing(true)
+            .build();
+
+    @Test
+    public void concurrent_identical_reads_share_one_request_and_result() throws Exception {
+        mockServerClient
+                .when(request().withMethod("GET").withPath(USER_PATH))
+                .respond(response()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(USER)
+                        .withDelay(new Delay(TimeUnit.MILLISECONDS, 500)));
+
+        List<User> users = getUserConcurrently(new AccessToken.Builder("token").build());
+
+        for (User user : users) {
+            assertThat(user, is(sameInstance(users.get(0))));
+        }
+        mockServerClient.verify(request().withMethod("GET").withPath(USER_PATH), VerificationTimes.exactly(1));
+    }
+
+    @Test
+    public void reads_with_different_access_tokens_are_not_shared() throws Exception {
+        mockServerClient
+                .when(request().withMethod("GET").withPath(USER_PATH))
+                .respond(response()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(USER)
+                        .withDelay(new Delay(TimeUnit.MILLISECONDS, 500)));
+
+        Future<User> user = connector.async().getUser(USER_ID, new AccessToken.Builder("token").build());
+        User otherUser = connector.getUser(USER_ID, new AccessToken.Builder("other-token").build());
+
+        assertThat(otherUser, is(not(sameInstance(user.get()))));
+        mockServerClient.verify(request().withMethod("GET").withPath(USER_PATH), VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void failure_of_a_shared_read_is_thrown_to_all_callers() throws Exception {
+        mockServerClient
+                .when(request().withMethod("GET").withPath(USER_PATH))
+                .respond(response()
+                        .withStatusCode(404)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"schemas\":[\"urn:ietf:params:scim:api:messages:2.0:Error\"],"
+                                + "\"detail\":\"Resource not found\",\"status\":\"404\"}")
+                        .withDelay(new Delay(TimeUnit.MILLISECONDS, 500)));
+
+        try {
+            getUserConcurrently(new AccessToken.Builder("token").build());
+            fail("Expected a NoResultException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(NoResultException.class)));
+        }
+        mockServerClient.verify(request().withMethod("GET").withPath(USER_PATH), VerificationTimes.exactly(1));
+    }
+
+    private List<User> getUserConcurrently(final AccessToken accessToken) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<User>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(new Callable<User>() {
+                    @Override
+                    public User call() {
+                        return connector.getUser(USER_ID, accessToken);
+                    }
+                }));
+            }
+            List<User> users = new ArrayList<>();
+            for (Future<User> future : futures) {
+                users.add(future.get());
+            }
+            return users;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.base.Ticker;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.mockserver.matchers.Times;
+import org.mockserver.verify.VerificationTimes;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.scim.Resource;
+import org.osiam.resources.scim.User;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class ResourceCacheTest {
+
+    private static final int PORT_NUMBER = 9898;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String USER = "{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+            + "\"id\":\"" + USER_ID + "\","
+            + "\"userName\":\"marissa\""
+            + "}";
+    private static final AccessToken ACCESS_TOKEN = new AccessToken.Builder("token").build();
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    @Test
+    public void stored_resource_is_returned_until_it_expires() {
+        ResourceCache cache = new ResourceCache(10, 1, TimeUnit.MINUTES, ticker);
+        User user = new User.Builder("marissa").build();
+        cache.put(key("1", "token"), user, cache.invalidationStamp());
+
+        assertThat(cache.get(key("1", "token")), is(sameInstance((Resource) user)));
+
+        ticker.advance(61, TimeUnit.SECONDS);
+
+        assertThat(cache.get(key("1", "token")), is(nullValue()));
+        assertThat(cache.stats().getHitCount(), is(1L));
+        assertThat(cache.stats().getMissCount(), is(1L));
+        assertThat(cache.stats().getSize(), is(1L));
+    }
+
+    @Test
+    public void expired_resource_is_kept_for_revalidation() {
+        ResourceCache cache = new ResourceCache(10, 1, TimeUnit.MINUTES, ticker);
+        User user = new User.Builder("marissa").build();
+        cache.put(key("1", "token"), user, "\"1\"", cache.invalidationStamp());
+        ticker.advance(61, TimeUnit.SECONDS);
+
+        ResourceCache.CachedResource cachedResource = cache.lookup(key("1", "token"));
+
+        assertThat(cache.isFresh(cachedResource), is(false));
+        assertThat(cachedResource.resource, is(sameInstance((Resource) user)));
+        assertThat(cachedResource.entityTag, is(equalTo("\"1\"")));
+
+        cache.put(key("1", "token"), user, "\"1\"", cache.invalidationStamp());
+
+        assertThat(cache.get(key("1", "token")), is(sameInstance((Resource) user)));
+    }
+
+    @Test
+    public void expired_resource_is_served_stale_until_its_hard_time_to_live() {
+        ResourceCache cache = new ResourceCache(10, TimeUnit.MINUTES.toNanos(1), TimeUnit.MINUTES.toNanos(5), ticker);
+        User user = new User.Builder("marissa").build();
+        cache.put(key("1", "token"), user, cache.invalidationStamp());
+        ticker.advance(2, TimeUnit.MINUTES);
+
+        ResourceCache.CachedResource cachedResource = cache.lookup(key("1", "token"));
+
+        assertThat(cache.isFresh(cachedResource), is(false));
+        assertThat(cache.isServable(cachedResource), is(true));
+        assertThat(cache.stats().getStaleHitCount(), is(1L));
+        assertThat(cache.stats().getStaleHitCounts().get("1"), is(1L));
+
+        ticker.advance(5, TimeUnit.MINUTES);
+
+        assertThat(cache.isServable(cache.lookup(key("1", "token"))), is(false));
+        assertThat(cache.stats().getHitCount(), is(1L));
+        assertThat(cache.stats().getMissCount(), is(1L));
+    }
+
+    @Test
+    public void only_one_refresh_per_key_is_in_flight() {
+        ResourceCache cache = new ResourceCache(10, 1, TimeUnit.MINUTES, ticker);
+
+        assertThat(cache.startRefresh(key("1", "token")), is(true));
+        assertThat(cache.startRefresh(key("1", "token")), is(false));
+        assertThat(cache.startRefresh(key("1", "other-token")), is(true));
+        cache.finishRefresh(key("1", "token"));
+        assertThat(cache.startRefresh(key("1", "token")), is(true));
+    }
+
+    @Test
+    public void resource_is_only_returned_for_the_same_access_token() {
+        ResourceCache cache = new ResourceCache(10, 1, TimeUnit.MINUTES, ticker);
+        cache.put(key("1", "token"), new User.Builder("marissa").build(), cache.invalidationStamp());
+
+        assertThat(cache.get(key("1", "other-token")), is(nullValue()));
+    }
+
+    @Test
+    public void invalidation_removes_the_resource_for_all_access_tokens() {
+        ResourceCache cache = new ResourceCache(10, 1, TimeUnit.MINUTES, ticker);
+        cache.put(key("1", "token"), new User.Builder("marissa").build(), cache.invalidationStamp());
+        cache.put(key("1", "other-token"), new User.Builder("marissa").build(), cache.invalidationStamp());
+        cache.put(key("2", "token"), new User.Builder("koala").build(), cache.invalidationStamp());
+
+        cache.invalidate("1");
+
+        assertThat(cache.get(key("1", "token")), is(nullValue()));
+        assertThat(cache.get(key("1", "other-token")), is(nullValue()));
+        assertThat(cache.get(key("2", "token")), is(notNullValue()));
+    }
+
+    @Test
+    public void resource_retrieved_before_an_invalidation_is_not_stored() {
+        ResourceCache cache = new ResourceCache(10, 1, TimeUnit.MINUTES, ticker);
+        long invalidationStamp = cache.invalidationStamp();
+        cache.invalidate("1");
+
+        cache.put(key("1", "token"), new User.Builder("marissa").build(), invalidationStamp);
+
+        assertThat(cache.get(key("1", "token")), is(nullValue()));
+    }
+
+    @Test
+    public void resource_retrieved_before_an_invalidation_of_another_resource_is_stored() {
+        ResourceCache cache = new ResourceCache(10, 1, TimeUnit.MINUTES, ticker);
+        long invalidationStamp = cache.invalidationStamp();
+        cache.invalidate("2");
+
+        cache.put(key("1", "token"), new User.Builder("marissa").build(), invalidationStamp);
+
+        assertThat(cache.get(key("1", "token")), is(notNullValue()));
+    }
+
+    @Test
+    public void resource_retrieved_under_an_alias_before_its_invalidation_is_not_stored() {
+        ResourceCache cache = new ResourceCache(10, 1, TimeUnit.MINUTES, ticker);
+        long invalidationStamp = cache.invalidationStamp();
+        cache.invalidate("1");
+
+        cache.put(key("Me", "token"), new User.Builder("marissa").setId("1").build(), invalidationStamp);
+
+        assertThat(cache.get(key("Me", "token")), is(nullValue()));
+    }
+
+    @Test
+    public void frequently_read_resources_survive_a_scan() {
+        ResourceCache cache = new ResourceCache(100, 1, TimeUnit.MINUTES, ticker);
+        for (int i = 0; i < 50; i++) {
+            cache.put(key("hot-" + i, "token"), new User.Builder("hot").build(), cache.invalidationStamp());
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            if (i % 100 == 0) {
+                for (int j = 0; j < 50; j++) {
+                    cache.get(key("hot-" + j, "token"));
+                }
+            }
+            cache.put(key("cold-" + i, "token"), new User.Builder("cold").build(), cache.invalidationStamp());
+        }
+
+        int hotResources = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get(key("hot-" + i, "token")) != null) {
+                hotResources++;
+            }
+        }
+        assertThat(hotResources, is(50));
+        assertThat(cache.stats().getSize(), is(100L));
+        assertThat(cache.stats().getEvictionCount(), is(greaterThanOrEqualTo(9950L)));
+    }
+
+    @Test
+    public void connector_reads_a_cached_user_once_and_again_after_replacing_it() throws Exception {
+        OsiamConnector connector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .withResourceCache(100, 1, TimeUnit.MINUTES)
+                .build();
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(USER));
+        mockServerClient
+                .when(request().withMethod("PUT").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(USER));
+
+        User user = connector.getUser(USER_ID, ACCESS_TOKEN);
+        assertThat(connector.getUser(USER_ID, ACCESS_TOKEN), is(sameInstance(user)));
+        assertThat(connector.async().getUser(USER_ID, ACCESS_TOKEN).get(), is(sameInstance(user)));
+        mockServerClient.verify(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID),
+                VerificationTimes.exactly(1));
+
+        connector.replaceUser(USER_ID, new User.Builder("marissa").build(), ACCESS_TOKEN);
+        connector.getUser(USER_ID, ACCESS_TOKEN);
+
+        mockServerClient.verify(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID),
+                VerificationTimes.exactly(2));
+        assertThat(connector.getResourceCacheStats().getHitCount(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void connector_serves_a_stale_user_while_refreshing_it() throws Exception {
+        OsiamConnector connector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .withResourceCache(100, 100, TimeUnit.MILLISECONDS)
+                .withStaleWhileRevalidate(1, TimeUnit.MINUTES)
+                .build();
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID), Times.once())
+                .respond(response().withHeader("Content-Type", "application/json").withBody(USER));
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withHeader("Content-Type", "application/json")
+                        .withBody(USER.replace("marissa", "koala")));
+
+        User user = connector.getUser(USER_ID, ACCESS_TOKEN);
+        Thread.sleep(200);
+
+        assertThat(connector.getUser(USER_ID, ACCESS_TOKEN), is(sameInstance(user)));
+        User refreshedUser = user;
+        for (int i = 0; i < 100 && refreshedUser == user; i++) {
+            Thread.sleep(20);
+            refreshedUser = connector.getUser(USER_ID, ACCESS_TOKEN);
+        }
+        assertThat(refreshedUser.getUserName(), is(equalTo("koala")));
+        assertThat(connector.getResourceCacheStats().getStaleHitCount(), is(greaterThanOrEqualTo(1L)));
+        assertThat(connector.getResourceCacheStats().getStaleHitCounts().get(USER_ID),
+                is(greaterThanOrEqualTo(1L)));
+        connector.close();
+    }
+
+    private static ResourceCache.Key key(String id, String accessToken) {
+        return new ResourceCache.Key("User", id, "", accessToken);
+    }
+
+    private static final class FakeTicker extends Ticker {
+
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        private void advance(long time, TimeUnit unit) {
+            nanos += unit.toNanos(time);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import org.junit.Test;
+import org.osiam.client.exception.OsiamClientException;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.transport.OsiamTransport;
+import org.osiam.client.transport.TransportRequest;
+import org.osiam.client.transport.TransportResponse;
+import org.osiam.resources.scim.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ResponseParsingTest {
+
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String USER = "{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+            + "\"id\":\"" + USER_ID + "\","
+            + "\"userName\":\"marissa\""
+            + "}";
+
+    private final AccessToken accessToken = new AccessToken.Builder("token").build();
+
+    @Test
+    public void a_successful_response_is_parsed_from_the_entity_stream() {
+        StubResponse response = new StubResponse(USER);
+
+        User user = serviceAnswering(response).getUser(USER_ID, accessToken);
+
+        assertThat(user.getUserName(), is(equalTo("marissa")));
+        assertThat(response.body.read, is(USER.length()));
+        assertThat(response.body.closed, is(true));
+        assertThat(response.closed, is(true));
+    }
+
+    @Test
+    public void an_empty_body_raises_an_exception_and_closes_the_response() {
+        assertUnparseable(new StubResponse(""));
+    }
+
+    @Test
+    public void a_truncated_body_raises_an_exception_and_closes_the_response() {
+        assertUnparseable(new StubResponse(USER.substring(0, USER.length() / 2)));
+    }
+
+    @Test
+    public void a_mapping_error_closes_the_stream_and_the_response() {
+        assertUnparseable(new StubResponse("{\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+                + "\"emails\":\"not a list\"," + "\"userName\":\"marissa\"}"));
+    }
+
+    private void assertUnparseable(StubResponse response) {
+        try {
+            serviceAnswering(response).getUser(USER_ID, accessToken);
+            fail("Expected an OsiamClientException");
+        } catch (OsiamClientException e) {
+            assertThat(e.getMessage(), is(equalTo("Unable to parse User")));
+        }
+        assertThat(response.body.closed, is(true));
+        assertThat(response.closed, is(true));
+    }
+
+    private static OsiamUserService serviceAnswering(final TransportResponse response) {
+        return new OsiamUserService(new OsiamTransport() {
+            @Override
+            public TransportResponse execute(TransportRequest request) {
+                return response;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, "http://localhost/osiam", 0, 0, Version.OSIAM_3);
+    }
+
+    private static final class StubResponse implements TransportResponse {
+
+        private final TrackingInputStream body;
+        private boolean closed;
+
+        private StubResponse(String body) {
+            this.body = new TrackingInputStream(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getStatus() {
+            return 200;
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return "OK";
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return null;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final class TrackingInputStream extends ByteArrayInputStream {
+
+        private int read;
+        private boolean closed;
+
+        private TrackingInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] bytes, int offset, int length) {
+            int count = super.read(bytes, offset, length);
+            read += Math.max(count, 0);
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.base.Strings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.transport.ApacheHttpTransport;
+import org.osiam.resources.scim.Group;
+import org.osiam.resources.scim.MemberRef;
+import org.osiam.resources.scim.User;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+import static org.mockserver.model.JsonBody.json;
+
+public class StreamingRequestBodiesTest {
+
+    private static final int PORT_NUMBER = 9797;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String GROUP_ID = "69e1a5dc-89be-4343-976c-b5541af249f4";
+    private static final String DISPLAY_NAME = Strings.repeat("Marissa Koala ", 1000);
+    private static final String USER = "{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+            + "\"id\":\"" + USER_ID + "\","
+            + "\"userName\":\"marissa\""
+            + "}";
+    private static final String LEGACY_GROUP = "{"
+            + "\"schemas\":[\"urn:scim:schemas:core:2.0:Group\"],"
+            + "\"id\":\"" + GROUP_ID + "\","
+            + "\"displayName\":\"koalas\""
+            + "}";
+    private static final AccessToken ACCESS_TOKEN = new AccessToken.Builder("token").build();
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    private ApacheHttpTransport transport;
+
+    @Before
+    public void setUp() {
+        transport = new ApacheHttpTransport(2, 2);
+    }
+
+    @After
+    public void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    public void user_is_streamed_into_the_request() {
+        OsiamConnector connector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .withTransport(transport)
+                .withStreamingRequestBodies(true)
+                .build();
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/Users")
+                        .withBody(json("{\"userName\":\"marissa\",\"displayName\":\"" + DISPLAY_NAME + "\"}")))
+                .respond(response().withStatusCode(201).withHeader("Content-Type", "application/json")
+                        .withBody(USER));
+
+        User user = connector.createUser(new User.Builder("marissa").setDisplayName(DISPLAY_NAME).build(),
+                ACCESS_TOKEN);
+
+        assertThat(user.getId(), is(equalTo(USER_ID)));
+    }
+
+    @Test
+    public void user_is_streamed_with_the_default_transport() {
+        OsiamConnector connector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .withStreamingRequestBodies(true)
+                .build();
+        mockServerClient
+                .when(request().withMethod("PUT").withPath("/osiam/Users/" + USER_ID)
+                        .withBody(json("{\"userName\":\"marissa\",\"displayName\":\"" + DISPLAY_NAME + "\"}")))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(USER));
+
+        User user = connector.replaceUser(USER_ID,
+                new User.Builder("marissa").setDisplayName(DISPLAY_NAME).build(), ACCESS_TOKEN);
+
+        assertThat(user.getId(), is(equalTo(USER_ID)));
+    }
+
+    @Test
+    public void legacy_schema_is_written_while_the_group_is_streamed() {
+        OsiamConnector connector = new OsiamConnector.Builder()
+                .setAuthServerEndpoint(ENDPOINT)
+                .setResourceServerEndpoint(ENDPOINT)
+                .withLegacySchemas(true)
+                .withTransport(transport)
+                .withStreamingRequestBodies(true)
+                .build();
+        mockServerClient
+                .when(request().withMethod("PUT").withPath("/osiam/Groups/" + GROUP_ID)
+                        .withBody(json("{"
+                                + "\"schemas\":[\"urn:scim:schemas:core:2.0:Group\"],"
+                                + "\"displayName\":\"koalas\","
+                                + "\"members\":[{\"value\":\"" + USER_ID + "\"}]"
+                                + "}")))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(LEGACY_GROUP));
+
+        Group group = connector.replaceGroup(GROUP_ID, new Group.Builder("koalas")
+                .addMember(new MemberRef.Builder().setValue(USER_ID).build())
+                .build(), ACCESS_TOKEN);
+
+        assertThat(group.getId(), is(equalTo(GROUP_ID)));
+    }
+
+    @Test
+    public void legacy_schema_is_written_to_buffered_bodies() {
+        OsiamConnector connector = new OsiamConnector.Builder()
+                .setAuthServerEndpoint(ENDPOINT)
+                .setResourceServerEndpoint(ENDPOINT)
+                .withLegacySchemas(true)
+                .withTransport(transport)
+                .build();
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/Groups")
+                        .withBody(json("{"
+                                + "\"schemas\":[\"urn:scim:schemas:core:2.0:Group\"],"
+                                + "\"displayName\":\"koalas\""
+                                + "}")))
+                .respond(response().withStatusCode(201).withHeader("Content-Type", "application/json")
+                        .withBody(LEGACY_GROUP));
+
+        Group group = connector.createGroup(new Group.Builder("koalas").build(), ACCESS_TOKEN);
+
+        assertThat(group.getId(), is(equalTo(GROUP_ID)));
+    }
+}
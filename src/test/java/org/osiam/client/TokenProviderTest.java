@@ -0,0 +1,278 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.Delay;
+import org.mockserver.verify.VerificationTimes;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.Scope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class TokenProviderTest {
+
+    private static final int PORT_NUMBER = 9088;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String CLIENT_CREDENTIALS_GRANT = "scope=ADMIN&grant_type=client_credentials";
+    private static final String REFRESH_TOKEN_GRANT = "scope=ADMIN&grant_type=refresh_token&refresh_token=refresh-1";
+    private static final int CALLERS = 8;
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    private final CapturingScheduler scheduler = new CapturingScheduler();
+    private TokenProvider tokenProvider;
+
+    @Before
+    public void setUp() {
+        OsiamConnector connector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .setClientId("example-client")
+                .setClientSecret("secret")
+                .build();
+        tokenProvider = new TokenProvider(connector.getAuthService(), scheduler, new Random());
+    }
+
+    @Test
+    public void concurrent_callers_share_one_token_request() throws Exception {
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(CLIENT_CREDENTIALS_GRANT))
+                .respond(response()
+                        .withBody("{\"access_token\":\"token-1\",\"expires_at\":" + inOneHour() + "}")
+                        .withDelay(new Delay(TimeUnit.MILLISECONDS, 300)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<AccessToken>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(executor.submit(new Callable<AccessToken>() {
+                @Override
+                public AccessToken call() {
+                    return tokenProvider.getAccessToken(Scope.ADMIN);
+                }
+            }));
+        }
+        AccessToken accessToken = futures.get(0).get();
+        for (Future<AccessToken> future : futures) {
+            assertThat(future.get(), is(sameInstance(accessToken)));
+        }
+        executor.shutdownNow();
+
+        mockServerClient.verify(request().withMethod("POST").withPath("/osiam/oauth/token"),
+                VerificationTimes.exactly(1));
+    }
+
+    @Test
+    public void token_is_refreshed_at_a_jittered_point_before_it_expires() {
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(CLIENT_CREDENTIALS_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-1\",\"expires_at\":" + inOneHour() + ","
+                        + "\"refresh_token\":\"refresh-1\"}"));
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(REFRESH_TOKEN_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-2\",\"expires_at\":" + inOneHour() + "}"));
+
+        assertThat(tokenProvider.getAccessToken(Scope.ADMIN).getToken(), is(equalTo("token-1")));
+        long lifetime = TimeUnit.HOURS.toMillis(1);
+        assertThat(scheduler.delayMillis, is(allOf(greaterThan(lifetime * 79 / 100), lessThan(lifetime * 9 / 10 + 1))));
+
+        scheduler.runScheduledTask();
+
+        assertThat(tokenProvider.getAccessToken(Scope.ADMIN).getToken(), is(equalTo("token-2")));
+        mockServerClient.verify(request().withMethod("POST").withPath("/osiam/oauth/token")
+                .withBody(REFRESH_TOKEN_GRANT), VerificationTimes.exactly(1));
+        mockServerClient.verify(request().withMethod("POST").withPath("/osiam/oauth/token"),
+                VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void invalidated_token_is_retrieved_again() {
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(CLIENT_CREDENTIALS_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-1\",\"expires_at\":" + inOneHour() + "}"));
+        AccessToken accessToken = tokenProvider.getAccessToken(Scope.ADMIN);
+
+        tokenProvider.invalidate(Scope.ADMIN);
+
+        assertThat(tokenProvider.getAccessToken(Scope.ADMIN), is(not(sameInstance(accessToken))));
+        mockServerClient.verify(request().withMethod("POST").withPath("/osiam/oauth/token"),
+                VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void token_with_an_empty_refresh_token_is_retrieved_again_instead_of_refreshed() {
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(CLIENT_CREDENTIALS_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-1\",\"expires_at\":" + inOneHour() + ","
+                        + "\"refresh_token\":\"\"}"));
+        tokenProvider.getAccessToken(Scope.ADMIN);
+
+        scheduler.runScheduledTask();
+
+        mockServerClient.verify(request().withMethod("POST").withPath("/osiam/oauth/token")
+                .withBody(CLIENT_CREDENTIALS_GRANT), VerificationTimes.exactly(2));
+        mockServerClient.verify(request().withMethod("POST").withPath("/osiam/oauth/token"),
+                VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void failed_refresh_is_retried_with_backoff() {
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(CLIENT_CREDENTIALS_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-1\",\"expires_at\":" + inOneHour() + ","
+                        + "\"refresh_token\":\"refresh-1\"}"));
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(REFRESH_TOKEN_GRANT),
+                        Times.once())
+                .respond(response().withStatusCode(503));
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(REFRESH_TOKEN_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-2\",\"expires_at\":" + inOneHour() + "}"));
+        tokenProvider.getAccessToken(Scope.ADMIN);
+
+        scheduler.runScheduledTask();
+
+        assertThat(scheduler.delayMillis, is(1000L));
+        assertThat(tokenProvider.getAccessToken(Scope.ADMIN).getToken(), is(equalTo("token-1")));
+
+        scheduler.runScheduledTask();
+
+        assertThat(tokenProvider.getAccessToken(Scope.ADMIN).getToken(), is(equalTo("token-2")));
+    }
+
+    @Test
+    public void callers_get_the_current_token_while_it_is_refreshed() throws Exception {
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(CLIENT_CREDENTIALS_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-1\",\"expires_at\":" + inOneHour() + ","
+                        + "\"refresh_token\":\"refresh-1\"}"));
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(REFRESH_TOKEN_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-2\",\"expires_at\":" + inOneHour() + "}")
+                        .withDelay(new Delay(TimeUnit.MILLISECONDS, 1000)));
+        tokenProvider.getAccessToken(Scope.ADMIN);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> refresh = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.runScheduledTask();
+            }
+        });
+        Thread.sleep(200);
+
+        long start = System.nanoTime();
+        AccessToken accessToken = tokenProvider.getAccessToken(Scope.ADMIN);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        refresh.get();
+        executor.shutdown();
+
+        assertThat(accessToken.getToken(), is(equalTo("token-1")));
+        assertThat(waitedMillis, is(lessThan(500L)));
+        assertThat(tokenProvider.getAccessToken(Scope.ADMIN).getToken(), is(equalTo("token-2")));
+    }
+
+    @Test
+    public void caller_with_an_expired_token_waits_for_the_refresh_in_flight() throws Exception {
+        long expiresAt = System.currentTimeMillis() + 2000;
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(CLIENT_CREDENTIALS_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-1\",\"expires_at\":" + expiresAt + ","
+                        + "\"refresh_token\":\"refresh-1\"}"));
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/oauth/token").withBody(REFRESH_TOKEN_GRANT))
+                .respond(response().withBody("{\"access_token\":\"token-2\",\"expires_at\":" + inOneHour() + "}")
+                        .withDelay(new Delay(TimeUnit.MILLISECONDS, 3000)));
+        tokenProvider.getAccessToken(Scope.ADMIN);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> refresh = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.runScheduledTask();
+            }
+        });
+        Thread.sleep(Math.max(expiresAt - System.currentTimeMillis(), 0) + 100);
+
+        AccessToken accessToken = tokenProvider.getAccessToken(Scope.ADMIN);
+        refresh.get();
+        executor.shutdown();
+
+        assertThat(accessToken.getToken(), is(equalTo("token-2")));
+        mockServerClient.verify(request().withMethod("POST").withPath("/osiam/oauth/token"),
+                VerificationTimes.exactly(2));
+    }
+
+    private static long inOneHour() {
+        return System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+    }
+
+    /**
+     * Captures the last scheduled task instead of running it, so the test decides when the refresh happens.
+     */
+    private static final class CapturingScheduler extends ScheduledThreadPoolExecutor {
+
+        private Runnable task;
+        private long delayMillis;
+
+        private CapturingScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            task = command;
+            delayMillis = unit.toMillis(delay);
+            return null;
+        }
+
+        private void runScheduledTask() {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client;
+
+import com.google.common.base.Ticker;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.verify.VerificationTimes;
+import org.osiam.client.exception.UnauthorizedException;
+import org.osiam.client.oauth.AccessToken;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class TokenValidationCacheTest {
+
+    private static final int PORT_NUMBER = 9087;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final AccessToken TOKEN = new AccessToken.Builder("token").build();
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    // POST requests are not retried on connections closed by the server of the previous test, so use an own pool
+    private final OsiamConnector connector = new OsiamConnector.Builder()
+            .withEndpoint(ENDPOINT)
+            .withOwnConnectionPool(1, 1)
+            .withTokenValidationCache(100, 10, 1, TimeUnit.MINUTES)
+            .build();
+    private final FakeTicker ticker = new FakeTicker();
+
+    @After
+    public void tearDown() {
+        connector.close();
+    }
+
+    @Test
+    public void valid_token_is_validated_once_until_it_expires() {
+        TokenValidationCache cache = new TokenValidationCache(10, 1, 1, TimeUnit.HOURS, ticker);
+        AccessToken validatedToken = new AccessToken.Builder("token")
+                .setExpiresAt(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1)))
+                .build();
+        cache.putValid(TOKEN, validatedToken, cache.invalidationStamp());
+
+        assertThat(cache.get(TOKEN), is(sameInstance(validatedToken)));
+
+        ticker.advance(2, TimeUnit.MINUTES);
+
+        assertThat(cache.get(TOKEN), is(nullValue()));
+        assertThat(cache.stats().getHitCount(), is(1L));
+        assertThat(cache.stats().getMissCount(), is(1L));
+    }
+
+    @Test
+    public void connector_validates_a_token_once() {
+        givenValidToken();
+
+        AccessToken validatedToken = connector.validateAccessToken(TOKEN);
+
+        assertThat(connector.validateAccessToken(TOKEN), is(sameInstance(validatedToken)));
+        mockServerClient.verify(validationRequest(), VerificationTimes.exactly(1));
+        assertThat(connector.getTokenValidationCacheStats().getHitCount(), is(1L));
+    }
+
+    @Test
+    public void invalid_token_is_rejected_from_the_cache() {
+        mockServerClient
+                .when(validationRequest())
+                .respond(response().withStatusCode(401).withHeader("Content-Type", "application/json")
+                        .withBody("{\"error\":\"invalid_token\",\"error_description\":\"Invalid access token\"}"));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                connector.validateAccessToken(TOKEN);
+                fail("Expected an UnauthorizedException");
+            } catch (UnauthorizedException e) {
+                assertThat(e.getMessage(), is(notNullValue()));
+            }
+        }
+        mockServerClient.verify(validationRequest(), VerificationTimes.exactly(1));
+    }
+
+    @Test
+    public void revoked_token_is_validated_again() {
+        givenValidToken();
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/token/revocation"))
+                .respond(response().withStatusCode(200));
+        connector.validateAccessToken(TOKEN);
+
+        connector.revokeAccessToken(TOKEN);
+        connector.validateAccessToken(TOKEN);
+
+        mockServerClient.verify(validationRequest(), VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void tokens_of_a_user_are_validated_again_after_revoking_all_of_them() {
+        givenValidToken();
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/token/revocation/" + USER_ID))
+                .respond(response().withStatusCode(200));
+        connector.validateAccessToken(TOKEN);
+
+        connector.revokeAllAccessTokens(USER_ID, new AccessToken.Builder("admin-token").build());
+
+        assertThat(connector.validateAccessToken(TOKEN).getUserId(), is(equalTo(USER_ID)));
+        mockServerClient.verify(validationRequest(), VerificationTimes.exactly(2));
+    }
+
+    private void givenValidToken() {
+        mockServerClient
+                .when(validationRequest())
+                .respond(response().withHeader("Content-Type", "application/json")
+                        .withBody("{\"access_token\":\"token\",\"user_id\":\"" + USER_ID + "\",\"expires_at\":"
+                                + (System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)) + "}"));
+    }
+
+    private static HttpRequest validationRequest() {
+        return request().withMethod("POST").withPath("/osiam/token/validation");
+    }
+
+    private static final class FakeTicker extends Ticker {
+
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        private void advance(long time, TimeUnit unit) {
+            nanos += unit.toNanos(time);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.oauth;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class ScopeSetTest {
+
+    @Test
+    public void parsing_returns_the_registered_scope_instances() {
+        ScopeSet scopes = ScopeSet.parse(" ME\tADMIN  ME ");
+
+        assertThat(scopes.size(), is(2));
+        assertThat(scopes, containsInAnyOrder(Scope.ME, Scope.ADMIN));
+        for (Scope scope : scopes) {
+            assertTrue(scope == Scope.ME || scope == Scope.ADMIN);
+        }
+    }
+
+    @Test
+    public void parsing_an_empty_or_null_list_returns_the_empty_set() {
+        assertThat(ScopeSet.parse(null), is(sameInstance(ScopeSet.EMPTY)));
+        assertThat(ScopeSet.parse("  "), is(sameInstance(ScopeSet.EMPTY)));
+        assertThat(ScopeSet.EMPTY, is(empty()));
+    }
+
+    @Test
+    public void unregistered_scopes_are_kept_alongside_registered_ones() {
+        ScopeSet scopes = ScopeSet.parse("ME scope-set-test:unregistered");
+
+        assertThat(scopes.size(), is(2));
+        assertTrue(scopes.hasScope(Scope.ME));
+        assertTrue(scopes.hasScope(new Scope("scope-set-test:unregistered")));
+        assertFalse(scopes.hasScope(Scope.ADMIN));
+        assertTrue(scopes.equals(new HashSet<>(Arrays.asList(Scope.ME, new Scope("scope-set-test:unregistered")))));
+    }
+
+    @Test
+    public void scopes_registered_later_are_recognized() {
+        Scope scope = new Scope("scope-set-test:registered-later");
+        ScopeSet scopes = ScopeSet.of(scope);
+        Scope registeredScope = Scope.register("scope-set-test:registered-later");
+
+        assertTrue(scopes.hasScope(registeredScope));
+        assertTrue(ScopeSet.of(registeredScope).hasScope(scope));
+        assertThat(Scope.of("scope-set-test:registered-later"), is(sameInstance(registeredScope)));
+    }
+
+    @Test
+    public void has_all_and_has_any_check_the_given_scopes() {
+        ScopeSet scopes = ScopeSet.of(Scope.ME, Scope.GET);
+
+        assertTrue(scopes.hasAll(Scope.ME, Scope.GET));
+        assertFalse(scopes.hasAll(Scope.ME, Scope.ADMIN));
+        assertTrue(scopes.hasAny(Scope.ADMIN, Scope.GET));
+        assertFalse(scopes.hasAny(Scope.ADMIN, Scope.DELETE));
+        assertTrue(scopes.hasAll(ScopeSet.of(Scope.GET)));
+        assertFalse(scopes.hasAll(ScopeSet.of(Scope.GET, Scope.ADMIN)));
+        assertTrue(scopes.hasAny(ScopeSet.of(Scope.GET, Scope.ADMIN)));
+        assertFalse(scopes.hasAny(ScopeSet.EMPTY));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void scope_set_is_immutable() {
+        ScopeSet.of(Scope.ME).add(Scope.ADMIN);
+    }
+
+    @Test
+    public void access_token_checks_its_scopes() {
+        AccessToken accessToken = new AccessToken.Builder("token")
+                .addScope(Scope.ME)
+                .addScope(new Scope("ADMIN"))
+                .build();
+
+        assertTrue(accessToken.hasScope(Scope.ADMIN));
+        assertTrue(accessToken.hasAllScopes(Scope.ME, Scope.ADMIN));
+        assertFalse(accessToken.hasAnyScope(Scope.GET, Scope.POST));
+        assertTrue(accessToken.getScopes() instanceof ScopeSet);
+    }
+}
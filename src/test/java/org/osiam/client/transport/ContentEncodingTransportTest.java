@@ -0,0 +1,187 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2013-2016 tarent solutions GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.osiam.client.transport;
+
+import com.google.common.base.Strings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.client.server.MockServerClient;
+import org.mockserver.junit.MockServerRule;
+import org.mockserver.model.BinaryBody;
+import org.osiam.client.OsiamConnector;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.scim.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class ContentEncodingTransportTest {
+
+    private static final int PORT_NUMBER = 9696;
+    private static final String ENDPOINT = String.format("http://localhost:%d/osiam", PORT_NUMBER);
+    private static final String USER_ID = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String DISPLAY_NAME = Strings.repeat("Marissa Koala ", 200);
+    private static final String USER = "{"
+            + "\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],"
+            + "\"id\":\"" + USER_ID + "\","
+            + "\"userName\":\"marissa\","
+            + "\"displayName\":\"" + DISPLAY_NAME + "\""
+            + "}";
+    private static final AccessToken ACCESS_TOKEN = new AccessToken.Builder("token").build();
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this, false, PORT_NUMBER);
+    private MockServerClient mockServerClient;
+
+    private final List<TransferStatistics> transfers = new ArrayList<>();
+    private ApacheHttpTransport transport;
+    private OsiamConnector connector;
+
+    @Before
+    public void setUp() {
+        transport = new ApacheHttpTransport(2, 2);
+        connector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .withTransport(transport)
+                .withResponseCompression(true)
+                .withRequestCompression(true)
+                .withTransferListener(new TransferListener() {
+                    @Override
+                    public void onTransfer(TransferStatistics statistics) {
+                        transfers.add(statistics);
+                    }
+                })
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    public void gzip_compressed_response_is_decompressed() throws IOException {
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID)
+                        .withHeader("Accept-Encoding", "gzip, deflate"))
+                .respond(response()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Content-Encoding", "gzip")
+                        .withBody(new BinaryBody(gzip(USER))));
+
+        User user = connector.getUser(USER_ID, ACCESS_TOKEN);
+
+        assertThat(user.getDisplayName(), is(equalTo(DISPLAY_NAME)));
+        assertThat(transfers, hasSize(1));
+        assertThat(transfers.get(0).getResponseBytes(), is(equalTo((long) USER.length())));
+        assertThat(transfers.get(0).getResponseBytesReceived(), is(lessThan(transfers.get(0).getResponseBytes())));
+    }
+
+    @Test
+    public void uncompressed_response_is_counted() {
+        mockServerClient
+                .when(request().withMethod("GET").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(USER));
+
+        connector.getUser(USER_ID, ACCESS_TOKEN);
+
+        assertThat(transfers.get(0).getResponseBytes(), is(equalTo((long) USER.length())));
+        assertThat(transfers.get(0).getResponseBytesReceived(), is(equalTo((long) USER.length())));
+    }
+
+    @Test
+    public void large_request_body_is_compressed() {
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/Users"))
+                .respond(response().withStatusCode(201).withHeader("Content-Type", "application/json").withBody(USER));
+
+        connector.createUser(new User.Builder("marissa").setDisplayName(DISPLAY_NAME).build(), ACCESS_TOKEN);
+
+        TransferStatistics transfer = transfers.get(0);
+        assertThat(transfer.getMethod(), is(equalTo("POST")));
+        assertThat(transfer.getRequestBytes(), is(greaterThan((long) DISPLAY_NAME.length())));
+        assertThat(transfer.getRequestBytesSent(), is(lessThan(transfer.getRequestBytes())));
+    }
+
+    @Test
+    public void small_request_body_is_not_compressed() {
+        mockServerClient
+                .when(request().withMethod("POST").withPath("/osiam/Users"))
+                .respond(response().withStatusCode(201).withHeader("Content-Type", "application/json").withBody(USER));
+
+        connector.createUser(new User.Builder("marissa").build(), ACCESS_TOKEN);
+
+        TransferStatistics transfer = transfers.get(0);
+        assertThat(transfer.getRequestBytesSent(), is(equalTo(transfer.getRequestBytes())));
+    }
+
+    @Test
+    public void streamed_request_body_is_compressed_and_counted() {
+        OsiamConnector streamingConnector = new OsiamConnector.Builder()
+                .withEndpoint(ENDPOINT)
+                .withTransport(transport)
+                .withRequestCompression(true)
+                .withStreamingRequestBodies(true)
+                .withTransferListener(new TransferListener() {
+                    @Override
+                    public void onTransfer(TransferStatistics statistics) {
+                        transfers.add(statistics);
+                    }
+                })
+                .build();
+        mockServerClient
+                .when(request().withMethod("PUT").withPath("/osiam/Users/" + USER_ID))
+                .respond(response().withHeader("Content-Type", "application/json").withBody(USER));
+
+        streamingConnector.replaceUser(USER_ID, new User.Builder("marissa").setDisplayName(DISPLAY_NAME).build(),
+                ACCESS_TOKEN);
+
+        TransferStatistics transfer = transfers.get(0);
+        assertThat(transfer.getRequestBytes(), is(greaterThan((long) DISPLAY_NAME.length())));
+        assertThat(transfer.getRequestBytesSent(), is(lessThan(transfer.getRequestBytes())));
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(body)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return body.toByteArray();
+    }
+}